@@ -0,0 +1,214 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import com.google.inject.Guice;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkOption;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import prometheus.api.Prometheus;
+import prometheus.guice.PrometheusModule;
+import tags.Tag;
+import workload.FanOutDistribution;
+
+/**
+ * Benchmarks of the KNN searches on synthetic networks.
+ * <p>
+ * Searches excite the KNs they visit, and a fired KN stops propagating, so
+ * repeating a search on the same KNN does less and less work. The forward,
+ * backward and lambda searches are therefore measured in single shot mode,
+ * with a fresh copy of the network loaded before each iteration. Direct search
+ * does the same work every time and is measured as an average.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KnowledgeNodeNetworkBenchmark {
+    private static final long SEED = 42;
+    private static final int INPUT_COUNT = 16;
+    private static final double MATCH_RATIO = 0.5;
+    private static final String DEFAULT_IMPLEMENTATION = "DEFAULT";
+
+    /**
+     * Number of KNs in the network.
+     */
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    /**
+     * Mean number of output Tags of each KN.
+     */
+    @Param({"2", "8"})
+    public int fanOut;
+
+    /**
+     * Distribution of the number of output Tags of the KNs.
+     */
+    @Param({"FIXED"})
+    public FanOutDistribution distribution;
+
+    /**
+     * KNN implementation: either DEFAULT or a
+     * {@link KnowledgeNodeNetworkOption}.
+     */
+    @Param({DEFAULT_IMPLEMENTATION, "TAG_IDS", "PARALLEL_FORWARD_SEARCH",
+            "CONCURRENT"})
+    public String implementation;
+
+    /**
+     * Clock the KNs are aged with: a clock {@link KnowledgeNodeNetworkOption},
+     * or DEFAULT for the system clock. The logical clock never moves during a
+     * run, so that no KN expires and the results do not depend on how long
+     * the run takes.
+     */
+    @Param({"LOGICAL_CLOCK"})
+    public String clock;
+
+    private SyntheticKnowledgeNetwork network;
+    private KnowledgeNodeNetwork knn;
+    private Set<Tag> forwardInputs;
+    private Set<Tag> backwardInputs;
+    private int nextDirectInput;
+
+    /**
+     * Generates the network and loads it in the KNN.
+     */
+    @Setup(Level.Trial)
+    public void setupNetwork() {
+        network = new SyntheticKnowledgeNetwork(size, fanOut, distribution,
+                SEED);
+        knn = createKnowledgeNodeNetwork(implementation, clock);
+        knn.setBackwardSearchMatchRatio(MATCH_RATIO);
+        forwardInputs = network.pickInputTags(INPUT_COUNT);
+        backwardInputs = network.pickOutputTags(INPUT_COUNT);
+        network.populate(knn);
+    }
+
+    /**
+     * Ply of the searches. Kept apart so that only the searches taking a ply
+     * are run for each ply value.
+     */
+    @State(Scope.Thread)
+    public static class Search {
+        /**
+         * Number of search iterations, 0 meaning until no new Tags are
+         * activated.
+         */
+        @Param({"1", "3", "0"})
+        public int ply;
+
+        /**
+         * Reloads unexcited KNs, with the inputs of the think searches as
+         * active Tags.
+         *
+         * @param benchmark the benchmark state
+         */
+        @Setup(Level.Iteration)
+        public void resetNetwork(final KnowledgeNodeNetworkBenchmark benchmark) {
+            benchmark.network.populate(benchmark.knn);
+            benchmark.knn.addActiveTags(
+                    benchmark.forwardInputs.toArray(new Tag[0]));
+        }
+    }
+
+    /**
+     * @return the Tags activated by a direct search
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 5)
+    public Set<Tag> directSearch() {
+        final Tag input = network.getInputTag(nextDirectInput);
+        nextDirectInput = (nextDirectInput + 1) % network.size();
+        return knn.directSearch(input);
+    }
+
+    /**
+     * @param search the search state
+     * @return the Tags activated by a forward search
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 30)
+    public Set<Tag> forwardSearch(final Search search) {
+        return knn.forwardSearch(forwardInputs, search.ply);
+    }
+
+    /**
+     * @param search the search state
+     * @return the Tags activated by a forward search from the active Tags
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 30)
+    public Set<Tag> forwardThink(final Search search) {
+        return knn.forwardThink(search.ply);
+    }
+
+    /**
+     * @param search the search state
+     * @return the Tags activated by a backward search
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 30)
+    public Set<Tag> backwardSearch(final Search search) {
+        return knn.backwardSearch(backwardInputs, search.ply);
+    }
+
+    /**
+     * @param search the search state
+     * @return the Tags activated by a lambda search
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 30)
+    public Set<Tag> lambdaSearch(final Search search) {
+        return knn.lambdaSearch(backwardInputs, search.ply);
+    }
+
+    /**
+     * Creates a KNN through the Prometheus Guice modules.
+     *
+     * @param implementation DEFAULT or the name of a
+     *                       {@link KnowledgeNodeNetworkOption}
+     * @param clock          DEFAULT or the name of a clock
+     *                       {@link KnowledgeNodeNetworkOption}
+     * @return the KNN
+     */
+    private static KnowledgeNodeNetwork createKnowledgeNodeNetwork(
+            final String implementation,
+            final String clock) {
+        final List<KnowledgeNodeNetworkOption> options = new ArrayList<>();
+        for (final String option : Arrays.asList(implementation, clock)) {
+            if (!DEFAULT_IMPLEMENTATION.equals(option)) {
+                options.add(KnowledgeNodeNetworkOption.valueOf(option));
+            }
+        }
+        final KnowledgeNodeNetworkModule module =
+                new KnowledgeNodeNetworkModule(options.toArray(
+                        new KnowledgeNodeNetworkOption[0]));
+        return Guice.createInjector(new PrometheusModule(module))
+                .getInstance(Prometheus.class).getKnowledgeNodeNetwork();
+    }
+}
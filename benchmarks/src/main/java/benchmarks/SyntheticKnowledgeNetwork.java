@@ -0,0 +1,127 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeParseException;
+import tags.Tag;
+import workload.FanOutDistribution;
+import workload.WorkloadGenerator;
+
+/**
+ * A KNN generated by a {@link WorkloadGenerator}, kept in memory so that fresh
+ * copies can be loaded quickly. The output Tags are the input Tags of other
+ * KNs, half of them closing cycles, so that searches can chain through the
+ * network. The same seed always gives the same network.
+ */
+public final class SyntheticKnowledgeNetwork {
+    private static final int THRESHOLD = KnowledgeNode.ACTIVATION_INCREMENT;
+    private static final double CYCLE_DENSITY = 0.5;
+
+    private final List<Tag> inputTags;
+    private final List<Set<Tag>> outputTags;
+    private final Random random;
+
+    /**
+     * Generates a synthetic KNN.
+     *
+     * @param size         the number of KNs
+     * @param fanOut       the mean number of output Tags of each KN
+     * @param distribution the distribution of the fan-outs
+     * @param seed         the seed of the random generator
+     */
+    public SyntheticKnowledgeNetwork(
+            final int size,
+            final int fanOut,
+            final FanOutDistribution distribution,
+            final long seed) {
+        this.random = new Random(seed);
+        this.inputTags = new ArrayList<>(size);
+        this.outputTags = new ArrayList<>(size);
+        new WorkloadGenerator(seed)
+                .setCount(size)
+                .setMeanFanOut(fanOut)
+                .setFanOutDistribution(distribution)
+                .setCycleDensity(CYCLE_DENSITY)
+                .knowledgeNodes()
+                .forEach(this::addLine);
+    }
+
+    /**
+     * @return the number of KNs of the network
+     */
+    public int size() {
+        return inputTags.size();
+    }
+
+    /**
+     * Replaces the contents of the given KNN with fresh, unexcited KNs of this
+     * network.
+     *
+     * @param knn the KNN to fill
+     */
+    public void populate(final KnowledgeNodeNetwork knn) {
+        knn.resetEmpty();
+        for (int i = 0; i < inputTags.size(); i++) {
+            knn.addKnowledgeNode(new KnowledgeNode(
+                    inputTags.get(i), outputTags.get(i), THRESHOLD));
+        }
+    }
+
+    /**
+     * Gets the input Tag of a KN.
+     *
+     * @param index the index of the KN
+     * @return the input Tag of the KN
+     */
+    public Tag getInputTag(final int index) {
+        return inputTags.get(index);
+    }
+
+    /**
+     * Picks random input Tags, suitable for forward search.
+     *
+     * @param count the number of KNs to pick
+     * @return the input Tags of the picked KNs
+     */
+    public Set<Tag> pickInputTags(final int count) {
+        final Set<Tag> tags = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            tags.add(inputTags.get(random.nextInt(inputTags.size())));
+        }
+        return tags;
+    }
+
+    /**
+     * Picks the output Tags of random KNs, suitable for backward search.
+     *
+     * @param count the number of KNs to pick
+     * @return the output Tags of the picked KNs
+     */
+    public Set<Tag> pickOutputTags(final int count) {
+        final Set<Tag> tags = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            tags.addAll(outputTags.get(random.nextInt(outputTags.size())));
+        }
+        return tags;
+    }
+
+    /**
+     * Parses a generated KNN data line.
+     *
+     * @param line the data line
+     */
+    private void addLine(final String line) {
+        try {
+            final KnowledgeNode kn = new KnowledgeNode(line);
+            inputTags.add(kn.getInputTag());
+            outputTags.add(kn.getOutputTags());
+        } catch (final KnowledgeNodeParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
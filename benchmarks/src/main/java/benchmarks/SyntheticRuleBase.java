@@ -0,0 +1,115 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import es.api.IndexedFactSet;
+import tags.Fact;
+import tags.Rule;
+
+/**
+ * A randomly generated ES rule base. The Rules form chains of a given cascade
+ * depth: the Rule at level {@code d} of chain {@code c} has the input Fact
+ * {@code c<c>l<d>(k,v)} and outputs the input Fact of the next level, so each
+ * think cycle activates one more level. The last level outputs the
+ * Recommendation {@code @c<c>(k)}. The initial Facts are the inputs of the
+ * first level, along with non-matching Facts sharing the predicates of every
+ * level. The same seed always gives the same rule base.
+ */
+public final class SyntheticRuleBase {
+    private static final String CONSTANT = "v";
+    private static final String VARIABLE = "&x";
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final List<String> sentences = new ArrayList<>();
+    private final List<Fact> facts = new ArrayList<>();
+
+    /**
+     * Generates a synthetic rule base.
+     *
+     * @param ruleCount         the number of Rules
+     * @param factsPerPredicate the number of initial Facts per predicate name
+     * @param variableDensity   the probability for a Rule to have a variable
+     *                          argument instead of a constant one
+     * @param cascadeDepth      the length of the Rule chains
+     * @param seed              the seed of the random generator
+     */
+    public SyntheticRuleBase(
+            final int ruleCount,
+            final int factsPerPredicate,
+            final double variableDensity,
+            final int cascadeDepth,
+            final long seed) {
+        final Random random = new Random(seed);
+        for (int i = 0; i < ruleCount; i++) {
+            final int chain = i / cascadeDepth;
+            final int level = i % cascadeDepth;
+            String argument = CONSTANT;
+            if (random.nextDouble() < variableDensity) {
+                argument = VARIABLE;
+            }
+            final String input = predicate(chain, level, "k", argument);
+            String output = "@c" + chain + "(k)";
+            if (level < cascadeDepth - 1) {
+                output = predicate(chain, level + 1, "k", argument);
+            }
+            rules.add(new Rule(new String[] {input}, new String[] {output}));
+            sentences.add("if " + input + " then " + output);
+            if (level == 0) {
+                facts.add(new Fact(predicate(chain, level, "k", CONSTANT)));
+            }
+            for (int j = 1; j < factsPerPredicate; j++) {
+                facts.add(new Fact(predicate(chain, level, "j" + j, CONSTANT)));
+            }
+        }
+    }
+
+    /**
+     * @return the number of Rules of the rule base
+     */
+    public int size() {
+        return rules.size();
+    }
+
+    /**
+     * @return a new mutable Set of all the Rules
+     */
+    public Set<Rule> newRules() {
+        return new HashSet<>(rules);
+    }
+
+    /**
+     * @return a new mutable Set of the initial Facts
+     */
+    public IndexedFactSet newFacts() {
+        return new IndexedFactSet(facts);
+    }
+
+    /**
+     * @return the Rules as natural language sentences, as understood by
+     * {@code ExpertSystem.teach}
+     */
+    public List<String> getSentences() {
+        return Collections.unmodifiableList(sentences);
+    }
+
+    /**
+     * Formats a predicate of the rule base.
+     *
+     * @param chain  the chain of the predicate
+     * @param level  the level of the predicate in its chain
+     * @param key    the first argument
+     * @param value  the second argument
+     * @return the predicate as a String
+     */
+    private static String predicate(
+            final int chain,
+            final int level,
+            final String key,
+            final String value) {
+        return "c" + chain + "l" + level + "(" + key + "," + value + ")";
+    }
+}
@@ -0,0 +1,94 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import workload.FanOutDistribution;
+import workload.WorkloadGenerator;
+
+/**
+ * Command line entry point of the {@link WorkloadGenerator}:
+ * <pre>
+ * java -cp benchmarks.jar benchmarks.WorkloadMain (knn|rules) FILE
+ *     [count=N] [fanOut=N] [distribution=FIXED|UNIFORM|POWER_LAW]
+ *     [cycles=R] [numeric=R] [variable=R] [shared=R] [pool=N] [seed=N]
+ * </pre>
+ * The output is streamed, so the size of the generated file is not limited by
+ * the heap.
+ */
+public final class WorkloadMain {
+    private WorkloadMain() {
+    }
+
+    /**
+     * Generates a workload file.
+     *
+     * @param args the kind of workload, the output file and the settings
+     * @throws IOException if writing the file fails
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException(
+                    "Usage: (knn|rules) FILE [name=value]...");
+        }
+        long seed = 0;
+        int count = 1000;
+        double fanOut = 2;
+        FanOutDistribution distribution = FanOutDistribution.FIXED;
+        double cycles = 0;
+        double numeric = 0;
+        double variable = 0;
+        double shared = 0;
+        int pool = 100;
+        for (int i = 2; i < args.length; i++) {
+            final String[] setting = args[i].split("=", 2);
+            final String value = setting[setting.length - 1];
+            switch (setting[0]) {
+                case "seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "count":
+                    count = Integer.parseInt(value);
+                    break;
+                case "fanOut":
+                    fanOut = Double.parseDouble(value);
+                    break;
+                case "distribution":
+                    distribution = FanOutDistribution.valueOf(value);
+                    break;
+                case "cycles":
+                    cycles = Double.parseDouble(value);
+                    break;
+                case "numeric":
+                    numeric = Double.parseDouble(value);
+                    break;
+                case "variable":
+                    variable = Double.parseDouble(value);
+                    break;
+                case "shared":
+                    shared = Double.parseDouble(value);
+                    break;
+                case "pool":
+                    pool = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                            "Unknown setting: " + args[i]);
+            }
+        }
+        final WorkloadGenerator generator = new WorkloadGenerator(seed)
+                .setCount(count)
+                .setMeanFanOut(fanOut)
+                .setFanOutDistribution(distribution)
+                .setCycleDensity(cycles)
+                .setArgumentMix(numeric, variable)
+                .setSharedTags(shared, pool);
+        if ("rules".equals(args[0])) {
+            generator.writeRules(Paths.get(args[1]));
+        } else if ("knn".equals(args[0])) {
+            generator.writeKnowledgeNodes(Paths.get(args[1]));
+        } else {
+            throw new IllegalArgumentException(
+                    "Unknown workload: " + args[0]);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package es.internal;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import benchmarks.SyntheticRuleBase;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import es.api.ExpertSystemOption;
+import es.api.IndexedFactSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tags.Predicate;
+import tags.Recommendation;
+import tags.Rule;
+
+/**
+ * Benchmarks of the ES internals on synthetic rule bases. Placed in the
+ * {@code es.internal} package to reach the package-private classes.
+ * <p>
+ * Thinking activates the ready Rules and adds the activated Facts, so the
+ * think benchmarks are measured in single shot mode, with fresh ES contents
+ * before each iteration. Merging Rules and teaching do not change the outcome
+ * of the next call and are measured as averages.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExpertSystemBenchmark {
+    private static final long SEED = 42;
+    private static final String DEFAULT_IMPLEMENTATION = "DEFAULT";
+
+    /**
+     * Number of Rules in the ES.
+     */
+    @Param({"100", "1000", "10000"})
+    public int ruleCount;
+
+    /**
+     * Number of initial Facts sharing each predicate name.
+     */
+    @Param({"1", "10"})
+    public int factsPerPredicate;
+
+    /**
+     * Probability for a Rule to have a variable argument.
+     */
+    @Param({"0.0", "0.5"})
+    public double variableDensity;
+
+    /**
+     * Number of think cycles needed to activate a whole Rule chain.
+     */
+    @Param({"2", "8"})
+    public int cascadeDepth;
+
+    private SyntheticRuleBase ruleBase;
+    private Set<Rule> mergeRules;
+    private Teacher teacher;
+    private List<String> sentences;
+    private int nextSentence;
+
+    /**
+     * Generates the rule base.
+     */
+    @Setup(Level.Trial)
+    public void setupRuleBase() {
+        ruleBase = new SyntheticRuleBase(ruleCount, factsPerPredicate,
+                variableDensity, cascadeDepth, SEED);
+        mergeRules = ruleBase.newRules();
+        teacher = new Teacher(ruleBase.newRules());
+        sentences = ruleBase.getSentences();
+    }
+
+    /**
+     * Think cycle executor implementation. Kept apart so that only the think
+     * benchmarks are run for each implementation.
+     */
+    @State(Scope.Thread)
+    public static class Thinking {
+        /**
+         * Either DEFAULT or an {@link ExpertSystemOption}.
+         */
+        @Param({DEFAULT_IMPLEMENTATION, "RETE", "SEMI_NAIVE"})
+        public String implementation;
+
+        private ThinkCycleExecutorFactory thinkCycleExecutorFactory;
+        private ThinkerFactory thinkerFactory;
+        private ThinkCycleExecutor thinkCycleExecutor;
+        private Thinker thinker;
+        private int numberOfCycles;
+
+        /**
+         * Creates the factories of the selected implementation.
+         *
+         * @param benchmark the benchmark state
+         */
+        @Setup(Level.Trial)
+        public void setupFactories(final ExpertSystemBenchmark benchmark) {
+            final Injector injector = Guice.createInjector(
+                    new ExpertSystemInternalModule(getOptions()));
+            thinkCycleExecutorFactory =
+                    injector.getInstance(ThinkCycleExecutorFactory.class);
+            thinkerFactory = injector.getInstance(ThinkerFactory.class);
+            numberOfCycles = benchmark.cascadeDepth + 1;
+        }
+
+        /**
+         * Loads the initial Rules and Facts in a fresh ES.
+         *
+         * @param benchmark the benchmark state
+         */
+        @Setup(Level.Iteration)
+        public void resetExpertSystem(final ExpertSystemBenchmark benchmark) {
+            final Set<Rule> readyRules = benchmark.ruleBase.newRules();
+            final Set<Rule> activeRules = new HashSet<>();
+            final IndexedFactSet facts = benchmark.ruleBase.newFacts();
+            final Set<Recommendation> recommendations = new HashSet<>();
+            thinkCycleExecutor = thinkCycleExecutorFactory.create(
+                    readyRules, activeRules, facts, recommendations);
+            thinkCycleExecutor.prepare();
+            thinker = thinkerFactory.create(
+                    new HashSet<>(readyRules), new HashSet<>(activeRules),
+                    new IndexedFactSet(facts), new HashSet<>(recommendations));
+        }
+
+        /**
+         * @return the ES options of the selected implementation
+         */
+        private ExpertSystemOption[] getOptions() {
+            if (DEFAULT_IMPLEMENTATION.equals(implementation)) {
+                return new ExpertSystemOption[0];
+            }
+            return new ExpertSystemOption[] {
+                    ExpertSystemOption.valueOf(implementation)};
+        }
+    }
+
+    /**
+     * @param thinking the thinking state
+     * @return the Predicates activated by a single think cycle
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 30)
+    public Set<Predicate> thinkCycle(final Thinking thinking) {
+        return thinking.thinkCycleExecutor.thinkCycle();
+    }
+
+    /**
+     * @param thinking the thinking state
+     * @return the Recommendations activated by thinking until quiescence
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 30)
+    public Set<Recommendation> think(final Thinking thinking) {
+        return thinking.thinker.think(false, thinking.numberOfCycles);
+    }
+
+    /**
+     * @param thinking the thinking state
+     * @return the Recommendations activated by thinking until quiescence,
+     * generating the proven Rule
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 30)
+    public Set<Recommendation> thinkWithRuleGeneration(
+            final Thinking thinking) {
+        return thinking.thinker.think(true, thinking.numberOfCycles);
+    }
+
+    /**
+     * @return the merged Rule found among the Rules, if any
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 5)
+    public Optional<Rule> makeMergedRule() {
+        return new RuleMerger().makeMergedRule(mergeRules);
+    }
+
+    /**
+     * Teaches the next sentence of the rule base. The taught Rules are already
+     * ready, so the number of Rules stays the same.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 5)
+    public void teach() {
+        teacher.teach(sentences.get(nextSentence));
+        nextSentence = (nextSentence + 1) % sentences.size();
+    }
+}
@@ -3,7 +3,6 @@ package es.api;
 import java.util.Set;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
-import tags.Fact;
 import tags.Recommendation;
 import tags.Rule;
 
@@ -16,7 +15,7 @@ public interface ExpertSystemFactory {
      *
      * @param readyRules      the ready rules of the ES
      * @param activeRules     the active rules of the ES
-     * @param facts           the facts of the ES
+     * @param facts           the facts of the ES, indexed for matching
      * @param recommendations the recommendations of the ES
      * @return the created ES
      */
@@ -24,6 +23,6 @@ public interface ExpertSystemFactory {
     ExpertSystem create(
             @Assisted("readyRules") Set<Rule> readyRules,
             @Assisted("activeRules") Set<Rule> activeRules,
-            @Assisted("facts") Set<Fact> facts,
+            @Assisted("facts") IndexedFactSet facts,
             @Assisted("recommendations") Set<Recommendation> recommendations);
 }
@@ -0,0 +1,21 @@
+package es.api;
+
+/**
+ * Options selecting the execution strategy of the ES. Options are passed to
+ * the ES Guice module and apply to every ES it creates.
+ */
+public enum ExpertSystemOption {
+    /**
+     * Matches Rules against Facts with an incrementally maintained Rete
+     * network, instead of testing every Rule against every Fact at each think
+     * cycle.
+     */
+    RETE,
+    /**
+     * Evaluates all the ready Rules in the first think cycle only, and in the
+     * following cycles only the Rules whose conditions mention the predicate
+     * names of the Facts activated in the previous cycle. Cannot be combined
+     * with {@link #RETE}.
+     */
+    SEMI_NAIVE
+}
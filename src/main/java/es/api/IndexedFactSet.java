@@ -0,0 +1,240 @@
+package es.api;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import tags.Argument;
+import tags.Fact;
+
+/**
+ * Set of Facts indexed by predicate name and number of arguments, used as the
+ * working memory of the ES.
+ * <p>
+ * A Fact can only match a condition with the same predicate name. Without
+ * match-all arguments, it must also have the same number of arguments. The
+ * index therefore narrows down the candidate Facts of a condition to a single
+ * bucket. Facts containing match-all arguments, and conditions containing
+ * them, fall back to all the Facts with the same predicate name.
+ */
+public final class IndexedFactSet extends AbstractSet<Fact> {
+    private final Set<Fact> facts = new HashSet<>();
+    private final Map<String, PredicateBucket> buckets = new HashMap<>();
+
+    /**
+     * Creates an empty indexed Fact set.
+     */
+    public IndexedFactSet() {
+    }
+
+    /**
+     * Creates an indexed Fact set containing the given Facts.
+     *
+     * @param facts the initial Facts
+     */
+    public IndexedFactSet(final Collection<Fact> facts) {
+        addAll(facts);
+    }
+
+    @Override
+    public boolean add(final Fact fact) {
+        if (!facts.add(fact)) {
+            return false;
+        }
+        buckets.computeIfAbsent(fact.getPredicateName(),
+                k -> new PredicateBucket()).getSet(fact, true).add(fact);
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        if (!facts.remove(o)) {
+            return false;
+        }
+        unindex((Fact) o);
+        return true;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return facts.contains(o);
+    }
+
+    @Override
+    public void clear() {
+        facts.clear();
+        buckets.clear();
+    }
+
+    @Override
+    public int size() {
+        return facts.size();
+    }
+
+    @Override
+    public Iterator<Fact> iterator() {
+        final Iterator<Fact> iterator = facts.iterator();
+        return new Iterator<Fact>() {
+            private Fact lastReturned;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Fact next() {
+                lastReturned = iterator.next();
+                return lastReturned;
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                unindex(lastReturned);
+            }
+        };
+    }
+
+    /**
+     * Gets the Facts which may match the given condition, i.e., the ones for
+     * which {@link Fact#getMatchResult(Fact)} must be called.
+     *
+     * @param condition the condition, i.e., an input Fact of a Rule
+     * @return the candidate Facts
+     */
+    public Iterable<Fact> getCandidates(final Fact condition) {
+        final PredicateBucket bucket =
+                buckets.get(condition.getPredicateName());
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+        final List<Set<Fact>> candidateSets = new ArrayList<>();
+        if (hasMatchAll(condition)) {
+            candidateSets.addAll(bucket.byArity.values());
+        } else {
+            final Set<Fact> sameArity = bucket.getSet(condition, false);
+            if (sameArity != null) {
+                candidateSets.add(sameArity);
+            }
+        }
+        candidateSets.add(bucket.matchAll);
+        return () -> new ConcatenatingIterator(candidateSets);
+    }
+
+    /**
+     * Removes the given Fact from the index.
+     *
+     * @param fact the Fact to remove
+     */
+    private void unindex(final Fact fact) {
+        final PredicateBucket bucket = buckets.get(fact.getPredicateName());
+        bucket.getSet(fact, false).remove(fact);
+        bucket.prune(fact);
+        if (bucket.isEmpty()) {
+            buckets.remove(fact.getPredicateName());
+        }
+    }
+
+    /**
+     * Checks if the given Fact has a match-all argument.
+     *
+     * @param fact the Fact
+     * @return true if one of the arguments of the Fact is match-all
+     */
+    private static boolean hasMatchAll(final Fact fact) {
+        for (final Argument argument : fact.getArguments()) {
+            if (argument.getSymbol() == Argument.ArgType.MATCHALL) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The Facts with a given predicate name.
+     */
+    private static final class PredicateBucket {
+        private final Map<Integer, Set<Fact>> byArity = new HashMap<>();
+        private final Set<Fact> matchAll = new HashSet<>();
+
+        /**
+         * Gets the set the given Fact belongs in.
+         *
+         * @param fact   the Fact
+         * @param create true to create the set if it does not exist
+         * @return the set, or null if it does not exist and create is false
+         */
+        Set<Fact> getSet(final Fact fact, final boolean create) {
+            if (hasMatchAll(fact)) {
+                return matchAll;
+            }
+            final int arity = fact.getArguments().size();
+            if (create) {
+                return byArity.computeIfAbsent(arity, k -> new HashSet<>());
+            }
+            return byArity.get(arity);
+        }
+
+        /**
+         * Drops the arity set of the given Fact if it is empty.
+         *
+         * @param fact the Fact
+         */
+        void prune(final Fact fact) {
+            final int arity = fact.getArguments().size();
+            final Set<Fact> arityFacts = byArity.get(arity);
+            if (arityFacts != null && arityFacts.isEmpty()) {
+                byArity.remove(arity);
+            }
+        }
+
+        /**
+         * @return true if the bucket holds no Facts
+         */
+        boolean isEmpty() {
+            return byArity.isEmpty() && matchAll.isEmpty();
+        }
+    }
+
+    /**
+     * Iterator over the elements of several sets, in turn.
+     */
+    private static final class ConcatenatingIterator
+            implements Iterator<Fact> {
+        private final Iterator<Set<Fact>> sets;
+        private Iterator<Fact> current = Collections.emptyIterator();
+
+        /**
+         * Creates the iterator.
+         *
+         * @param sets the sets to iterate over
+         */
+        ConcatenatingIterator(final List<Set<Fact>> sets) {
+            this.sets = sets.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && sets.hasNext()) {
+                current = sets.next().iterator();
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public Fact next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+}
@@ -1,14 +1,26 @@
 package es.guice;
 
 import com.google.inject.AbstractModule;
+import es.api.ExpertSystemOption;
 import es.internal.ExpertSystemInternalModule;
 
 /**
  * Guice module to load the ES.
  */
 public final class ExpertSystemModule extends AbstractModule {
+    private final ExpertSystemOption[] options;
+
+    /**
+     * Creates the ES module.
+     *
+     * @param options the options selecting the ES implementation
+     */
+    public ExpertSystemModule(final ExpertSystemOption... options) {
+        this.options = options.clone();
+    }
+
     @Override
     protected void configure() {
-        install(new ExpertSystemInternalModule());
+        install(new ExpertSystemInternalModule(options));
     }
 }
@@ -5,6 +5,7 @@ import java.util.Collections;
 import java.util.Set;
 import com.google.inject.assistedinject.Assisted;
 import es.api.ExpertSystem;
+import es.api.IndexedFactSet;
 import tags.Fact;
 import tags.Recommendation;
 import tags.Rule;
@@ -19,14 +20,14 @@ class ExpertSystemImpl implements ExpertSystem {
     private final Rester rester;
     private final Set<Rule> readyRules;
     private final Set<Rule> activeRules;
-    private final Set<Fact> facts;
+    private final IndexedFactSet facts;
     private final Set<Recommendation> recommendations;
 
     @Inject
     ExpertSystemImpl(
             @Assisted("readyRules") final Set<Rule> readyRules,
             @Assisted("activeRules") final Set<Rule> activeRules,
-            @Assisted("facts") final Set<Fact> facts,
+            @Assisted("facts") final IndexedFactSet facts,
             @Assisted("recommendations")
             final Set<Recommendation> recommendations,
             final ThinkerFactory thinkerFactory,
@@ -60,12 +61,12 @@ class ExpertSystemImpl implements ExpertSystem {
 
     @Override
     public void teach(final String sentence) {
-        teacher.teach(sentence);
+        teacher.teach(sentence).ifPresent(thinker::readyRuleAdded);
     }
 
     @Override
     public void rest(final int numberOfCycles) {
-        rester.rest(numberOfCycles);
+        rester.rest(numberOfCycles).forEach(thinker::readyRuleAdded);
     }
 
     @Override
@@ -74,11 +75,14 @@ class ExpertSystemImpl implements ExpertSystem {
         readyRules.clear();
         facts.clear();
         recommendations.clear();
+        thinker.cleared();
     }
 
     @Override
     public void deactivateRules() {
-        readyRules.addAll(activeRules);
+        for (final Rule rule : activeRules) {
+            addReadyRule(rule);
+        }
         activeRules.clear();
     }
 
@@ -103,22 +107,38 @@ class ExpertSystemImpl implements ExpertSystem {
 
     @Override
     public boolean addReadyRule(final Rule rule) {
-        return readyRules.add(rule);
+        if (readyRules.add(rule)) {
+            thinker.readyRuleAdded(rule);
+            return true;
+        }
+        return false;
     }
 
     @Override
     public boolean removeReadyRule(final Rule rule) {
-        return readyRules.remove(rule);
+        if (readyRules.remove(rule)) {
+            thinker.readyRuleRemoved(rule);
+            return true;
+        }
+        return false;
     }
 
     @Override
     public boolean addFact(final Fact fact) {
-        return facts.add(fact);
+        if (facts.add(fact)) {
+            thinker.factAdded(fact);
+            return true;
+        }
+        return false;
     }
 
     @Override
     public boolean removeFact(final Fact fact) {
-        return facts.remove(fact);
+        if (facts.remove(fact)) {
+            thinker.factRemoved(fact);
+            return true;
+        }
+        return false;
     }
 
     @Override
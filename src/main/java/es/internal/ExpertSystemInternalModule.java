@@ -1,20 +1,44 @@
 package es.internal;
 
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
 import com.google.inject.AbstractModule;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
 import es.api.ExpertSystem;
 import es.api.ExpertSystemFactory;
+import es.api.ExpertSystemOption;
 
 /**
  * Internal Guice module for the ES.
  */
 public final class ExpertSystemInternalModule extends AbstractModule {
+    private final Set<ExpertSystemOption> options;
+
+    /**
+     * Creates the internal ES module.
+     *
+     * @param options the options selecting the ES implementation
+     */
+    public ExpertSystemInternalModule(final ExpertSystemOption... options) {
+        this.options = EnumSet.noneOf(ExpertSystemOption.class);
+        this.options.addAll(Arrays.asList(options));
+    }
+
     @Override
     protected void configure() {
+        if (options.contains(ExpertSystemOption.RETE)
+                && options.contains(ExpertSystemOption.SEMI_NAIVE)) {
+            addError("ES options %s and %s cannot be combined.",
+                    ExpertSystemOption.RETE, ExpertSystemOption.SEMI_NAIVE);
+        }
+
         install(new FactoryModuleBuilder()
                 .implement(ExpertSystem.class, ExpertSystemImpl.class)
                 .build(ExpertSystemFactory.class));
         install(new FactoryModuleBuilder()
+                .implement(ThinkCycleExecutor.class,
+                        getThinkCycleExecutorImplementation())
                 .build(ThinkCycleExecutorFactory.class));
         install(new FactoryModuleBuilder()
                 .build(ThinkerFactory.class));
@@ -23,4 +47,18 @@ public final class ExpertSystemInternalModule extends AbstractModule {
         install(new FactoryModuleBuilder()
                 .build(ResterFactory.class));
     }
+
+    /**
+     * @return the think cycle executor implementation selected by the options
+     */
+    private Class<? extends ThinkCycleExecutor>
+    getThinkCycleExecutorImplementation() {
+        if (options.contains(ExpertSystemOption.RETE)) {
+            return ReteThinkCycleExecutor.class;
+        }
+        if (options.contains(ExpertSystemOption.SEMI_NAIVE)) {
+            return SemiNaiveThinkCycleExecutor.class;
+        }
+        return ThinkCycleExecutor.class;
+    }
 }
@@ -1,6 +1,8 @@
 package es.internal;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import com.google.inject.assistedinject.Assisted;
 import tags.Rule;
@@ -28,10 +30,15 @@ class Rester {
      *
      * @param numberOfCycles how many cycles over the rule-set to attempt to
      *                       merge
+     * @return the merged Rules added to the ready Rules
      */
-    void rest(final int numberOfCycles) {
+    List<Rule> rest(final int numberOfCycles) {
+        final List<Rule> mergedRules = new ArrayList<>();
         for (int i = 0; i < numberOfCycles; i++) {
-            ruleMerger.makeMergedRule(readyRules).ifPresent(readyRules::add);
+            ruleMerger.makeMergedRule(readyRules)
+                    .filter(readyRules::add)
+                    .ifPresent(mergedRules::add);
         }
+        return mergedRules;
     }
 }
@@ -0,0 +1,315 @@
+package es.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import es.api.IndexedFactSet;
+import tags.Argument;
+import tags.Fact;
+import tags.Rule;
+import tags.VariableReturn;
+
+/**
+ * Rete network matching the input Facts of Rules against the Facts of the ES.
+ * <p>
+ * Every distinct input Fact (condition) of the Rules has an alpha memory,
+ * holding the Facts matching it along with their variable bindings. Alpha
+ * memories are shared between the Rules having the same condition, and are
+ * indexed by predicate name, so that adding a Fact only tests it against the
+ * conditions it can possibly match.
+ * <p>
+ * In the ES, a Rule is activated when each of its conditions is matched by at
+ * least one Fact, and variable bindings are not required to agree between
+ * conditions. The beta network therefore reduces to one join node per Rule,
+ * whose token counts the conditions currently matched. When the count reaches
+ * the number of conditions, the Rule enters the agenda. Adding or removing a
+ * Fact only updates the memories and join nodes it affects.
+ */
+class ReteNetwork {
+    private final Map<Fact, AlphaMemory> alphaMemories = new HashMap<>();
+    private final Map<String, List<AlphaMemory>> alphaMemoriesByName =
+            new HashMap<>();
+    private final IndexedFactSet knownFacts = new IndexedFactSet();
+    private final Map<Rule, JoinNode> joinNodes = new HashMap<>();
+    private final Set<Rule> agenda = new LinkedHashSet<>();
+
+    /**
+     * Adds a Fact to the network, updating the alpha memories of the
+     * conditions it matches.
+     *
+     * @param fact the Fact to add
+     * @return true if the Fact was not already in the network
+     */
+    boolean addFact(final Fact fact) {
+        if (!knownFacts.add(fact)) {
+            return false;
+        }
+        final List<AlphaMemory> memories =
+                alphaMemoriesByName.get(fact.getPredicateName());
+        if (memories != null) {
+            for (final AlphaMemory memory : memories) {
+                memory.add(fact);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes a Fact from the network.
+     *
+     * @param fact the Fact to remove
+     * @return true if the Fact was in the network
+     */
+    boolean removeFact(final Fact fact) {
+        if (!knownFacts.remove(fact)) {
+            return false;
+        }
+        final List<AlphaMemory> memories =
+                alphaMemoriesByName.get(fact.getPredicateName());
+        if (memories != null) {
+            for (final AlphaMemory memory : memories) {
+                memory.remove(fact);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a Rule to the network, creating the alpha memories of its
+     * conditions if needed.
+     *
+     * @param rule the Rule to add
+     * @return true if the Rule was not already in the network
+     */
+    boolean addRule(final Rule rule) {
+        if (joinNodes.containsKey(rule)) {
+            return false;
+        }
+        final JoinNode joinNode = new JoinNode(rule);
+        joinNodes.put(rule, joinNode);
+        for (final Fact condition : rule.getInputFacts()) {
+            final AlphaMemory memory = alphaMemories.get(condition);
+            if (memory == null) {
+                joinNode.addMemory(createAlphaMemory(condition));
+            } else {
+                joinNode.addMemory(memory);
+            }
+        }
+        if (joinNode.isSatisfied()) {
+            agenda.add(rule);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a Rule from the network, dropping the alpha memories no other
+     * Rule uses.
+     *
+     * @param rule the Rule to remove
+     * @return true if the Rule was in the network
+     */
+    boolean removeRule(final Rule rule) {
+        final JoinNode joinNode = joinNodes.remove(rule);
+        if (joinNode == null) {
+            return false;
+        }
+        agenda.remove(rule);
+        for (final AlphaMemory memory : joinNode.memories) {
+            memory.successors.remove(joinNode);
+            if (memory.successors.isEmpty()) {
+                alphaMemories.remove(memory.condition);
+                final List<AlphaMemory> memories = alphaMemoriesByName
+                        .get(memory.condition.getPredicateName());
+                memories.remove(memory);
+                if (memories.isEmpty()) {
+                    alphaMemoriesByName.remove(
+                            memory.condition.getPredicateName());
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all the Rules and Facts from the network.
+     */
+    void clear() {
+        alphaMemories.clear();
+        alphaMemoriesByName.clear();
+        knownFacts.clear();
+        joinNodes.clear();
+        agenda.clear();
+    }
+
+    /**
+     * Checks if the given Rule is in the network.
+     *
+     * @param rule the Rule
+     * @return true if the Rule is in the network
+     */
+    boolean containsRule(final Rule rule) {
+        return joinNodes.containsKey(rule);
+    }
+
+    /**
+     * @return the Rules whose conditions are all matched, in the order they
+     * were matched
+     */
+    Set<Rule> getAgenda() {
+        return Collections.unmodifiableSet(agenda);
+    }
+
+    /**
+     * Gets the variable bindings of the Facts matching the conditions of the
+     * given Rule.
+     *
+     * @param rule the Rule
+     * @return the variable bindings, from variable name to argument
+     */
+    Map<String, Argument> getReplacementPairs(final Rule rule) {
+        final Map<String, Argument> pairs = new HashMap<>();
+        final JoinNode joinNode = joinNodes.get(rule);
+        if (joinNode != null) {
+            for (final AlphaMemory memory : joinNode.memories) {
+                for (final Map<String, Argument> factPairs
+                        : memory.matches.values()) {
+                    pairs.putAll(factPairs);
+                }
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Creates the alpha memory of a condition, filled with the Facts already
+     * in the network which match it.
+     *
+     * @param condition the condition
+     * @return the created alpha memory
+     */
+    private AlphaMemory createAlphaMemory(final Fact condition) {
+        final AlphaMemory memory = new AlphaMemory(condition);
+        alphaMemories.put(condition, memory);
+        alphaMemoriesByName.computeIfAbsent(condition.getPredicateName(),
+                k -> new ArrayList<>()).add(memory);
+        for (final Fact fact : knownFacts.getCandidates(condition)) {
+            memory.add(fact);
+        }
+        return memory;
+    }
+
+    /**
+     * Alpha memory holding the Facts matching a condition.
+     */
+    private static final class AlphaMemory {
+        private final Fact condition;
+        private final Map<Fact, Map<String, Argument>> matches =
+                new HashMap<>();
+        private final List<JoinNode> successors = new ArrayList<>();
+
+        /**
+         * Creates an empty alpha memory.
+         *
+         * @param condition the condition
+         */
+        AlphaMemory(final Fact condition) {
+            this.condition = condition;
+        }
+
+        /**
+         * Stores the given Fact if it matches the condition, notifying the
+         * successors if the memory was empty.
+         *
+         * @param fact the Fact
+         */
+        void add(final Fact fact) {
+            final VariableReturn result = fact.getMatchResult(condition);
+            if (!result.isFactMatch()) {
+                return;
+            }
+            final boolean wasEmpty = matches.isEmpty();
+            matches.put(fact, result.getPairs());
+            if (wasEmpty) {
+                for (final JoinNode successor : successors) {
+                    successor.conditionMatched();
+                }
+            }
+        }
+
+        /**
+         * Removes the given Fact, notifying the successors if the memory
+         * becomes empty.
+         *
+         * @param fact the Fact
+         */
+        void remove(final Fact fact) {
+            if (matches.remove(fact) != null && matches.isEmpty()) {
+                for (final JoinNode successor : successors) {
+                    successor.conditionUnmatched();
+                }
+            }
+        }
+    }
+
+    /**
+     * Join node of a Rule, counting its matched conditions.
+     */
+    private final class JoinNode {
+        private final Rule rule;
+        private final List<AlphaMemory> memories = new ArrayList<>();
+        private int numMatched;
+
+        /**
+         * Creates the join node of a Rule with no conditions yet.
+         *
+         * @param rule the Rule
+         */
+        JoinNode(final Rule rule) {
+            this.rule = rule;
+        }
+
+        /**
+         * Connects the join node to the alpha memory of a condition.
+         *
+         * @param memory the alpha memory
+         */
+        void addMemory(final AlphaMemory memory) {
+            memories.add(memory);
+            memory.successors.add(this);
+            if (!memory.matches.isEmpty()) {
+                numMatched++;
+            }
+        }
+
+        /**
+         * @return true if all the conditions are matched
+         */
+        boolean isSatisfied() {
+            return numMatched == memories.size();
+        }
+
+        /**
+         * Records that a condition became matched.
+         */
+        void conditionMatched() {
+            numMatched++;
+            if (isSatisfied()) {
+                agenda.add(rule);
+            }
+        }
+
+        /**
+         * Records that a condition is no longer matched.
+         */
+        void conditionUnmatched() {
+            if (isSatisfied()) {
+                agenda.remove(rule);
+            }
+            numMatched--;
+        }
+    }
+}
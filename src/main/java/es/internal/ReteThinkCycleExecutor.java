@@ -0,0 +1,99 @@
+package es.internal;
+
+import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import com.google.inject.assistedinject.Assisted;
+import es.api.IndexedFactSet;
+import tags.Argument;
+import tags.Fact;
+import tags.Predicate;
+import tags.Recommendation;
+import tags.Rule;
+
+/**
+ * Think cycle executor matching the Rules against the Facts with a
+ * {@link ReteNetwork}, instead of testing every condition of every ready Rule
+ * against every Fact at each cycle.
+ * <p>
+ * The network is built from the Rules and Facts of the ES when the executor
+ * is created, and is then updated incrementally: the ES notifies the executor
+ * of the Rules and Facts it adds and removes, and each cycle adds the Facts
+ * it activates and removes the Rules it activates. Thinking therefore never
+ * rescans the Rules and Facts of the ES.
+ * <p>
+ * Variables are bound from the Facts matching the conditions of the Rules
+ * activated in the cycle. The default executor also binds them from the
+ * matched conditions of the Rules it evaluates without activating them.
+ * Results can therefore differ when an output variable of an activated Rule
+ * is bound by none of its conditions, or is also bound by the conditions of
+ * another Rule.
+ */
+class ReteThinkCycleExecutor extends ThinkCycleExecutor {
+    private final ReteNetwork network;
+
+    @Inject
+    ReteThinkCycleExecutor(
+            @Assisted("readyRules") final Set<Rule> readyRules,
+            @Assisted("activeRules") final Set<Rule> activeRules,
+            @Assisted("facts") final IndexedFactSet facts,
+            @Assisted("recommendations")
+            final Set<Recommendation> recommendations) {
+        super(readyRules, activeRules, facts, recommendations);
+        this.network = new ReteNetwork();
+        for (final Fact fact : facts) {
+            network.addFact(fact);
+        }
+        for (final Rule rule : readyRules) {
+            network.addRule(rule);
+        }
+    }
+
+    @Override
+    void readyRuleAdded(final Rule rule) {
+        network.addRule(rule);
+    }
+
+    @Override
+    void readyRuleRemoved(final Rule rule) {
+        network.removeRule(rule);
+    }
+
+    @Override
+    void factAdded(final Fact fact) {
+        network.addFact(fact);
+    }
+
+    @Override
+    void factRemoved(final Fact fact) {
+        network.removeFact(fact);
+    }
+
+    @Override
+    void cleared() {
+        network.clear();
+    }
+
+    @Override
+    Set<Predicate> thinkCycle() {
+        final Set<Rule> pendingActivatedRules =
+                new HashSet<>(network.getAgenda());
+        final Map<String, Argument> pendingReplacementPairs = new HashMap<>();
+        for (final Rule rule : pendingActivatedRules) {
+            pendingReplacementPairs.putAll(network.getReplacementPairs(rule));
+            // Remove before activating, which may modify the Rule.
+            network.removeRule(rule);
+        }
+        final Set<Predicate> activatedPredicates =
+                activateRulesAndReplaceVariableArguments(pendingActivatedRules,
+                        pendingReplacementPairs);
+        for (final Predicate predicate : activatedPredicates) {
+            if (predicate instanceof Fact) {
+                network.addFact((Fact) predicate);
+            }
+        }
+        return activatedPredicates;
+    }
+}
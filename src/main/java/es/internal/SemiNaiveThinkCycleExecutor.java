@@ -0,0 +1,103 @@
+package es.internal;
+
+import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import com.google.inject.assistedinject.Assisted;
+import es.api.IndexedFactSet;
+import tags.Fact;
+import tags.Predicate;
+import tags.Recommendation;
+import tags.Rule;
+
+/**
+ * Think cycle executor using semi-naive evaluation. The first cycle after
+ * {@link #prepare()} evaluates all the ready Rules. Since Facts are only added
+ * while thinking, a Rule which did not activate can only activate in a later
+ * cycle if one of its conditions mentions the predicate name of a Fact
+ * activated in the previous cycle. Every following cycle therefore only
+ * evaluates those Rules.
+ * <p>
+ * Variables are bound from the Facts matching the conditions of the Rules
+ * activated in the cycle, see {@link #thinkCycle(Iterable)}. The default
+ * executor also binds them from the matched conditions of the Rules it
+ * evaluates without activating them, which the Rules skipped by semi-naive
+ * evaluation could not contribute. Results can therefore differ when an
+ * output variable of an activated Rule is bound by none of its conditions,
+ * or is also bound by the conditions of another Rule.
+ */
+class SemiNaiveThinkCycleExecutor extends ThinkCycleExecutor {
+    private final Set<Rule> readyRules;
+    private final Map<String, Set<Rule>> rulesByPredicateName;
+    private Set<String> deltaPredicateNames;
+
+    @Inject
+    SemiNaiveThinkCycleExecutor(
+            @Assisted("readyRules") final Set<Rule> readyRules,
+            @Assisted("activeRules") final Set<Rule> activeRules,
+            @Assisted("facts") final IndexedFactSet facts,
+            @Assisted("recommendations")
+            final Set<Recommendation> recommendations) {
+        super(readyRules, activeRules, facts, recommendations);
+        this.readyRules = readyRules;
+        this.rulesByPredicateName = new HashMap<>();
+    }
+
+    @Override
+    void prepare() {
+        deltaPredicateNames = null;
+    }
+
+    @Override
+    Set<Predicate> thinkCycle() {
+        final Set<Predicate> activatedPredicates;
+        if (deltaPredicateNames == null) {
+            indexReadyRules();
+            activatedPredicates = thinkCycle(readyRules);
+        } else {
+            activatedPredicates = thinkCycle(getCandidateRules());
+        }
+        deltaPredicateNames = new HashSet<>();
+        for (final Predicate predicate : activatedPredicates) {
+            if (predicate instanceof Fact) {
+                deltaPredicateNames.add(predicate.getPredicateName());
+            }
+        }
+        return activatedPredicates;
+    }
+
+    /**
+     * Indexes the ready Rules by the predicate names of their conditions.
+     */
+    private void indexReadyRules() {
+        rulesByPredicateName.clear();
+        for (final Rule rule : readyRules) {
+            for (final Fact condition : rule.getInputFacts()) {
+                rulesByPredicateName.computeIfAbsent(
+                        condition.getPredicateName(), k -> new HashSet<>())
+                        .add(rule);
+            }
+        }
+    }
+
+    /**
+     * @return the ready Rules having a condition which mentions a predicate
+     * name activated in the previous cycle
+     */
+    private Set<Rule> getCandidateRules() {
+        final Set<Rule> candidateRules = new HashSet<>();
+        for (final String predicateName : deltaPredicateNames) {
+            final Set<Rule> rules = rulesByPredicateName.get(predicateName);
+            if (rules != null) {
+                for (final Rule rule : rules) {
+                    if (readyRules.contains(rule)) {
+                        candidateRules.add(rule);
+                    }
+                }
+            }
+        }
+        return candidateRules;
+    }
+}
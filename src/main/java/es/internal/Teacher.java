@@ -31,14 +31,15 @@ class Teacher {
      * Creates a Rule from the given natural language sentence.
      *
      * @param sentence the sentence to learn from
+     * @return the Rule added to the ready Rules, if any
      */
-    void teach(final String sentence) {
+    Optional<Rule> teach(final String sentence) {
         final String[] tokens = sentence.split("\\s");
         final List<String> tokenList = new ArrayList<>();
         tokenList.addAll(Arrays.asList(tokens));
         final int[] ruleIndices = findRuleIndices(tokenList);
-        makeTaughtRule(tokenList, ruleIndices[0], ruleIndices[1])
-                .ifPresent(readyRules::add);
+        return makeTaughtRule(tokenList, ruleIndices[0], ruleIndices[1])
+                .filter(readyRules::add);
     }
 
     /**
@@ -6,6 +6,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import com.google.inject.assistedinject.Assisted;
+import es.api.IndexedFactSet;
 import tags.Argument;
 import tags.Fact;
 import tags.Predicate;
@@ -19,14 +20,14 @@ import tags.VariableReturn;
 class ThinkCycleExecutor {
     private final Set<Rule> readyRules;
     private final Set<Rule> activeRules;
-    private final Set<Fact> facts;
+    private final IndexedFactSet facts;
     private final Set<Recommendation> recommendations;
 
     @Inject
     ThinkCycleExecutor(
             @Assisted("readyRules") final Set<Rule> readyRules,
             @Assisted("activeRules") final Set<Rule> activeRules,
-            @Assisted("facts") final Set<Fact> facts,
+            @Assisted("facts") final IndexedFactSet facts,
             @Assisted("recommendations")
             final Set<Recommendation> recommendations) {
         this.readyRules = readyRules;
@@ -35,6 +36,57 @@ class ThinkCycleExecutor {
         this.recommendations = recommendations;
     }
 
+    /**
+     * Prepares the executor for a sequence of think cycles. Called before
+     * thinking, since the Rules and Facts of the ES may have changed since the
+     * last think cycle.
+     */
+    void prepare() {
+    }
+
+    /**
+     * Notifies the executor that a ready Rule has been added to the ES
+     * outside of think cycles.
+     *
+     * @param rule the added Rule
+     */
+    void readyRuleAdded(final Rule rule) {
+    }
+
+    /**
+     * Notifies the executor that a ready Rule has been removed from the ES
+     * outside of think cycles.
+     *
+     * @param rule the removed Rule
+     */
+    void readyRuleRemoved(final Rule rule) {
+    }
+
+    /**
+     * Notifies the executor that a Fact has been added to the ES outside of
+     * think cycles.
+     *
+     * @param fact the added Fact
+     */
+    void factAdded(final Fact fact) {
+    }
+
+    /**
+     * Notifies the executor that a Fact has been removed from the ES outside
+     * of think cycles.
+     *
+     * @param fact the removed Fact
+     */
+    void factRemoved(final Fact fact) {
+    }
+
+    /**
+     * Notifies the executor that all the Rules and Facts have been removed
+     * from the ES.
+     */
+    void cleared() {
+    }
+
     /**
      * Makes the ES think for a single cycle.
      * <p>
@@ -47,21 +99,59 @@ class ThinkCycleExecutor {
         final Set<Rule> pendingActivatedRules = new HashSet<>();
         final Map<String, Argument> pendingReplacementPairs = new HashMap<>();
         for (final Rule rule : readyRules) {
-            boolean shouldActivate = true;
-            for (final Fact fact : rule.getInputFacts()) {
-                if (!factsContains(fact, pendingReplacementPairs)) {
-                    shouldActivate = false;
-                    break;
-                }
+            if (matchesInputFacts(rule, pendingReplacementPairs)) {
+                pendingActivatedRules.add(rule);
             }
-            if (shouldActivate) {
+        }
+        return activateRulesAndReplaceVariableArguments(pendingActivatedRules,
+                pendingReplacementPairs);
+    }
+
+    /**
+     * Makes the ES think for a single cycle, only evaluating the given ready
+     * Rules. Unlike {@link #thinkCycle()}, which binds variables from the
+     * Facts matching the conditions of every evaluated Rule, variables are
+     * only bound from the Facts matching the conditions of the activated
+     * Rules.
+     *
+     * @param candidateRules the ready Rules to evaluate
+     * @return the activated Predicates as a result of thinking
+     */
+    Set<Predicate> thinkCycle(final Iterable<Rule> candidateRules) {
+        final Set<Rule> pendingActivatedRules = new HashSet<>();
+        final Map<String, Argument> pendingReplacementPairs = new HashMap<>();
+        for (final Rule rule : candidateRules) {
+            final Map<String, Argument> replacementPairs = new HashMap<>();
+            if (matchesInputFacts(rule, replacementPairs)) {
                 pendingActivatedRules.add(rule);
+                pendingReplacementPairs.putAll(replacementPairs);
             }
         }
         return activateRulesAndReplaceVariableArguments(pendingActivatedRules,
                 pendingReplacementPairs);
     }
 
+    /**
+     * Checks if every input Fact of a Rule matches a Fact in the ES, stopping
+     * at the first one which does not.
+     *
+     * @param rule                    the Rule
+     * @param pendingReplacementPairs the pending replacement pairs, to which
+     *                                the variable bindings of the matched
+     *                                input Facts are added
+     * @return true if the Rule should be activated
+     */
+    private boolean matchesInputFacts(
+            final Rule rule,
+            final Map<String, Argument> pendingReplacementPairs) {
+        for (final Fact fact : rule.getInputFacts()) {
+            if (!factsContains(fact, pendingReplacementPairs)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Checks if a particular fact getMatchResult with any other fact in the ES.
      * If inputFact contains a variable argument, matching pair placed in
@@ -75,7 +165,7 @@ class ThinkCycleExecutor {
             final Fact inputFact,
             final Map<String, Argument> pendingReplacementPairs) {
         boolean result = false;
-        for (final Fact f : facts) {
+        for (final Fact f : facts.getCandidates(inputFact)) {
             final VariableReturn matchesResult = f.getMatchResult(inputFact);
             if (matchesResult.isFactMatch()) {
                 if (matchesResult.getPairs().size() > 0) {
@@ -96,7 +186,7 @@ class ThinkCycleExecutor {
      *                                variable arguments with
      * @return the set of Predicates activated
      */
-    private Set<Predicate> activateRulesAndReplaceVariableArguments(
+    Set<Predicate> activateRulesAndReplaceVariableArguments(
             final Set<Rule> pendingActivatedRules,
             final Map<String, Argument> pendingReplacementPairs) {
         final Set<Predicate> activatedPredicates = new HashSet<>();
@@ -3,7 +3,7 @@ package es.internal;
 import java.util.Set;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
-import tags.Fact;
+import es.api.IndexedFactSet;
 import tags.Recommendation;
 import tags.Rule;
 
@@ -24,6 +24,6 @@ interface ThinkCycleExecutorFactory {
     ThinkCycleExecutor create(
             @Assisted("readyRules") Set<Rule> readyRules,
             @Assisted("activeRules") Set<Rule> activeRules,
-            @Assisted("facts") Set<Fact> facts,
+            @Assisted("facts") IndexedFactSet facts,
             @Assisted("recommendations") Set<Recommendation> recommendations);
 }
@@ -4,6 +4,7 @@ import javax.inject.Inject;
 import java.util.HashSet;
 import java.util.Set;
 import com.google.inject.assistedinject.Assisted;
+import es.api.IndexedFactSet;
 import tags.Fact;
 import tags.Predicate;
 import tags.Recommendation;
@@ -15,13 +16,13 @@ import tags.Rule;
 class Thinker {
     private final ThinkCycleExecutor thinkCycleExecutor;
     private final Set<Rule> readyRules;
-    private final Set<Fact> facts;
+    private final IndexedFactSet facts;
 
     @Inject
     Thinker(
             @Assisted("readyRules") final Set<Rule> readyRules,
             @Assisted("activeRules") final Set<Rule> activeRules,
-            @Assisted("facts") final Set<Fact> facts,
+            @Assisted("facts") final IndexedFactSet facts,
             @Assisted("recommendations")
             final Set<Recommendation> recommendations,
             final ThinkCycleExecutorFactory thinkCycleExecutorFactory) {
@@ -50,6 +51,7 @@ class Thinker {
         final Set<Predicate> allActivatedPredicates = new HashSet<>();
         Set<Predicate> activatedPredicates;
         final Set<Fact> inputFacts = new HashSet<>(facts);
+        thinkCycleExecutor.prepare();
         for (int i = 0; i < numberOfCycles; i++) {
             activatedPredicates = thinkCycleExecutor.thinkCycle();
             if (activatedPredicates.isEmpty()) {
@@ -84,6 +86,55 @@ class Thinker {
         final Set<Predicate> outputPredicates = new HashSet<>();
         outputPredicates.addAll(allActivatedPredicates);
         final Rule provenRule = new Rule(inputFactSet, outputPredicates);
-        readyRules.add(provenRule);
+        if (readyRules.add(provenRule)) {
+            thinkCycleExecutor.readyRuleAdded(provenRule);
+        }
+    }
+
+    /**
+     * Notifies the think cycle executor that a ready Rule has been added to
+     * the ES.
+     *
+     * @param rule the added Rule
+     */
+    void readyRuleAdded(final Rule rule) {
+        thinkCycleExecutor.readyRuleAdded(rule);
+    }
+
+    /**
+     * Notifies the think cycle executor that a ready Rule has been removed
+     * from the ES.
+     *
+     * @param rule the removed Rule
+     */
+    void readyRuleRemoved(final Rule rule) {
+        thinkCycleExecutor.readyRuleRemoved(rule);
+    }
+
+    /**
+     * Notifies the think cycle executor that a Fact has been added to the ES.
+     *
+     * @param fact the added Fact
+     */
+    void factAdded(final Fact fact) {
+        thinkCycleExecutor.factAdded(fact);
+    }
+
+    /**
+     * Notifies the think cycle executor that a Fact has been removed from the
+     * ES.
+     *
+     * @param fact the removed Fact
+     */
+    void factRemoved(final Fact fact) {
+        thinkCycleExecutor.factRemoved(fact);
+    }
+
+    /**
+     * Notifies the think cycle executor that all the Rules and Facts have
+     * been removed from the ES.
+     */
+    void cleared() {
+        thinkCycleExecutor.cleared();
     }
 }
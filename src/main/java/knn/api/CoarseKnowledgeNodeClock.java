@@ -0,0 +1,89 @@
+package knn.api;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KN clock caching the system wall clock in a volatile field, which a daemon
+ * ticker thread updates at a fixed period. Reading the clock is a single
+ * volatile read, at the cost of lagging up to one period behind the wall
+ * clock. Since KNs expire after {@link KnowledgeNode#AGE_THRESHOLD}, a period
+ * of a few milliseconds does not change the outcome of searches in practice.
+ * <p>
+ * The ticker thread is started when the clock is created, and stopped by
+ * {@link #close()}, or by a shutdown hook if the clock is never closed. The
+ * clock is thread-safe.
+ */
+public final class CoarseKnowledgeNodeClock
+        implements KnowledgeNodeClock, AutoCloseable {
+    /**
+     * Default period of the ticker thread, in milliseconds.
+     */
+    public static final long DEFAULT_TICK_MILLIS = 10;
+
+    private final ScheduledExecutorService ticker;
+    private final Thread shutdownHook;
+    private volatile long time;
+
+    /**
+     * Creates a clock ticking every {@link #DEFAULT_TICK_MILLIS}.
+     */
+    public CoarseKnowledgeNodeClock() {
+        this(DEFAULT_TICK_MILLIS);
+    }
+
+    /**
+     * Creates a clock, and starts its ticker thread.
+     *
+     * @param tickMillis the period of the ticker thread, in milliseconds
+     * @throws IllegalArgumentException if the period is not positive
+     */
+    public CoarseKnowledgeNodeClock(final long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException(
+                    "Tick period must be positive: " + tickMillis);
+        }
+        this.time = System.currentTimeMillis();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread =
+                    new Thread(runnable, "knn-coarse-clock-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis,
+                TimeUnit.MILLISECONDS);
+        this.shutdownHook =
+                new Thread(ticker::shutdownNow, "knn-coarse-clock-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return time;
+    }
+
+    /**
+     * Stops the ticker thread, and unregisters its shutdown hook. The clock
+     * keeps returning the last time read from the wall clock.
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (final IllegalStateException e) {
+            // The JVM is shutting down, and runs the hook anyway.
+        }
+    }
+
+    /**
+     * Updates the cached time from the wall clock, never going backwards.
+     */
+    private void tick() {
+        final long now = System.currentTimeMillis();
+        if (now > time) {
+            time = now;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package knn.api;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import tags.Tag;
+
+/**
+ * Shard transport keeping the frontier messages of each shard in an
+ * in-process queue. Messages are copied when sent, as they would be when
+ * serialized to another process. The transport is thread-safe.
+ */
+public final class InProcessKnowledgeNodeShardTransport
+        implements KnowledgeNodeShardTransport {
+    private final List<Queue<Set<Tag>>> queues;
+    private final AtomicLong messageCount = new AtomicLong();
+
+    /**
+     * Creates a transport with an empty queue for each shard.
+     *
+     * @param shardCount the number of shards
+     */
+    public InProcessKnowledgeNodeShardTransport(final int shardCount) {
+        this.queues = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            queues.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    @Override
+    public void send(final int shard, final Set<Tag> tags) {
+        queues.get(shard).add(new HashSet<>(tags));
+        messageCount.incrementAndGet();
+    }
+
+    @Override
+    public Set<Tag> receive(final int shard) {
+        final Set<Tag> tags = new HashSet<>();
+        final Queue<Set<Tag>> queue = queues.get(shard);
+        for (Set<Tag> message = queue.poll(); message != null;
+             message = queue.poll()) {
+            tags.addAll(message);
+        }
+        return tags;
+    }
+
+    /**
+     * @return the number of messages sent through the transport so far
+     */
+    public long getMessageCount() {
+        return messageCount.get();
+    }
+}
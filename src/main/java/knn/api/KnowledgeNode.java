@@ -12,20 +12,28 @@ import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
-import tags.Fact;
-import tags.Recommendation;
-import tags.Rule;
 import tags.Tag;
+import tags.TagParser;
 
 /**
  * The Knowledge Node.
  */
 public final class KnowledgeNode implements Comparable<KnowledgeNode> {
-    private static final long AGE_THRESHOLD = 1_000_000;
-    private static final int ACTIVATION_INCREMENT = 100;
+    /**
+     * Time between two excitations (in milliseconds) beyond which a KN
+     * expires.
+     */
+    public static final long AGE_THRESHOLD = 1_000_000;
+    /**
+     * Activation added to a KN each time it is excited.
+     */
+    public static final int ACTIVATION_INCREMENT = 100;
     private static final int DEFAULT_THRESHOLD = 100;
     private static final int DEFAULT_BELIEF = 0;
     private static final int DEFAULT_STRENGTH = 1;
+    private static final String INVALID_INPUT_TAG = "Invalid input tag: {0}.";
+    private static final String INVALID_OUTPUT_TAG =
+            "Invalid output tag: {0}.";
 
     private final Tag inputTag;
     private final Set<Tag> outputTags;
@@ -35,14 +43,23 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
 
     /**
      * Age timestamp. Set to current UNIX time when node is newly formed.
+     * The activation state is volatile, since concurrent KNNs read it without
+     * holding the lock under which it is written.
      */
-    private long age = 0;
-    private long initialAgeTimeStamp = System.currentTimeMillis();
-    private double activation = 0;
+    private volatile long age = 0;
+    private volatile long initialAgeTimeStamp = System.currentTimeMillis();
+    private volatile double activation = 0;
     /**
      * true when the KN has exceeded its age threshold.
      */
-    private boolean isExpired = false;
+    private volatile boolean isExpired = false;
+
+    /**
+     * Links of the KN within its {@link KnowledgeNodeRecencyList}, if any.
+     */
+    private KnowledgeNodeRecencyList recencyList;
+    private KnowledgeNode newer;
+    private KnowledgeNode older;
 
     /**
      * Creates a Knowledge Node from Strings.
@@ -56,17 +73,7 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
             @Assisted("data") final String[] data)
             throws KnowledgeNodeParseException {
         this.outputTags = new HashSet<>();
-
-        if (data[0].charAt(0) == '@') {
-            this.inputTag = new Recommendation(data[0]);
-        } else if (data[0].contains("->")) {
-            this.inputTag = new Rule(data[0]);
-        } else if (data[0].matches(".*\\(.*\\).*")) {
-            this.inputTag = new Fact(data[0]);
-        } else {
-            throw new KnowledgeNodeParseException(MessageFormat.format(
-                    "Invalid input tag: {0}.", data[0]));
-        }
+        this.inputTag = parseTag(data[0], INVALID_INPUT_TAG);
 
         int startOutputIndex = 1;
         if (data.length > 1 && StringUtils.isNumeric(data[1])) {
@@ -77,23 +84,57 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
         }
 
         for (int i = startOutputIndex; i < data.length; i += startOutputIndex) {
-            if (data[i].charAt(0) == '@') {
-                this.outputTags.add(new Recommendation(data[i]));
-            } else if (data[i].contains("->")) {
-                this.outputTags.add(new Rule(data[i]));
-            } else if (data[i].matches(".*\\(.*\\).*")) {
-                this.outputTags.add(new Fact(data[i]));
-            } else {
-                throw new KnowledgeNodeParseException(MessageFormat.format(
-                        "Invalid output tag: {0}.", data[i]));
-            }
+            this.outputTags.add(parseTag(data[i], INVALID_OUTPUT_TAG));
         }
         this.belief = DEFAULT_BELIEF;
         this.strength = DEFAULT_STRENGTH;
     }
 
-    public KnowledgeNode(final String data) throws KnowledgeNodeParseException {
-        this(data.split(";\\s+"));
+    /**
+     * Creates a Knowledge Node from a KNN data line, such as
+     * {@code "P(A); 100; Q(B); 100; @R(C)"}.
+     *
+     * @param data the KNN data line
+     * @throws KnowledgeNodeParseException if parsing the given String data
+     *                                     fails
+     * @see TagParser
+     */
+    public KnowledgeNode(final CharSequence data)
+            throws KnowledgeNodeParseException {
+        this(new TagParser(data));
+    }
+
+    /**
+     * Creates a Knowledge Node from the fields of a KNN data line, in a single
+     * pass over the line.
+     *
+     * @param parser the parser over the KNN data line
+     * @throws KnowledgeNodeParseException if parsing the line fails
+     */
+    private KnowledgeNode(final TagParser parser)
+            throws KnowledgeNodeParseException {
+        this.outputTags = new HashSet<>();
+        parser.nextField();
+        this.inputTag = getTag(parser, INVALID_INPUT_TAG);
+
+        int step = 1;
+        boolean hasField = parser.nextField();
+        if (hasField && parser.isNumber()) {
+            this.threshold = parser.getNumber();
+            step++;
+            hasField = parser.nextField();
+        } else {
+            this.threshold = DEFAULT_THRESHOLD;
+        }
+
+        while (hasField) {
+            this.outputTags.add(getTag(parser, INVALID_OUTPUT_TAG));
+            for (int i = 0; i < step && hasField; i++) {
+                hasField = parser.nextField();
+            }
+        }
+        this.belief = DEFAULT_BELIEF;
+        this.strength = DEFAULT_STRENGTH;
     }
 
     public KnowledgeNode(
@@ -121,10 +162,89 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
     }
 
     /**
-     * @return the current age of the KN
+     * Parses a Tag of a KNN data line.
+     *
+     * @param data    the Tag String
+     * @param message the message pattern of the exception
+     * @return the Tag
+     * @throws KnowledgeNodeParseException if the String is not a Tag
+     */
+    private static Tag parseTag(final String data, final String message)
+            throws KnowledgeNodeParseException {
+        final Tag tag = TagParser.parseTag(data, 0, data.length());
+        if (tag == null) {
+            throw new KnowledgeNodeParseException(
+                    MessageFormat.format(message, data));
+        }
+        return tag;
+    }
+
+    /**
+     * Gets the Tag of the current field of a KNN data line.
+     *
+     * @param parser  the parser over the KNN data line
+     * @param message the message pattern of the exception
+     * @return the Tag
+     * @throws KnowledgeNodeParseException if the field is not a Tag
+     */
+    private static Tag getTag(final TagParser parser, final String message)
+            throws KnowledgeNodeParseException {
+        final Tag tag = parser.getTag();
+        if (tag == null) {
+            throw new KnowledgeNodeParseException(
+                    MessageFormat.format(message, parser.getField()));
+        }
+        return tag;
+    }
+
+    /**
+     * @return the current age of the KN, on the system wall clock
      */
     public long getCurrentAge() {
-        return System.currentTimeMillis() - initialAgeTimeStamp;
+        return getCurrentAge(System.currentTimeMillis());
+    }
+
+    /**
+     * @param time the current time, in milliseconds
+     * @return the age of the KN at the given time
+     */
+    public long getCurrentAge(final long time) {
+        return time - initialAgeTimeStamp;
+    }
+
+    /**
+     * Sets the time the KN is aged from, as if it was created or last excited
+     * at the given time. KNNs call this when a KN is added, so that the KN is
+     * aged on the clock of the KNN.
+     *
+     * @param time the time, in milliseconds
+     * @see KnowledgeNodeClock
+     */
+    public void setAgeTimeStamp(final long time) {
+        initialAgeTimeStamp = time;
+    }
+
+    /**
+     * @return the time (in milliseconds) after which the KN expires if it is
+     * not excited again, i.e. the time of its last excitation, or of its
+     * creation, plus {@link #AGE_THRESHOLD}
+     */
+    public long getExpiryTime() {
+        return initialAgeTimeStamp + AGE_THRESHOLD;
+    }
+
+    /**
+     * Expires the KN if the given time is after its expiry time.
+     *
+     * @param time the current time, in milliseconds
+     * @return true if the KN is expired
+     * @see #getExpiryTime()
+     */
+    public boolean expire(final long time) {
+        if (time > getExpiryTime()) {
+            isExpired = true;
+        }
+        return isExpired;
     }
 
     /**
@@ -135,27 +255,56 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
     }
 
     /**
+     * @return the strength of the KN
+     */
+    public int getStrength() {
+        return strength;
+    }
+
+    /**
+     * Excites the KN at the current time of the system wall clock.
+     *
      * @return true if the KN has been newly fired, i.e., it was not fired
      * before this excitation
      */
     public boolean excite() {
-        if (age > AGE_THRESHOLD) {
+        return excite(System.currentTimeMillis());
+    }
+
+    /**
+     * Excites the KN at the given time.
+     *
+     * @param time the current time, in milliseconds
+     * @return true if the KN has been newly fired, i.e., it was not fired
+     * before this excitation
+     */
+    public boolean excite(final long time) {
+        if (isExpired || age > AGE_THRESHOLD) {
             isExpired = true;
             return false;
         } else {
-            updateAge();
+            updateAge(time);
             final double oldActivation = activation;
-            activation += ACTIVATION_INCREMENT;
+            activation = oldActivation + ACTIVATION_INCREMENT;
             return oldActivation < threshold && isFired();
         }
     }
 
     /**
      * Ages the current Knowledge Node.
+     *
+     * @param time the current time, in milliseconds
+     */
+    private void updateAge(final long time) {
+        age = time - initialAgeTimeStamp;
+        initialAgeTimeStamp = time;
+    }
+
+    /**
+     * @return the activation threshold of the KN
      */
-    private void updateAge() {
-        age = System.currentTimeMillis() - initialAgeTimeStamp;
-        initialAgeTimeStamp = System.currentTimeMillis();
+    public int getThreshold() {
+        return threshold;
     }
 
     /**
@@ -186,6 +335,54 @@ public final class KnowledgeNode implements Comparable<KnowledgeNode> {
         return isExpired;
     }
 
+    /**
+     * @return the recency list the KN belongs to, or null if none
+     */
+    KnowledgeNodeRecencyList getRecencyList() {
+        return recencyList;
+    }
+
+    /**
+     * Sets the recency list the KN belongs to.
+     *
+     * @param recencyList the recency list
+     */
+    void setRecencyList(final KnowledgeNodeRecencyList recencyList) {
+        this.recencyList = recencyList;
+    }
+
+    /**
+     * @return the next more recent KN in the recency list
+     */
+    KnowledgeNode getNewer() {
+        return newer;
+    }
+
+    /**
+     * Sets the next more recent KN in the recency list.
+     *
+     * @param newer the next more recent KN
+     */
+    void setNewer(final KnowledgeNode newer) {
+        this.newer = newer;
+    }
+
+    /**
+     * @return the next less recent KN in the recency list
+     */
+    KnowledgeNode getOlder() {
+        return older;
+    }
+
+    /**
+     * Sets the next less recent KN in the recency list.
+     *
+     * @param older the next less recent KN
+     */
+    void setOlder(final KnowledgeNode older) {
+        this.older = older;
+    }
+
     @Override
     public String toString() {
         return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
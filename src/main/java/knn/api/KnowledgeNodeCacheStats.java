@@ -0,0 +1,80 @@
+package knn.api;
+
+import java.text.MessageFormat;
+
+/**
+ * Statistics of a cache of KNN search results, at the time they were taken.
+ */
+public final class KnowledgeNodeCacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+
+    /**
+     * Creates cache statistics.
+     *
+     * @param hitCount      the number of searches answered from the cache
+     * @param missCount     the number of searches not answered from the cache
+     * @param evictionCount the number of results evicted to bound the cache
+     * @param size          the number of results in the cache
+     */
+    public KnowledgeNodeCacheStats(
+            final long hitCount,
+            final long missCount,
+            final long evictionCount,
+            final int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+
+    /**
+     * @return the number of searches answered from the cache
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of searches not answered from the cache, including
+     * the ones whose cached result was out of date
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of results evicted to bound the cache
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the number of results in the cache
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the ratio of searches answered from the cache, or 0 if there
+     * was no search
+     */
+    public double getHitRate() {
+        final long requestCount = hitCount + missCount;
+        if (requestCount == 0) {
+            return 0;
+        }
+        return (double) hitCount / requestCount;
+    }
+
+    @Override
+    public String toString() {
+        return MessageFormat.format(
+                "{0} hits, {1} misses, {2} evictions, {3} results",
+                hitCount, missCount, evictionCount, size);
+    }
+}
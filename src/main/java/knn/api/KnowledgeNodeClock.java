@@ -0,0 +1,19 @@
+package knn.api;
+
+/**
+ * The clock the KNs of a KNN are aged with. Times are in milliseconds, and
+ * compared to {@link KnowledgeNode#AGE_THRESHOLD} and to the backward search
+ * age limit.
+ * <p>
+ * The KNN is bound to a {@link SystemKnowledgeNodeClock} by default. The
+ * {@link KnowledgeNodeNetworkOption#COARSE_CLOCK} and
+ * {@link KnowledgeNodeNetworkOption#LOGICAL_CLOCK} options bind it to a
+ * {@link CoarseKnowledgeNodeClock} or a {@link LogicalKnowledgeNodeClock}
+ * instead. The clock is a singleton, shared by all the KNNs of an injector.
+ */
+public interface KnowledgeNodeClock {
+    /**
+     * @return the current time, in milliseconds
+     */
+    long currentTimeMillis();
+}
@@ -0,0 +1,105 @@
+package knn.api;
+
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of loading a KNN data file: the KNs read, in file order, and the
+ * lines which could not be parsed.
+ */
+public final class KnowledgeNodeLoadReport {
+    private final List<KnowledgeNode> knowledgeNodes;
+    private final List<LineError> errors;
+
+    /**
+     * Creates a load report.
+     *
+     * @param knowledgeNodes the KNs read, in file order
+     * @param errors         the lines which could not be parsed, in file order
+     */
+    public KnowledgeNodeLoadReport(
+            final List<KnowledgeNode> knowledgeNodes,
+            final List<LineError> errors) {
+        this.knowledgeNodes = Collections.unmodifiableList(knowledgeNodes);
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * @return the KNs read, in file order
+     */
+    public List<KnowledgeNode> getKnowledgeNodes() {
+        return knowledgeNodes;
+    }
+
+    /**
+     * @return the lines which could not be parsed, in file order
+     */
+    public List<LineError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return true if some lines could not be parsed
+     */
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return MessageFormat.format("{0} KNs loaded, {1} errors: {2}",
+                knowledgeNodes.size(), errors.size(), errors);
+    }
+
+    /**
+     * A line of a KNN data file which could not be parsed.
+     */
+    public static final class LineError {
+        private final long lineNumber;
+        private final String line;
+        private final String message;
+
+        /**
+         * Creates a line error.
+         *
+         * @param lineNumber the number of the line, starting at 1
+         * @param line       the contents of the line
+         * @param message    the reason why the line could not be parsed
+         */
+        public LineError(
+                final long lineNumber,
+                final String line,
+                final String message) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.message = message;
+        }
+
+        /**
+         * @return the number of the line, starting at 1
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * @return the contents of the line
+         */
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * @return the reason why the line could not be parsed
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + message;
+        }
+    }
+}
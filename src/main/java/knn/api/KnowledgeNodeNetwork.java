@@ -27,8 +27,11 @@ public interface KnowledgeNodeNetwork {
     void addKnowledgeNode(KnowledgeNode kn);
 
     /**
-     * Deletes expired KNs from the KNN, i.e., ones who have aged beyond their
-     * age threshold.
+     * Deletes expired KNs from the KNN, i.e., ones which were not excited for
+     * more than {@link KnowledgeNode#AGE_THRESHOLD} since their last
+     * excitation or their creation. Expiry times are kept in a timer wheel,
+     * so only the KNs due to expire are visited. Expired KNs are also deleted
+     * whenever a KN is added or deleted.
      */
     void deleteExpiredKnowledgeNodes();
 
@@ -107,6 +110,68 @@ public interface KnowledgeNodeNetwork {
      */
     Set<Tag> forwardThink(int ply);
 
+    /**
+     * Performs read-only forward search in the KNN. KNs are excited as if
+     * they had never been excited before, but no KN, active Tag or recency is
+     * changed, so the result only depends on the input Tags and the structure
+     * of the KNN. Results can therefore be cached, see
+     * {@link #setForwardClosureCacheSize(int)}. Expired KNs are ignored, and
+     * deleted first as by {@link #deleteExpiredKnowledgeNodes()}.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the Set of Tags which would be activated by searching
+     */
+    Set<Tag> forwardClosure(Set<Tag> inputTags, int ply);
+
+    /**
+     * Sets the maximum number of results cached by
+     * {@link #forwardClosure(Set, int)}, evicting the least recently used
+     * results beyond it. Cached results are only used until a KN is added,
+     * deleted or expires. The cache is disabled by default.
+     *
+     * @param size the maximum number of cached results, where 0 disables the
+     *             cache
+     * @throws IllegalArgumentException if the size is negative
+     */
+    void setForwardClosureCacheSize(int size);
+
+    /**
+     * Enables or disables the reachability index of
+     * {@link #forwardClosure(Set, int)}. The index condenses the cycles of the
+     * KNN and stores the Tags reachable from each of them, so that searches
+     * until quiescence become lookups. It is updated incrementally as KNs are
+     * added or deleted, and rebuilt on the next search after it is enabled, a
+     * KN of a cycle is deleted or a new cycle is formed. It uses memory
+     * quadratic in the number of cycles and Tags outside cycles. Searches
+     * which could excite a KN needing several excitations to fire traverse
+     * the KNN instead. The index is disabled by default.
+     *
+     * @param enabled true to build and use the index, false to drop it
+     */
+    void setForwardClosureIndexEnabled(boolean enabled);
+
+    /**
+     * Gets the statistics of the cache of {@link #forwardClosure(Set, int)}.
+     *
+     * @return the statistics of the cache
+     */
+    KnowledgeNodeCacheStats getForwardClosureCacheStats();
+
+    /**
+     * Performs many independent read-only forward searches in the KNN at
+     * once. Each ply is traversed once for all the queries, which share the
+     * lookups of the KNs. Each query gets the result of
+     * {@link #forwardClosure(Set, int)} on its input Tags.
+     *
+     * @param inputTagSets the input Tags of each query
+     * @param ply          the ply of the searches. If set to 0, the searches
+     *                     continue until quiescence.
+     * @return the activated Tags of each query, in the order of the queries
+     */
+    List<Set<Tag>> batchForwardSearch(List<Set<Tag>> inputTagSets, int ply);
+
     /**
      * Performs backward search in the KNN.
      *
@@ -129,6 +194,38 @@ public interface KnowledgeNodeNetwork {
      */
     Set<Tag> backwardThink(int ply);
 
+    /**
+     * Performs ranked backward search in the KNN, which only returns the best
+     * matches. The matching KNs are scored by the ratio of the search input
+     * Tags found in their output Tags, their belief and strength, and their
+     * recency. Each ply only keeps the best {@code limit} KNs, and stops as
+     * soon as the remaining KNs cannot score higher.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @param limit     the maximum number of Tags to return
+     * @return the best activated Tags resulting from searching, best first
+     * (excluding the input Tags)
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    List<Tag> rankedBackwardSearch(Set<Tag> inputTags, int ply, int limit);
+
+    /**
+     * Performs many independent backward searches in the KNN at once. Each
+     * ply is traversed once for all the queries, which share the lookups of
+     * the KNs producing their Tags. Each query gets the result of
+     * {@link #backwardSearch(Set, int)} on its input Tags with no active
+     * Tags, and the active Tags are left unchanged. Overlaps are always
+     * counted exactly.
+     *
+     * @param inputTagSets the input Tags of each query
+     * @param ply          the ply of the searches. If set to 0, the searches
+     *                     continue until quiescence.
+     * @return the activated Tags of each query, in the order of the queries
+     */
+    List<Set<Tag>> batchBackwardSearch(List<Set<Tag>> inputTagSets, int ply);
+
     /**
      * Sets the search matching ratio for backward search, i.e., the ratio of
      * search input Tags that must be found in the output Tags of a KN to
@@ -139,6 +236,16 @@ public interface KnowledgeNodeNetwork {
      */
     void setBackwardSearchMatchRatio(double ratio);
 
+    /**
+     * Sets the target recall of approximate backward search, i.e., the
+     * probability that a KN matching the search input is found. Lower targets
+     * visit fewer KNs. Has no effect unless the KNN was created with the
+     * {@link KnowledgeNodeNetworkOption#APPROXIMATE_BACKWARD_SEARCH} option.
+     *
+     * @param recall the target recall, between 0 and 1
+     */
+    void setBackwardSearchRecall(double recall);
+
     /**
      * Performs lambda search in the KNN.
      *
@@ -150,6 +257,42 @@ public interface KnowledgeNodeNetwork {
      */
     Set<Tag> lambdaSearch(Set<Tag> inputTags, int ply);
 
+    /**
+     * Performs ranked lambda search in the KNN. The Tags found by
+     * {@link #rankedBackwardSearch(Set, int, int)} are searched forward one at
+     * a time, best first, until enough Tags are activated.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @param limit     the maximum number of Tags to return
+     * @return the activated Tags resulting from searching, in the order of the
+     * backward search Tags they were activated from
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    List<Tag> rankedLambdaSearch(Set<Tag> inputTags, int ply, int limit);
+
+    /**
+     * Performs bidirectional lambda search in the KNN, towards the given goal
+     * Tags. Rather than searching forward from every Tag found by backward
+     * search, backward search from the input Tags is met in the middle by a
+     * search from the goal Tags over the KNs producing them, always growing
+     * the smaller frontier, and stops as soon as the frontiers meet. Only the
+     * KNs which fire on their first excitation are followed from the goal
+     * Tags. The activation state of the KNN is left unchanged.
+     *
+     * @param inputTags the input Tags of the search
+     * @param goalTags  the goal Tags of the search
+     * @param ply       the ply of each direction of the search. If set to 0,
+     *                  the search continues until quiescence.
+     * @return the Tags found by backward search which are goal Tags or lead
+     * to one, where the frontiers first meet, or an empty Set if no goal Tag
+     * is reached
+     */
+    Set<Tag> bidirectionalLambdaSearch(Set<Tag> inputTags,
+                                       Set<Tag> goalTags,
+                                       int ply);
+
     /**
      * Performs lambda thinking in the KNN. Note that this is equivalent to
      * lambda searching with all the currently active Tags as input.
@@ -162,24 +305,103 @@ public interface KnowledgeNodeNetwork {
     Set<Tag> lambdaThink(int ply);
 
     /**
-     * Loads the data in the file with the given name into the KNN.
+     * Creates a read-only snapshot of the structure of the KNN, on which
+     * concurrent reasoning sessions can be created. Later changes to the KNN
+     * are not reflected in the snapshot.
+     *
+     * @return the snapshot of the KNN
+     */
+    SharedKnowledgeNodeNetwork snapshot();
+
+    /**
+     * Loads the data in the file with the given name into the KNN. Lines which
+     * cannot be parsed are skipped.
      *
      * @param filename the name of the file with the KNN data to load
      * @return a List of Knowledge Nodes extracted from the data file
+     * @throws java.io.UncheckedIOException if the file cannot be read
+     * @see #bulkLoadData(String)
      */
     List<KnowledgeNode> loadData(String filename);
 
     /**
-     * Resets the KNN to a state from a database.
+     * Replaces the contents of the KNN with the data in the file with the
+     * given name. The file is memory-mapped and parsed in parallel, and the
+     * KNs are then added in a single batch.
+     *
+     * @param filename the name of the file with the KNN data to load
+     * @return the Knowledge Nodes extracted from the data file and the lines
+     * which could not be parsed
+     * @throws java.io.UncheckedIOException if the file cannot be read
+     */
+    KnowledgeNodeLoadReport bulkLoadData(String filename);
+
+    /**
+     * Resets the KNN to a state from a database, i.e. a binary snapshot
+     * written by {@link #save(String)}. The KNs are loaded without parsing,
+     * in their order of recency at the time of the snapshot.
      *
      * @param dbFilename the filename of the database to be read from
+     * @throws java.io.UncheckedIOException if the file cannot be read or is
+     *                                      not a valid snapshot
      */
     void reset(String dbFilename);
 
     /**
-     * Saves the current state of the KNN to a database.
+     * Saves the current state of the KNN to a database, i.e. a versioned
+     * binary snapshot of the KNs, their Tags and their parameters. Runtime
+     * state, such as activations and active Tags, is not saved.
      *
      * @param dbFilename the filename of the database
+     * @throws java.io.UncheckedIOException if the file cannot be written
      */
     void save(String dbFilename);
+
+    /**
+     * Recovers the KNN from a database and a mutation log, then records every
+     * later change to the KNs in the log, so that it survives a restart
+     * without saving the whole KNN. Additions and deletions of KNs, including
+     * the deletion of expired KNs, are appended to the log before they are
+     * applied. Operations which replace all the KNs ({@link #resetEmpty()},
+     * {@link #loadData(String)}, {@link #bulkLoadData(String)} and
+     * {@link #reset(String)}) compact the log instead.
+     *
+     * @param dbFilename    the filename of the database, written by
+     *                      {@link #save(String)} or {@link #compactLog()};
+     *                      the KNN starts empty if it does not exist
+     * @param logFilename   the filename of the mutation log, which is created
+     *                      if it does not exist
+     * @param syncBatchSize the number of logged mutations forced to disk
+     *                      together, where 1 forces every mutation to disk
+     *                      before it returns
+     * @throws IllegalArgumentException     if the batch size is not positive
+     * @throws java.io.UncheckedIOException if a file cannot be read or
+     *                                      written, or is not valid
+     */
+    void recover(String dbFilename, String logFilename, int syncBatchSize);
+
+    /**
+     * Forces all the mutations in the log to disk. Does nothing if no
+     * mutation log is open.
+     *
+     * @throws java.io.UncheckedIOException if the log cannot be written
+     */
+    void syncLog();
+
+    /**
+     * Compacts the mutation log, by saving the KNN to the database given to
+     * {@link #recover(String, String, int)} and truncating the log. Does
+     * nothing if no mutation log is open.
+     *
+     * @throws java.io.UncheckedIOException if a file cannot be written
+     */
+    void compactLog();
+
+    /**
+     * Forces the mutation log to disk and closes it. Later mutations are not
+     * logged. Does nothing if no mutation log is open.
+     *
+     * @throws java.io.UncheckedIOException if the log cannot be written
+     */
+    void closeLog();
 }
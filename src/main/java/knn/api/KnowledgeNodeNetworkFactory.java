@@ -2,7 +2,6 @@ package knn.api;
 
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import tags.Tag;
@@ -25,7 +24,7 @@ public interface KnowledgeNodeNetworkFactory {
     KnowledgeNodeNetwork create(
             @Assisted("mapKN") Map<Tag, KnowledgeNode> mapKN,
             @Assisted("activeTags") Set<Tag> activeTags,
-            @Assisted("ageSortedKNs") TreeSet<KnowledgeNode> ageSortedKNs,
+            @Assisted("ageSortedKNs") KnowledgeNodeRecencyList ageSortedKNs,
             @Assisted("backwardSearchMatchRatio")
                     double backwardSearchMatchRatio,
             @Assisted("backwardSearchAgeLimit") long backwardSearchAgeLimit);
@@ -0,0 +1,50 @@
+package knn.api;
+
+/**
+ * Options selecting the execution strategy of the KNN. Options are passed to
+ * the KNN Guice module and apply to every KNN it creates.
+ */
+public enum KnowledgeNodeNetworkOption {
+    /**
+     * Interns every Tag to a dense int ID and executes searches on bit sets
+     * and int arrays of IDs, translating back to Tags only at the API
+     * boundary.
+     */
+    TAG_IDS,
+    /**
+     * Splits the input Tags of each forward search ply across the common
+     * fork-join pool. Results are identical to sequential forward search.
+     * Cannot be combined with {@link #TAG_IDS} or {@link #CONCURRENT}.
+     */
+    PARALLEL_FORWARD_SEARCH,
+    /**
+     * Makes the KNN thread-safe, using lock striping by input Tag, so that
+     * searches and updates can run concurrently. Cannot be combined with
+     * {@link #TAG_IDS}.
+     */
+    CONCURRENT,
+    /**
+     * Finds the KNs matching a backward search input with a MinHash index of
+     * their output Tags, trading recall for speed on large KNNs. The target
+     * recall is set with
+     * {@link KnowledgeNodeNetwork#setBackwardSearchRecall(double)}. Every
+     * activated Tag is a true match, but some matches may be missed. Cannot be
+     * combined with {@link #TAG_IDS}.
+     */
+    APPROXIMATE_BACKWARD_SEARCH,
+    /**
+     * Ages the KNs with a {@link CoarseKnowledgeNodeClock}, which caches the
+     * wall clock instead of reading it on every excitation. The clock is
+     * created with the injector, shared by all its KNNs, and stopped at JVM
+     * shutdown, or earlier by closing the {@link KnowledgeNodeClock} obtained
+     * from the injector. Cannot be combined with {@link #LOGICAL_CLOCK}.
+     */
+    COARSE_CLOCK,
+    /**
+     * Ages the KNs with a {@link LogicalKnowledgeNodeClock}, which only moves
+     * when advanced explicitly, for deterministic replay. The clock can be
+     * obtained from the injector as the {@link KnowledgeNodeClock}. Cannot be
+     * combined with {@link #COARSE_CLOCK}.
+     */
+    LOGICAL_CLOCK
+}
@@ -0,0 +1,110 @@
+package knn.api;
+
+import java.util.Set;
+import tags.Tag;
+
+/**
+ * A reasoning session on a {@link SharedKnowledgeNodeNetwork}. The session
+ * holds the activation state (active Tags, activations, ages and expiry of
+ * the KNs) which a {@link KnowledgeNodeNetwork} otherwise stores in the KNs
+ * themselves, so that concurrent sessions do not interfere. Searches behave
+ * as in the KNN the shared network was created from, except that expired KNs
+ * are only ignored within the session instead of being deleted.
+ * <p>
+ * A session is lightweight, since only the state of the KNs it excites is
+ * stored. It is not thread-safe, and is meant to be used by one request at a
+ * time.
+ */
+public interface KnowledgeNodeNetworkSession {
+    /**
+     * Deactivates all the active Tags in the session.
+     */
+    void clearActiveTags();
+
+    /**
+     * Adds multiple active Tags to the session.
+     *
+     * @param tags the Tags to be added
+     */
+    void addActiveTags(Tag... tags);
+
+    /**
+     * Gets the currently active Tags in the session.
+     *
+     * @return the currently active Tags
+     */
+    Set<Tag> getActiveTags();
+
+    /**
+     * Checks if the KN with the given input Tag is fired in the session.
+     *
+     * @param tag the KN input Tag
+     * @return true if the KN exists and is fired
+     */
+    boolean isFired(Tag tag);
+
+    /**
+     * Sets the search matching ratio for backward search in the session.
+     *
+     * @param ratio the backward search match ratio
+     * @see KnowledgeNodeNetwork#setBackwardSearchMatchRatio(double)
+     */
+    void setBackwardSearchMatchRatio(double ratio);
+
+    /**
+     * Performs direct search in the session.
+     *
+     * @param inputTag the input Tag of the search
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tag)
+     * @see KnowledgeNodeNetwork#directSearch(Tag)
+     */
+    Set<Tag> directSearch(Tag inputTag);
+
+    /**
+     * Performs forward search in the session.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     * @see KnowledgeNodeNetwork#forwardSearch(Set, int)
+     */
+    Set<Tag> forwardSearch(Set<Tag> inputTags, int ply);
+
+    /**
+     * Performs forward thinking in the session, i.e., forward search with all
+     * the currently active Tags as input.
+     *
+     * @param ply the ply of the search. If set to 0, the search continues until
+     *            quiescence.
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     */
+    Set<Tag> forwardThink(int ply);
+
+    /**
+     * Performs backward search in the session.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     * @see KnowledgeNodeNetwork#backwardSearch(Set, int)
+     */
+    Set<Tag> backwardSearch(Set<Tag> inputTags, int ply);
+
+    /**
+     * Performs lambda search in the session.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     * @see KnowledgeNodeNetwork#lambdaSearch(Set, int)
+     */
+    Set<Tag> lambdaSearch(Set<Tag> inputTags, int ply);
+}
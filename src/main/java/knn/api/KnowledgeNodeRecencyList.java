@@ -0,0 +1,208 @@
+package knn.api;
+
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The KNs of a KNN in order of recency, i.e., the most recently added or
+ * excited KN first. Iterating over the list therefore visits the KNs in order
+ * of increasing age.
+ * <p>
+ * The list is intrusive: the links are stored in the KNs themselves, so
+ * adding, touching and removing a KN are all O(1) and never hash the KN. As a
+ * consequence, a KN can only belong to one list at a time. This class is not
+ * thread-safe.
+ */
+public final class KnowledgeNodeRecencyList extends AbstractSet<KnowledgeNode> {
+    private KnowledgeNode newest;
+    private KnowledgeNode oldest;
+    private int size;
+    private int modCount;
+
+    /**
+     * Adds a KN to the front of the list, as the most recent KN. If the KN is
+     * already present, it is moved to the front instead.
+     *
+     * @param kn the KN to add or touch
+     * @return true if the KN was not already present
+     * @throws IllegalArgumentException if the KN belongs to another list
+     */
+    @Override
+    public boolean add(final KnowledgeNode kn) {
+        if (kn.getRecencyList() == this) {
+            if (kn != newest) {
+                unlink(kn);
+                linkFirst(kn);
+            }
+            return false;
+        }
+        if (kn.getRecencyList() != null) {
+            throw new IllegalArgumentException(
+                    "KN already belongs to another recency list: " + kn);
+        }
+        linkFirst(kn);
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        if (!contains(o)) {
+            return false;
+        }
+        final KnowledgeNode kn = (KnowledgeNode) o;
+        unlink(kn);
+        kn.setRecencyList(null);
+        size--;
+        return true;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof KnowledgeNode
+                && ((KnowledgeNode) o).getRecencyList() == this;
+    }
+
+    @Override
+    public void clear() {
+        KnowledgeNode kn = newest;
+        while (kn != null) {
+            final KnowledgeNode next = kn.getOlder();
+            kn.setNewer(null);
+            kn.setOlder(null);
+            kn.setRecencyList(null);
+            kn = next;
+        }
+        newest = null;
+        oldest = null;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the newest KN of the list, or null if the list is empty
+     */
+    public KnowledgeNode getNewest() {
+        return newest;
+    }
+
+    /**
+     * Gets the KN following the given KN in order of increasing age, so that
+     * the list can be walked without an iterator.
+     *
+     * @param kn a KN of the list
+     * @return the next older KN, or null if the given KN is the oldest
+     * @throws IllegalArgumentException if the KN does not belong to the list
+     */
+    public KnowledgeNode getOlder(final KnowledgeNode kn) {
+        if (!contains(kn)) {
+            throw new IllegalArgumentException(
+                    "KN does not belong to the recency list: " + kn);
+        }
+        return kn.getOlder();
+    }
+
+    /**
+     * @return the oldest KN of the list, or null if the list is empty
+     */
+    public KnowledgeNode getOldest() {
+        return oldest;
+    }
+
+    /**
+     * @return an iterator over the KNs, from the newest to the oldest
+     */
+    @Override
+    public Iterator<KnowledgeNode> iterator() {
+        return new RecencyIterator();
+    }
+
+    /**
+     * Links the given KN at the front of the list.
+     *
+     * @param kn the KN to link
+     */
+    private void linkFirst(final KnowledgeNode kn) {
+        kn.setRecencyList(this);
+        kn.setNewer(null);
+        kn.setOlder(newest);
+        if (newest == null) {
+            oldest = kn;
+        } else {
+            newest.setNewer(kn);
+        }
+        newest = kn;
+        modCount++;
+    }
+
+    /**
+     * Unlinks the given KN from its neighbours, leaving its list membership
+     * untouched.
+     *
+     * @param kn the KN to unlink
+     */
+    private void unlink(final KnowledgeNode kn) {
+        final KnowledgeNode newer = kn.getNewer();
+        final KnowledgeNode older = kn.getOlder();
+        if (newer == null) {
+            newest = older;
+        } else {
+            newer.setOlder(older);
+        }
+        if (older == null) {
+            oldest = newer;
+        } else {
+            older.setNewer(newer);
+        }
+        kn.setNewer(null);
+        kn.setOlder(null);
+        modCount++;
+    }
+
+    /**
+     * Iterator from the newest to the oldest KN.
+     */
+    private final class RecencyIterator implements Iterator<KnowledgeNode> {
+        private KnowledgeNode next = newest;
+        private KnowledgeNode lastReturned;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public KnowledgeNode next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = next.getOlder();
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            KnowledgeNodeRecencyList.this.remove(lastReturned);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+    }
+}
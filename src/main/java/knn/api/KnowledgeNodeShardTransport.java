@@ -0,0 +1,32 @@
+package knn.api;
+
+import java.util.Set;
+import tags.Tag;
+
+/**
+ * Transport of the frontier messages exchanged by the shards of a
+ * {@link PartitionedKnowledgeNodeNetwork} at each ply of a search. A message
+ * is a set of Tags sent to a shard, and the Tags received by a shard form its
+ * input for the next ply. Implementations may carry the messages to shards in
+ * other processes, as long as every message sent before a call to
+ * {@link #receive(int)} is received by it.
+ */
+public interface KnowledgeNodeShardTransport {
+    /**
+     * Sends a frontier message to a shard.
+     *
+     * @param shard the index of the receiving shard
+     * @param tags  the Tags of the message, which may be reused by the
+     *              caller afterwards
+     */
+    void send(int shard, Set<Tag> tags);
+
+    /**
+     * Receives all the pending frontier messages of a shard.
+     *
+     * @param shard the index of the receiving shard
+     * @return the union of the Tags of the messages, which is empty if there
+     * are none
+     */
+    Set<Tag> receive(int shard);
+}
@@ -0,0 +1,49 @@
+package knn.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * KN clock which only moves when it is advanced explicitly, so that the
+ * aging and expiry of KNs is deterministic, e.g. to replay a workload or to
+ * make benchmarks reproducible. Each tick counts as a millisecond. The clock
+ * is thread-safe.
+ */
+public final class LogicalKnowledgeNodeClock implements KnowledgeNodeClock {
+    private final AtomicLong time;
+
+    /**
+     * Creates a clock starting at time 0.
+     */
+    public LogicalKnowledgeNodeClock() {
+        this(0);
+    }
+
+    /**
+     * Creates a clock starting at the given time.
+     *
+     * @param time the initial time
+     */
+    public LogicalKnowledgeNodeClock(final long time) {
+        this.time = new AtomicLong(time);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return time.get();
+    }
+
+    /**
+     * Advances the clock.
+     *
+     * @param ticks the number of ticks to advance the clock by
+     * @return the new time
+     * @throws IllegalArgumentException if the number of ticks is negative
+     */
+    public long advance(final long ticks) {
+        if (ticks < 0) {
+            throw new IllegalArgumentException(
+                    "Cannot move the clock backwards: " + ticks);
+        }
+        return time.addAndGet(ticks);
+    }
+}
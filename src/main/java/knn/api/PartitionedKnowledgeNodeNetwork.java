@@ -0,0 +1,136 @@
+package knn.api;
+
+import java.util.List;
+import java.util.Set;
+import tags.Tag;
+
+/**
+ * KNN whose KNs are hash-partitioned by input Tag across several shards, each
+ * of which is a {@link KnowledgeNodeNetwork} holding its own KNs and
+ * activation state. Searches proceed ply by ply: at each ply every shard
+ * searches its own input, and sends the Tags it activates to the shards
+ * which need them for the next ply through a
+ * {@link KnowledgeNodeShardTransport}. The searches have the same semantics
+ * as in a single KNN holding all the KNs.
+ * <p>
+ * Forward search sends each activated Tag to the shard owning it, which
+ * holds the KN it is the input Tag of. Backward search sends the activated
+ * Tags of each shard to every shard, since the KNs producing a Tag may be
+ * held by any shard, and matches are counted against the whole ply. Backward
+ * search always counts overlaps exactly.
+ */
+public interface PartitionedKnowledgeNodeNetwork {
+    /**
+     * @return the number of shards
+     */
+    int getShardCount();
+
+    /**
+     * Gets the shard owning the given Tag, i.e., holding the KN it is the
+     * input Tag of.
+     *
+     * @param tag the Tag
+     * @return the index of the shard
+     */
+    int getShard(Tag tag);
+
+    /**
+     * Deletes all the KNs and deactivates all the Tags in every shard.
+     */
+    void resetEmpty();
+
+    /**
+     * Loads the KNs of a file into the shards, replacing the existing KNs.
+     *
+     * @param filename the name of the file
+     * @return the loaded KNs
+     * @see KnowledgeNodeNetwork#loadData(String)
+     */
+    List<KnowledgeNode> loadData(String filename);
+
+    /**
+     * Adds a KN to the shard owning its input Tag.
+     *
+     * @param kn the KN to add
+     */
+    void addKnowledgeNode(KnowledgeNode kn);
+
+    /**
+     * Deletes the KN with the given input Tag, if any.
+     *
+     * @param tag the input Tag of the KN to delete
+     */
+    void deleteKnowledgeNode(Tag tag);
+
+    /**
+     * Deletes the expired KNs in every shard.
+     */
+    void deleteExpiredKnowledgeNodes();
+
+    /**
+     * Gets the KN with the given input Tag.
+     *
+     * @param tag the input Tag
+     * @return the KN, or null if there is none
+     */
+    KnowledgeNode getKnowledgeNode(Tag tag);
+
+    /**
+     * @return the number of KNs over all the shards
+     */
+    int size();
+
+    /**
+     * Deactivates all the active Tags in every shard.
+     */
+    void clearActiveTags();
+
+    /**
+     * @return the Tags active in any shard
+     */
+    Set<Tag> getActiveTags();
+
+    /**
+     * Sets the backward search matching ratio of every shard.
+     *
+     * @param ratio the backward search match ratio
+     * @see KnowledgeNodeNetwork#setBackwardSearchMatchRatio(double)
+     */
+    void setBackwardSearchMatchRatio(double ratio);
+
+    /**
+     * Performs forward search across the shards.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     * @see KnowledgeNodeNetwork#forwardSearch(Set, int)
+     */
+    Set<Tag> forwardSearch(Set<Tag> inputTags, int ply);
+
+    /**
+     * Performs backward search across the shards.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     * @see KnowledgeNodeNetwork#backwardSearch(Set, int)
+     */
+    Set<Tag> backwardSearch(Set<Tag> inputTags, int ply);
+
+    /**
+     * Performs lambda search across the shards.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search continues
+     *                  until quiescence.
+     * @return the Set of activated Tags resulting from searching (excluding the
+     * input Tags)
+     * @see KnowledgeNodeNetwork#lambdaSearch(Set, int)
+     */
+    Set<Tag> lambdaSearch(Set<Tag> inputTags, int ply);
+}
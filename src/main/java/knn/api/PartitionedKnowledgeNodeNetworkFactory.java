@@ -0,0 +1,22 @@
+package knn.api;
+
+import com.google.inject.assistedinject.Assisted;
+
+/**
+ * Guice factory to create a partitioned KNN. The shards are KNNs of the
+ * implementation selected by the options of the KNN module.
+ */
+public interface PartitionedKnowledgeNodeNetworkFactory {
+    /**
+     * Creates a partitioned KNN with no KNs.
+     *
+     * @param shardCount the number of shards
+     * @param transport  the transport of the frontier messages between the
+     *                   shards, which must address as many shards
+     * @return the created partitioned KNN
+     * @throws IllegalArgumentException if the shard count is not positive
+     */
+    PartitionedKnowledgeNodeNetwork create(
+            @Assisted("shardCount") int shardCount,
+            @Assisted("transport") KnowledgeNodeShardTransport transport);
+}
@@ -0,0 +1,21 @@
+package knn.api;
+
+/**
+ * Read-only snapshot of the structure of a KNN, i.e., the input Tags, output
+ * Tags and thresholds of its KNs. It holds no activation state, and can
+ * therefore be shared by any number of concurrent sessions.
+ */
+public interface SharedKnowledgeNodeNetwork {
+    /**
+     * Creates a new reasoning session on the shared KNN, with no active Tags
+     * and no excited KNs.
+     *
+     * @return the created session
+     */
+    KnowledgeNodeNetworkSession createSession();
+
+    /**
+     * @return the number of KNs in the shared KNN
+     */
+    int size();
+}
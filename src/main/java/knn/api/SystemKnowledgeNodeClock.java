@@ -0,0 +1,11 @@
+package knn.api;
+
+/**
+ * KN clock reading the system wall clock on every call.
+ */
+public final class SystemKnowledgeNodeClock implements KnowledgeNodeClock {
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
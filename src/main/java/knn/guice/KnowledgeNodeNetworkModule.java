@@ -1,14 +1,27 @@
 package knn.guice;
 
 import com.google.inject.AbstractModule;
+import knn.api.KnowledgeNodeNetworkOption;
 import knn.internal.KnowledgeNodeNetworkInternalModule;
 
 /**
  * Public Guice module for the KNN.
  */
 public final class KnowledgeNodeNetworkModule extends AbstractModule {
+    private final KnowledgeNodeNetworkOption[] options;
+
+    /**
+     * Creates the KNN module.
+     *
+     * @param options the options selecting the KNN implementation
+     */
+    public KnowledgeNodeNetworkModule(
+            final KnowledgeNodeNetworkOption... options) {
+        this.options = options.clone();
+    }
+
     @Override
     protected void configure() {
-        install(new KnowledgeNodeNetworkInternalModule());
+        install(new KnowledgeNodeNetworkInternalModule(options));
     }
 }
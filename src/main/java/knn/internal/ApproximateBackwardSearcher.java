@@ -0,0 +1,101 @@
+package knn.internal;
+
+import java.util.HashSet;
+import java.util.Set;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import tags.Tag;
+
+/**
+ * Searcher which performs approximate backward search in the KNN. Instead of
+ * counting the overlaps of every KN producing one of the input Tags, the
+ * candidate KNs are looked up in a {@link MinHashIndex} of the output Tags,
+ * and then verified by the {@link BackwardSearchMatcher}. Every activated Tag
+ * is therefore a true match, but some matches may be missed.
+ * <p>
+ * A KN matches when at least {@code m} of the {@code n} input Tags are among
+ * its output Tags. Since no indexed KN has more than {@code o} output Tags,
+ * the largest output Tag count in the index, the Jaccard similarity of the
+ * input and output Tags is then at least {@code m / (n + o - m)}. The
+ * searcher probes as few bands of the MinHash index as needed to find a KN
+ * with that similarity with the target recall, so that every matching KN is
+ * found with at least that probability. When the target cannot be reached by
+ * probing all the bands, e.g., because a few KNs have many output Tags, the
+ * searcher falls back to exact backward search.
+ */
+class ApproximateBackwardSearcher extends BackwardSearcher {
+    /**
+     * Default target recall.
+     */
+    static final double DEFAULT_RECALL = 0.95;
+
+    private final BackwardSearchMatcher backwardSearchMatcher;
+    private final MinHashIndex minHashIndex;
+    private double recall;
+
+    @Inject
+    ApproximateBackwardSearcher(
+            @Assisted("activeTags") final Set<Tag> activeTags,
+            @Assisted("ageSortedKNs")
+            final Iterable<KnowledgeNode> ageSortedKNs,
+            @Assisted("outputTagIndex") final OutputTagIndex outputTagIndex,
+            @Assisted("partialMatchRatio") final double partialMatchRatio,
+            @Assisted("ageLimit") final long ageLimit,
+            final BackwardSearchMatcher backwardSearchMatcher,
+            final KnowledgeNodeClock clock) {
+        super(activeTags, ageSortedKNs, outputTagIndex, partialMatchRatio,
+                ageLimit, backwardSearchMatcher, clock);
+        this.backwardSearchMatcher = backwardSearchMatcher;
+        this.minHashIndex = new MinHashIndex();
+        this.recall = DEFAULT_RECALL;
+        outputTagIndex.attach(minHashIndex);
+    }
+
+    @Override
+    void setRecall(final double recall) {
+        this.recall = recall;
+    }
+
+    @Override
+    Set<Tag> matchIndexed(final Set<Tag> inputTags,
+                          final int numRequiredMatches,
+                          final long time) {
+        final int bandCount = MinHashIndex.getBandCount(
+                getMinSimilarity(inputTags.size(), numRequiredMatches),
+                recall);
+        if (bandCount < 0) {
+            return super.matchIndexed(inputTags, numRequiredMatches, time);
+        }
+        final Set<Tag> activatedTags = new HashSet<>();
+        for (final KnowledgeNode kn
+                : minHashIndex.getCandidates(inputTags, bandCount)) {
+            if (isWithinAgeLimit(kn, time)) {
+                backwardSearchMatcher
+                        .match(inputTags, kn, numRequiredMatches)
+                        .ifPresent(activatedTags::add);
+            }
+        }
+        return activatedTags;
+    }
+
+    /**
+     * Gets the minimum Jaccard similarity between the input Tags and the
+     * output Tags of any matching KN in the index.
+     *
+     * @param inputCount         the number of input Tags
+     * @param numRequiredMatches the number of required matches
+     * @return the minimum similarity
+     */
+    private double getMinSimilarity(
+            final int inputCount,
+            final int numRequiredMatches) {
+        final double union = inputCount + minHashIndex.getMaxOutputCount()
+                - numRequiredMatches;
+        if (union <= numRequiredMatches) {
+            return 1;
+        }
+        return numRequiredMatches / union;
+    }
+}
@@ -0,0 +1,190 @@
+package knn.internal;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * Bounded selection of the best KNs matched in a ply of ranked backward
+ * search. Used during ranked backward search in the KNN.
+ * <p>
+ * A KN is scored by a weighted sum of the ratio of the search input Tags
+ * found in its output Tags, its confidence, which grows with its belief and
+ * strength, and its recency. Each term lies between 0 and 1, so the score of
+ * a KN is bounded from its match count and age alone. The best KNs are kept
+ * in a min-heap of the given size, and callers visit the candidates in order
+ * of decreasing bound until {@link #canImprove(int, long)} is false.
+ */
+class BackwardSearchRanker {
+    /**
+     * Weight of the ratio of the input Tags matched by a KN.
+     */
+    static final double OVERLAP_WEIGHT = 0.6;
+    /**
+     * Weight of the confidence of a KN, from its belief and strength.
+     */
+    static final double CONFIDENCE_WEIGHT = 0.2;
+    /**
+     * Weight of the recency of a KN.
+     */
+    static final double RECENCY_WEIGHT = 0.2;
+
+    private static final Comparator<Map.Entry<Tag, Double>> RANK_ORDER =
+            Comparator.<Map.Entry<Tag, Double>>comparingDouble(
+                    Map.Entry::getValue)
+                    .reversed()
+                    .thenComparing(e -> e.getKey().toString());
+
+    private final int limit;
+    private final int inputCount;
+    private final long time;
+    private final PriorityQueue<Map.Entry<Tag, Double>> heap;
+
+    /**
+     * Creates an empty selection.
+     *
+     * @param limit      the maximum number of KNs to select
+     * @param inputCount the number of input Tags of the ply
+     * @param time       the current time, in milliseconds
+     */
+    BackwardSearchRanker(final int limit,
+                         final int inputCount,
+                         final long time) {
+        this.limit = limit;
+        this.inputCount = inputCount;
+        this.time = time;
+        this.heap = new PriorityQueue<>(limit, RANK_ORDER.reversed());
+    }
+
+    /**
+     * Scores a KN matched during backward search.
+     *
+     * @param kn         the KN
+     * @param matchCount the number of input Tags found in the output Tags of
+     *                   the KN
+     * @param inputCount the number of input Tags
+     * @param age        the age of the KN, in milliseconds
+     * @return the score of the KN, between 0 and 1
+     */
+    static double score(final KnowledgeNode kn,
+                        final int matchCount,
+                        final int inputCount,
+                        final long age) {
+        final double strength =
+                Math.max(kn.getBelief(), 0) + Math.max(kn.getStrength(), 0);
+        return getOverlapScore(matchCount, inputCount)
+                + CONFIDENCE_WEIGHT * strength / (1 + strength)
+                + getRecencyScore(age);
+    }
+
+    /**
+     * Gets the highest score of any KN with the given match count and at
+     * least the given age.
+     *
+     * @param matchCount the number of matched input Tags
+     * @param inputCount the number of input Tags
+     * @param age        the minimum age of the KNs, in milliseconds
+     * @return the bound on the score
+     */
+    static double getMaxScore(final int matchCount,
+                              final int inputCount,
+                              final long age) {
+        return getOverlapScore(matchCount, inputCount)
+                + CONFIDENCE_WEIGHT
+                + getRecencyScore(age);
+    }
+
+    /**
+     * Ranks Tags by decreasing score.
+     *
+     * @param scores the scores of the Tags
+     * @param limit  the maximum number of Tags to return
+     * @return the best Tags, best first
+     */
+    static List<Tag> rank(final Map<Tag, Double> scores, final int limit) {
+        final List<Map.Entry<Tag, Double>> entries =
+                new ArrayList<>(scores.entrySet());
+        entries.sort(RANK_ORDER);
+        final List<Tag> rankedTags = new ArrayList<>();
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            rankedTags.add(entries.get(i).getKey());
+        }
+        return rankedTags;
+    }
+
+    /**
+     * Checks if a KN with the given match count and at least the given age
+     * could still enter the selection.
+     *
+     * @param matchCount the number of matched input Tags
+     * @param age        the minimum age of the KN, in milliseconds
+     * @return false if no such KN can beat the worst selected KN
+     */
+    boolean canImprove(final int matchCount, final long age) {
+        return heap.size() < limit || heap.peek().getValue()
+                < getMaxScore(matchCount, inputCount, age);
+    }
+
+    /**
+     * Offers a matched KN to the selection. The worst selected KN is evicted
+     * if the selection is full and the KN ranks higher. Ties are broken on
+     * the input Tags, so the selection does not depend on the visit order.
+     *
+     * @param kn         the KN
+     * @param matchCount the number of input Tags found in the output Tags of
+     *                   the KN
+     */
+    void offer(final KnowledgeNode kn, final int matchCount) {
+        final Map.Entry<Tag, Double> entry =
+                new AbstractMap.SimpleImmutableEntry<>(kn.getInputTag(),
+                        score(kn, matchCount, inputCount,
+                                kn.getCurrentAge(time)));
+        if (heap.size() == limit) {
+            if (RANK_ORDER.compare(entry, heap.peek()) >= 0) {
+                return;
+            }
+            heap.poll();
+        }
+        heap.add(entry);
+    }
+
+    /**
+     * @return the input Tags of the selected KNs, with their scores
+     */
+    Map<Tag, Double> getScores() {
+        final Map<Tag, Double> scores = new LinkedHashMap<>();
+        for (final Map.Entry<Tag, Double> entry : heap) {
+            scores.merge(entry.getKey(), entry.getValue(), Math::max);
+        }
+        return scores;
+    }
+
+    /**
+     * @param matchCount the number of matched input Tags
+     * @param inputCount the number of input Tags
+     * @return the weighted overlap term of the score
+     */
+    private static double getOverlapScore(final int matchCount,
+                                          final int inputCount) {
+        if (inputCount == 0) {
+            return 0;
+        }
+        return OVERLAP_WEIGHT * matchCount / inputCount;
+    }
+
+    /**
+     * @param age the age of a KN, in milliseconds
+     * @return the weighted recency term of the score, which is halved at an
+     * age of {@link KnowledgeNode#AGE_THRESHOLD}
+     */
+    private static double getRecencyScore(final long age) {
+        return RECENCY_WEIGHT * KnowledgeNode.AGE_THRESHOLD
+                / (KnowledgeNode.AGE_THRESHOLD + Math.max(age, 0));
+    }
+}
@@ -1,12 +1,20 @@
 package knn.internal;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
 import tags.Tag;
 
 /**
@@ -15,22 +23,30 @@ import tags.Tag;
 class BackwardSearcher extends Searcher<Set<Tag>> {
     private final Set<Tag> activeTags;
     private final BackwardSearchMatcher backwardSearchMatcher;
-    private final TreeSet<KnowledgeNode> ageSortedKNs;
+    private final Iterable<KnowledgeNode> ageSortedKNs;
+    private final OutputTagIndex outputTagIndex;
+    private final KnowledgeNodeClock clock;
     private double partialMatchRatio;
     private long ageLimit;
+    private Lock plyLock;
 
     @Inject
     BackwardSearcher(
             @Assisted("activeTags") final Set<Tag> activeTags,
-            @Assisted("ageSortedKNs") final TreeSet<KnowledgeNode> ageSortedKNs,
+            @Assisted("ageSortedKNs")
+            final Iterable<KnowledgeNode> ageSortedKNs,
+            @Assisted("outputTagIndex") final OutputTagIndex outputTagIndex,
             @Assisted("partialMatchRatio") final double partialMatchRatio,
             @Assisted("ageLimit") final long ageLimit,
-            final BackwardSearchMatcher backwardSearchMatcher) {
+            final BackwardSearchMatcher backwardSearchMatcher,
+            final KnowledgeNodeClock clock) {
         this.activeTags = activeTags;
         this.partialMatchRatio = partialMatchRatio;
         this.ageLimit = ageLimit;
         this.backwardSearchMatcher = backwardSearchMatcher;
         this.ageSortedKNs = ageSortedKNs;
+        this.outputTagIndex = outputTagIndex;
+        this.clock = clock;
     }
 
     /**
@@ -51,23 +67,27 @@ class BackwardSearcher extends Searcher<Set<Tag>> {
         this.ageLimit = ageLimit;
     }
 
+    /**
+     * Sets the lock held during each ply of the search, for KNNs which are
+     * modified concurrently. The lock is released between plies, so that
+     * the KNN can be modified while the search is running.
+     *
+     * @param plyLock the lock guarding the KNs, or null not to lock
+     */
+    void setPlyLock(final Lock plyLock) {
+        this.plyLock = plyLock;
+    }
+
     @Override
     public Set<Tag> searchInternal(final Set<Tag> inputTags, final double ply) {
+        // The clock is read once, so all the KNs are aged at the same time.
+        final long time = clock.currentTimeMillis();
         final Set<Tag> allActivatedTags = new HashSet<>();
         Set<Tag> currentPlyInputTags = new HashSet<>(inputTags);
         for (int i = 0; i < ply && !currentPlyInputTags.isEmpty(); i++) {
-            final int numRequiredMatches =
-                    (int) (partialMatchRatio * currentPlyInputTags.size());
-            final Set<Tag> activatedTags = new HashSet<>();
-            // Iterate over the KNs in order of increasing age
-            for (final KnowledgeNode kn : ageSortedKNs) {
-                if (kn.getCurrentAge() > ageLimit) { // Age limit reached.
-                    break;
-                }
-                backwardSearchMatcher
-                        .match(currentPlyInputTags, kn, numRequiredMatches)
-                        .ifPresent(activatedTags::add);
-            }
+            final Set<Tag> plyInputTags = currentPlyInputTags;
+            final Set<Tag> activatedTags =
+                    runPly(() -> searchPly(plyInputTags, time));
             allActivatedTags.addAll(activatedTags);
             currentPlyInputTags = activatedTags;
         }
@@ -75,4 +95,230 @@ class BackwardSearcher extends Searcher<Set<Tag>> {
         this.activeTags.addAll(allActivatedTags);
         return Collections.unmodifiableSet(allActivatedTags);
     }
+
+    /**
+     * Creates a single ply of backward search, which does not change the
+     * active Tags. All the plies age the KNs at the time of this call.
+     *
+     * @return the ply, from its input Tags to the activated Tags
+     */
+    UnaryOperator<Set<Tag>> newPlySearch() {
+        final long time = clock.currentTimeMillis();
+        return inputTags -> runPly(() -> searchPly(inputTags, time));
+    }
+
+    /**
+     * Runs a ply of the search, holding the ply lock if there is one.
+     *
+     * @param ply the ply
+     * @param <T> the type of the result of the ply
+     * @return the result of the ply
+     */
+    private <T> T runPly(final Supplier<T> ply) {
+        final Lock lock = plyLock;
+        if (lock == null) {
+            return ply.get();
+        }
+        lock.lock();
+        try {
+            return ply.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Matches the KNs producing the input Tags of a ply.
+     *
+     * @param inputTags the input Tags of the current ply
+     * @param time      the current time, in milliseconds
+     * @return the activated input Tags of the matching KNs
+     */
+    private Set<Tag> searchPly(final Set<Tag> inputTags, final long time) {
+        final int numRequiredMatches =
+                (int) (partialMatchRatio * inputTags.size());
+        if (numRequiredMatches > 0) {
+            return matchIndexed(inputTags, numRequiredMatches, time);
+        }
+        return matchAll(inputTags, time);
+    }
+
+    /**
+     * Performs ranked backward search. Each ply only keeps the best
+     * {@code limit} matching KNs, as scored by {@link BackwardSearchRanker},
+     * and feeds their input Tags to the next ply. Candidates are visited in
+     * order of decreasing match count, then of increasing age, and the ply
+     * stops as soon as no remaining candidate can enter the selection.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search
+     *                  continues until quiescence.
+     * @param limit     the maximum number of Tags to return
+     * @return the best activated Tags over all the plies, best first
+     * (excluding the previously active Tags)
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    List<Tag> searchRanked(final Set<Tag> inputTags,
+                           final double ply,
+                           final int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException(
+                    "Ranked search needs a positive limit: " + limit);
+        }
+        // The clock is read once, so all the KNs are aged at the same time.
+        final long time = clock.currentTimeMillis();
+        final double plyCount = getPlyCount(ply);
+        final Map<Tag, Double> allScores = new HashMap<>();
+        Set<Tag> currentPlyInputTags = new HashSet<>(inputTags);
+        for (int i = 0; i < plyCount && !currentPlyInputTags.isEmpty(); i++) {
+            final Set<Tag> plyInputTags = currentPlyInputTags;
+            final Map<Tag, Double> scores =
+                    runPly(() -> rankPly(plyInputTags, limit, time));
+            for (final Map.Entry<Tag, Double> entry : scores.entrySet()) {
+                if (!this.activeTags.contains(entry.getKey())) {
+                    allScores.merge(entry.getKey(), entry.getValue(),
+                            Math::max);
+                }
+            }
+            currentPlyInputTags = scores.keySet();
+        }
+        final List<Tag> rankedTags =
+                BackwardSearchRanker.rank(allScores, limit);
+        this.activeTags.addAll(rankedTags);
+        return Collections.unmodifiableList(rankedTags);
+    }
+
+    /**
+     * Selects the best KNs matching the input Tags of a ply.
+     *
+     * @param inputTags the input Tags of the current ply
+     * @param limit     the maximum number of KNs to select
+     * @param time      the current time, in milliseconds
+     * @return the input Tags of the selected KNs, with their scores
+     */
+    private Map<Tag, Double> rankPly(final Set<Tag> inputTags,
+                                     final int limit,
+                                     final long time) {
+        final int numRequiredMatches =
+                (int) (partialMatchRatio * inputTags.size());
+        final Map<KnowledgeNode, int[]> matchCounts = countMatches(inputTags);
+        // Bucket the candidates by match count, to visit the best first.
+        final List<List<KnowledgeNode>> buckets = new ArrayList<>();
+        for (int i = 0; i <= inputTags.size(); i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (final Map.Entry<KnowledgeNode, int[]> entry
+                : matchCounts.entrySet()) {
+            if (entry.getValue()[0] >= numRequiredMatches) {
+                buckets.get(entry.getValue()[0]).add(entry.getKey());
+            }
+        }
+        final BackwardSearchRanker ranker =
+                new BackwardSearchRanker(limit, inputTags.size(), time);
+        for (int count = inputTags.size();
+             count > 0 && ranker.canImprove(count, 0); count--) {
+            for (final KnowledgeNode kn : buckets.get(count)) {
+                if (isWithinAgeLimit(kn, time)) {
+                    ranker.offer(kn, count);
+                }
+            }
+        }
+        if (numRequiredMatches == 0) {
+            // Iterate over the KNs in order of increasing age
+            for (final KnowledgeNode kn : ageSortedKNs) {
+                final long age = kn.getCurrentAge(time);
+                if (age > ageLimit || !ranker.canImprove(0, age)) {
+                    break;
+                }
+                if (!matchCounts.containsKey(kn)) {
+                    ranker.offer(kn, 0);
+                }
+            }
+        }
+        return ranker.getScores();
+    }
+
+    /**
+     * Sets the target recall of approximate backward search. Backward search
+     * is exact by default, so the recall is ignored.
+     *
+     * @param recall the target recall, between 0 and 1
+     */
+    void setRecall(final double recall) {
+    }
+
+    /**
+     * Checks if the given KN is within the age limit of backward search.
+     *
+     * @param kn   the KN
+     * @param time the current time, in milliseconds
+     * @return true if the KN is within the age limit
+     */
+    final boolean isWithinAgeLimit(final KnowledgeNode kn, final long time) {
+        return kn.getCurrentAge(time) <= ageLimit;
+    }
+
+    /**
+     * Matches the KNs producing at least one of the given input Tags, counting
+     * the overlaps over the posting lists of the output Tag index.
+     *
+     * @param inputTags          the input Tags of the current ply
+     * @param numRequiredMatches the number of required matches
+     * @param time               the current time, in milliseconds
+     * @return the activated input Tags of the matching KNs
+     */
+    Set<Tag> matchIndexed(final Set<Tag> inputTags,
+                          final int numRequiredMatches,
+                          final long time) {
+        final Map<KnowledgeNode, int[]> matchCounts = countMatches(inputTags);
+        final Set<Tag> activatedTags = new HashSet<>();
+        for (final Map.Entry<KnowledgeNode, int[]> entry
+                : matchCounts.entrySet()) {
+            final KnowledgeNode kn = entry.getKey();
+            if (entry.getValue()[0] >= numRequiredMatches
+                    && isWithinAgeLimit(kn, time)) {
+                activatedTags.add(kn.getInputTag());
+            }
+        }
+        return activatedTags;
+    }
+
+    /**
+     * Counts the input Tags produced by each KN, over the posting lists of the
+     * output Tag index.
+     *
+     * @param inputTags the input Tags of the current ply
+     * @return the number of input Tags produced by each KN producing any
+     */
+    private Map<KnowledgeNode, int[]> countMatches(final Set<Tag> inputTags) {
+        final Map<KnowledgeNode, int[]> matchCounts = new IdentityHashMap<>();
+        for (final Tag t : inputTags) {
+            for (final KnowledgeNode kn : outputTagIndex.getProducers(t)) {
+                matchCounts.computeIfAbsent(kn, k -> new int[1])[0]++;
+            }
+        }
+        return matchCounts;
+    }
+
+    /**
+     * Matches every KN within the age limit. Used when no overlap is required,
+     * in which case the output Tag index cannot narrow down the candidates.
+     *
+     * @param inputTags the input Tags of the current ply
+     * @param time      the current time, in milliseconds
+     * @return the activated input Tags of the matching KNs
+     */
+    private Set<Tag> matchAll(final Set<Tag> inputTags, final long time) {
+        final Set<Tag> activatedTags = new HashSet<>();
+        // Iterate over the KNs in order of increasing age
+        for (final KnowledgeNode kn : ageSortedKNs) {
+            if (!isWithinAgeLimit(kn, time)) { // Age limit reached.
+                break;
+            }
+            backwardSearchMatcher
+                    .match(inputTags, kn, 0)
+                    .ifPresent(activatedTags::add);
+        }
+        return activatedTags;
+    }
 }
@@ -1,7 +1,6 @@
 package knn.internal;
 
 import java.util.Set;
-import java.util.TreeSet;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import knn.api.KnowledgeNode;
@@ -15,7 +14,8 @@ interface BackwardSearcherFactory {
      * Creates the backward searcher.
      *
      * @param activeTags        the active tags
-     * @param ageSortedKNs      the KNs sorted by age
+     * @param ageSortedKNs      the KNs in order of increasing age
+     * @param outputTagIndex    the reverse index from output Tags to KNs
      * @param partialMatchRatio the partial match ratio
      * @param ageLimit          the age limit
      * @return the created backward searcher
@@ -23,7 +23,8 @@ interface BackwardSearcherFactory {
     @Inject
     BackwardSearcher create(
             @Assisted("activeTags") Set<Tag> activeTags,
-            @Assisted("ageSortedKNs") TreeSet<KnowledgeNode> ageSortedKNs,
+            @Assisted("ageSortedKNs") Iterable<KnowledgeNode> ageSortedKNs,
+            @Assisted("outputTagIndex") OutputTagIndex outputTagIndex,
             @Assisted("partialMatchRatio") double partialMatchRatio,
             @Assisted("ageLimit") long ageLimit);
 }
@@ -0,0 +1,358 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import tags.Tag;
+
+/**
+ * Searcher which performs many independent read-only searches in the KNN at
+ * once.
+ * <p>
+ * Instead of one traversal per query, the frontiers of all the queries are
+ * merged into a single map from each Tag to the bit set of the queries it
+ * belongs to. Each ply then looks up every KN once for all the queries, and
+ * carries the query bits from its input Tag to its output Tags, or the other
+ * way around. The state of each KN is also kept as bit sets of queries, and
+ * the overlaps of backward search are counted in a single array reused for
+ * every KN, so the memory of a search does not grow with the number of KNs
+ * times the number of queries. Every query gets the result it would get on
+ * its own: forward search excites the KNs in an activation state local to
+ * each query and ignores the expired KNs, as {@link ForwardClosureSearcher}
+ * does, and backward search ignores and leaves unchanged the active Tags of
+ * the KNN.
+ */
+class BatchSearcher {
+    private final Function<Tag, KnowledgeNode> knowledgeNodes;
+    private final Function<Tag, Collection<KnowledgeNode>> producers;
+    private final Iterable<KnowledgeNode> ageSortedKNs;
+    private final KnowledgeNodeClock clock;
+
+    /**
+     * Creates a searcher over the given structure of the KNN.
+     *
+     * @param knowledgeNodes the KNs of the KNN, by input Tag
+     * @param producers      the KNs producing an output Tag
+     * @param ageSortedKNs   the KNs of the KNN, in order of increasing age
+     * @param clock          the clock the KNs are aged with
+     */
+    BatchSearcher(final Function<Tag, KnowledgeNode> knowledgeNodes,
+                  final Function<Tag, Collection<KnowledgeNode>> producers,
+                  final Iterable<KnowledgeNode> ageSortedKNs,
+                  final KnowledgeNodeClock clock) {
+        this.knowledgeNodes = knowledgeNodes;
+        this.producers = producers;
+        this.ageSortedKNs = ageSortedKNs;
+        this.clock = clock;
+    }
+
+    /**
+     * Performs read-only forward search for each of the given queries.
+     *
+     * @param inputTagSets the input Tags of each query
+     * @param ply          the ply of the searches. If set to 0, the searches
+     *                     continue until quiescence.
+     * @return the activated Tags of each query, in the order of the queries
+     */
+    List<Set<Tag>> searchForward(final List<Set<Tag>> inputTagSets,
+                                 final int ply) {
+        final long time = clock.currentTimeMillis();
+        final double plyCount = Searcher.getPlyCount(ply);
+        final int queryCount = inputTagSets.size();
+        final Map<KnowledgeNode, Excitations> excitations =
+                new IdentityHashMap<>();
+        final Map<Tag, BitSet> allActivatedTags = new HashMap<>();
+        Map<Tag, BitSet> frontier = toFrontier(inputTagSets);
+        for (int i = 0; i < plyCount && !frontier.isEmpty(); i++) {
+            final Map<Tag, BitSet> nextFrontier = new HashMap<>();
+            for (final Map.Entry<Tag, BitSet> entry : frontier.entrySet()) {
+                final KnowledgeNode kn = knowledgeNodes.apply(entry.getKey());
+                if (kn == null || kn.isExpired()
+                        || time > kn.getExpiryTime()) {
+                    continue;
+                }
+                final BitSet firedQueries = excite(kn, entry.getValue(),
+                        excitations.computeIfAbsent(kn, Excitations::new));
+                if (firedQueries.isEmpty()) {
+                    continue;
+                }
+                for (final Tag t : kn.getOutputTags()) {
+                    nextFrontier.computeIfAbsent(t, k -> new BitSet())
+                            .or(firedQueries);
+                }
+            }
+            merge(allActivatedTags, nextFrontier);
+            frontier = nextFrontier;
+        }
+        return toResults(allActivatedTags, queryCount);
+    }
+
+    /**
+     * Performs read-only backward search for each of the given queries.
+     * Overlaps are counted exactly, even if backward search is approximate.
+     *
+     * @param inputTagSets      the input Tags of each query
+     * @param ply               the ply of the searches. If set to 0, the
+     *                          searches continue until quiescence.
+     * @param partialMatchRatio the ratio of the input Tags of a ply a KN
+     *                          must produce to match
+     * @param ageLimit          the age limit of the matched KNs
+     * @return the activated Tags of each query, in the order of the queries
+     */
+    List<Set<Tag>> searchBackward(final List<Set<Tag>> inputTagSets,
+                                  final int ply,
+                                  final double partialMatchRatio,
+                                  final long ageLimit) {
+        // The clock is read once, so all the KNs are aged at the same time.
+        final long time = clock.currentTimeMillis();
+        final double plyCount = Searcher.getPlyCount(ply);
+        final int queryCount = inputTagSets.size();
+        final Map<Tag, BitSet> allActivatedTags = new HashMap<>();
+        Map<Tag, BitSet> frontier = toFrontier(inputTagSets);
+        int[] frontierSizes = new int[queryCount];
+        final int[] matchCounts = new int[queryCount];
+        final int[] matchedQueries = new int[queryCount];
+        for (int q = 0; q < queryCount; q++) {
+            frontierSizes[q] = inputTagSets.get(q).size();
+        }
+        for (int i = 0; i < plyCount && !frontier.isEmpty(); i++) {
+            final int[] numRequiredMatches = new int[queryCount];
+            final BitSet matchAllQueries = new BitSet(queryCount);
+            for (int q = 0; q < queryCount; q++) {
+                numRequiredMatches[q] =
+                        (int) (partialMatchRatio * frontierSizes[q]);
+                if (numRequiredMatches[q] == 0 && frontierSizes[q] > 0) {
+                    matchAllQueries.set(q);
+                }
+            }
+            final Map<Tag, BitSet> nextFrontier = new HashMap<>();
+            for (final KnowledgeNode kn : getProducers(frontier)) {
+                if (kn.getCurrentAge(time) > ageLimit) {
+                    continue;
+                }
+                final int matchedQueryCount = countMatches(
+                        kn, frontier, matchCounts, matchedQueries);
+                for (int j = 0; j < matchedQueryCount; j++) {
+                    final int q = matchedQueries[j];
+                    if (numRequiredMatches[q] > 0
+                            && matchCounts[q] >= numRequiredMatches[q]) {
+                        nextFrontier.computeIfAbsent(kn.getInputTag(),
+                                k -> new BitSet()).set(q);
+                    }
+                    matchCounts[q] = 0;
+                }
+            }
+            if (!matchAllQueries.isEmpty()) {
+                // Iterate over the KNs in order of increasing age
+                for (final KnowledgeNode kn : ageSortedKNs) {
+                    if (kn.getCurrentAge(time) > ageLimit) {
+                        break; // Age limit reached.
+                    }
+                    nextFrontier.computeIfAbsent(kn.getInputTag(),
+                            k -> new BitSet()).or(matchAllQueries);
+                }
+            }
+            merge(allActivatedTags, nextFrontier);
+            frontier = nextFrontier;
+            frontierSizes = countTags(frontier, queryCount);
+        }
+        return toResults(allActivatedTags, queryCount);
+    }
+
+    /**
+     * Excites a KN once for each of the given queries, following the same
+     * rules as {@link KnowledgeNode#excite()}, but without aging.
+     *
+     * @param kn          the KN to excite
+     * @param queries     the queries exciting the KN
+     * @param excitations the excitation state of the KN, which is updated
+     * @return the queries in which the KN has been newly fired
+     */
+    private static BitSet excite(final KnowledgeNode kn,
+                                 final BitSet queries,
+                                 final Excitations excitations) {
+        final List<BitSet> levels = excitations.levels;
+        final int requiredExcitations = excitations.requiredExcitations;
+        if (requiredExcitations == 0) {
+            // Fired before any excitation, so never newly fired.
+            return new BitSet(0);
+        }
+        // The KN fires in the queries which excited it one time less than
+        // required.
+        final BitSet firedQueries = (BitSet) queries.clone();
+        if (requiredExcitations > levels.size() + 1) {
+            firedQueries.clear();
+        } else if (requiredExcitations > 1) {
+            firedQueries.and(levels.get(requiredExcitations - 2));
+        }
+        if (requiredExcitations <= levels.size()) {
+            firedQueries.andNot(levels.get(requiredExcitations - 1));
+        } else {
+            levels.add(new BitSet(0));
+        }
+        for (int n = levels.size() - 1; n > 0; n--) {
+            final BitSet promotedQueries = (BitSet) queries.clone();
+            promotedQueries.and(levels.get(n - 1));
+            levels.get(n).or(promotedQueries);
+        }
+        levels.get(0).or(queries);
+        return firedQueries;
+    }
+
+    /**
+     * Looks up the producers of the Tags of a frontier, once for all the
+     * queries.
+     *
+     * @param frontier the queries of each Tag of the current ply
+     * @return the KNs producing any Tag of the frontier
+     */
+    private Set<KnowledgeNode> getProducers(final Map<Tag, BitSet> frontier) {
+        final Set<KnowledgeNode> kns =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final Tag t : frontier.keySet()) {
+            kns.addAll(producers.apply(t));
+        }
+        return kns;
+    }
+
+    /**
+     * Counts the Tags of the frontier of each query produced by a KN.
+     *
+     * @param kn             the KN
+     * @param frontier       the queries of each Tag of the current ply
+     * @param matchCounts    the match counts of the KN by query, all 0 on
+     *                       entry, which the caller must reset to 0 for the
+     *                       matched queries
+     * @param matchedQueries holds the queries with a match count above 0
+     * @return the number of matched queries
+     */
+    private static int countMatches(final KnowledgeNode kn,
+                                    final Map<Tag, BitSet> frontier,
+                                    final int[] matchCounts,
+                                    final int[] matchedQueries) {
+        int matchedQueryCount = 0;
+        for (final Tag t : kn.getOutputTags()) {
+            final BitSet queries = frontier.get(t);
+            if (queries == null) {
+                continue;
+            }
+            for (int q = queries.nextSetBit(0); q >= 0;
+                 q = queries.nextSetBit(q + 1)) {
+                if (matchCounts[q]++ == 0) {
+                    matchedQueries[matchedQueryCount++] = q;
+                }
+            }
+        }
+        return matchedQueryCount;
+    }
+
+    /**
+     * Merges the input Tags of the queries into a single frontier.
+     *
+     * @param inputTagSets the input Tags of each query
+     * @return the queries of each input Tag
+     */
+    private static Map<Tag, BitSet> toFrontier(
+            final List<Set<Tag>> inputTagSets) {
+        final Map<Tag, BitSet> frontier = new HashMap<>();
+        for (int q = 0; q < inputTagSets.size(); q++) {
+            for (final Tag t : inputTagSets.get(q)) {
+                frontier.computeIfAbsent(t, k -> new BitSet()).set(q);
+            }
+        }
+        return frontier;
+    }
+
+    /**
+     * Adds the queries of each Tag of a frontier to the activated Tags.
+     *
+     * @param activatedTags the queries of each activated Tag, which are
+     *                      updated
+     * @param frontier      the queries of each Tag of a frontier
+     */
+    private static void merge(final Map<Tag, BitSet> activatedTags,
+                              final Map<Tag, BitSet> frontier) {
+        for (final Map.Entry<Tag, BitSet> entry : frontier.entrySet()) {
+            activatedTags.computeIfAbsent(entry.getKey(), k -> new BitSet())
+                    .or(entry.getValue());
+        }
+    }
+
+    /**
+     * @param frontier   the queries of each Tag of a frontier
+     * @param queryCount the number of queries
+     * @return the number of Tags of the frontier of each query
+     */
+    private static int[] countTags(final Map<Tag, BitSet> frontier,
+                                   final int queryCount) {
+        final int[] sizes = new int[queryCount];
+        for (final BitSet queries : frontier.values()) {
+            for (int q = queries.nextSetBit(0); q >= 0;
+                 q = queries.nextSetBit(q + 1)) {
+                sizes[q]++;
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * Splits the activated Tags back into the results of each query.
+     *
+     * @param activatedTags the queries of each activated Tag
+     * @param queryCount    the number of queries
+     * @return the activated Tags of each query
+     */
+    private static List<Set<Tag>> toResults(
+            final Map<Tag, BitSet> activatedTags,
+            final int queryCount) {
+        final List<Set<Tag>> results = new ArrayList<>(queryCount);
+        for (int q = 0; q < queryCount; q++) {
+            results.add(new HashSet<>());
+        }
+        for (final Map.Entry<Tag, BitSet> entry : activatedTags.entrySet()) {
+            final BitSet queries = entry.getValue();
+            for (int q = queries.nextSetBit(0); q >= 0;
+                 q = queries.nextSetBit(q + 1)) {
+                results.get(q).add(entry.getKey());
+            }
+        }
+        for (int q = 0; q < queryCount; q++) {
+            results.set(q, Collections.unmodifiableSet(results.get(q)));
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Excitation state of a KN in a forward search: for each number of
+     * excitations {@code n} the KN received, the bit set of the queries which
+     * excited it more than {@code n} times. Only the levels reached so far are
+     * stored, up to the number of excitations it takes to fire the KN.
+     */
+    private static final class Excitations {
+        private final int requiredExcitations;
+        private final List<BitSet> levels;
+
+        /**
+         * @param kn the KN, which has not been excited yet
+         */
+        Excitations(final KnowledgeNode kn) {
+            int n = 0;
+            if (kn.getThreshold() > 0) {
+                n = (kn.getThreshold() - 1)
+                        / KnowledgeNode.ACTIVATION_INCREMENT + 1;
+            }
+            this.requiredExcitations = n;
+            this.levels = new ArrayList<>(1);
+        }
+    }
+}
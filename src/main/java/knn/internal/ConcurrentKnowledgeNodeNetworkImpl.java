@@ -0,0 +1,866 @@
+package knn.internal;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import com.google.inject.assistedinject.Assisted;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeCacheStats;
+import knn.api.KnowledgeNodeClock;
+import knn.api.KnowledgeNodeLoadReport;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeRecencyList;
+import knn.api.SharedKnowledgeNodeNetwork;
+import tags.Tag;
+
+/**
+ * Thread-safe implementation of the KNN, using lock striping by input Tag.
+ * <p>
+ * The given KN map and active Tags are copied into concurrent collections, so
+ * the KNN does not share them with its creator. The KNs of the map are moved
+ * from the given recency list to the recency lists of the stripes. The
+ * consistency model is the following:
+ * <ul>
+ * <li>Every operation on a single input Tag (direct search, adding and
+ * deleting a KN) is atomic, and holds the lock of the stripe the input Tag
+ * hashes to. Operations on input Tags of different stripes run in
+ * parallel.</li>
+ * <li>Forward search is a sequence of direct searches. Each excitation is
+ * atomic, but the search as a whole is not: it sees the KNs added or deleted
+ * concurrently from the time their input Tag is reached.</li>
+ * <li>The output Tag index is guarded by a read-write index lock. Adding and
+ * deleting a KN hold the write lock briefly.</li>
+ * <li>Each stripe has its own recency list of the KNs whose input Tag hashes
+ * to it, guarded by its own recency lock. Excitations move the KN to the
+ * front of the list of its stripe, so each list is in order of increasing
+ * age, and the KNs are visited by age by lazily merging the lists. The merge
+ * only locks one list at a time, and stops when the caller does, e.g., at
+ * the age limit of backward search. A KN excited during the merge is visited
+ * twice or not at all.</li>
+ * <li>Backward search holds the read lock during each of its plies, and
+ * releases it between plies. Each ply sees a consistent snapshot of the
+ * KNs, except for the activations of the KNs being excited concurrently,
+ * but the search as a whole sees the KNs added or deleted between its
+ * plies. Backward searches run in parallel with each other and with
+ * excitations.</li>
+ * <li>The expiry wheel is guarded by its own lock, so expiring KNs only
+ * contends with searches when KNs are actually deleted.</li>
+ * <li>The active Tags are a concurrent set, updated without locking.</li>
+ * <li>Bulk operations ({@link #resetEmpty()}, {@link #loadData(String)},
+ * {@link #bulkLoadData(String)}, {@link #reset(String)},
+ * {@link #save(String)}) hold all the locks, and are atomic. Files are read
+ * before the locks are acquired.</li>
+ * <li>Mutations are appended to the mutation log while holding the lock of
+ * their stripe, so the log records the mutations of each input Tag in the
+ * order they are applied. Mutations of different stripes are group-committed
+ * by the log. Recovering, compacting and closing the log hold all the
+ * locks.</li>
+ * </ul>
+ * Stripe locks are always acquired before the index lock, which is acquired
+ * before the expiry lock, and stripes are acquired in increasing order. No
+ * lock is acquired while holding a recency lock. The KNN therefore cannot
+ * deadlock.
+ */
+class ConcurrentKnowledgeNodeNetworkImpl implements KnowledgeNodeNetwork {
+    /**
+     * Number of lock stripes. Must be a power of two.
+     */
+    private static final int NUM_STRIPES = 64;
+
+    private final Map<Tag, KnowledgeNode> mapKN;
+    private final Set<Tag> activeTags;
+    private final long backwardSearchAgeLimit;
+    private volatile double backwardSearchMatchRatio;
+    private final OutputTagIndex outputTagIndex;
+    private final Lock[] stripes;
+    private final KnowledgeNodeRecencyList[] recencyLists;
+    private final Lock[] recencyLocks;
+    private final ReadWriteLock indexLock;
+    private final Lock expiryLock;
+
+    private final BackwardSearcher backwardSearcher;
+    private final ForwardClosureSearcher forwardClosureSearcher;
+    private final BatchSearcher batchSearcher;
+    private ReachabilityIndex reachabilityIndex;
+
+    private final KnowledgeNodeClock clock;
+    private final ExpiryWheel expiryWheel;
+    private volatile KnowledgeNodeMutationLog mutationLog;
+
+    @Inject
+    ConcurrentKnowledgeNodeNetworkImpl(
+            @Assisted("mapKN") final Map<Tag, KnowledgeNode> mapKN,
+            @Assisted("activeTags") final Set<Tag> activeTags,
+            @Assisted("ageSortedKNs")
+            final KnowledgeNodeRecencyList ageSortedKNs,
+            @Assisted("backwardSearchMatchRatio") final
+            double backwardSearchMatchRatio,
+            @Assisted("backwardSearchAgeLimit")
+            final long backwardSearchAgeLimit,
+            final BackwardSearcherFactory backwardSearcherFactory,
+            final KnowledgeNodeClock clock) {
+        this.mapKN = new ConcurrentHashMap<>(mapKN);
+        this.activeTags = ConcurrentHashMap.newKeySet();
+        this.activeTags.addAll(activeTags);
+        this.backwardSearchMatchRatio = backwardSearchMatchRatio;
+        this.backwardSearchAgeLimit = backwardSearchAgeLimit;
+        this.outputTagIndex = new OutputTagIndex();
+        this.clock = clock;
+        this.expiryWheel = new ExpiryWheel(ExpiryWheel.DEFAULT_TICK_MILLIS,
+                clock.currentTimeMillis());
+        this.stripes = new Lock[NUM_STRIPES];
+        this.recencyLists = new KnowledgeNodeRecencyList[NUM_STRIPES];
+        this.recencyLocks = new Lock[NUM_STRIPES];
+        for (int i = 0; i < NUM_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+            recencyLists[i] = new KnowledgeNodeRecencyList();
+            recencyLocks[i] = new ReentrantLock();
+        }
+        for (final KnowledgeNode kn : mapKN.values()) {
+            kn.setAgeTimeStamp(clock.currentTimeMillis());
+            ageSortedKNs.remove(kn);
+            touch(kn);
+            outputTagIndex.add(kn);
+            expiryWheel.schedule(kn);
+        }
+        this.indexLock = new ReentrantReadWriteLock();
+        this.expiryLock = new ReentrantLock();
+        this.backwardSearcher = backwardSearcherFactory.create(
+                this.activeTags, this::iterateByAge, outputTagIndex,
+                backwardSearchMatchRatio, backwardSearchAgeLimit);
+        this.backwardSearcher.setPlyLock(indexLock.readLock());
+        this.forwardClosureSearcher = new ForwardClosureSearcher(
+                this.mapKN::get, outputTagIndex::getVersion,
+                clock::currentTimeMillis);
+        this.batchSearcher = new BatchSearcher(this.mapKN::get,
+                this::getProducers, this::iterateByAge, clock);
+    }
+
+    @Override
+    public void resetEmpty() {
+        lockAll();
+        try {
+            clear();
+            compactLog();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public void clearActiveTags() {
+        activeTags.clear();
+    }
+
+    @Override
+    public void addKnowledgeNode(final KnowledgeNode kn) {
+        deleteExpiredKnowledgeNodes();
+        final Lock stripe = getStripe(kn.getInputTag());
+        stripe.lock();
+        try {
+            final KnowledgeNodeMutationLog log = mutationLog;
+            if (log != null) {
+                log.logAddition(kn);
+            }
+            put(kn);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public void deleteExpiredKnowledgeNodes() {
+        final long time = clock.currentTimeMillis();
+        final List<KnowledgeNode> dueKNs;
+        expiryLock.lock();
+        try {
+            dueKNs = expiryWheel.advance(time);
+        } finally {
+            expiryLock.unlock();
+        }
+        for (final KnowledgeNode kn : dueKNs) {
+            deleteIfExpired(kn, time);
+        }
+    }
+
+    @Override
+    public void deleteKnowledgeNode(final Tag tag) {
+        deleteExpiredKnowledgeNodes();
+        final KnowledgeNode kn = mapKN.get(tag);
+        if (kn != null) {
+            deleteKnowledgeNode(kn);
+        }
+    }
+
+    @Override
+    public void addActiveTag(final Tag tag) {
+        activeTags.add(tag);
+    }
+
+    @Override
+    public void addActiveTags(final Tag... tags) {
+        activeTags.addAll(Arrays.asList(tags));
+    }
+
+    @Override
+    public Set<Tag> getActiveTags() {
+        return Collections.unmodifiableSet(activeTags);
+    }
+
+    @Override
+    public KnowledgeNode getKnowledgeNode(final Tag tag) {
+        return mapKN.get(tag);
+    }
+
+    @Override
+    public Set<KnowledgeNode> getKnowledgeNodes() {
+        final Set<KnowledgeNode> knowledgeNodes =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        knowledgeNodes.addAll(mapKN.values());
+        return Collections.unmodifiableSet(knowledgeNodes);
+    }
+
+    @Override
+    public Set<Tag> directSearch(final Tag inputTag) {
+        final Set<Tag> activatedTags = new HashSet<>();
+        final Lock stripe = getStripe(inputTag);
+        stripe.lock();
+        try {
+            final KnowledgeNode kn = mapKN.get(inputTag);
+            if (kn != null) {
+                final boolean fired =
+                        kn.excite(clock.currentTimeMillis());
+                if (fired) {
+                    activatedTags.addAll(kn.getOutputTags());
+                } else if (kn.isExpired()) {
+                    deleteKnowledgeNode(kn);
+                }
+                if (!kn.isExpired()) {
+                    touch(kn);
+                }
+            }
+        } finally {
+            stripe.unlock();
+        }
+        activeTags.add(inputTag);
+        activeTags.addAll(activatedTags);
+        return Collections.unmodifiableSet(activatedTags);
+    }
+
+    @Override
+    public Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply) {
+        if (ply == 0) {
+            return forwardSearchInternal(inputTags, Double.POSITIVE_INFINITY);
+        }
+        return forwardSearchInternal(inputTags, ply);
+    }
+
+    @Override
+    public Set<Tag> forwardThink(final int ply) {
+        return forwardSearch(activeTags, ply);
+    }
+
+    @Override
+    public Set<Tag> forwardClosure(final Set<Tag> inputTags, final int ply) {
+        deleteExpiredKnowledgeNodes();
+        return forwardClosureSearcher.search(inputTags, ply);
+    }
+
+    @Override
+    public void setForwardClosureCacheSize(final int size) {
+        forwardClosureSearcher.setCacheSize(size);
+    }
+
+    @Override
+    public void setForwardClosureIndexEnabled(final boolean enabled) {
+        indexLock.writeLock().lock();
+        try {
+            if (enabled && reachabilityIndex == null) {
+                reachabilityIndex = new ReachabilityIndex();
+                outputTagIndex.attach(reachabilityIndex);
+                forwardClosureSearcher.setReachabilityIndex(reachabilityIndex);
+            } else if (!enabled && reachabilityIndex != null) {
+                forwardClosureSearcher.setReachabilityIndex(null);
+                outputTagIndex.detach(reachabilityIndex);
+                reachabilityIndex = null;
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public KnowledgeNodeCacheStats getForwardClosureCacheStats() {
+        return forwardClosureSearcher.getCacheStats();
+    }
+
+    @Override
+    public List<Set<Tag>> batchForwardSearch(final List<Set<Tag>> inputTagSets,
+                                             final int ply) {
+        return batchSearcher.searchForward(inputTagSets, ply);
+    }
+
+    @Override
+    public Set<Tag> backwardSearch(final Set<Tag> inputTags, final int ply) {
+        return backwardSearcher.search(inputTags, ply);
+    }
+
+    @Override
+    public Set<Tag> backwardThink(final int ply) {
+        return backwardSearch(new HashSet<>(activeTags), ply);
+    }
+
+    @Override
+    public List<Tag> rankedBackwardSearch(final Set<Tag> inputTags,
+                                          final int ply,
+                                          final int limit) {
+        return backwardSearcher.searchRanked(inputTags, ply, limit);
+    }
+
+    @Override
+    public List<Set<Tag>> batchBackwardSearch(
+            final List<Set<Tag>> inputTagSets,
+            final int ply) {
+        return batchSearcher.searchBackward(inputTagSets, ply,
+                backwardSearchMatchRatio, backwardSearchAgeLimit);
+    }
+
+    @Override
+    public void setBackwardSearchMatchRatio(final double ratio) {
+        indexLock.writeLock().lock();
+        try {
+            backwardSearchMatchRatio = ratio;
+            backwardSearcher.setPartialMatchRatio(ratio);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void setBackwardSearchRecall(final double recall) {
+        indexLock.writeLock().lock();
+        try {
+            backwardSearcher.setRecall(recall);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply) {
+        return forwardSearch(backwardSearch(inputTags, ply), ply);
+    }
+
+    @Override
+    public List<Tag> rankedLambdaSearch(final Set<Tag> inputTags,
+                                        final int ply,
+                                        final int limit) {
+        return LambdaSearcher.searchForwardRanked(
+                rankedBackwardSearch(inputTags, ply, limit), limit,
+                t -> forwardSearch(Collections.singleton(t), ply));
+    }
+
+    @Override
+    public Set<Tag> bidirectionalLambdaSearch(final Set<Tag> inputTags,
+                                              final Set<Tag> goalTags,
+                                              final int ply) {
+        return LambdaSearcher.searchBidirectional(inputTags, goalTags, ply,
+                backwardSearcher.newPlySearch(), this::getProducers);
+    }
+
+    @Override
+    public Set<Tag> lambdaThink(final int ply) {
+        return lambdaSearch(new HashSet<>(activeTags), ply);
+    }
+
+    @Override
+    public SharedKnowledgeNodeNetwork snapshot() {
+        lockAll();
+        try {
+            return new KnowledgeGraphSnapshot(mapKN.values(),
+                    backwardSearchMatchRatio, backwardSearchAgeLimit, clock);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public List<KnowledgeNode> loadData(final String filename) {
+        return bulkLoadData(filename).getKnowledgeNodes();
+    }
+
+    @Override
+    public KnowledgeNodeLoadReport bulkLoadData(final String filename) {
+        final KnowledgeNodeLoadReport report =
+                KnowledgeNodeReader.read(filename);
+        lockAll();
+        try {
+            clear();
+            report.getKnowledgeNodes().forEach(this::put);
+            compactLog();
+        } finally {
+            unlockAll();
+        }
+        return report;
+    }
+
+    @Override
+    public void reset(final String dbFilename) {
+        final List<KnowledgeNode> knowledgeNodes =
+                KnowledgeNodeSnapshotFile.read(dbFilename);
+        lockAll();
+        try {
+            clear();
+            knowledgeNodes.forEach(this::put);
+            compactLog();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public void save(final String dbFilename) {
+        lockAll();
+        try {
+            KnowledgeNodeSnapshotFile.write(getAgeSortedKNs(), dbFilename);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public void recover(
+            final String dbFilename,
+            final String logFilename,
+            final int syncBatchSize) {
+        lockAll();
+        try {
+            closeLog();
+            clear();
+            mutationLog = KnowledgeNodeMutationLog.recover(dbFilename,
+                    logFilename, syncBatchSize, this::put, this::remove);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public void syncLog() {
+        final KnowledgeNodeMutationLog log = mutationLog;
+        if (log != null) {
+            log.sync();
+        }
+    }
+
+    @Override
+    public void compactLog() {
+        lockAll();
+        try {
+            if (mutationLog != null) {
+                mutationLog.compact(getAgeSortedKNs());
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public void closeLog() {
+        lockAll();
+        try {
+            if (mutationLog != null) {
+                final KnowledgeNodeMutationLog log = mutationLog;
+                mutationLog = null;
+                log.close();
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Performs forward search as a sequence of atomic direct searches.
+     *
+     * @param inputTags the input Tags
+     * @param ply       the ply of the search
+     * @return the Tags activated as a result of searching
+     */
+    private Set<Tag> forwardSearchInternal(
+            final Set<Tag> inputTags,
+            final double ply) {
+        final Set<Tag> allActivatedTags = new HashSet<>();
+        Set<Tag> currentPlyInputTags = new HashSet<>(inputTags);
+        for (int i = 0; i < ply && !currentPlyInputTags.isEmpty(); i++) {
+            final Set<Tag> activatedTags = new HashSet<>();
+            for (final Tag t : currentPlyInputTags) {
+                activatedTags.addAll(directSearch(t));
+            }
+            allActivatedTags.addAll(activatedTags);
+            currentPlyInputTags = activatedTags;
+        }
+        return Collections.unmodifiableSet(allActivatedTags);
+    }
+
+    /**
+     * Deletes the given KN, if it is still in the KNN.
+     *
+     * @param kn the KN to delete
+     * @return true if the KN was deleted
+     */
+    private boolean deleteKnowledgeNode(final KnowledgeNode kn) {
+        final Lock stripe = getStripe(kn.getInputTag());
+        stripe.lock();
+        try {
+            if (mapKN.get(kn.getInputTag()) != kn) {
+                return false;
+            }
+            final KnowledgeNodeMutationLog log = mutationLog;
+            if (log != null) {
+                log.logDeletions(Collections.singleton(kn.getInputTag()));
+            }
+            remove(kn.getInputTag());
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Deletes the given KN if it is still in the KNN and has expired, or
+     * reschedules its expiry otherwise.
+     *
+     * @param kn   a KN due to expire
+     * @param time the current time, in milliseconds
+     */
+    private void deleteIfExpired(final KnowledgeNode kn, final long time) {
+        final Lock stripe = getStripe(kn.getInputTag());
+        stripe.lock();
+        try {
+            if (mapKN.get(kn.getInputTag()) != kn) {
+                return;
+            }
+            if (kn.expire(time)) {
+                deleteKnowledgeNode(kn);
+                activeTags.remove(kn.getInputTag());
+            } else {
+                expiryLock.lock();
+                try {
+                    expiryWheel.schedule(kn);
+                } finally {
+                    expiryLock.unlock();
+                }
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Clears all data structures, without logging. Must be called with all
+     * the locks held.
+     */
+    private void clear() {
+        mapKN.clear();
+        activeTags.clear();
+        for (int i = 0; i < NUM_STRIPES; i++) {
+            final Lock recencyLock = recencyLocks[i];
+            recencyLock.lock();
+            try {
+                recencyLists[i].clear();
+            } finally {
+                recencyLock.unlock();
+            }
+        }
+        outputTagIndex.clear();
+        expiryWheel.clear();
+    }
+
+    /**
+     * Adds a KN, replacing any KN with the same input Tag, without logging.
+     * The KN is aged from the current time of the KN clock.
+     * Must be called with the stripe lock of the input Tag held.
+     *
+     * @param kn the KN to add
+     */
+    private void put(final KnowledgeNode kn) {
+        kn.setAgeTimeStamp(clock.currentTimeMillis());
+        final KnowledgeNode replacedKN = mapKN.put(kn.getInputTag(), kn);
+        if (replacedKN != null) {
+            untouch(replacedKN);
+        }
+        touch(kn);
+        indexLock.writeLock().lock();
+        try {
+            if (replacedKN != null) {
+                outputTagIndex.remove(replacedKN);
+            }
+            outputTagIndex.add(kn);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        expiryLock.lock();
+        try {
+            expiryWheel.schedule(kn);
+        } finally {
+            expiryLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the KNs producing the given Tag, copied under the index lock, so
+     * that they can be visited while the KNN is modified.
+     *
+     * @param tag the output Tag
+     * @return the KNs producing the Tag
+     */
+    private List<KnowledgeNode> getProducers(final Tag tag) {
+        indexLock.readLock().lock();
+        try {
+            return new ArrayList<>(outputTagIndex.getProducers(tag));
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets all the KNs in order of increasing age. Must be called with all the
+     * locks held, so that the KNs are not excited while they are listed.
+     *
+     * @return the KNs, from the most recently excited to the oldest
+     */
+    private List<KnowledgeNode> getAgeSortedKNs() {
+        final List<KnowledgeNode> knowledgeNodes = new ArrayList<>();
+        iterateByAge().forEachRemaining(knowledgeNodes::add);
+        return knowledgeNodes;
+    }
+
+    /**
+     * @return a lazy iterator over the KNs in order of increasing age
+     * @see AgeOrderIterator
+     */
+    private Iterator<KnowledgeNode> iterateByAge() {
+        return new AgeOrderIterator();
+    }
+
+    /**
+     * Moves a KN to the front of the recency list of its stripe, adding it if
+     * needed. Must be called with the stripe lock of its input Tag held.
+     *
+     * @param kn the KN
+     */
+    private void touch(final KnowledgeNode kn) {
+        final int i = getStripeIndex(kn.getInputTag());
+        final Lock recencyLock = recencyLocks[i];
+        recencyLock.lock();
+        try {
+            recencyLists[i].add(kn);
+        } finally {
+            recencyLock.unlock();
+        }
+    }
+
+    /**
+     * Removes a KN from the recency list of its stripe. Must be called with
+     * the stripe lock of its input Tag held.
+     *
+     * @param kn the KN
+     */
+    private void untouch(final KnowledgeNode kn) {
+        final int i = getStripeIndex(kn.getInputTag());
+        final Lock recencyLock = recencyLocks[i];
+        recencyLock.lock();
+        try {
+            recencyLists[i].remove(kn);
+        } finally {
+            recencyLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the KN with the given input Tag, if any, without logging. Must
+     * be called with the stripe lock of the input Tag held.
+     *
+     * @param tag the input Tag of the KN to delete
+     */
+    private void remove(final Tag tag) {
+        final KnowledgeNode kn = mapKN.remove(tag);
+        if (kn != null) {
+            untouch(kn);
+            indexLock.writeLock().lock();
+            try {
+                outputTagIndex.remove(kn);
+            } finally {
+                indexLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the lock of the stripe the given input Tag hashes to.
+     *
+     * @param tag the input Tag
+     * @return the stripe lock
+     */
+    private Lock getStripe(final Tag tag) {
+        return stripes[getStripeIndex(tag)];
+    }
+
+    /**
+     * Gets the index of the stripe the given input Tag hashes to.
+     *
+     * @param tag the input Tag
+     * @return the index of the stripe
+     */
+    private static int getStripeIndex(final Tag tag) {
+        final int h = tag.hashCode();
+        return (h ^ (h >>> (Integer.SIZE / 2))) & (NUM_STRIPES - 1);
+    }
+
+    /**
+     * Acquires all the stripe locks in order, then the index lock and the
+     * expiry lock.
+     */
+    private void lockAll() {
+        for (final Lock stripe : stripes) {
+            stripe.lock();
+        }
+        indexLock.writeLock().lock();
+        expiryLock.lock();
+    }
+
+    /**
+     * Releases all the locks acquired by {@link #lockAll()}.
+     */
+    private void unlockAll() {
+        expiryLock.unlock();
+        indexLock.writeLock().unlock();
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    /**
+     * Iterator over the KNs in order of increasing age, merging the recency
+     * lists of the stripes as it goes. The next KN of each list is kept in a
+     * queue ordered by the time of its last excitation, and each list is only
+     * locked to read its next KN, so iterating over the youngest KNs takes
+     * time proportional to their number, not to the size of the KNN.
+     * <p>
+     * If the last KN read from a list is excited or deleted before its
+     * successor is read, the list is walked again from its front to the
+     * first KN not younger than it.
+     */
+    private final class AgeOrderIterator implements Iterator<KnowledgeNode> {
+        private final PriorityQueue<Cursor> cursors;
+
+        /**
+         * Reads the newest KN of each recency list.
+         */
+        AgeOrderIterator() {
+            this.cursors = new PriorityQueue<>(NUM_STRIPES,
+                    Comparator.comparingLong(Cursor::getAgeTimeStamp)
+                            .reversed());
+            for (int i = 0; i < NUM_STRIPES; i++) {
+                final Lock recencyLock = recencyLocks[i];
+                recencyLock.lock();
+                try {
+                    final KnowledgeNode kn = recencyLists[i].getNewest();
+                    if (kn != null) {
+                        cursors.add(new Cursor(i, kn));
+                    }
+                } finally {
+                    recencyLock.unlock();
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !cursors.isEmpty();
+        }
+
+        @Override
+        public KnowledgeNode next() {
+            final Cursor cursor = cursors.poll();
+            if (cursor == null) {
+                throw new NoSuchElementException();
+            }
+            final KnowledgeNode kn = cursor.kn;
+            final KnowledgeNodeRecencyList recencyList =
+                    recencyLists[cursor.stripe];
+            final Lock recencyLock = recencyLocks[cursor.stripe];
+            recencyLock.lock();
+            try {
+                KnowledgeNode older;
+                if (recencyList.contains(kn)) {
+                    older = recencyList.getOlder(kn);
+                } else {
+                    older = recencyList.getNewest();
+                }
+                // Skip the KNs excited since the KN was read.
+                while (older != null
+                        && (older == kn || getExcitationTime(older)
+                        > cursor.ageTimeStamp)) {
+                    older = recencyList.getOlder(older);
+                }
+                if (older != null) {
+                    cursors.add(new Cursor(cursor.stripe, older));
+                }
+            } finally {
+                recencyLock.unlock();
+            }
+            return kn;
+        }
+    }
+
+    /**
+     * @param kn a KN
+     * @return the time of the last excitation of the KN, or of its addition
+     */
+    private static long getExcitationTime(final KnowledgeNode kn) {
+        return kn.getExpiryTime() - KnowledgeNode.AGE_THRESHOLD;
+    }
+
+    /**
+     * Position of an {@link AgeOrderIterator} in the recency list of a
+     * stripe: the next KN of the list, with the time it was excited when it
+     * was read.
+     */
+    private static final class Cursor {
+        private final int stripe;
+        private final KnowledgeNode kn;
+        private final long ageTimeStamp;
+
+        /**
+         * @param stripe the index of the stripe
+         * @param kn     the next KN of the recency list of the stripe
+         */
+        Cursor(final int stripe, final KnowledgeNode kn) {
+            this.stripe = stripe;
+            this.kn = kn;
+            this.ageTimeStamp = getExcitationTime(kn);
+        }
+
+        /**
+         * @return the time the KN was excited when it was read
+         */
+        long getAgeTimeStamp() {
+            return ageTimeStamp;
+        }
+    }
+}
@@ -4,10 +4,12 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.function.Consumer;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.KnowledgeNodeRecencyList;
 import tags.Tag;
 
 /**
@@ -16,17 +18,24 @@ import tags.Tag;
 class DirectSearcher {
     private final Map<Tag, KnowledgeNode> mapKN;
     private final Set<Tag> activeTags;
-    private final TreeSet<KnowledgeNode> ageSortedKNs;
+    private final KnowledgeNodeRecencyList ageSortedKNs;
+    private final OutputTagIndex outputTagIndex;
+    private final KnowledgeNodeClock clock;
+    private Consumer<KnowledgeNode> expiryListener = this::remove;
 
     @Inject
     DirectSearcher(
             @Assisted("mapKN") final Map<Tag, KnowledgeNode> mapKN,
             @Assisted("activeTags") final Set<Tag> activeTags,
             @Assisted("ageSortedKNs")
-            final TreeSet<KnowledgeNode> ageSortedKNs) {
+            final KnowledgeNodeRecencyList ageSortedKNs,
+            @Assisted("outputTagIndex") final OutputTagIndex outputTagIndex,
+            final KnowledgeNodeClock clock) {
         this.mapKN = mapKN;
         this.activeTags = activeTags;
         this.ageSortedKNs = ageSortedKNs;
+        this.outputTagIndex = outputTagIndex;
+        this.clock = clock;
     }
 
     /**
@@ -36,22 +45,81 @@ class DirectSearcher {
      * @return the activated output tags (excluding the given input Tag)
      */
     Set<Tag> search(final Tag inputTag) {
+        final KnowledgeNode kn = mapKN.get(inputTag);
+        final boolean fired = kn != null && excite(kn);
+        return record(inputTag, kn, fired);
+    }
+
+    /**
+     * Excites the given KN at the current time of the KN clock. Safe to call
+     * concurrently for distinct KNs.
+     *
+     * @param kn the KN to excite
+     * @return true if the KN has been newly fired
+     */
+    boolean excite(final KnowledgeNode kn) {
+        return kn.excite(clock.currentTimeMillis());
+    }
+
+    /**
+     * Sets the listener which deletes the KNs found to be expired during
+     * search, e.g., to log their deletion. By default, the expired KNs are
+     * removed without logging.
+     *
+     * @param expiryListener the listener deleting the expired KNs
+     */
+    void setExpiryListener(final Consumer<KnowledgeNode> expiryListener) {
+        this.expiryListener = expiryListener;
+    }
+
+    /**
+     * Gets the KN with the given input Tag. Safe to call concurrently as long
+     * as the KNN is not modified at the same time.
+     *
+     * @param inputTag the input Tag
+     * @return the KN, or null if there is none
+     */
+    KnowledgeNode getKnowledgeNode(final Tag inputTag) {
+        return mapKN.get(inputTag);
+    }
+
+    /**
+     * Records the excitation of the KN with the given input Tag: moves the KN
+     * to the front of the recency list, deletes it if it has expired and
+     * updates the active Tags.
+     *
+     * @param inputTag the input Tag which was searched for
+     * @param kn       the excited KN, or null if there is none
+     * @param fired    true if the KN was newly fired by the excitation
+     * @return the activated output tags (excluding the given input Tag)
+     */
+    Set<Tag> record(
+            final Tag inputTag,
+            final KnowledgeNode kn,
+            final boolean fired) {
         final Set<Tag> activatedTags = new HashSet<>();
-        if (mapKN.containsKey(inputTag)) {
-            final KnowledgeNode kn = mapKN.get(inputTag);
-            ageSortedKNs.remove(kn);
-            final boolean fired = kn.excite();
-            ageSortedKNs.add(kn);
+        if (kn != null) {
+            ageSortedKNs.add(kn); // Move to the front of the recency list.
             if (fired) {
                 activatedTags.addAll(kn.getOutputTags());
             } else if (kn.isExpired()) {
-                mapKN.remove(kn.getInputTag());
-                activeTags.remove(kn.getInputTag());
-                ageSortedKNs.remove(kn);
+                expiryListener.accept(kn);
             }
         }
         this.activeTags.add(inputTag);
         this.activeTags.addAll(activatedTags);
         return Collections.unmodifiableSet(activatedTags);
     }
+
+    /**
+     * Removes the given KN from the KNN, without logging.
+     *
+     * @param kn the KN to remove
+     */
+    private void remove(final KnowledgeNode kn) {
+        mapKN.remove(kn.getInputTag());
+        activeTags.remove(kn.getInputTag());
+        ageSortedKNs.remove(kn);
+        outputTagIndex.remove(kn);
+    }
 }
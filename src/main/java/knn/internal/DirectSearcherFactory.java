@@ -2,10 +2,10 @@ package knn.internal;
 
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeRecencyList;
 import tags.Tag;
 
 /**
@@ -15,14 +15,16 @@ interface DirectSearcherFactory {
     /**
      * Creates the direct searcher.
      *
-     * @param mapKN        the mapping from tags to KNs
-     * @param activeTags   the active Tags
-     * @param ageSortedKNs the KNs sorted by age
+     * @param mapKN          the mapping from tags to KNs
+     * @param activeTags     the active Tags
+     * @param ageSortedKNs   the KNs sorted by age
+     * @param outputTagIndex the reverse index from output Tags to KNs
      * @return the created direct searcher
      */
     @Inject
     DirectSearcher create(
             @Assisted("mapKN") Map<Tag, KnowledgeNode> mapKN,
             @Assisted("activeTags") Set<Tag> activeTags,
-            @Assisted("ageSortedKNs") TreeSet<KnowledgeNode> ageSortedKNs);
+            @Assisted("ageSortedKNs") KnowledgeNodeRecencyList ageSortedKNs,
+            @Assisted("outputTagIndex") OutputTagIndex outputTagIndex);
 }
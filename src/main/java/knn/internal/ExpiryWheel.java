@@ -0,0 +1,165 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import knn.api.KnowledgeNode;
+
+/**
+ * Hierarchical timer wheel of the expiry times of KNs, so that the KNs which
+ * are due to expire are found without scanning all the KNs.
+ * <p>
+ * Time is divided into ticks. The wheel has {@value #LEVELS} levels of
+ * {@value #SLOTS} slots: a slot of level 0 holds the KNs due at a single tick,
+ * and a slot of level {@code n} the KNs due within {@code SLOTS^n} ticks.
+ * When the wheel reaches a slot of a level above 0, its KNs are moved to the
+ * lower levels. Scheduling a KN and finding a due KN take constant time, and
+ * advancing the wheel takes time proportional to the number of elapsed ticks.
+ * <p>
+ * Excitations do not reschedule KNs, since they are much more frequent than
+ * expiries. Instead, the wheel returns the KNs whose expiry time was reached
+ * when they were scheduled, and the caller expires or reschedules each of
+ * them depending on its current expiry time. For the same reason, KNs are not
+ * removed from the wheel when they are deleted, and the caller ignores them
+ * when they are due. The wheel is not thread-safe.
+ */
+final class ExpiryWheel {
+    /**
+     * Duration of a tick used by the KNNs, in milliseconds: a thousandth of
+     * the age threshold of KNs.
+     */
+    static final long DEFAULT_TICK_MILLIS = KnowledgeNode.AGE_THRESHOLD / 1000;
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_DELAY = 1L << (LEVELS * SLOT_BITS);
+
+    private final long tickMillis;
+    private final List<List<KnowledgeNode>> slots;
+    private List<KnowledgeNode> due;
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates an empty wheel.
+     *
+     * @param tickMillis the duration of a tick, in milliseconds
+     * @param time       the current time, in milliseconds
+     */
+    ExpiryWheel(final long tickMillis, final long time) {
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList<>(LEVELS * SLOTS);
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.due = new ArrayList<>();
+        this.currentTick = time / tickMillis;
+    }
+
+    /**
+     * Schedules a KN at its current expiry time. The KN is due at the first
+     * tick after its expiry time.
+     *
+     * @param kn the KN
+     */
+    void schedule(final KnowledgeNode kn) {
+        final long tick = kn.getExpiryTime() / tickMillis + 1;
+        final long delay = tick - currentTick;
+        size++;
+        if (delay <= 0) {
+            due.add(kn);
+            return;
+        }
+        int level = 0;
+        long clampedTick = tick;
+        if (delay >= MAX_DELAY) {
+            level = LEVELS - 1;
+            clampedTick = currentTick + MAX_DELAY - 1;
+        } else {
+            while (delay >= 1L << ((level + 1) * SLOT_BITS)) {
+                level++;
+            }
+        }
+        getSlot(level, clampedTick).add(kn);
+    }
+
+    /**
+     * Advances the wheel to the given time.
+     *
+     * @param time the current time, in milliseconds
+     * @return the KNs whose scheduled expiry time was reached, which are
+     * removed from the wheel
+     */
+    List<KnowledgeNode> advance(final long time) {
+        final long targetTick = time / tickMillis;
+        if (size == 0) {
+            currentTick = Math.max(currentTick, targetTick);
+            return Collections.emptyList();
+        }
+        while (currentTick < targetTick && size > due.size()) {
+            currentTick++;
+            cascade(1);
+            final List<KnowledgeNode> slot = getSlot(0, currentTick);
+            due.addAll(slot);
+            slot.clear();
+        }
+        currentTick = Math.max(currentTick, targetTick);
+        final List<KnowledgeNode> result = due;
+        due = new ArrayList<>();
+        size -= result.size();
+        return result;
+    }
+
+    /**
+     * Removes all the KNs from the wheel.
+     */
+    void clear() {
+        for (final List<KnowledgeNode> slot : slots) {
+            slot.clear();
+        }
+        due.clear();
+        size = 0;
+    }
+
+    /**
+     * @return the number of KNs in the wheel
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Moves the KNs of the slot of the given level reached at the current
+     * tick, if any, to the lower levels. Higher levels are cascaded first, so
+     * that their KNs reach this level before it is cascaded.
+     *
+     * @param level the level
+     */
+    private void cascade(final int level) {
+        if (level >= LEVELS
+                || (currentTick & ((1L << (level * SLOT_BITS)) - 1)) != 0) {
+            return;
+        }
+        cascade(level + 1);
+        final List<KnowledgeNode> slot = getSlot(level, currentTick);
+        if (slot.isEmpty()) {
+            return;
+        }
+        final List<KnowledgeNode> kns = new ArrayList<>(slot);
+        slot.clear();
+        size -= kns.size();
+        kns.forEach(this::schedule);
+    }
+
+    /**
+     * @param level the level
+     * @param tick  a tick
+     * @return the slot of the given level holding the given tick
+     */
+    private List<KnowledgeNode> getSlot(final int level, final long tick) {
+        final int index =
+                (int) ((tick >>> (level * SLOT_BITS)) & SLOT_MASK);
+        return slots.get(level * SLOTS + index);
+    }
+}
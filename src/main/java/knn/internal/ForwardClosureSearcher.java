@@ -0,0 +1,386 @@
+package knn.internal;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeCacheStats;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import tags.Tag;
+
+/**
+ * Searcher which performs read-only forward search in the KNN, and caches its
+ * results.
+ * <p>
+ * KNs are excited as if they had never been excited before, in an activation
+ * state local to the search, so the result of a search only depends on its
+ * input, its ply and the structure of the KNN. Expired KNs are ignored.
+ * Results are kept in a bounded LRU cache keyed by the input Tags and the
+ * ply, along with the version of the structure of the KNN they were computed
+ * on and the earliest expiry time of the KNs they depend on. A cached result
+ * is only used while the version is unchanged, i.e., until a KN is added or
+ * deleted, and until one of its KNs expires. The cache is disabled until its
+ * size is set, and is thread-safe: it is split into up to
+ * {@value #MAX_SEGMENTS} segments of at least {@value #MIN_SEGMENT_SIZE}
+ * results, each an LRU cache with its own lock, and the input Tags hash to a
+ * segment.
+ * <p>
+ * Searches until quiescence can also be answered by a
+ * {@link ReachabilityIndex}, instead of traversing the KNN. The index does not
+ * know about expiry, so the KNN must delete the expired KNs before searching.
+ */
+class ForwardClosureSearcher extends Searcher<Set<Tag>> {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+    /**
+     * Maximum number of segments of the cache. Must be a power of two.
+     */
+    private static final int MAX_SEGMENTS = 16;
+    /**
+     * Minimum number of results of a segment, so that small caches are exact
+     * LRU caches.
+     */
+    private static final int MIN_SEGMENT_SIZE = 64;
+
+    private final Function<Tag, KnowledgeNode> knowledgeNodes;
+    private final LongSupplier version;
+    private final LongSupplier clock;
+    private volatile Segment[] segments;
+    private volatile ReachabilityIndex reachabilityIndex;
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+
+    /**
+     * Creates a searcher with the cache disabled.
+     *
+     * @param knowledgeNodes the KNs of the KNN, by input Tag
+     * @param version        the version of the structure of the KNN
+     * @param clock          the current time of the KNN, in milliseconds
+     */
+    ForwardClosureSearcher(
+            final Function<Tag, KnowledgeNode> knowledgeNodes,
+            final LongSupplier version,
+            final LongSupplier clock) {
+        this.knowledgeNodes = knowledgeNodes;
+        this.version = version;
+        this.clock = clock;
+        this.segments = new Segment[0];
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.evictionCount = new LongAdder();
+    }
+
+    /**
+     * Sets the maximum number of results in the cache, evicting the least
+     * recently used results beyond it.
+     *
+     * @param size the maximum number of results, where 0 disables the cache
+     * @throws IllegalArgumentException if the size is negative
+     */
+    synchronized void setCacheSize(final int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException(
+                    "Cannot set a negative cache size: " + size);
+        }
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS
+                && size / (segmentCount * 2) >= MIN_SEGMENT_SIZE) {
+            segmentCount *= 2;
+        }
+        if (size == 0) {
+            segmentCount = 0;
+        }
+        final Segment[] newSegments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            int segmentSize = size / segmentCount;
+            if (i < size % segmentCount) {
+                segmentSize++;
+            }
+            newSegments[i] = new Segment(segmentSize);
+        }
+        final Segment[] oldSegments = segments;
+        segments = newSegments;
+        for (final Segment segment : oldSegments) {
+            for (final Map.Entry<Key, CachedResult> entry
+                    : segment.drain().entrySet()) {
+                put(newSegments, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Sets the reachability index used to answer searches until quiescence
+     * without traversal, whenever the index is exact for the search.
+     *
+     * @param index the reachability index, kept up to date with the KNN, or
+     *              null to always traverse the KNN
+     */
+    void setReachabilityIndex(final ReachabilityIndex index) {
+        this.reachabilityIndex = index;
+    }
+
+    /**
+     * @return the statistics of the cache
+     */
+    KnowledgeNodeCacheStats getCacheStats() {
+        int size = 0;
+        for (final Segment segment : segments) {
+            size += segment.size();
+        }
+        return new KnowledgeNodeCacheStats(hitCount.sum(), missCount.sum(),
+                evictionCount.sum(), size);
+    }
+
+    @Override
+    Set<Tag> searchInternal(final Set<Tag> inputTags, final double ply) {
+        final Key key = new Key(inputTags, ply);
+        // Read the version first, so that a change during the search leaves
+        // the result out of date rather than wrongly up to date.
+        final long currentVersion = version.getAsLong();
+        final long time = clock.getAsLong();
+        final Segment[] currentSegments = segments;
+        if (currentSegments.length > 0) {
+            final CachedResult cachedResult =
+                    getSegment(currentSegments, key).get(key);
+            if (cachedResult != null
+                    && cachedResult.version == currentVersion
+                    && time <= cachedResult.expiryTime) {
+                hitCount.increment();
+                return cachedResult.tags;
+            }
+            missCount.increment();
+        }
+        final long[] expiryTime = {Long.MAX_VALUE};
+        final Set<Tag> tags = searchUncached(inputTags, ply, time, expiryTime);
+        if (currentSegments.length > 0) {
+            put(currentSegments, key,
+                    new CachedResult(tags, currentVersion, expiryTime[0]));
+        }
+        return tags;
+    }
+
+    /**
+     * Performs read-only forward search, without the cache.
+     *
+     * @param inputTags  the input Tags of the search
+     * @param ply        the ply of the search
+     * @param time       the current time, in milliseconds
+     * @param expiryTime holds the earliest expiry time of the KNs the result
+     *                   depends on, which is lowered by the search
+     * @return the activated Tags
+     */
+    private Set<Tag> searchUncached(final Set<Tag> inputTags,
+                                    final double ply,
+                                    final long time,
+                                    final long[] expiryTime) {
+        final ReachabilityIndex index = reachabilityIndex;
+        if (ply == Double.POSITIVE_INFINITY && index != null) {
+            final Optional<Set<Tag>> reachableTags =
+                    index.getExactReachableTags(inputTags);
+            if (reachableTags.isPresent()) {
+                return Collections.unmodifiableSet(reachableTags.get());
+            }
+        }
+        final Map<KnowledgeNode, double[]> activations =
+                new IdentityHashMap<>();
+        final Set<Tag> allActivatedTags = new HashSet<>();
+        Set<Tag> currentPlyInputTags = new HashSet<>(inputTags);
+        for (int i = 0; i < ply && !currentPlyInputTags.isEmpty(); i++) {
+            final Set<Tag> activatedTags = new HashSet<>();
+            for (final Tag t : currentPlyInputTags) {
+                final KnowledgeNode kn = knowledgeNodes.apply(t);
+                if (kn == null || kn.isExpired()
+                        || time > kn.getExpiryTime()) {
+                    continue;
+                }
+                expiryTime[0] = Math.min(expiryTime[0], kn.getExpiryTime());
+                if (excite(activations, kn)) {
+                    activatedTags.addAll(kn.getOutputTags());
+                }
+            }
+            allActivatedTags.addAll(activatedTags);
+            currentPlyInputTags = activatedTags;
+        }
+        return Collections.unmodifiableSet(allActivatedTags);
+    }
+
+    /**
+     * Excites a KN in the activation state of a search, following the same
+     * rules as {@link KnowledgeNode#excite()}, but without aging.
+     *
+     * @param activations the activations of the KNs excited in the search
+     * @param kn          the KN to excite
+     * @return true if the KN has been newly fired
+     */
+    private static boolean excite(
+            final Map<KnowledgeNode, double[]> activations,
+            final KnowledgeNode kn) {
+        final double[] activation =
+                activations.computeIfAbsent(kn, k -> new double[1]);
+        final double oldActivation = activation[0];
+        activation[0] += KnowledgeNode.ACTIVATION_INCREMENT;
+        return oldActivation < kn.getThreshold()
+                && activation[0] >= kn.getThreshold();
+    }
+
+    /**
+     * Caches a result in the segment of its key, counting the evictions.
+     *
+     * @param cacheSegments the segments of the cache
+     * @param key           the key of the result
+     * @param cachedResult  the result
+     */
+    private void put(final Segment[] cacheSegments, final Key key,
+                     final CachedResult cachedResult) {
+        evictionCount.add(
+                getSegment(cacheSegments, key).put(key, cachedResult));
+    }
+
+    /**
+     * @param cacheSegments the segments of the cache, of which there is at
+     *                      least one
+     * @param key           the key of a result
+     * @return the segment the key hashes to
+     */
+    private static Segment getSegment(final Segment[] cacheSegments,
+                                      final Key key) {
+        return cacheSegments[key.hash & (cacheSegments.length - 1)];
+    }
+
+    /**
+     * Segment of the cache: an LRU cache of bounded size, guarded by its own
+     * monitor.
+     */
+    private static final class Segment {
+        private final Map<Key, CachedResult> results;
+        private final int maxSize;
+
+        /**
+         * @param maxSize the maximum number of results of the segment
+         */
+        Segment(final int maxSize) {
+            this.results =
+                    new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * @param key the key of a result
+         * @return the cached result, or null if there is none
+         */
+        synchronized CachedResult get(final Key key) {
+            return results.get(key);
+        }
+
+        /**
+         * Caches a result, evicting the least recently used results beyond
+         * the maximum size.
+         *
+         * @param key          the key of the result
+         * @param cachedResult the result
+         * @return the number of evicted results
+         */
+        synchronized int put(final Key key, final CachedResult cachedResult) {
+            results.put(key, cachedResult);
+            int evicted = 0;
+            while (results.size() > maxSize) {
+                results.remove(results.keySet().iterator().next());
+                evicted++;
+            }
+            return evicted;
+        }
+
+        /**
+         * @return the number of results of the segment
+         */
+        synchronized int size() {
+            return results.size();
+        }
+
+        /**
+         * Removes all the results of the segment.
+         *
+         * @return the removed results, from the least to the most recently
+         * used
+         */
+        synchronized Map<Key, CachedResult> drain() {
+            final Map<Key, CachedResult> drained = new LinkedHashMap<>(results);
+            results.clear();
+            return drained;
+        }
+    }
+
+    /**
+     * Key of a cached result.
+     */
+    private static final class Key {
+        private final Set<Tag> inputTags;
+        private final double ply;
+        private final int hash;
+
+        /**
+         * @param inputTags the input Tags of the search, which are copied
+         * @param ply       the ply of the search
+         */
+        Key(final Set<Tag> inputTags, final double ply) {
+            this.inputTags = new HashSet<>(inputTags);
+            this.ply = ply;
+            this.hash = new HashCodeBuilder()
+                    .append(this.inputTags)
+                    .append(ply)
+                    .toHashCode();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key that = (Key) o;
+            return new EqualsBuilder()
+                    .append(ply, that.ply)
+                    .append(inputTags, that.inputTags)
+                    .isEquals();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A cached result, with the version of the KNN it was computed on and the
+     * time until which it is valid.
+     */
+    private static final class CachedResult {
+        private final Set<Tag> tags;
+        private final long version;
+        private final long expiryTime;
+
+        /**
+         * @param tags       the activated Tags
+         * @param version    the version of the structure of the KNN
+         * @param expiryTime the earliest expiry time of the KNs the Tags
+         *                   depend on
+         */
+        CachedResult(final Set<Tag> tags, final long version,
+                     final long expiryTime) {
+            this.tags = tags;
+            this.version = version;
+            this.expiryTime = expiryTime;
+        }
+    }
+}
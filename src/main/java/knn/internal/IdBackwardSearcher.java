@@ -0,0 +1,285 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.KnowledgeNodeRecencyList;
+import tags.Tag;
+
+/**
+ * Searcher which performs backward search in the KNN on Tag IDs. Overlaps
+ * are counted in a reusable int array indexed by input Tag ID.
+ */
+class IdBackwardSearcher extends Searcher<Set<Tag>> {
+    private final Set<Tag> activeTags;
+    private final KnowledgeNodeRecencyList ageSortedKNs;
+    private final IdKnowledgeGraph graph;
+    private final KnowledgeNodeClock clock;
+    private double partialMatchRatio;
+    private long ageLimit;
+    private int[] matchCounts = new int[0];
+    private int[] matchedIds = new int[0];
+
+    @Inject
+    IdBackwardSearcher(
+            @Assisted("activeTags") final Set<Tag> activeTags,
+            @Assisted("ageSortedKNs")
+            final KnowledgeNodeRecencyList ageSortedKNs,
+            @Assisted("graph") final IdKnowledgeGraph graph,
+            @Assisted("partialMatchRatio") final double partialMatchRatio,
+            @Assisted("ageLimit") final long ageLimit,
+            final KnowledgeNodeClock clock) {
+        this.activeTags = activeTags;
+        this.ageSortedKNs = ageSortedKNs;
+        this.graph = graph;
+        this.partialMatchRatio = partialMatchRatio;
+        this.ageLimit = ageLimit;
+        this.clock = clock;
+    }
+
+    /**
+     * Sets the partial match ratio for backward search.
+     *
+     * @param partialMatchRatio the partial match ratio
+     */
+    void setPartialMatchRatio(final double partialMatchRatio) {
+        this.partialMatchRatio = partialMatchRatio;
+    }
+
+    @Override
+    Set<Tag> searchInternal(final Set<Tag> inputTags, final double ply) {
+        // The clock is read once, so all the KNs are aged at the same time.
+        final long time = clock.currentTimeMillis();
+        final BitSet allActivatedIds = new BitSet(graph.size());
+        BitSet currentPlyInputIds = graph.toIds(inputTags);
+        // Tags outside of the graph cannot match, but still count as inputs.
+        int currentPlyInputCount = inputTags.size();
+        for (int i = 0; i < ply && currentPlyInputCount > 0; i++) {
+            final BitSet activatedIds = searchPly(currentPlyInputIds,
+                    currentPlyInputCount, time);
+            allActivatedIds.or(activatedIds);
+            currentPlyInputIds = activatedIds;
+            currentPlyInputCount = activatedIds.cardinality();
+        }
+        final Set<Tag> allActivatedTags = graph.toTags(allActivatedIds);
+        allActivatedTags.removeIf(this.activeTags::contains);
+        this.activeTags.addAll(allActivatedTags);
+        return Collections.unmodifiableSet(allActivatedTags);
+    }
+
+    /**
+     * Creates a single ply of backward search, which does not change the
+     * active Tags. All the plies age the KNs at the time of this call.
+     *
+     * @return the ply, from its input Tags to the activated Tags
+     * @see BackwardSearcher#newPlySearch()
+     */
+    UnaryOperator<Set<Tag>> newPlySearch() {
+        final long time = clock.currentTimeMillis();
+        return inputTags -> graph.toTags(
+                searchPly(graph.toIds(inputTags), inputTags.size(), time));
+    }
+
+    /**
+     * Matches the KNs producing the input Tag IDs of a ply.
+     *
+     * @param inputIds   the input Tag IDs of the current ply
+     * @param inputCount the number of input Tags of the current ply,
+     *                   including the Tags outside of the graph
+     * @param time       the current time, in milliseconds
+     * @return the activated input Tag IDs of the matching KNs
+     */
+    private BitSet searchPly(final BitSet inputIds,
+                             final int inputCount,
+                             final long time) {
+        final int numRequiredMatches = (int) (partialMatchRatio * inputCount);
+        if (numRequiredMatches > 0) {
+            return matchIndexed(inputIds, numRequiredMatches, time);
+        }
+        return matchAll(time);
+    }
+
+    /**
+     * Performs ranked backward search. Each ply only keeps the best
+     * {@code limit} matching KNs, as scored by {@link BackwardSearchRanker}.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search
+     *                  continues until quiescence.
+     * @param limit     the maximum number of Tags to return
+     * @return the best activated Tags over all the plies, best first
+     * (excluding the previously active Tags)
+     * @throws IllegalArgumentException if the limit is not positive
+     * @see BackwardSearcher#searchRanked(Set, double, int)
+     */
+    List<Tag> searchRanked(final Set<Tag> inputTags,
+                           final double ply,
+                           final int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException(
+                    "Ranked search needs a positive limit: " + limit);
+        }
+        // The clock is read once, so all the KNs are aged at the same time.
+        final long time = clock.currentTimeMillis();
+        final double plyCount = getPlyCount(ply);
+        final Map<Tag, Double> allScores = new HashMap<>();
+        BitSet currentPlyInputIds = graph.toIds(inputTags);
+        int currentPlyInputCount = inputTags.size();
+        for (int i = 0; i < plyCount && currentPlyInputCount > 0; i++) {
+            final Map<Tag, Double> scores = rankPly(currentPlyInputIds,
+                    currentPlyInputCount, limit, time);
+            for (final Map.Entry<Tag, Double> entry : scores.entrySet()) {
+                if (!this.activeTags.contains(entry.getKey())) {
+                    allScores.merge(entry.getKey(), entry.getValue(),
+                            Math::max);
+                }
+            }
+            currentPlyInputIds = graph.toIds(scores.keySet());
+            currentPlyInputCount = scores.size();
+        }
+        final List<Tag> rankedTags =
+                BackwardSearchRanker.rank(allScores, limit);
+        this.activeTags.addAll(rankedTags);
+        return Collections.unmodifiableList(rankedTags);
+    }
+
+    /**
+     * Selects the best KNs matching the input Tag IDs of a ply.
+     *
+     * @param inputIds   the input Tag IDs of the current ply
+     * @param inputCount the number of input Tags of the current ply
+     * @param limit      the maximum number of KNs to select
+     * @param time       the current time, in milliseconds
+     * @return the input Tags of the selected KNs, with their scores
+     */
+    private Map<Tag, Double> rankPly(final BitSet inputIds,
+                                     final int inputCount,
+                                     final int limit,
+                                     final long time) {
+        final int numRequiredMatches = (int) (partialMatchRatio * inputCount);
+        final int numMatchedIds = countMatches(inputIds);
+        // Bucket the candidates by match count, to visit the best first.
+        final List<List<KnowledgeNode>> buckets = new ArrayList<>();
+        for (int i = 0; i <= inputCount; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int j = 0; j < numMatchedIds; j++) {
+            final int count = matchCounts[matchedIds[j]];
+            if (count >= numRequiredMatches) {
+                buckets.get(count).add(graph.getKnowledgeNode(matchedIds[j]));
+            }
+        }
+        final BackwardSearchRanker ranker =
+                new BackwardSearchRanker(limit, inputCount, time);
+        for (int count = inputCount;
+             count > 0 && ranker.canImprove(count, 0); count--) {
+            for (final KnowledgeNode kn : buckets.get(count)) {
+                if (kn.getCurrentAge(time) <= ageLimit) {
+                    ranker.offer(kn, count);
+                }
+            }
+        }
+        if (numRequiredMatches == 0) {
+            // Iterate over the KNs in order of increasing age
+            for (final KnowledgeNode kn : ageSortedKNs) {
+                final long age = kn.getCurrentAge(time);
+                if (age > ageLimit || !ranker.canImprove(0, age)) {
+                    break;
+                }
+                if (matchCounts[graph.getId(kn.getInputTag())] == 0) {
+                    ranker.offer(kn, 0);
+                }
+            }
+        }
+        clearMatches(numMatchedIds);
+        return ranker.getScores();
+    }
+
+    /**
+     * Matches the KNs producing at least one of the given input Tag IDs.
+     *
+     * @param inputIds           the input Tag IDs of the current ply
+     * @param numRequiredMatches the number of required matches
+     * @param time               the current time, in milliseconds
+     * @return the activated input Tag IDs of the matching KNs
+     */
+    private BitSet matchIndexed(final BitSet inputIds,
+                                final int numRequiredMatches,
+                                final long time) {
+        final int numMatchedIds = countMatches(inputIds);
+        final BitSet activatedIds = new BitSet(graph.size());
+        for (int j = 0; j < numMatchedIds; j++) {
+            final int id = matchedIds[j];
+            if (matchCounts[id] >= numRequiredMatches
+                    && graph.getKnowledgeNode(id).getCurrentAge(time)
+                    <= ageLimit) {
+                activatedIds.set(id);
+            }
+        }
+        clearMatches(numMatchedIds);
+        return activatedIds;
+    }
+
+    /**
+     * Counts the input Tag IDs produced by each KN into {@code matchCounts},
+     * and lists the IDs of the KNs producing any in {@code matchedIds}.
+     *
+     * @param inputIds the input Tag IDs of the current ply
+     * @return the number of KNs producing any input Tag ID
+     */
+    private int countMatches(final BitSet inputIds) {
+        if (matchCounts.length < graph.size()) {
+            matchCounts = new int[graph.size()];
+            matchedIds = new int[graph.size()];
+        }
+        int numMatchedIds = 0;
+        for (int id = inputIds.nextSetBit(0); id >= 0;
+             id = inputIds.nextSetBit(id + 1)) {
+            final int[] producers = graph.getProducers(id);
+            for (int j = 0; j < graph.getProducerCount(id); j++) {
+                if (matchCounts[producers[j]]++ == 0) {
+                    matchedIds[numMatchedIds++] = producers[j];
+                }
+            }
+        }
+        return numMatchedIds;
+    }
+
+    /**
+     * Resets the match counts for the next ply.
+     *
+     * @param numMatchedIds the number of KNs producing any input Tag ID
+     */
+    private void clearMatches(final int numMatchedIds) {
+        for (int j = 0; j < numMatchedIds; j++) {
+            matchCounts[matchedIds[j]] = 0;
+        }
+    }
+
+    /**
+     * Matches every KN within the age limit. Used when no overlap is required.
+     *
+     * @param time the current time, in milliseconds
+     * @return the activated input Tag IDs of the matching KNs
+     */
+    private BitSet matchAll(final long time) {
+        final BitSet activatedIds = new BitSet(graph.size());
+        // Iterate over the KNs in order of increasing age
+        for (final KnowledgeNode kn : ageSortedKNs) {
+            if (kn.getCurrentAge(time) > ageLimit) { // Age limit reached.
+                break;
+            }
+            activatedIds.set(graph.getId(kn.getInputTag()));
+        }
+        return activatedIds;
+    }
+}
@@ -0,0 +1,30 @@
+package knn.internal;
+
+import java.util.Set;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import knn.api.KnowledgeNodeRecencyList;
+import tags.Tag;
+
+/**
+ * Guice factory for the Tag ID backward searcher.
+ */
+interface IdBackwardSearcherFactory {
+    /**
+     * Creates the Tag ID backward searcher.
+     *
+     * @param activeTags        the active tags
+     * @param ageSortedKNs      the KNs sorted by age
+     * @param graph             the KNs compiled to Tag IDs
+     * @param partialMatchRatio the partial match ratio
+     * @param ageLimit          the age limit
+     * @return the created Tag ID backward searcher
+     */
+    @Inject
+    IdBackwardSearcher create(
+            @Assisted("activeTags") Set<Tag> activeTags,
+            @Assisted("ageSortedKNs") KnowledgeNodeRecencyList ageSortedKNs,
+            @Assisted("graph") IdKnowledgeGraph graph,
+            @Assisted("partialMatchRatio") double partialMatchRatio,
+            @Assisted("ageLimit") long ageLimit);
+}
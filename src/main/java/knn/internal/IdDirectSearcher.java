@@ -0,0 +1,103 @@
+package knn.internal;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.KnowledgeNodeRecencyList;
+import tags.Tag;
+
+/**
+ * Searcher which performs direct search in the KNN on Tag IDs.
+ */
+class IdDirectSearcher {
+    private final Map<Tag, KnowledgeNode> mapKN;
+    private final Set<Tag> activeTags;
+    private final KnowledgeNodeRecencyList ageSortedKNs;
+    private final IdKnowledgeGraph graph;
+    private final KnowledgeNodeClock clock;
+    private Consumer<KnowledgeNode> expiryListener = this::remove;
+
+    @Inject
+    IdDirectSearcher(
+            @Assisted("mapKN") final Map<Tag, KnowledgeNode> mapKN,
+            @Assisted("activeTags") final Set<Tag> activeTags,
+            @Assisted("ageSortedKNs")
+            final KnowledgeNodeRecencyList ageSortedKNs,
+            @Assisted("graph") final IdKnowledgeGraph graph,
+            final KnowledgeNodeClock clock) {
+        this.mapKN = mapKN;
+        this.activeTags = activeTags;
+        this.ageSortedKNs = ageSortedKNs;
+        this.graph = graph;
+        this.clock = clock;
+    }
+
+    /**
+     * Sets the listener which deletes the KNs found to be expired during
+     * search, e.g., to log their deletion. By default, the expired KNs are
+     * removed without logging.
+     *
+     * @param expiryListener the listener deleting the expired KNs
+     */
+    void setExpiryListener(final Consumer<KnowledgeNode> expiryListener) {
+        this.expiryListener = expiryListener;
+    }
+
+    /**
+     * Search for the given input Tag in the KNN.
+     *
+     * @param inputTag the input Tag to search for
+     * @return the activated output tags (excluding the given input Tag)
+     */
+    Set<Tag> search(final Tag inputTag) {
+        final BitSet activatedIds = new BitSet();
+        final int id = graph.getId(inputTag);
+        if (id != TagDictionary.NO_ID) {
+            search(id, activatedIds);
+        }
+        final Set<Tag> activatedTags = graph.toTags(activatedIds);
+        this.activeTags.add(inputTag);
+        this.activeTags.addAll(activatedTags);
+        return Collections.unmodifiableSet(activatedTags);
+    }
+
+    /**
+     * Search for the given input Tag ID in the KNN. The active Tags are left
+     * untouched, and must be updated by the caller.
+     *
+     * @param id           the input Tag ID to search for
+     * @param activatedIds the bit set to add the activated output Tag IDs to
+     */
+    void search(final int id, final BitSet activatedIds) {
+        final KnowledgeNode kn = graph.getKnowledgeNode(id);
+        if (kn == null) {
+            return;
+        }
+        final boolean fired = kn.excite(clock.currentTimeMillis());
+        ageSortedKNs.add(kn); // Move to the front of the recency list.
+        if (fired) {
+            for (final int outputId : graph.getOutputs(id)) {
+                activatedIds.set(outputId);
+            }
+        } else if (kn.isExpired()) {
+            expiryListener.accept(kn);
+        }
+    }
+
+    /**
+     * Removes the given KN from the KNN, without logging.
+     *
+     * @param kn the KN to remove
+     */
+    private void remove(final KnowledgeNode kn) {
+        mapKN.remove(kn.getInputTag());
+        ageSortedKNs.remove(kn);
+        graph.remove(kn);
+    }
+}
@@ -0,0 +1,30 @@
+package knn.internal;
+
+import java.util.Map;
+import java.util.Set;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeRecencyList;
+import tags.Tag;
+
+/**
+ * Guice factory for the Tag ID direct searcher.
+ */
+interface IdDirectSearcherFactory {
+    /**
+     * Creates the Tag ID direct searcher.
+     *
+     * @param mapKN        the mapping from tags to KNs
+     * @param activeTags   the active Tags
+     * @param ageSortedKNs the KNs sorted by age
+     * @param graph        the KNs compiled to Tag IDs
+     * @return the created Tag ID direct searcher
+     */
+    @Inject
+    IdDirectSearcher create(
+            @Assisted("mapKN") Map<Tag, KnowledgeNode> mapKN,
+            @Assisted("activeTags") Set<Tag> activeTags,
+            @Assisted("ageSortedKNs") KnowledgeNodeRecencyList ageSortedKNs,
+            @Assisted("graph") IdKnowledgeGraph graph);
+}
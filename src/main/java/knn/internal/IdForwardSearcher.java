@@ -0,0 +1,61 @@
+package knn.internal;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Set;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import tags.Tag;
+
+/**
+ * Searcher which performs forward search in the KNN on Tag IDs. The search
+ * frontiers are bit sets of Tag IDs, and Tags are only looked up at the start
+ * and the end of the search.
+ */
+class IdForwardSearcher extends Searcher<Set<Tag>> {
+    private final Set<Tag> activeTags;
+    private final IdKnowledgeGraph graph;
+    private final IdDirectSearcher directSearcher;
+
+    @Inject
+    IdForwardSearcher(
+            @Assisted("activeTags") final Set<Tag> activeTags,
+            @Assisted("graph") final IdKnowledgeGraph graph,
+            @Assisted final IdDirectSearcher directSearcher) {
+        this.activeTags = activeTags;
+        this.graph = graph;
+        this.directSearcher = directSearcher;
+    }
+
+    @Override
+    Set<Tag> searchInternal(final Set<Tag> inputTags, final double ply) {
+        final BitSet allActivatedIds = searchIds(graph.toIds(inputTags), ply);
+        final Set<Tag> allActivatedTags = graph.toTags(allActivatedIds);
+        activeTags.addAll(inputTags);
+        activeTags.addAll(allActivatedTags);
+        return Collections.unmodifiableSet(allActivatedTags);
+    }
+
+    /**
+     * Performs forward search from the given Tag IDs. The active Tags are
+     * left untouched, and must be updated by the caller.
+     *
+     * @param inputIds the input Tag IDs
+     * @param ply      the ply of the search
+     * @return the activated Tag IDs
+     */
+    BitSet searchIds(final BitSet inputIds, final double ply) {
+        final BitSet allActivatedIds = new BitSet(graph.size());
+        BitSet currentPlyInputIds = inputIds;
+        for (int i = 0; i < ply && !currentPlyInputIds.isEmpty(); i++) {
+            final BitSet activatedIds = new BitSet(graph.size());
+            for (int id = currentPlyInputIds.nextSetBit(0); id >= 0;
+                 id = currentPlyInputIds.nextSetBit(id + 1)) {
+                directSearcher.search(id, activatedIds);
+            }
+            allActivatedIds.or(activatedIds);
+            currentPlyInputIds = activatedIds;
+        }
+        return allActivatedIds;
+    }
+}
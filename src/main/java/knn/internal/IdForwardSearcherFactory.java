@@ -0,0 +1,25 @@
+package knn.internal;
+
+import java.util.Set;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import tags.Tag;
+
+/**
+ * Guice factory for the Tag ID forward searcher.
+ */
+interface IdForwardSearcherFactory {
+    /**
+     * Creates a Tag ID forward searcher.
+     *
+     * @param activeTags     the active Tags
+     * @param graph          the KNs compiled to Tag IDs
+     * @param directSearcher the Tag ID direct searcher
+     * @return the created Tag ID forward searcher
+     */
+    @Inject
+    IdForwardSearcher create(
+            @Assisted("activeTags") Set<Tag> activeTags,
+            @Assisted("graph") IdKnowledgeGraph graph,
+            @Assisted IdDirectSearcher directSearcher);
+}
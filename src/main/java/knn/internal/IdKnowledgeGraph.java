@@ -0,0 +1,305 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * The KNs of a KNN compiled to int IDs using a {@link TagDictionary}. Each KN
+ * is stored under the ID of its input Tag, along with the IDs of its output
+ * Tags. A reverse index from output Tag IDs to the input Tag IDs of the KNs
+ * producing them is used for backward search.
+ */
+class IdKnowledgeGraph {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int[] NO_IDS = new int[0];
+
+    private final TagDictionary dictionary = new TagDictionary();
+    private KnowledgeNode[] nodes = new KnowledgeNode[INITIAL_CAPACITY];
+    private int[][] outputs = new int[INITIAL_CAPACITY][];
+    private int[][] producers = new int[INITIAL_CAPACITY][];
+    private int[] producerCounts = new int[INITIAL_CAPACITY];
+    private long version;
+    private final List<KnowledgeGraphListener> listeners = new ArrayList<>();
+
+    /**
+     * Adds a KN to the graph, replacing any KN with the same input Tag.
+     *
+     * @param kn the KN to add
+     */
+    void add(final KnowledgeNode kn) {
+        version++;
+        final int id = dictionary.intern(kn.getInputTag());
+        final int[] outputIds = new int[kn.getOutputTags().size()];
+        int i = 0;
+        for (final Tag t : kn.getOutputTags()) {
+            outputIds[i++] = dictionary.intern(t);
+        }
+        ensureCapacity(dictionary.size());
+        if (nodes[id] != null) {
+            remove(nodes[id]);
+        }
+        nodes[id] = kn;
+        outputs[id] = outputIds;
+        for (final int outputId : outputIds) {
+            addProducer(outputId, id);
+        }
+        for (final KnowledgeGraphListener listener : listeners) {
+            listener.add(kn);
+        }
+    }
+
+    /**
+     * Removes a KN from the graph. The IDs of its Tags stay reserved.
+     *
+     * @param kn the KN to remove
+     */
+    void remove(final KnowledgeNode kn) {
+        final int id = dictionary.getId(kn.getInputTag());
+        if (id == TagDictionary.NO_ID || nodes[id] != kn) {
+            return;
+        }
+        version++;
+        for (final int outputId : outputs[id]) {
+            removeProducer(outputId, id);
+        }
+        nodes[id] = null;
+        outputs[id] = null;
+        for (final KnowledgeGraphListener listener : listeners) {
+            listener.remove(kn);
+        }
+    }
+
+    /**
+     * Removes all the KNs and Tag IDs from the graph.
+     */
+    void clear() {
+        version++;
+        dictionary.clear();
+        nodes = new KnowledgeNode[INITIAL_CAPACITY];
+        outputs = new int[INITIAL_CAPACITY][];
+        producers = new int[INITIAL_CAPACITY][];
+        producerCounts = new int[INITIAL_CAPACITY];
+        for (final KnowledgeGraphListener listener : listeners) {
+            listener.clear();
+        }
+    }
+
+    /**
+     * Attaches a secondary index, which is filled with the KNs currently in
+     * the graph, and then updated as KNs are added and removed.
+     *
+     * @param listener the empty secondary index
+     */
+    void attach(final KnowledgeGraphListener listener) {
+        final List<KnowledgeNode> kns = new ArrayList<>();
+        for (final KnowledgeNode kn : nodes) {
+            if (kn != null) {
+                kns.add(kn);
+            }
+        }
+        listener.addAll(kns);
+        listeners.add(listener);
+    }
+
+    /**
+     * Detaches a secondary index, which is no longer updated.
+     *
+     * @param listener the secondary index
+     */
+    void detach(final KnowledgeGraphListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the version of the graph, which changes whenever a KN is added
+     * or removed
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the number of Tag IDs assigned, i.e., an exclusive upper bound
+     * on all IDs
+     */
+    int size() {
+        return dictionary.size();
+    }
+
+    /**
+     * Gets the ID of the given Tag.
+     *
+     * @param tag the Tag
+     * @return the ID of the Tag, or {@link TagDictionary#NO_ID} if the Tag is
+     * not in the graph
+     */
+    int getId(final Tag tag) {
+        return dictionary.getId(tag);
+    }
+
+    /**
+     * Gets the Tag with the given ID.
+     *
+     * @param id the Tag ID
+     * @return the Tag
+     */
+    Tag getTag(final int id) {
+        return dictionary.getTag(id);
+    }
+
+    /**
+     * Gets the KN whose input Tag has the given ID.
+     *
+     * @param id the input Tag ID
+     * @return the KN, or null if there is none
+     */
+    KnowledgeNode getKnowledgeNode(final int id) {
+        return nodes[id];
+    }
+
+    /**
+     * Gets the output Tag IDs of the KN whose input Tag has the given ID.
+     *
+     * @param id the input Tag ID
+     * @return the output Tag IDs. Must not be modified.
+     */
+    int[] getOutputs(final int id) {
+        if (outputs[id] == null) {
+            return NO_IDS;
+        }
+        return outputs[id];
+    }
+
+    /**
+     * Gets the input Tag IDs of the KNs producing the Tag with the given ID.
+     * Only the first {@link #getProducerCount(int)} entries are valid.
+     *
+     * @param id the output Tag ID
+     * @return the input Tag IDs of the producing KNs. Must not be modified.
+     */
+    int[] getProducers(final int id) {
+        if (producers[id] == null) {
+            return NO_IDS;
+        }
+        return producers[id];
+    }
+
+    /**
+     * Gets the number of KNs producing the Tag with the given ID.
+     *
+     * @param id the output Tag ID
+     * @return the number of producing KNs
+     */
+    int getProducerCount(final int id) {
+        return producerCounts[id];
+    }
+
+    /**
+     * Gets the KNs producing the given Tag.
+     *
+     * @param tag the output Tag
+     * @return the producing KNs
+     */
+    List<KnowledgeNode> getProducingKnowledgeNodes(final Tag tag) {
+        final int id = dictionary.getId(tag);
+        final List<KnowledgeNode> kns = new ArrayList<>();
+        if (id != TagDictionary.NO_ID) {
+            final int[] producerIds = getProducers(id);
+            for (int i = 0; i < producerCounts[id]; i++) {
+                kns.add(nodes[producerIds[i]]);
+            }
+        }
+        return kns;
+    }
+
+    /**
+     * Converts the given Tags to a bit set of IDs, skipping the Tags which are
+     * not in the graph.
+     *
+     * @param tags the Tags
+     * @return the IDs of the Tags
+     */
+    BitSet toIds(final Set<Tag> tags) {
+        final BitSet ids = new BitSet(size());
+        for (final Tag t : tags) {
+            final int id = dictionary.getId(t);
+            if (id != TagDictionary.NO_ID) {
+                ids.set(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Converts the given bit set of IDs to Tags.
+     *
+     * @param ids the Tag IDs
+     * @return the Tags
+     */
+    Set<Tag> toTags(final BitSet ids) {
+        final Set<Tag> tags = new HashSet<>();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            tags.add(dictionary.getTag(id));
+        }
+        return tags;
+    }
+
+    /**
+     * Makes sure the arrays can be indexed by all IDs below the given
+     * capacity.
+     *
+     * @param capacity the required capacity
+     */
+    private void ensureCapacity(final int capacity) {
+        if (capacity <= nodes.length) {
+            return;
+        }
+        final int newCapacity = Math.max(capacity, nodes.length * 2);
+        nodes = Arrays.copyOf(nodes, newCapacity);
+        outputs = Arrays.copyOf(outputs, newCapacity);
+        producers = Arrays.copyOf(producers, newCapacity);
+        producerCounts = Arrays.copyOf(producerCounts, newCapacity);
+    }
+
+    /**
+     * Appends a producer to the posting list of an output Tag ID.
+     *
+     * @param outputId the output Tag ID
+     * @param id       the input Tag ID of the producing KN
+     */
+    private void addProducer(final int outputId, final int id) {
+        final int count = producerCounts[outputId];
+        if (producers[outputId] == null) {
+            producers[outputId] = new int[2];
+        } else if (count == producers[outputId].length) {
+            producers[outputId] = Arrays.copyOf(producers[outputId], count * 2);
+        }
+        producers[outputId][count] = id;
+        producerCounts[outputId] = count + 1;
+    }
+
+    /**
+     * Removes a producer from the posting list of an output Tag ID, by
+     * swapping it with the last entry.
+     *
+     * @param outputId the output Tag ID
+     * @param id       the input Tag ID of the producing KN
+     */
+    private void removeProducer(final int outputId, final int id) {
+        final int[] ids = producers[outputId];
+        final int last = producerCounts[outputId] - 1;
+        for (int i = 0; i <= last; i++) {
+            if (ids[i] == id) {
+                ids[i] = ids[last];
+                producerCounts[outputId] = last;
+                return;
+            }
+        }
+    }
+}
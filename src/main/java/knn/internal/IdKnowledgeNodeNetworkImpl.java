@@ -0,0 +1,404 @@
+package knn.internal;
+
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.google.inject.assistedinject.Assisted;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeCacheStats;
+import knn.api.KnowledgeNodeClock;
+import knn.api.KnowledgeNodeLoadReport;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeRecencyList;
+import knn.api.SharedKnowledgeNodeNetwork;
+import tags.Tag;
+
+/**
+ * Implementation of the KNN executing searches on Tag IDs. Every Tag is
+ * interned to a dense int ID when its KN is added, and searches work on bit
+ * sets and int arrays of IDs, translating back to Tags only at the API
+ * boundary.
+ */
+class IdKnowledgeNodeNetworkImpl implements KnowledgeNodeNetwork {
+    private final Map<Tag, KnowledgeNode> mapKN;
+    private final Set<Tag> activeTags;
+    private final KnowledgeNodeRecencyList ageSortedKNs;
+    private final long backwardSearchAgeLimit;
+    private double backwardSearchMatchRatio;
+    private final IdKnowledgeGraph graph;
+
+    private final IdDirectSearcher directSearcher;
+    private final IdForwardSearcher forwardSearcher;
+    private final ForwardClosureSearcher forwardClosureSearcher;
+    private final BatchSearcher batchSearcher;
+    private ReachabilityIndex reachabilityIndex;
+    private final IdBackwardSearcher backwardSearcher;
+
+    private final KnowledgeNodeClock clock;
+    private final ExpiryWheel expiryWheel;
+    private KnowledgeNodeMutationLog mutationLog;
+
+    @Inject
+    IdKnowledgeNodeNetworkImpl(
+            @Assisted("mapKN") final Map<Tag, KnowledgeNode> mapKN,
+            @Assisted("activeTags") final Set<Tag> activeTags,
+            @Assisted("ageSortedKNs")
+            final KnowledgeNodeRecencyList ageSortedKNs,
+            @Assisted("backwardSearchMatchRatio") final
+            double backwardSearchMatchRatio,
+            @Assisted("backwardSearchAgeLimit")
+            final long backwardSearchAgeLimit,
+            final IdDirectSearcherFactory directSearcherFactory,
+            final IdForwardSearcherFactory forwardSearcherFactory,
+            final IdBackwardSearcherFactory backwardSearcherFactory,
+            final KnowledgeNodeClock clock) {
+        this.mapKN = mapKN;
+        this.activeTags = activeTags;
+        this.ageSortedKNs = ageSortedKNs;
+        this.backwardSearchMatchRatio = backwardSearchMatchRatio;
+        this.backwardSearchAgeLimit = backwardSearchAgeLimit;
+        this.graph = new IdKnowledgeGraph();
+        this.clock = clock;
+        this.expiryWheel = new ExpiryWheel(ExpiryWheel.DEFAULT_TICK_MILLIS,
+                clock.currentTimeMillis());
+        for (final KnowledgeNode kn : mapKN.values()) {
+            kn.setAgeTimeStamp(clock.currentTimeMillis());
+            graph.add(kn);
+            expiryWheel.schedule(kn);
+        }
+        this.directSearcher = directSearcherFactory.create(
+                mapKN, activeTags, ageSortedKNs, graph);
+        directSearcher.setExpiryListener(this::deleteExpiredKnowledgeNode);
+        this.forwardSearcher = forwardSearcherFactory.create(
+                activeTags, graph, directSearcher);
+        this.forwardClosureSearcher = new ForwardClosureSearcher(
+                mapKN::get, graph::getVersion,
+                clock::currentTimeMillis);
+        this.batchSearcher = new BatchSearcher(mapKN::get,
+                graph::getProducingKnowledgeNodes, ageSortedKNs, clock);
+        this.backwardSearcher = backwardSearcherFactory.create(
+                activeTags, ageSortedKNs, graph, backwardSearchMatchRatio,
+                backwardSearchAgeLimit);
+    }
+
+    @Override
+    public void resetEmpty() {
+        clear();
+        compactLog();
+    }
+
+    @Override
+    public void clearActiveTags() {
+        activeTags.clear();
+    }
+
+    @Override
+    public void addKnowledgeNode(final KnowledgeNode kn) {
+        deleteExpiredKnowledgeNodes();
+        if (mutationLog != null) {
+            mutationLog.logAddition(kn);
+        }
+        put(kn);
+    }
+
+    @Override
+    public void deleteExpiredKnowledgeNodes() {
+        final long time = clock.currentTimeMillis();
+        final Set<Tag> tagsToDelete = new HashSet<>();
+        for (final KnowledgeNode kn : expiryWheel.advance(time)) {
+            if (mapKN.get(kn.getInputTag()) == kn) {
+                if (kn.expire(time)) {
+                    tagsToDelete.add(kn.getInputTag());
+                } else {
+                    expiryWheel.schedule(kn);
+                }
+            }
+        }
+        if (mutationLog != null) {
+            mutationLog.logDeletions(tagsToDelete);
+        }
+        for (final Tag t : tagsToDelete) {
+            remove(t);
+            activeTags.remove(t);
+        }
+    }
+
+    @Override
+    public void deleteKnowledgeNode(final Tag tag) {
+        deleteExpiredKnowledgeNodes();
+        if (mutationLog != null && mapKN.containsKey(tag)) {
+            mutationLog.logDeletions(Collections.singleton(tag));
+        }
+        remove(tag);
+    }
+
+    @Override
+    public void addActiveTag(final Tag tag) {
+        activeTags.add(tag);
+    }
+
+    @Override
+    public void addActiveTags(final Tag... tags) {
+        activeTags.addAll(Arrays.asList(tags));
+    }
+
+    @Override
+    public Set<Tag> getActiveTags() {
+        return Collections.unmodifiableSet(activeTags);
+    }
+
+    @Override
+    public KnowledgeNode getKnowledgeNode(final Tag tag) {
+        return mapKN.get(tag);
+    }
+
+    @Override
+    public Set<KnowledgeNode> getKnowledgeNodes() {
+        return Collections.unmodifiableSet(ageSortedKNs);
+    }
+
+    @Override
+    public Set<Tag> directSearch(final Tag inputTag) {
+        return directSearcher.search(inputTag);
+    }
+
+    @Override
+    public Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply) {
+        return forwardSearcher.search(inputTags, ply);
+    }
+
+    @Override
+    public Set<Tag> forwardThink(final int ply) {
+        return forwardSearcher.search(new HashSet<>(activeTags), ply);
+    }
+
+    @Override
+    public Set<Tag> forwardClosure(final Set<Tag> inputTags, final int ply) {
+        deleteExpiredKnowledgeNodes();
+        return forwardClosureSearcher.search(inputTags, ply);
+    }
+
+    @Override
+    public void setForwardClosureCacheSize(final int size) {
+        forwardClosureSearcher.setCacheSize(size);
+    }
+
+    @Override
+    public void setForwardClosureIndexEnabled(final boolean enabled) {
+        if (enabled && reachabilityIndex == null) {
+            reachabilityIndex = new ReachabilityIndex();
+            graph.attach(reachabilityIndex);
+            forwardClosureSearcher.setReachabilityIndex(reachabilityIndex);
+        } else if (!enabled && reachabilityIndex != null) {
+            forwardClosureSearcher.setReachabilityIndex(null);
+            graph.detach(reachabilityIndex);
+            reachabilityIndex = null;
+        }
+    }
+
+    @Override
+    public KnowledgeNodeCacheStats getForwardClosureCacheStats() {
+        return forwardClosureSearcher.getCacheStats();
+    }
+
+    @Override
+    public List<Set<Tag>> batchForwardSearch(final List<Set<Tag>> inputTagSets,
+                                             final int ply) {
+        return batchSearcher.searchForward(inputTagSets, ply);
+    }
+
+    @Override
+    public Set<Tag> backwardSearch(final Set<Tag> inputTags, final int ply) {
+        return backwardSearcher.search(inputTags, ply);
+    }
+
+    @Override
+    public Set<Tag> backwardThink(final int ply) {
+        return backwardSearcher.search(activeTags, ply);
+    }
+
+    @Override
+    public List<Tag> rankedBackwardSearch(final Set<Tag> inputTags,
+                                          final int ply,
+                                          final int limit) {
+        return backwardSearcher.searchRanked(inputTags, ply, limit);
+    }
+
+    @Override
+    public List<Set<Tag>> batchBackwardSearch(
+            final List<Set<Tag>> inputTagSets,
+            final int ply) {
+        return batchSearcher.searchBackward(inputTagSets, ply,
+                backwardSearchMatchRatio, backwardSearchAgeLimit);
+    }
+
+    @Override
+    public void setBackwardSearchMatchRatio(final double ratio) {
+        backwardSearchMatchRatio = ratio;
+        backwardSearcher.setPartialMatchRatio(ratio);
+    }
+
+    @Override
+    public void setBackwardSearchRecall(final double recall) {
+        // Backward search on Tag IDs is always exact.
+    }
+
+    @Override
+    public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply) {
+        final Set<Tag> backwardTags = backwardSearcher.search(inputTags, ply);
+        return forwardSearcher.search(backwardTags, ply);
+    }
+
+    @Override
+    public List<Tag> rankedLambdaSearch(final Set<Tag> inputTags,
+                                        final int ply,
+                                        final int limit) {
+        final List<Tag> backwardTags =
+                backwardSearcher.searchRanked(inputTags, ply, limit);
+        return LambdaSearcher.searchForwardRanked(backwardTags, limit,
+                t -> forwardSearcher.search(Collections.singleton(t), ply));
+    }
+
+    @Override
+    public Set<Tag> bidirectionalLambdaSearch(final Set<Tag> inputTags,
+                                              final Set<Tag> goalTags,
+                                              final int ply) {
+        return LambdaSearcher.searchBidirectional(inputTags, goalTags, ply,
+                backwardSearcher.newPlySearch(),
+                graph::getProducingKnowledgeNodes);
+    }
+
+    @Override
+    public Set<Tag> lambdaThink(final int ply) {
+        return lambdaSearch(activeTags, ply);
+    }
+
+    @Override
+    public SharedKnowledgeNodeNetwork snapshot() {
+        return new KnowledgeGraphSnapshot(mapKN.values(),
+                backwardSearchMatchRatio, backwardSearchAgeLimit, clock);
+    }
+
+    @Override
+    public List<KnowledgeNode> loadData(final String filename) {
+        return bulkLoadData(filename).getKnowledgeNodes();
+    }
+
+    @Override
+    public KnowledgeNodeLoadReport bulkLoadData(final String filename) {
+        final KnowledgeNodeLoadReport report =
+                KnowledgeNodeReader.read(filename);
+        clear();
+        report.getKnowledgeNodes().forEach(this::put);
+        compactLog();
+        return report;
+    }
+
+    @Override
+    public void reset(final String dbFilename) {
+        final List<KnowledgeNode> knowledgeNodes =
+                KnowledgeNodeSnapshotFile.read(dbFilename);
+        clear();
+        knowledgeNodes.forEach(this::put);
+        compactLog();
+    }
+
+    @Override
+    public void save(final String dbFilename) {
+        KnowledgeNodeSnapshotFile.write(ageSortedKNs, dbFilename);
+    }
+
+    @Override
+    public void recover(
+            final String dbFilename,
+            final String logFilename,
+            final int syncBatchSize) {
+        closeLog();
+        clear();
+        mutationLog = KnowledgeNodeMutationLog.recover(dbFilename,
+                logFilename, syncBatchSize, this::put, this::remove);
+    }
+
+    @Override
+    public void syncLog() {
+        if (mutationLog != null) {
+            mutationLog.sync();
+        }
+    }
+
+    @Override
+    public void compactLog() {
+        if (mutationLog != null) {
+            mutationLog.compact(ageSortedKNs);
+        }
+    }
+
+    @Override
+    public void closeLog() {
+        if (mutationLog != null) {
+            final KnowledgeNodeMutationLog log = mutationLog;
+            mutationLog = null;
+            log.close();
+        }
+    }
+
+    /**
+     * Clears all data structures, without logging.
+     */
+    private void clear() {
+        mapKN.clear();
+        activeTags.clear();
+        ageSortedKNs.clear();
+        graph.clear();
+        expiryWheel.clear();
+    }
+
+    /**
+     * Adds a KN, replacing any KN with the same input Tag, without logging.
+     * The KN is aged from the current time of the KN clock.
+     *
+     * @param kn the KN to add
+     */
+    private void put(final KnowledgeNode kn) {
+        kn.setAgeTimeStamp(clock.currentTimeMillis());
+        final KnowledgeNode replacedKN = mapKN.put(kn.getInputTag(), kn);
+        if (replacedKN != null) {
+            ageSortedKNs.remove(replacedKN);
+        }
+        ageSortedKNs.add(kn);
+        graph.add(kn);
+        expiryWheel.schedule(kn);
+    }
+
+    /**
+     * Deletes the KN with the given input Tag, if any, without logging.
+     *
+     * @param tag the input Tag of the KN to delete
+     */
+    private void remove(final Tag tag) {
+        final KnowledgeNode kn = mapKN.remove(tag);
+        if (kn != null) {
+            ageSortedKNs.remove(kn);
+            graph.remove(kn);
+        }
+    }
+
+    /**
+     * Deletes the given KN found to be expired during search, logging the
+     * deletion.
+     *
+     * @param kn the expired KN
+     */
+    private void deleteExpiredKnowledgeNode(final KnowledgeNode kn) {
+        final Tag tag = kn.getInputTag();
+        if (mutationLog != null) {
+            mutationLog.logDeletions(Collections.singleton(tag));
+        }
+        remove(tag);
+        activeTags.remove(tag);
+    }
+}
@@ -0,0 +1,43 @@
+package knn.internal;
+
+import java.util.Collection;
+import knn.api.KnowledgeNode;
+
+/**
+ * Listener of the changes to the structure of a KNN, i.e., the KNs added to
+ * and removed from it. Used by secondary indexes over the KNs, which are
+ * attached to the primary index of the KNN to be kept up to date with it.
+ *
+ * @see OutputTagIndex#attach(KnowledgeGraphListener)
+ * @see IdKnowledgeGraph#attach(KnowledgeGraphListener)
+ */
+interface KnowledgeGraphListener {
+    /**
+     * Called when a KN is added.
+     *
+     * @param kn the added KN
+     */
+    void add(KnowledgeNode kn);
+
+    /**
+     * Called with the KNs already in the KNN when the listener is attached.
+     * By default, each KN is added in turn.
+     *
+     * @param kns the added KNs
+     */
+    default void addAll(Collection<KnowledgeNode> kns) {
+        kns.forEach(this::add);
+    }
+
+    /**
+     * Called when a KN is removed.
+     *
+     * @param kn the removed KN
+     */
+    void remove(KnowledgeNode kn);
+
+    /**
+     * Called when all the KNs are removed.
+     */
+    void clear();
+}
@@ -0,0 +1,163 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.KnowledgeNodeNetworkSession;
+import knn.api.SharedKnowledgeNodeNetwork;
+import tags.Tag;
+
+/**
+ * Immutable snapshot of the structure of a KNN. The KNs are copied to
+ * {@link Node}s holding no activation state, and indexed by input Tag and by
+ * output Tag. The nodes are also kept in order of increasing age at the time
+ * of the snapshot, so that sessions can stop at their age limit. The snapshot
+ * is safe to share between threads once constructed.
+ */
+class KnowledgeGraphSnapshot implements SharedKnowledgeNodeNetwork {
+    private final Map<Tag, Node> nodes;
+    private final List<Node> ageSortedNodes;
+    private final Map<Tag, List<Node>> producers;
+    private final double backwardSearchMatchRatio;
+    private final long backwardSearchAgeLimit;
+    private final KnowledgeNodeClock clock;
+
+    /**
+     * Creates a snapshot of the given KNs.
+     *
+     * @param kns                      the KNs of the KNN
+     * @param backwardSearchMatchRatio the default backward search match ratio
+     *                                 of sessions
+     * @param backwardSearchAgeLimit   the backward search age limit
+     * @param clock                    the clock the KNs are aged with in
+     *                                 sessions
+     */
+    KnowledgeGraphSnapshot(
+            final Collection<KnowledgeNode> kns,
+            final double backwardSearchMatchRatio,
+            final long backwardSearchAgeLimit,
+            final KnowledgeNodeClock clock) {
+        final Map<Tag, Node> nodeMap = new HashMap<>();
+        final Map<Tag, List<Node>> producerMap = new HashMap<>();
+        for (final KnowledgeNode kn : kns) {
+            final Node node = new Node(kn);
+            nodeMap.put(node.getInputTag(), node);
+            for (final Tag t : node.getOutputTags()) {
+                producerMap.computeIfAbsent(t, k -> new ArrayList<>())
+                        .add(node);
+            }
+        }
+        final List<Node> ageSortedNodeList = new ArrayList<>(nodeMap.values());
+        ageSortedNodeList.sort(Comparator.comparingLong(
+                Node::getAgeTimeStamp).reversed());
+        this.nodes = Collections.unmodifiableMap(nodeMap);
+        this.ageSortedNodes = Collections.unmodifiableList(ageSortedNodeList);
+        this.producers = Collections.unmodifiableMap(producerMap);
+        this.backwardSearchMatchRatio = backwardSearchMatchRatio;
+        this.backwardSearchAgeLimit = backwardSearchAgeLimit;
+        this.clock = clock;
+    }
+
+    @Override
+    public KnowledgeNodeNetworkSession createSession() {
+        return new KnowledgeNodeNetworkSessionImpl(
+                this, backwardSearchMatchRatio, backwardSearchAgeLimit, clock);
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Gets the node with the given input Tag.
+     *
+     * @param tag the input Tag
+     * @return the node, or null if there is none
+     */
+    Node getNode(final Tag tag) {
+        return nodes.get(tag);
+    }
+
+    /**
+     * @return all the nodes of the snapshot, in order of increasing age
+     */
+    List<Node> getAgeSortedNodes() {
+        return ageSortedNodes;
+    }
+
+    /**
+     * Gets the nodes having the given Tag as output Tag.
+     *
+     * @param tag the output Tag
+     * @return the nodes producing the Tag
+     */
+    List<Node> getProducers(final Tag tag) {
+        final List<Node> producerNodes = producers.get(tag);
+        if (producerNodes == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(producerNodes);
+    }
+
+    /**
+     * Immutable structure of a KN.
+     */
+    static final class Node {
+        private final Tag inputTag;
+        private final Set<Tag> outputTags;
+        private final int threshold;
+        private final long ageTimeStamp;
+
+        /**
+         * Copies the structure of the given KN, and the time it is aged from.
+         *
+         * @param kn the KN
+         */
+        Node(final KnowledgeNode kn) {
+            this.inputTag = kn.getInputTag();
+            this.outputTags = Collections.unmodifiableSet(
+                    new HashSet<>(kn.getOutputTags()));
+            this.threshold = kn.getThreshold();
+            this.ageTimeStamp =
+                    kn.getExpiryTime() - KnowledgeNode.AGE_THRESHOLD;
+        }
+
+        /**
+         * @return the input Tag of the KN
+         */
+        Tag getInputTag() {
+            return inputTag;
+        }
+
+        /**
+         * @return the output Tags of the KN
+         */
+        Set<Tag> getOutputTags() {
+            return outputTags;
+        }
+
+        /**
+         * @return the activation threshold of the KN
+         */
+        int getThreshold() {
+            return threshold;
+        }
+
+        /**
+         * @return the time the KN was last excited, or created, when the
+         * snapshot was taken
+         */
+        long getAgeTimeStamp() {
+            return ageTimeStamp;
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package knn.internal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import knn.api.KnowledgeNode;
+import knn.internal.KnowledgeNodeSnapshotFile.Input;
+import knn.internal.KnowledgeNodeSnapshotFile.TagTable;
+import tags.Tag;
+
+/**
+ * Append-only log of the KNs added to and deleted from a KNN since its last
+ * snapshot, so that the mutations survive a restart without saving the whole
+ * KNN after each of them.
+ * <p>
+ * The log starts with the magic number "KNNL" and the version of the format,
+ * followed by one record per mutation. A record is made of the length of its
+ * payload, the CRC-32 of its payload, and the payload: the kind of mutation,
+ * the String and Tag tables of the mutation (as in
+ * {@link KnowledgeNodeSnapshotFile}), then either the added KN or the input
+ * Tags of the deleted KNs.
+ * <p>
+ * Mutations are logged before they are applied. Records of concurrent
+ * mutations are written by a single thread in one write (group commit), and
+ * the log is forced to disk once for every batch of the given number of
+ * mutations, so that a batch shares a single fsync. Mutations which were not
+ * forced yet are lost if the machine crashes, but not if only the process
+ * does.
+ * <p>
+ * Recovery reads the snapshot, then replays the records in order. A record
+ * cut short by a crash ends the log, and is discarded. Compaction writes a new
+ * snapshot of the KNN and truncates the log. If it is interrupted between the
+ * two, replaying the whole log on top of the new snapshot gives the same KNs,
+ * though not necessarily in the same order of recency.
+ */
+final class KnowledgeNodeMutationLog {
+    private static final int MAGIC = 0x4B4E4E4C;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final byte ADDITION = 0;
+    private static final byte DELETIONS = 1;
+
+    private final Path dbPath;
+    private final FileChannel channel;
+    private final int syncBatchSize;
+    /**
+     * Guards the pending records, the counts and the failure.
+     */
+    private final Lock lock = new ReentrantLock();
+    /**
+     * Held while writing to the log file, always before {@link #lock}.
+     */
+    private final Lock ioLock = new ReentrantLock();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appendedCount;
+    private long writtenCount;
+    private long syncedCount;
+    private IOException failure;
+
+    /**
+     * Creates a log appending to the given channel.
+     *
+     * @param dbPath        the path of the snapshot file
+     * @param channel       the channel of the log file, positioned at its end
+     * @param syncBatchSize the number of mutations forced to disk together
+     */
+    private KnowledgeNodeMutationLog(
+            final Path dbPath,
+            final FileChannel channel,
+            final int syncBatchSize) {
+        this.dbPath = dbPath;
+        this.channel = channel;
+        this.syncBatchSize = syncBatchSize;
+    }
+
+    /**
+     * Recovers the KNs of a snapshot and of a log, and opens the log to
+     * append later mutations to it. Missing files are treated as empty, and
+     * are created.
+     *
+     * @param dbFilename    the name of the snapshot file
+     * @param logFilename   the name of the log file
+     * @param syncBatchSize the number of mutations forced to disk together,
+     *                      where 1 forces every mutation before it returns
+     * @param additions     called on each added KN, in order
+     * @param deletions     called on the input Tag of each deleted KN, in
+     *                      order
+     * @return the log
+     * @throws IllegalArgumentException if the batch size is not positive
+     * @throws UncheckedIOException     if a file cannot be read or written,
+     *                                  or is invalid
+     */
+    static KnowledgeNodeMutationLog recover(
+            final String dbFilename,
+            final String logFilename,
+            final int syncBatchSize,
+            final Consumer<KnowledgeNode> additions,
+            final Consumer<Tag> deletions) {
+        if (syncBatchSize < 1) {
+            throw new IllegalArgumentException(
+                    "Invalid sync batch size: " + syncBatchSize);
+        }
+        final Path dbPath = Paths.get(dbFilename);
+        if (Files.exists(dbPath)) {
+            KnowledgeNodeSnapshotFile.read(dbFilename).forEach(additions);
+        }
+        final Path logPath = Paths.get(logFilename);
+        try {
+            long end = 0;
+            if (Files.exists(logPath)) {
+                end = replay(logPath, additions, deletions);
+            }
+            final FileChannel channel = FileChannel.open(logPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                if (end == 0) {
+                    writeHeader(channel);
+                } else {
+                    channel.truncate(end);
+                    channel.position(end);
+                }
+                channel.force(true);
+            } catch (final IOException e) {
+                channel.close();
+                throw e;
+            }
+            return new KnowledgeNodeMutationLog(dbPath, channel,
+                    syncBatchSize);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (final RuntimeException e) {
+            throw new UncheckedIOException(new IOException(
+                    "Invalid KNN mutation log: " + logFilename, e));
+        }
+    }
+
+    /**
+     * Replays the records of a log.
+     *
+     * @param logPath   the path of the log file
+     * @param additions called on each added KN
+     * @param deletions called on the input Tag of each deleted KN
+     * @return the position after the last complete record, or 0 if the log
+     * has no header
+     * @throws IOException if the file cannot be read or is not a log
+     */
+    private static long replay(
+            final Path logPath,
+            final Consumer<KnowledgeNode> additions,
+            final Consumer<Tag> deletions) throws IOException {
+        final long size = Files.size(logPath);
+        if (size < HEADER_SIZE) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(logPath)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a KNN mutation log: " + logPath);
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(
+                        "Unsupported KNN mutation log version: " + version);
+            }
+            long position = HEADER_SIZE;
+            final CRC32 crc = new CRC32();
+            while (size - position >= RECORD_HEADER_SIZE) {
+                final int length = in.readInt();
+                final int checksum = in.readInt();
+                if (length < 0
+                        || size - position - RECORD_HEADER_SIZE < length) {
+                    break;
+                }
+                final byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(ByteBuffer.wrap(payload), additions, deletions);
+                position += RECORD_HEADER_SIZE + length;
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Applies the mutation of a record.
+     *
+     * @param payload   the payload of the record
+     * @param additions called on the added KN
+     * @param deletions called on the input Tag of each deleted KN
+     * @throws IOException if the payload is too short
+     */
+    private static void apply(
+            final ByteBuffer payload,
+            final Consumer<KnowledgeNode> additions,
+            final Consumer<Tag> deletions) throws IOException {
+        final Input in = Input.of(payload);
+        final byte kind = in.require(1).get();
+        final Tag[] tags = KnowledgeNodeSnapshotFile.readTables(in);
+        if (kind == ADDITION) {
+            additions.accept(
+                    KnowledgeNodeSnapshotFile.readKnowledgeNode(in, tags));
+        } else if (kind == DELETIONS) {
+            final int count = in.require(Integer.BYTES).getInt();
+            final ByteBuffer ids = in.require(count * Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                deletions.accept(tags[ids.getInt()]);
+            }
+        } else {
+            throw new IOException("Invalid KNN mutation kind: " + kind);
+        }
+    }
+
+    /**
+     * Writes the header of an empty log.
+     *
+     * @param channel the channel of the log file
+     * @throws IOException if writing the file fails
+     */
+    private static void writeHeader(final FileChannel channel)
+            throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        channel.truncate(0);
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /**
+     * Logs the addition of a KN, which replaces any KN with the same input
+     * Tag.
+     *
+     * @param kn the added KN
+     * @throws UncheckedIOException if writing the log fails
+     */
+    void logAddition(final KnowledgeNode kn) {
+        final TagTable table = new TagTable();
+        table.add(kn);
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(payload);
+        try {
+            out.writeByte(ADDITION);
+            table.write(out);
+            KnowledgeNodeSnapshotFile.writeKnowledgeNode(kn, table, out);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        append(payload.toByteArray());
+    }
+
+    /**
+     * Logs the deletion of the KNs with the given input Tags, in a single
+     * record.
+     *
+     * @param inputTags the input Tags of the deleted KNs
+     * @throws UncheckedIOException if writing the log fails
+     */
+    void logDeletions(final Collection<Tag> inputTags) {
+        if (inputTags.isEmpty()) {
+            return;
+        }
+        final TagTable table = new TagTable();
+        inputTags.forEach(table::add);
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(payload);
+        try {
+            out.writeByte(DELETIONS);
+            table.write(out);
+            out.writeInt(inputTags.size());
+            for (final Tag tag : inputTags) {
+                out.writeInt(table.getId(tag));
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        append(payload.toByteArray());
+    }
+
+    /**
+     * Forces all the logged mutations to disk.
+     *
+     * @throws UncheckedIOException if writing the log fails
+     */
+    void sync() {
+        commit(getAppendedCount(), true);
+    }
+
+    /**
+     * Writes a snapshot of the given KNs, replacing the previous snapshot
+     * atomically, then truncates the log. No mutation may be logged
+     * concurrently.
+     *
+     * @param knowledgeNodes the KNs, from the newest to the oldest
+     * @throws UncheckedIOException if writing the files fails
+     */
+    void compact(final Collection<KnowledgeNode> knowledgeNodes) {
+        ioLock.lock();
+        try {
+            final long count = getAppendedCount();
+            commit(count, false);
+            writeSnapshot(knowledgeNodes);
+            try {
+                writeHeader(channel);
+                channel.force(true);
+            } catch (final IOException e) {
+                fail(e);
+            }
+            lock.lock();
+            try {
+                syncedCount = count;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot to a temporary file, then renames it to the snapshot
+     * file, so that a crash cannot leave a partial snapshot.
+     *
+     * @param knowledgeNodes the KNs, from the newest to the oldest
+     * @throws UncheckedIOException if writing the files fails
+     */
+    private void writeSnapshot(
+            final Collection<KnowledgeNode> knowledgeNodes) {
+        final Path tmpPath =
+                dbPath.resolveSibling(dbPath.getFileName() + ".tmp");
+        KnowledgeNodeSnapshotFile.write(knowledgeNodes, tmpPath.toString());
+        try {
+            try (FileChannel tmp = FileChannel.open(tmpPath,
+                    StandardOpenOption.WRITE)) {
+                tmp.force(true);
+            }
+            Files.move(tmpPath, dbPath, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forces the logged mutations to disk and closes the log.
+     *
+     * @throws UncheckedIOException if writing the log fails
+     */
+    void close() {
+        ioLock.lock();
+        try {
+            commit(getAppendedCount(), true);
+        } finally {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                ioLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Appends a record, and waits until it is written, and also forced to
+     * disk if it completes a batch.
+     *
+     * @param payload the payload of the record
+     * @throws UncheckedIOException if writing the log fails
+     */
+    private void append(final byte[] payload) {
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        final long count;
+        final boolean force;
+        lock.lock();
+        try {
+            checkFailure();
+            final DataOutputStream out = new DataOutputStream(pending);
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+            appendedCount++;
+            count = appendedCount;
+            force = count - syncedCount >= syncBatchSize;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+        commit(count, force);
+    }
+
+    /**
+     * Waits until the given number of records are written, and forced to
+     * disk if requested. Only one thread writes at a time, and it writes all
+     * the records appended so far, so that the records appended by other
+     * threads while it writes are written together by the next thread
+     * (group commit).
+     *
+     * @param count the number of records to wait for
+     * @param force whether to wait until they are forced to disk
+     * @throws UncheckedIOException if writing the log fails
+     */
+    private void commit(final long count, final boolean force) {
+        ioLock.lock();
+        try {
+            final ByteBuffer batch;
+            final long batchCount;
+            final boolean forceBatch;
+            lock.lock();
+            try {
+                checkFailure();
+                if (writtenCount >= count
+                        && (!force || syncedCount >= count)) {
+                    return;
+                }
+                batch = ByteBuffer.wrap(pending.toByteArray());
+                pending.reset();
+                batchCount = appendedCount;
+                forceBatch =
+                        force || batchCount - syncedCount >= syncBatchSize;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                if (forceBatch) {
+                    channel.force(false);
+                }
+            } catch (final IOException e) {
+                fail(e);
+            }
+            lock.lock();
+            try {
+                writtenCount = batchCount;
+                if (forceBatch) {
+                    syncedCount = batchCount;
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of records appended so far
+     */
+    private long getAppendedCount() {
+        lock.lock();
+        try {
+            return appendedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a failure to write the log, after which no record can be
+     * appended, since the log may have lost records.
+     *
+     * @param e the failure
+     * @throws UncheckedIOException always
+     */
+    private void fail(final IOException e) {
+        lock.lock();
+        try {
+            failure = e;
+        } finally {
+            lock.unlock();
+        }
+        throw new UncheckedIOException(e);
+    }
+
+    /**
+     * @throws UncheckedIOException if writing the log failed before
+     */
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException(
+                    new IOException("KNN mutation log failed", failure));
+        }
+    }
+}
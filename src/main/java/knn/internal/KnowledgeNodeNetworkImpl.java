@@ -1,20 +1,20 @@
 package knn.internal;
 
 import javax.inject.Inject;
-import java.io.BufferedReader;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import com.google.inject.assistedinject.Assisted;
 import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeCacheStats;
+import knn.api.KnowledgeNodeClock;
+import knn.api.KnowledgeNodeLoadReport;
 import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeRecencyList;
+import knn.api.SharedKnowledgeNodeNetwork;
 import tags.Tag;
 
 /**
@@ -23,44 +23,70 @@ import tags.Tag;
 class KnowledgeNodeNetworkImpl implements KnowledgeNodeNetwork {
     private final Map<Tag, KnowledgeNode> mapKN;
     private final Set<Tag> activeTags;
-    private final TreeSet<KnowledgeNode> ageSortedKNs;
+    private final KnowledgeNodeRecencyList ageSortedKNs;
+    private final long backwardSearchAgeLimit;
+    private double backwardSearchMatchRatio;
+    private final OutputTagIndex outputTagIndex;
 
     private final DirectSearcher directSearcher;
     private final ForwardSearcher forwardSearcher;
+    private final ForwardClosureSearcher forwardClosureSearcher;
+    private final BatchSearcher batchSearcher;
+    private ReachabilityIndex reachabilityIndex;
     private final BackwardSearcher backwardSearcher;
     private final LambdaSearcher lambdaSearcher;
 
+    private final KnowledgeNodeClock clock;
+    private final ExpiryWheel expiryWheel;
+    private KnowledgeNodeMutationLog mutationLog;
+
     @Inject
     KnowledgeNodeNetworkImpl(
             @Assisted("mapKN") final Map<Tag, KnowledgeNode> mapKN,
             @Assisted("activeTags") final Set<Tag> activeTags,
-            @Assisted("ageSortedKNs") final TreeSet<KnowledgeNode> ageSortedKNs,
+            @Assisted("ageSortedKNs")
+            final KnowledgeNodeRecencyList ageSortedKNs,
             @Assisted("backwardSearchMatchRatio") final
             double backwardSearchMatchRatio,
             @Assisted("backwardSearchAgeLimit")
             final long backwardSearchAgeLimit,
-            final DirectSearcherFactory directSearcherFactory,
-            final ForwardSearcherFactory forwardSearcherFactory,
-            final BackwardSearcherFactory backwardSearcherFactory,
-            final LambdaSearcherFactory lambdaSearcherFactory) {
+            final SearcherFactories searcherFactories,
+            final KnowledgeNodeClock clock) {
         this.mapKN = mapKN;
         this.activeTags = activeTags;
         this.ageSortedKNs = ageSortedKNs;
-        this.directSearcher =
-                directSearcherFactory.create(mapKN, activeTags, ageSortedKNs);
-        this.forwardSearcher = forwardSearcherFactory.create(directSearcher);
-        this.backwardSearcher = backwardSearcherFactory.create(
-                activeTags, ageSortedKNs, backwardSearchMatchRatio,
-                backwardSearchAgeLimit);
-        this.lambdaSearcher =
-                lambdaSearcherFactory.create(forwardSearcher, backwardSearcher);
+        this.backwardSearchMatchRatio = backwardSearchMatchRatio;
+        this.backwardSearchAgeLimit = backwardSearchAgeLimit;
+        this.outputTagIndex = new OutputTagIndex();
+        this.directSearcher = searcherFactories.getDirectSearcherFactory()
+                .create(mapKN, activeTags, ageSortedKNs, outputTagIndex);
+        this.clock = clock;
+        this.expiryWheel = new ExpiryWheel(ExpiryWheel.DEFAULT_TICK_MILLIS,
+                clock.currentTimeMillis());
+        for (final KnowledgeNode kn : mapKN.values()) {
+            kn.setAgeTimeStamp(clock.currentTimeMillis());
+            outputTagIndex.add(kn);
+            expiryWheel.schedule(kn);
+        }
+        directSearcher.setExpiryListener(this::deleteExpiredKnowledgeNode);
+        this.forwardSearcher = searcherFactories.getForwardSearcherFactory()
+                .create(directSearcher);
+        this.forwardClosureSearcher = new ForwardClosureSearcher(
+                mapKN::get, outputTagIndex::getVersion,
+                clock::currentTimeMillis);
+        this.batchSearcher = new BatchSearcher(mapKN::get,
+                outputTagIndex::getProducers, ageSortedKNs, clock);
+        this.backwardSearcher = searcherFactories.getBackwardSearcherFactory()
+                .create(activeTags, ageSortedKNs, outputTagIndex,
+                        backwardSearchMatchRatio, backwardSearchAgeLimit);
+        this.lambdaSearcher = searcherFactories.getLambdaSearcherFactory()
+                .create(forwardSearcher, backwardSearcher);
     }
 
     @Override
     public void resetEmpty() {
-        mapKN.clear();
-        activeTags.clear();
-        ageSortedKNs.clear();
+        clear();
+        compactLog();
     }
 
     @Override
@@ -70,28 +96,42 @@ class KnowledgeNodeNetworkImpl implements KnowledgeNodeNetwork {
 
     @Override
     public void addKnowledgeNode(final KnowledgeNode kn) {
-        mapKN.put(kn.getInputTag(), kn);
-        ageSortedKNs.add(kn);
+        deleteExpiredKnowledgeNodes();
+        if (mutationLog != null) {
+            mutationLog.logAddition(kn);
+        }
+        put(kn);
     }
 
     @Override
     public void deleteExpiredKnowledgeNodes() {
+        final long time = clock.currentTimeMillis();
         final Set<Tag> tagsToDelete = new HashSet<>();
-        for (final KnowledgeNode kn : mapKN.values()) {
-            if (kn.isExpired()) {
-                tagsToDelete.add(kn.getInputTag());
-                ageSortedKNs.remove(kn);
+        for (final KnowledgeNode kn : expiryWheel.advance(time)) {
+            if (mapKN.get(kn.getInputTag()) == kn) {
+                if (kn.expire(time)) {
+                    tagsToDelete.add(kn.getInputTag());
+                } else {
+                    expiryWheel.schedule(kn);
+                }
             }
         }
+        if (mutationLog != null) {
+            mutationLog.logDeletions(tagsToDelete);
+        }
         for (final Tag t : tagsToDelete) {
-            mapKN.remove(t);
+            remove(t);
             activeTags.remove(t);
         }
     }
 
     @Override
     public void deleteKnowledgeNode(final Tag tag) {
-        mapKN.remove(tag);
+        deleteExpiredKnowledgeNodes();
+        if (mutationLog != null && mapKN.containsKey(tag)) {
+            mutationLog.logDeletions(Collections.singleton(tag));
+        }
+        remove(tag);
     }
 
     @Override
@@ -134,6 +174,41 @@ class KnowledgeNodeNetworkImpl implements KnowledgeNodeNetwork {
         return forwardSearcher.search(activeTags, ply);
     }
 
+    @Override
+    public Set<Tag> forwardClosure(final Set<Tag> inputTags, final int ply) {
+        deleteExpiredKnowledgeNodes();
+        return forwardClosureSearcher.search(inputTags, ply);
+    }
+
+    @Override
+    public void setForwardClosureCacheSize(final int size) {
+        forwardClosureSearcher.setCacheSize(size);
+    }
+
+    @Override
+    public void setForwardClosureIndexEnabled(final boolean enabled) {
+        if (enabled && reachabilityIndex == null) {
+            reachabilityIndex = new ReachabilityIndex();
+            outputTagIndex.attach(reachabilityIndex);
+            forwardClosureSearcher.setReachabilityIndex(reachabilityIndex);
+        } else if (!enabled && reachabilityIndex != null) {
+            forwardClosureSearcher.setReachabilityIndex(null);
+            outputTagIndex.detach(reachabilityIndex);
+            reachabilityIndex = null;
+        }
+    }
+
+    @Override
+    public KnowledgeNodeCacheStats getForwardClosureCacheStats() {
+        return forwardClosureSearcher.getCacheStats();
+    }
+
+    @Override
+    public List<Set<Tag>> batchForwardSearch(final List<Set<Tag>> inputTagSets,
+                                             final int ply) {
+        return batchSearcher.searchForward(inputTagSets, ply);
+    }
+
     @Override
     public Set<Tag> backwardSearch(final Set<Tag> inputTags, final int ply) {
         return backwardSearcher.search(inputTags, ply);
@@ -144,51 +219,181 @@ class KnowledgeNodeNetworkImpl implements KnowledgeNodeNetwork {
         return backwardSearcher.search(activeTags, ply);
     }
 
+    @Override
+    public List<Tag> rankedBackwardSearch(final Set<Tag> inputTags,
+                                          final int ply,
+                                          final int limit) {
+        return backwardSearcher.searchRanked(inputTags, ply, limit);
+    }
+
+    @Override
+    public List<Set<Tag>> batchBackwardSearch(
+            final List<Set<Tag>> inputTagSets,
+            final int ply) {
+        return batchSearcher.searchBackward(inputTagSets, ply,
+                backwardSearchMatchRatio, backwardSearchAgeLimit);
+    }
+
     @Override
     public void setBackwardSearchMatchRatio(final double ratio) {
+        backwardSearchMatchRatio = ratio;
         backwardSearcher.setPartialMatchRatio(ratio);
     }
 
+    @Override
+    public void setBackwardSearchRecall(final double recall) {
+        backwardSearcher.setRecall(recall);
+    }
+
     @Override
     public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply) {
         return lambdaSearcher.search(inputTags, ply);
     }
 
+    @Override
+    public List<Tag> rankedLambdaSearch(final Set<Tag> inputTags,
+                                        final int ply,
+                                        final int limit) {
+        return lambdaSearcher.searchRanked(inputTags, ply, limit);
+    }
+
+    @Override
+    public Set<Tag> bidirectionalLambdaSearch(final Set<Tag> inputTags,
+                                              final Set<Tag> goalTags,
+                                              final int ply) {
+        return LambdaSearcher.searchBidirectional(inputTags, goalTags, ply,
+                backwardSearcher.newPlySearch(),
+                outputTagIndex::getProducers);
+    }
+
     @Override
     public Set<Tag> lambdaThink(final int ply) {
         return lambdaSearcher.search(activeTags, ply);
     }
 
+    @Override
+    public SharedKnowledgeNodeNetwork snapshot() {
+        return new KnowledgeGraphSnapshot(mapKN.values(),
+                backwardSearchMatchRatio, backwardSearchAgeLimit, clock);
+    }
+
     @Override
     public List<KnowledgeNode> loadData(final String filename) {
-        final List<KnowledgeNode> knowledgeNodes = new ArrayList<>();
-        resetEmpty();
-        try {
-            final BufferedReader br = new BufferedReader(
-                    new InputStreamReader(new FileInputStream(filename),
-                            "UTF-8"));
-            String line;
-            while ((line = br.readLine()) != null) {
-                final String[] info = line.split(";\\s+");
-                final KnowledgeNode kn = new KnowledgeNode(info);
-                knowledgeNodes.add(kn);
-            }
-            br.close();
-        } catch (final Exception e) {
-            e.printStackTrace();
-        }
+        return bulkLoadData(filename).getKnowledgeNodes();
+    }
 
-        for (final KnowledgeNode knowledgeNode : knowledgeNodes) {
-            addKnowledgeNode(knowledgeNode);
-        }
-        return knowledgeNodes;
+    @Override
+    public KnowledgeNodeLoadReport bulkLoadData(final String filename) {
+        final KnowledgeNodeLoadReport report =
+                KnowledgeNodeReader.read(filename);
+        clear();
+        report.getKnowledgeNodes().forEach(this::put);
+        compactLog();
+        return report;
     }
 
     @Override
     public void reset(final String dbFilename) {
+        final List<KnowledgeNode> knowledgeNodes =
+                KnowledgeNodeSnapshotFile.read(dbFilename);
+        clear();
+        knowledgeNodes.forEach(this::put);
+        compactLog();
     }
 
     @Override
     public void save(final String dbFilename) {
+        KnowledgeNodeSnapshotFile.write(ageSortedKNs, dbFilename);
+    }
+
+    @Override
+    public void recover(
+            final String dbFilename,
+            final String logFilename,
+            final int syncBatchSize) {
+        closeLog();
+        clear();
+        mutationLog = KnowledgeNodeMutationLog.recover(dbFilename,
+                logFilename, syncBatchSize, this::put, this::remove);
+    }
+
+    @Override
+    public void syncLog() {
+        if (mutationLog != null) {
+            mutationLog.sync();
+        }
+    }
+
+    @Override
+    public void compactLog() {
+        if (mutationLog != null) {
+            mutationLog.compact(ageSortedKNs);
+        }
+    }
+
+    @Override
+    public void closeLog() {
+        if (mutationLog != null) {
+            final KnowledgeNodeMutationLog log = mutationLog;
+            mutationLog = null;
+            log.close();
+        }
+    }
+
+    /**
+     * Clears all data structures, without logging.
+     */
+    private void clear() {
+        mapKN.clear();
+        activeTags.clear();
+        ageSortedKNs.clear();
+        outputTagIndex.clear();
+        expiryWheel.clear();
+    }
+
+    /**
+     * Adds a KN, replacing any KN with the same input Tag, without logging.
+     * The KN is aged from the current time of the KN clock.
+     *
+     * @param kn the KN to add
+     */
+    private void put(final KnowledgeNode kn) {
+        kn.setAgeTimeStamp(clock.currentTimeMillis());
+        final KnowledgeNode replacedKN = mapKN.put(kn.getInputTag(), kn);
+        if (replacedKN != null) {
+            ageSortedKNs.remove(replacedKN);
+            outputTagIndex.remove(replacedKN);
+        }
+        ageSortedKNs.add(kn);
+        outputTagIndex.add(kn);
+        expiryWheel.schedule(kn);
+    }
+
+    /**
+     * Deletes the KN with the given input Tag, if any, without logging.
+     *
+     * @param tag the input Tag of the KN to delete
+     */
+    private void remove(final Tag tag) {
+        final KnowledgeNode kn = mapKN.remove(tag);
+        if (kn != null) {
+            ageSortedKNs.remove(kn);
+            outputTagIndex.remove(kn);
+        }
+    }
+
+    /**
+     * Deletes the given KN found to be expired during search, logging the
+     * deletion.
+     *
+     * @param kn the expired KN
+     */
+    private void deleteExpiredKnowledgeNode(final KnowledgeNode kn) {
+        final Tag tag = kn.getInputTag();
+        if (mutationLog != null) {
+            mutationLog.logDeletions(Collections.singleton(tag));
+        }
+        remove(tag);
+        activeTags.remove(tag);
     }
 }
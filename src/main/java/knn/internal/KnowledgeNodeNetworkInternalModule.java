@@ -1,28 +1,133 @@
 package knn.internal;
 
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
 import com.google.inject.AbstractModule;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
+import knn.api.CoarseKnowledgeNodeClock;
+import knn.api.KnowledgeNodeClock;
 import knn.api.KnowledgeNodeNetwork;
 import knn.api.KnowledgeNodeNetworkFactory;
+import knn.api.KnowledgeNodeNetworkOption;
+import knn.api.LogicalKnowledgeNodeClock;
+import knn.api.PartitionedKnowledgeNodeNetwork;
+import knn.api.PartitionedKnowledgeNodeNetworkFactory;
+import knn.api.SystemKnowledgeNodeClock;
 
 /**
  * The internal Guice module for the KNN.
  */
 public final class KnowledgeNodeNetworkInternalModule extends AbstractModule {
+    private final Set<KnowledgeNodeNetworkOption> options;
+
+    /**
+     * Creates the internal KNN module.
+     *
+     * @param options the options selecting the KNN implementation
+     */
+    public KnowledgeNodeNetworkInternalModule(
+            final KnowledgeNodeNetworkOption... options) {
+        this.options = EnumSet.noneOf(KnowledgeNodeNetworkOption.class);
+        this.options.addAll(Arrays.asList(options));
+    }
+
     @Override
     protected void configure() {
+        checkExclusive(KnowledgeNodeNetworkOption.TAG_IDS,
+                KnowledgeNodeNetworkOption.PARALLEL_FORWARD_SEARCH);
+        checkExclusive(KnowledgeNodeNetworkOption.TAG_IDS,
+                KnowledgeNodeNetworkOption.CONCURRENT);
+        checkExclusive(KnowledgeNodeNetworkOption.CONCURRENT,
+                KnowledgeNodeNetworkOption.PARALLEL_FORWARD_SEARCH);
+        checkExclusive(KnowledgeNodeNetworkOption.TAG_IDS,
+                KnowledgeNodeNetworkOption.APPROXIMATE_BACKWARD_SEARCH);
+        checkExclusive(KnowledgeNodeNetworkOption.COARSE_CLOCK,
+                KnowledgeNodeNetworkOption.LOGICAL_CLOCK);
+
+        // The clock is created eagerly, so that its lifecycle follows the
+        // injector rather than the first KNN created.
+        bind(KnowledgeNodeClock.class).to(getClock()).asEagerSingleton();
+
         install(new FactoryModuleBuilder()
-                .implement(KnowledgeNodeNetwork.class,
-                        KnowledgeNodeNetworkImpl.class)
+                .implement(KnowledgeNodeNetwork.class, getImplementation())
                 .build(KnowledgeNodeNetworkFactory.class));
+        install(new FactoryModuleBuilder()
+                .implement(PartitionedKnowledgeNodeNetwork.class,
+                        PartitionedKnowledgeNodeNetworkImpl.class)
+                .build(PartitionedKnowledgeNodeNetworkFactory.class));
 
         install(new FactoryModuleBuilder()
                 .build(DirectSearcherFactory.class));
+        if (options.contains(
+                KnowledgeNodeNetworkOption.PARALLEL_FORWARD_SEARCH)) {
+            install(new FactoryModuleBuilder()
+                    .implement(ForwardSearcher.class,
+                            ParallelForwardSearcher.class)
+                    .build(ForwardSearcherFactory.class));
+        } else {
+            install(new FactoryModuleBuilder()
+                    .build(ForwardSearcherFactory.class));
+        }
+        if (options.contains(
+                KnowledgeNodeNetworkOption.APPROXIMATE_BACKWARD_SEARCH)) {
+            install(new FactoryModuleBuilder()
+                    .implement(BackwardSearcher.class,
+                            ApproximateBackwardSearcher.class)
+                    .build(BackwardSearcherFactory.class));
+        } else {
+            install(new FactoryModuleBuilder()
+                    .build(BackwardSearcherFactory.class));
+        }
+        install(new FactoryModuleBuilder()
+                .build(LambdaSearcherFactory.class));
+
         install(new FactoryModuleBuilder()
-                .build(ForwardSearcherFactory.class));
+                .build(IdDirectSearcherFactory.class));
         install(new FactoryModuleBuilder()
-                .build(BackwardSearcherFactory.class));
+                .build(IdForwardSearcherFactory.class));
         install(new FactoryModuleBuilder()
-                .build(LambdaSearcherFactory.class));
+                .build(IdBackwardSearcherFactory.class));
+    }
+
+    /**
+     * @return the KNN implementation selected by the options
+     */
+    private Class<? extends KnowledgeNodeNetwork> getImplementation() {
+        if (options.contains(KnowledgeNodeNetworkOption.TAG_IDS)) {
+            return IdKnowledgeNodeNetworkImpl.class;
+        }
+        if (options.contains(KnowledgeNodeNetworkOption.CONCURRENT)) {
+            return ConcurrentKnowledgeNodeNetworkImpl.class;
+        }
+        return KnowledgeNodeNetworkImpl.class;
+    }
+
+    /**
+     * @return the KN clock selected by the options
+     */
+    private Class<? extends KnowledgeNodeClock> getClock() {
+        if (options.contains(KnowledgeNodeNetworkOption.COARSE_CLOCK)) {
+            return CoarseKnowledgeNodeClock.class;
+        }
+        if (options.contains(KnowledgeNodeNetworkOption.LOGICAL_CLOCK)) {
+            return LogicalKnowledgeNodeClock.class;
+        }
+        return SystemKnowledgeNodeClock.class;
+    }
+
+    /**
+     * Records a configuration error if both given options are set.
+     *
+     * @param first  the first option
+     * @param second the second option
+     */
+    private void checkExclusive(
+            final KnowledgeNodeNetworkOption first,
+            final KnowledgeNodeNetworkOption second) {
+        if (options.contains(first) && options.contains(second)) {
+            addError("KNN options %s and %s cannot be combined.",
+                    first, second);
+        }
     }
 }
@@ -0,0 +1,258 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.KnowledgeNodeNetworkSession;
+import tags.Tag;
+
+/**
+ * Implementation of a reasoning session on a {@link KnowledgeGraphSnapshot}.
+ * The activation state is only stored for the KNs excited in the session, and
+ * follows the same rules as {@link KnowledgeNode#excite()}. KNs not excited in
+ * the session are aged from their last excitation before the snapshot.
+ */
+class KnowledgeNodeNetworkSessionImpl implements KnowledgeNodeNetworkSession {
+    private final KnowledgeGraphSnapshot graph;
+    private final Map<KnowledgeGraphSnapshot.Node, Activation> activations;
+    private final Set<Tag> activeTags;
+    private final long ageLimit;
+    private final KnowledgeNodeClock clock;
+    private double partialMatchRatio;
+
+    /**
+     * Creates a session.
+     *
+     * @param graph             the shared KNN
+     * @param partialMatchRatio the backward search match ratio
+     * @param ageLimit          the backward search age limit
+     * @param clock             the clock the KNs are aged with
+     */
+    KnowledgeNodeNetworkSessionImpl(
+            final KnowledgeGraphSnapshot graph,
+            final double partialMatchRatio,
+            final long ageLimit,
+            final KnowledgeNodeClock clock) {
+        this.graph = graph;
+        this.activations = new IdentityHashMap<>();
+        this.activeTags = new HashSet<>();
+        this.partialMatchRatio = partialMatchRatio;
+        this.ageLimit = ageLimit;
+        this.clock = clock;
+    }
+
+    @Override
+    public void clearActiveTags() {
+        activeTags.clear();
+    }
+
+    @Override
+    public void addActiveTags(final Tag... tags) {
+        activeTags.addAll(Arrays.asList(tags));
+    }
+
+    @Override
+    public Set<Tag> getActiveTags() {
+        return Collections.unmodifiableSet(activeTags);
+    }
+
+    @Override
+    public boolean isFired(final Tag tag) {
+        final KnowledgeGraphSnapshot.Node node = graph.getNode(tag);
+        if (node == null) {
+            return false;
+        }
+        final Activation activation = activations.get(node);
+        return activation != null
+                && activation.activation >= node.getThreshold();
+    }
+
+    @Override
+    public void setBackwardSearchMatchRatio(final double ratio) {
+        this.partialMatchRatio = ratio;
+    }
+
+    @Override
+    public Set<Tag> directSearch(final Tag inputTag) {
+        final Set<Tag> activatedTags = new HashSet<>();
+        final KnowledgeGraphSnapshot.Node node = getLiveNode(inputTag);
+        if (node != null && excite(node)) {
+            activatedTags.addAll(node.getOutputTags());
+        }
+        activeTags.add(inputTag);
+        activeTags.addAll(activatedTags);
+        return Collections.unmodifiableSet(activatedTags);
+    }
+
+    @Override
+    public Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply) {
+        final double plyCount = Searcher.getPlyCount(ply);
+        final Set<Tag> allActivatedTags = new HashSet<>();
+        Set<Tag> currentPlyInputTags = new HashSet<>(inputTags);
+        for (int i = 0; i < plyCount && !currentPlyInputTags.isEmpty(); i++) {
+            final Set<Tag> activatedTags = new HashSet<>();
+            for (final Tag t : currentPlyInputTags) {
+                activatedTags.addAll(directSearch(t));
+            }
+            allActivatedTags.addAll(activatedTags);
+            currentPlyInputTags = activatedTags;
+        }
+        return Collections.unmodifiableSet(allActivatedTags);
+    }
+
+    @Override
+    public Set<Tag> forwardThink(final int ply) {
+        return forwardSearch(activeTags, ply);
+    }
+
+    @Override
+    public Set<Tag> backwardSearch(final Set<Tag> inputTags, final int ply) {
+        final double plyCount = Searcher.getPlyCount(ply);
+        final Set<Tag> allActivatedTags = new HashSet<>();
+        Set<Tag> currentPlyInputTags = new HashSet<>(inputTags);
+        for (int i = 0; i < plyCount && !currentPlyInputTags.isEmpty(); i++) {
+            final int numRequiredMatches =
+                    (int) (partialMatchRatio * currentPlyInputTags.size());
+            final Set<Tag> activatedTags = new HashSet<>();
+            if (numRequiredMatches > 0) {
+                final Map<KnowledgeGraphSnapshot.Node, int[]> matchCounts =
+                        new IdentityHashMap<>();
+                for (final Tag t : currentPlyInputTags) {
+                    for (final KnowledgeGraphSnapshot.Node node
+                            : graph.getProducers(t)) {
+                        matchCounts.computeIfAbsent(node, k -> new int[1])[0]++;
+                    }
+                }
+                for (final Map.Entry<KnowledgeGraphSnapshot.Node, int[]> entry
+                        : matchCounts.entrySet()) {
+                    if (entry.getValue()[0] >= numRequiredMatches
+                            && isWithinAgeLimit(entry.getKey())) {
+                        activatedTags.add(entry.getKey().getInputTag());
+                    }
+                }
+            } else {
+                matchAll(activatedTags);
+            }
+            allActivatedTags.addAll(activatedTags);
+            currentPlyInputTags = activatedTags;
+        }
+        allActivatedTags.removeIf(activeTags::contains);
+        activeTags.addAll(allActivatedTags);
+        return Collections.unmodifiableSet(allActivatedTags);
+    }
+
+    @Override
+    public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply) {
+        return forwardSearch(backwardSearch(inputTags, ply), ply);
+    }
+
+    /**
+     * Matches all the nodes within the age limit. The nodes excited in the
+     * session are checked one by one, and the others in order of increasing
+     * age until the age limit is reached.
+     *
+     * @param activatedTags the Tags to add the input Tags of the nodes to
+     */
+    private void matchAll(final Set<Tag> activatedTags) {
+        for (final KnowledgeGraphSnapshot.Node node : activations.keySet()) {
+            if (isWithinAgeLimit(node)) {
+                activatedTags.add(node.getInputTag());
+            }
+        }
+        final long time = clock.currentTimeMillis();
+        for (final KnowledgeGraphSnapshot.Node node
+                : graph.getAgeSortedNodes()) {
+            if (time - node.getAgeTimeStamp() > ageLimit) {
+                break; // Age limit reached.
+            }
+            if (!activations.containsKey(node)) {
+                activatedTags.add(node.getInputTag());
+            }
+        }
+    }
+
+    /**
+     * Gets the node with the given input Tag, unless it has expired in the
+     * session.
+     *
+     * @param tag the input Tag
+     * @return the node, or null if there is none
+     */
+    private KnowledgeGraphSnapshot.Node getLiveNode(final Tag tag) {
+        final KnowledgeGraphSnapshot.Node node = graph.getNode(tag);
+        if (node == null) {
+            return null;
+        }
+        final Activation activation = activations.get(node);
+        if (activation != null && activation.expired) {
+            return null;
+        }
+        return node;
+    }
+
+    /**
+     * Excites the given node in the session.
+     *
+     * @param node the node to excite
+     * @return true if the node has been newly fired
+     * @see KnowledgeNode#excite()
+     */
+    private boolean excite(final KnowledgeGraphSnapshot.Node node) {
+        final Activation activation = activations.computeIfAbsent(
+                node, k -> new Activation(node.getAgeTimeStamp()));
+        if (activation.age > KnowledgeNode.AGE_THRESHOLD) {
+            activation.expired = true;
+            return false;
+        }
+        final long now = clock.currentTimeMillis();
+        activation.age = now - activation.ageTimeStamp;
+        activation.ageTimeStamp = now;
+        final double oldActivation = activation.activation;
+        activation.activation += KnowledgeNode.ACTIVATION_INCREMENT;
+        return oldActivation < node.getThreshold()
+                && activation.activation >= node.getThreshold();
+    }
+
+    /**
+     * Checks if the given node is within the backward search age limit, and
+     * has not expired in the session.
+     *
+     * @param node the node
+     * @return true if the node is within the age limit
+     */
+    private boolean isWithinAgeLimit(final KnowledgeGraphSnapshot.Node node) {
+        final Activation activation = activations.get(node);
+        long ageTimeStamp = node.getAgeTimeStamp();
+        if (activation != null) {
+            if (activation.expired) {
+                return false;
+            }
+            ageTimeStamp = activation.ageTimeStamp;
+        }
+        return clock.currentTimeMillis() - ageTimeStamp <= ageLimit;
+    }
+
+    /**
+     * Activation state of a KN within the session.
+     */
+    private static final class Activation {
+        private long ageTimeStamp;
+        private long age;
+        private double activation;
+        private boolean expired;
+
+        /**
+         * Creates the activation state of a KN never excited before.
+         *
+         * @param ageTimeStamp the time stamp the KN is aged from
+         */
+        Activation(final long ageTimeStamp) {
+            this.ageTimeStamp = ageTimeStamp;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package knn.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeLoadReport;
+import knn.api.KnowledgeNodeLoadReport.LineError;
+import knn.api.KnowledgeNodeParseException;
+
+/**
+ * Reads KNs from KNN data files, with one KN per line.
+ * <p>
+ * The file is memory-mapped in chunks which end at line boundaries, and the
+ * chunks are decoded and parsed in parallel on the common fork-join pool. The
+ * lines are parsed in place, without copying them into Strings. Lines which
+ * cannot be parsed are reported with their line number, and empty lines are
+ * skipped.
+ */
+final class KnowledgeNodeReader {
+    /**
+     * Approximate size of the chunks of the file parsed by a single task, in
+     * bytes.
+     */
+    private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int SCAN_BUFFER_SIZE = 4096;
+
+    private KnowledgeNodeReader() {
+    }
+
+    /**
+     * Reads the KNs in the file with the given name.
+     *
+     * @param filename the name of the file with the KNN data to read
+     * @return the KNs read from the file and the lines which could not be
+     * parsed
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    static KnowledgeNodeLoadReport read(final String filename) {
+        return read(filename, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Reads the KNs in the file with the given name.
+     *
+     * @param filename  the name of the file with the KNN data to read
+     * @param chunkSize the approximate size of the chunks parsed in parallel,
+     *                  in bytes
+     * @return the KNs read from the file and the lines which could not be
+     * parsed
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    static KnowledgeNodeLoadReport read(
+            final String filename,
+            final int chunkSize) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.READ)) {
+            final List<Chunk> chunks = splitChunks(channel, chunkSize);
+            chunks.parallelStream().forEach(chunk -> chunk.parse(channel));
+            return merge(chunks);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Splits a file into chunks of about the given size, each ending just
+     * after a line feed or at the end of the file.
+     *
+     * @param channel   the channel of the file
+     * @param chunkSize the approximate size of the chunks, in bytes
+     * @return the chunks, in file order
+     * @throws IOException if reading the file fails
+     */
+    private static List<Chunk> splitChunks(
+            final FileChannel channel,
+            final int chunkSize) throws IOException {
+        final long size = channel.size();
+        final List<Chunk> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = size;
+            if (size - start > chunkSize) {
+                end = findLineEnd(channel, start + chunkSize - 1, size);
+            }
+            chunks.add(new Chunk(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Finds the end of the line containing the given position.
+     *
+     * @param channel  the channel of the file
+     * @param position the position in the file
+     * @param size     the size of the file
+     * @return the position after the next line feed, or the size of the file
+     * if there is none
+     * @throws IOException if reading the file fails
+     */
+    private static long findLineEnd(
+            final FileChannel channel,
+            final long position,
+            final long size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long bufferStart = position;
+        while (bufferStart < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, bufferStart);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return bufferStart + i + 1;
+                }
+            }
+            bufferStart += Math.max(read, 0);
+        }
+        return size;
+    }
+
+    /**
+     * Merges the results of the chunks, numbering the lines of the errors
+     * from the start of the file.
+     *
+     * @param chunks the parsed chunks, in file order
+     * @return the report of the whole file
+     */
+    private static KnowledgeNodeLoadReport merge(final List<Chunk> chunks) {
+        final List<KnowledgeNode> knowledgeNodes = new ArrayList<>();
+        final List<LineError> errors = new ArrayList<>();
+        long firstLineNumber = 1;
+        for (final Chunk chunk : chunks) {
+            knowledgeNodes.addAll(chunk.knowledgeNodes);
+            for (final LineError error : chunk.errors) {
+                errors.add(new LineError(
+                        firstLineNumber + error.getLineNumber() - 1,
+                        error.getLine(), error.getMessage()));
+            }
+            firstLineNumber += chunk.lineCount;
+        }
+        return new KnowledgeNodeLoadReport(knowledgeNodes, errors);
+    }
+
+    /**
+     * A range of lines of the file, and the results of parsing them.
+     */
+    private static final class Chunk {
+        private final long start;
+        private final long end;
+        private final List<KnowledgeNode> knowledgeNodes = new ArrayList<>();
+        private final List<LineError> errors = new ArrayList<>();
+        private long lineCount;
+
+        /**
+         * Creates a chunk.
+         *
+         * @param start the position of the first byte of the chunk
+         * @param end   the position after the last byte of the chunk
+         */
+        private Chunk(final long start, final long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Parses the lines of the chunk. Lines end with a line feed, a
+         * carriage return, or a carriage return followed by a line feed, as in
+         * {@link java.io.BufferedReader#readLine()}. Line numbers of errors are
+         * relative to the chunk.
+         *
+         * @param channel the channel of the file
+         */
+        private void parse(final FileChannel channel) {
+            final CharBuffer chars;
+            try {
+                chars = StandardCharsets.UTF_8.decode(channel.map(
+                        FileChannel.MapMode.READ_ONLY, start, end - start));
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            final int length = chars.length();
+            int lineStart = 0;
+            while (lineStart < length) {
+                int lineEnd = lineStart;
+                while (lineEnd < length && !isLineTerminator(
+                        chars.charAt(lineEnd))) {
+                    lineEnd++;
+                }
+                lineCount++;
+                if (lineEnd > lineStart) {
+                    parseLine(chars.subSequence(lineStart, lineEnd));
+                }
+                lineStart = lineEnd + 1;
+                if (lineEnd + 1 < length && chars.charAt(lineEnd) == '\r'
+                        && chars.charAt(lineEnd + 1) == '\n') {
+                    lineStart++;
+                }
+            }
+        }
+
+        /**
+         * Parses a line, recording either its KN or its error.
+         *
+         * @param line the line
+         */
+        private void parseLine(final CharSequence line) {
+            try {
+                knowledgeNodes.add(new KnowledgeNode(line));
+            } catch (final KnowledgeNodeParseException e) {
+                errors.add(new LineError(lineCount, line.toString(),
+                        e.getMessage()));
+            } catch (final RuntimeException e) {
+                errors.add(new LineError(lineCount, line.toString(),
+                        e.toString()));
+            }
+        }
+
+        /**
+         * @param c a character
+         * @return true if the character ends a line
+         */
+        private static boolean isLineTerminator(final char c) {
+            return c == '\n' || c == '\r';
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package knn.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+import tags.TagCodec;
+
+/**
+ * Reads and writes KNN snapshots, a compact binary format from which KNs are
+ * loaded without parsing.
+ * <p>
+ * A snapshot is made of, in order:
+ * <ol>
+ * <li>the magic number "KNNS" and the version of the format;</li>
+ * <li>the String table: the number of Strings, then the length and UTF-8
+ * bytes of each String;</li>
+ * <li>the Tag table: the number of Tags, then the length and {@link TagCodec}
+ * encoding of each Tag. Tags with the same encoding are stored once, and the
+ * Tags of a Rule are stored before the Rule;</li>
+ * <li>the KN table: the number of KNs, then for each KN, from the oldest to
+ * the newest, its input Tag ID, threshold, belief, strength, number of output
+ * Tags and output Tag IDs.</li>
+ * </ol>
+ * Snapshots are written sequentially and read through memory-mapped windows
+ * of the file. Like KNN data files, they only hold the structure of the KNN,
+ * not the activations, ages and active Tags.
+ */
+final class KnowledgeNodeSnapshotFile {
+    private static final int MAGIC = 0x4B4E4E53;
+    private static final int VERSION = 1;
+    private static final int WINDOW_SIZE = 256 * 1024 * 1024;
+    private static final int KN_HEADER_SIZE = 24;
+
+    private KnowledgeNodeSnapshotFile() {
+    }
+
+    /**
+     * Writes a snapshot of the given KNs.
+     *
+     * @param knowledgeNodes the KNs, from the newest to the oldest
+     * @param filename       the name of the snapshot file
+     * @throws UncheckedIOException if writing the file fails
+     */
+    static void write(
+            final Collection<KnowledgeNode> knowledgeNodes,
+            final String filename) {
+        final List<KnowledgeNode> oldestFirst =
+                new ArrayList<>(knowledgeNodes);
+        Collections.reverse(oldestFirst);
+        final TagTable table = new TagTable();
+        for (final KnowledgeNode kn : oldestFirst) {
+            table.add(kn);
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(
+                        Files.newOutputStream(Paths.get(filename))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            table.write(out);
+            out.writeInt(oldestFirst.size());
+            for (final KnowledgeNode kn : oldestFirst) {
+                writeKnowledgeNode(kn, table, out);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the KNs of a snapshot.
+     *
+     * @param filename the name of the snapshot file
+     * @return the KNs, from the oldest to the newest
+     * @throws UncheckedIOException if the file cannot be read or is not a
+     *                              valid snapshot
+     */
+    static List<KnowledgeNode> read(final String filename) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.READ)) {
+            final MappedInput in = new MappedInput(channel);
+            final ByteBuffer header = in.require(2 * Integer.BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a KNN snapshot: " + filename);
+            }
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(
+                        "Unsupported KNN snapshot version: " + version);
+            }
+            final Tag[] tags = readTables(in);
+            final int count = in.require(Integer.BYTES).getInt();
+            final List<KnowledgeNode> knowledgeNodes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                knowledgeNodes.add(readKnowledgeNode(in, tags));
+            }
+            return knowledgeNodes;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (final RuntimeException e) {
+            throw new UncheckedIOException(new IOException(
+                    "Invalid KNN snapshot: " + filename, e));
+        }
+    }
+
+    /**
+     * Writes a KN, whose Tags were added to the given table.
+     *
+     * @param kn    the KN
+     * @param table the Tag table
+     * @param out   the output
+     * @throws IOException if writing the output fails
+     */
+    static void writeKnowledgeNode(
+            final KnowledgeNode kn,
+            final TagTable table,
+            final DataOutput out) throws IOException {
+        out.writeInt(table.getId(kn.getInputTag()));
+        out.writeInt(kn.getThreshold());
+        out.writeDouble(kn.getBelief());
+        out.writeInt(kn.getStrength());
+        out.writeInt(kn.getOutputTags().size());
+        for (final Tag outputTag : kn.getOutputTags()) {
+            out.writeInt(table.getId(outputTag));
+        }
+    }
+
+    /**
+     * Reads the String and Tag tables written by
+     * {@link TagTable#write(DataOutput)}.
+     *
+     * @param in the input
+     * @return the Tags, by ID
+     * @throws IOException if the input is too short
+     */
+    static Tag[] readTables(final Input in) throws IOException {
+        final String[] strings = new String[in.require(Integer.BYTES).getInt()];
+        byte[] bytes = new byte[0];
+        for (int i = 0; i < strings.length; i++) {
+            final int length = in.require(Integer.BYTES).getInt();
+            if (bytes.length < length) {
+                bytes = new byte[length];
+            }
+            in.require(length).get(bytes, 0, length);
+            strings[i] =
+                    new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        final Tag[] tags = new Tag[in.require(Integer.BYTES).getInt()];
+        for (int i = 0; i < tags.length; i++) {
+            final int length = in.require(Integer.BYTES).getInt();
+            final ByteBuffer buffer = in.require(length);
+            final int end = buffer.position() + length;
+            tags[i] = TagCodec.read(buffer, id -> strings[id], id -> tags[id]);
+            if (buffer.position() != end) {
+                throw new IOException("Invalid length of Tag " + i);
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Reads a KN written by
+     * {@link #writeKnowledgeNode(KnowledgeNode, TagTable, DataOutput)}.
+     *
+     * @param in   the input
+     * @param tags the Tags, by ID
+     * @return the KN
+     * @throws IOException if the input is too short
+     */
+    static KnowledgeNode readKnowledgeNode(
+            final Input in,
+            final Tag[] tags) throws IOException {
+        ByteBuffer buffer = in.require(KN_HEADER_SIZE);
+        final Tag inputTag = tags[buffer.getInt()];
+        final int threshold = buffer.getInt();
+        final double belief = buffer.getDouble();
+        final int strength = buffer.getInt();
+        final int outputCount = buffer.getInt();
+        final Set<Tag> outputTags = new HashSet<>();
+        buffer = in.require(outputCount * Integer.BYTES);
+        for (int j = 0; j < outputCount; j++) {
+            outputTags.add(tags[buffer.getInt()]);
+        }
+        return new KnowledgeNode(
+                inputTag, outputTags, threshold, belief, strength);
+    }
+
+    /**
+     * Sequential input of a snapshot or of a record.
+     */
+    interface Input {
+        /**
+         * Makes sure the given number of bytes can be read from the returned
+         * buffer.
+         *
+         * @param length the number of bytes to read
+         * @return the buffer, positioned at the bytes to read
+         * @throws IOException if the length is invalid or the input is too
+         *                     short
+         */
+        ByteBuffer require(int length) throws IOException;
+
+        /**
+         * Creates an input reading the remaining bytes of a buffer.
+         *
+         * @param buffer the buffer
+         * @return the input
+         */
+        static Input of(final ByteBuffer buffer) {
+            return length -> {
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new EOFException("Truncated record");
+                }
+                return buffer;
+            };
+        }
+    }
+
+    /**
+     * The String and Tag tables of a snapshot or a record being written.
+     */
+    static final class TagTable {
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final Map<ByteBuffer, Integer> idsByEncoding = new HashMap<>();
+        private final List<byte[]> encodings = new ArrayList<>();
+        private final Map<Tag, Integer> tagIds = new IdentityHashMap<>();
+        private final ByteArrayOutputStream encoding =
+                new ByteArrayOutputStream();
+        private final DataOutputStream encodingOut =
+                new DataOutputStream(encoding);
+
+        /**
+         * Adds the Tags of a KN.
+         *
+         * @param kn the KN
+         */
+        void add(final KnowledgeNode kn) {
+            add(kn.getInputTag());
+            kn.getOutputTags().forEach(this::add);
+        }
+
+        /**
+         * Adds a Tag, its Strings and the Tags it refers to.
+         *
+         * @param tag the Tag
+         */
+        void add(final Tag tag) {
+            if (tagIds.containsKey(tag)) {
+                return;
+            }
+            TagCodec.forEachTag(tag, this::add);
+            TagCodec.forEachString(tag, this::addString);
+            encoding.reset();
+            try {
+                TagCodec.write(tag, encodingOut, stringIds::get, tagIds::get);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            final byte[] bytes = encoding.toByteArray();
+            Integer id = idsByEncoding.get(ByteBuffer.wrap(bytes));
+            if (id == null) {
+                id = encodings.size();
+                encodings.add(bytes);
+                idsByEncoding.put(ByteBuffer.wrap(bytes), id);
+            }
+            tagIds.put(tag, id);
+        }
+
+        /**
+         * Adds a String.
+         *
+         * @param string the String
+         */
+        private void addString(final String string) {
+            if (!stringIds.containsKey(string)) {
+                stringIds.put(string, strings.size());
+                strings.add(string);
+            }
+        }
+
+        /**
+         * @param tag a Tag which was added
+         * @return the ID of the Tag
+         */
+        int getId(final Tag tag) {
+            return tagIds.get(tag);
+        }
+
+        /**
+         * Writes the String table, then the Tag table.
+         *
+         * @param out the output
+         * @throws IOException if writing the output fails
+         */
+        void write(final DataOutput out) throws IOException {
+            out.writeInt(strings.size());
+            for (final String string : strings) {
+                final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt(encodings.size());
+            for (final byte[] bytes : encodings) {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Sequential input over memory-mapped windows of a file.
+     */
+    private static final class MappedInput implements Input {
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        /**
+         * Creates an input at the start of a file.
+         *
+         * @param channel the channel of the file
+         * @throws IOException if mapping the file fails
+         */
+        private MappedInput(final FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        /**
+         * Makes sure the given number of bytes can be read from the returned
+         * buffer, mapping the next window of the file if needed.
+         *
+         * @param length the number of bytes to read
+         * @return the buffer, positioned at the bytes to read
+         * @throws IOException if the length is invalid, the file is too short
+         *                     or mapping it fails
+         */
+        @Override
+        public ByteBuffer require(final int length) throws IOException {
+            if (length < 0 || length > WINDOW_SIZE) {
+                throw new IOException("Invalid record length: " + length);
+            }
+            if (window.remaining() < length) {
+                final long position = windowStart + window.position();
+                if (size - position < length) {
+                    throw new EOFException("Truncated KNN snapshot");
+                }
+                map(position);
+            }
+            return window;
+        }
+
+        /**
+         * Maps the window of the file starting at the given position.
+         *
+         * @param position the position of the window in the file
+         * @throws IOException if mapping the file fails
+         */
+        private void map(final long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(WINDOW_SIZE, size - position));
+        }
+    }
+}
@@ -1,8 +1,17 @@
 package knn.internal;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import knn.api.KnowledgeNode;
 import tags.Tag;
 
 /**
@@ -25,4 +34,158 @@ class LambdaSearcher extends Searcher<Set<Tag>> {
         final Set<Tag> backwardTags = backwardSearcher.search(inputTags, ply);
         return forwardSearcher.search(backwardTags, ply);
     }
+
+    /**
+     * Performs ranked lambda search. The best Tags of ranked backward search
+     * are searched forward one at a time, best first, until enough Tags are
+     * activated.
+     *
+     * @param inputTags the input Tags of the search
+     * @param ply       the ply of the search. If set to 0, the search
+     *                  continues until quiescence.
+     * @param limit     the maximum number of Tags to return
+     * @return the activated Tags, in the order of the backward Tags they were
+     * activated from
+     * @throws IllegalArgumentException if the limit is not positive
+     * @see BackwardSearcher#searchRanked(Set, double, int)
+     */
+    List<Tag> searchRanked(final Set<Tag> inputTags,
+                           final double ply,
+                           final int limit) {
+        final List<Tag> backwardTags =
+                backwardSearcher.searchRanked(inputTags, ply, limit);
+        return searchForwardRanked(backwardTags, limit,
+                t -> forwardSearcher.search(Collections.singleton(t), ply));
+    }
+
+    /**
+     * Performs bidirectional lambda search towards the given goal Tags.
+     * Instead of searching forward from every Tag found by backward search,
+     * the backward frontier grows from the input Tags while a second
+     * frontier grows from the goal Tags, through the KNs producing them which
+     * fire on their first excitation. The smaller frontier is always grown
+     * by one ply, and the search stops as soon as the frontiers meet, or when
+     * both are empty or have spent their ply. Each frontier only holds the
+     * Tags it newly reaches, and the active Tags are left unchanged.
+     *
+     * @param inputTags   the input Tags of the search
+     * @param goalTags    the goal Tags of the search
+     * @param ply         the ply of each direction of the search. If set to
+     *                    0, the search continues until quiescence.
+     * @param backwardPly a single ply of backward search
+     * @param producers   the KNs producing an output Tag
+     * @return the Tags found by backward search from the input Tags which are
+     * goal Tags or lead to one, in the ply in which the frontiers meet, or an
+     * empty set if they do not meet
+     */
+    static Set<Tag> searchBidirectional(
+            final Set<Tag> inputTags,
+            final Set<Tag> goalTags,
+            final double ply,
+            final UnaryOperator<Set<Tag>> backwardPly,
+            final Function<Tag, Collection<KnowledgeNode>> producers) {
+        final double plyCount = getPlyCount(ply);
+        final Set<Tag> backwardTags = new HashSet<>();
+        final Set<Tag> leadingTags = new HashSet<>(goalTags);
+        Set<Tag> backwardFrontier = new HashSet<>(inputTags);
+        Set<Tag> goalFrontier = new HashSet<>(goalTags);
+        int backwardPlyCount = 0;
+        int goalPlyCount = 0;
+        while (true) {
+            final boolean canGrowBackward = backwardPlyCount < plyCount
+                    && !backwardFrontier.isEmpty();
+            final boolean canGrowGoal = goalPlyCount < plyCount
+                    && !goalFrontier.isEmpty();
+            final Set<Tag> meetingTags = new HashSet<>();
+            if (canGrowBackward && (!canGrowGoal
+                    || backwardFrontier.size() <= goalFrontier.size())) {
+                backwardFrontier =
+                        new HashSet<>(backwardPly.apply(backwardFrontier));
+                backwardFrontier.removeAll(backwardTags);
+                backwardTags.addAll(backwardFrontier);
+                backwardPlyCount++;
+                collectMeetingTags(backwardFrontier, leadingTags,
+                        meetingTags);
+            } else if (canGrowGoal) {
+                goalFrontier = searchProducers(goalFrontier, leadingTags,
+                        producers);
+                goalPlyCount++;
+                collectMeetingTags(goalFrontier, backwardTags, meetingTags);
+            } else {
+                return Collections.emptySet();
+            }
+            if (!meetingTags.isEmpty()) {
+                return Collections.unmodifiableSet(meetingTags);
+            }
+        }
+    }
+
+    /**
+     * Grows the frontier of the goal Tags by one ply.
+     *
+     * @param frontier    the Tags reached in the previous ply
+     * @param leadingTags the Tags reached so far, which are updated
+     * @param producers   the KNs producing an output Tag
+     * @return the input Tags of the KNs producing the frontier which fire on
+     * their first excitation, and were not reached before
+     */
+    private static Set<Tag> searchProducers(
+            final Set<Tag> frontier,
+            final Set<Tag> leadingTags,
+            final Function<Tag, Collection<KnowledgeNode>> producers) {
+        final Set<Tag> reachedTags = new HashSet<>();
+        for (final Tag t : frontier) {
+            for (final KnowledgeNode kn : producers.apply(t)) {
+                if (ReachabilityIndex.isLink(kn)
+                        && leadingTags.add(kn.getInputTag())) {
+                    reachedTags.add(kn.getInputTag());
+                }
+            }
+        }
+        return reachedTags;
+    }
+
+    /**
+     * Collects the Tags newly reached by a frontier which the other frontier
+     * has already reached.
+     *
+     * @param frontier    the Tags newly reached by a frontier
+     * @param otherTags   the Tags reached by the other frontier
+     * @param meetingTags the meeting Tags, which are updated
+     */
+    private static void collectMeetingTags(final Set<Tag> frontier,
+                                           final Set<Tag> otherTags,
+                                           final Set<Tag> meetingTags) {
+        for (final Tag t : frontier) {
+            if (otherTags.contains(t)) {
+                meetingTags.add(t);
+            }
+        }
+    }
+
+    /**
+     * Searches forward from ranked Tags one at a time, best first, and stops
+     * as soon as enough Tags are activated.
+     *
+     * @param rankedTags    the ranked Tags, best first
+     * @param limit         the maximum number of Tags to return
+     * @param forwardSearch the forward search from a single Tag
+     * @return the activated Tags, in the order of the Tags they were
+     * activated from
+     */
+    static List<Tag> searchForwardRanked(
+            final List<Tag> rankedTags,
+            final int limit,
+            final Function<Tag, Set<Tag>> forwardSearch) {
+        final Set<Tag> activatedTags = new LinkedHashSet<>();
+        for (final Tag t : rankedTags) {
+            if (activatedTags.size() >= limit) {
+                break;
+            }
+            activatedTags.addAll(forwardSearch.apply(t));
+        }
+        final List<Tag> limitedTags = new ArrayList<>(activatedTags);
+        return Collections.unmodifiableList(limitedTags.subList(0,
+                Math.min(limit, limitedTags.size())));
+    }
 }
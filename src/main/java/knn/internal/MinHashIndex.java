@@ -0,0 +1,249 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * Locality-sensitive hashing index of the output Tag sets of KNs. Used during
+ * approximate backward search in the KNN to only visit the KNs whose output
+ * Tags are likely to overlap with the search input.
+ * <p>
+ * The output Tags of each KN are summarized by a MinHash signature of
+ * {@value #BANDS} x {@value #ROWS} hashes, such that two Tag sets agree on a
+ * hash with probability equal to their Jaccard similarity. The signature is
+ * split into {@value #BANDS} bands of {@value #ROWS} rows, and each band is
+ * hashed into a bucket. A Tag set with Jaccard similarity {@code s} to the
+ * output Tags of a KN therefore shares a bucket with the KN in one of
+ * {@code b} bands with probability {@code 1 - (1 - s^ROWS)^b}. Probing more
+ * bands raises the recall at the cost of more candidates.
+ * <p>
+ * Signatures are not stored, but recomputed when a KN is removed. KNs are
+ * held by identity, since their hash code changes as they are excited. The
+ * index is not thread-safe.
+ */
+class MinHashIndex implements KnowledgeGraphListener {
+    /**
+     * Number of bands of a signature.
+     */
+    static final int BANDS = 32;
+    /**
+     * Number of hashes in each band of a signature.
+     */
+    static final int ROWS = 2;
+    private static final int SIGNATURE_LENGTH = BANDS * ROWS;
+    private static final long SEED = 42;
+    private static final long BUCKET_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final long[] multipliers;
+    private final long[] increments;
+    private final List<Map<Long, Set<KnowledgeNode>>> buckets;
+    private final TreeMap<Integer, Integer> outputCounts;
+    private int size;
+
+    /**
+     * Creates an empty index.
+     */
+    MinHashIndex() {
+        this.multipliers = new long[SIGNATURE_LENGTH];
+        this.increments = new long[SIGNATURE_LENGTH];
+        final SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            multipliers[i] = random.nextLong();
+            increments[i] = random.nextLong();
+        }
+        this.buckets = new ArrayList<>(BANDS);
+        for (int i = 0; i < BANDS; i++) {
+            buckets.add(new HashMap<>());
+        }
+        this.outputCounts = new TreeMap<>();
+    }
+
+    /**
+     * Indexes the output Tags of the given KN. KNs without output Tags are
+     * not indexed, since they cannot match any input.
+     *
+     * @param kn the KN to index
+     */
+    @Override
+    public void add(final KnowledgeNode kn) {
+        final Set<Tag> outputTags = kn.getOutputTags();
+        if (outputTags.isEmpty()) {
+            return;
+        }
+        final int[] signature = getSignature(outputTags);
+        for (int band = 0; band < BANDS; band++) {
+            buckets.get(band).computeIfAbsent(getBucket(signature, band),
+                    k -> Collections.newSetFromMap(new IdentityHashMap<>()))
+                    .add(kn);
+        }
+        size++;
+        outputCounts.merge(outputTags.size(), 1, Integer::sum);
+    }
+
+    /**
+     * Removes the given KN from the index.
+     *
+     * @param kn the KN to remove
+     */
+    @Override
+    public void remove(final KnowledgeNode kn) {
+        final Set<Tag> outputTags = kn.getOutputTags();
+        if (outputTags.isEmpty()) {
+            return;
+        }
+        final int[] signature = getSignature(outputTags);
+        boolean removed = false;
+        for (int band = 0; band < BANDS; band++) {
+            final Long bucket = getBucket(signature, band);
+            final Set<KnowledgeNode> kns = buckets.get(band).get(bucket);
+            if (kns != null && kns.remove(kn)) {
+                removed = true;
+                if (kns.isEmpty()) {
+                    buckets.get(band).remove(bucket);
+                }
+            }
+        }
+        if (removed) {
+            size--;
+            final int kns = outputCounts.get(outputTags.size());
+            if (kns == 1) {
+                outputCounts.remove(outputTags.size());
+            } else {
+                outputCounts.put(outputTags.size(), kns - 1);
+            }
+        }
+    }
+
+    /**
+     * Removes all the KNs from the index.
+     */
+    @Override
+    public void clear() {
+        for (final Map<Long, Set<KnowledgeNode>> band : buckets) {
+            band.clear();
+        }
+        size = 0;
+        outputCounts.clear();
+    }
+
+    /**
+     * @return the number of indexed KNs
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the largest number of output Tags of the indexed KNs, or 0 if
+     * the index is empty
+     */
+    int getMaxOutputCount() {
+        if (outputCounts.isEmpty()) {
+            return 0;
+        }
+        return outputCounts.lastKey();
+    }
+
+    /**
+     * Gets the number of bands to probe so that a Tag set with the given
+     * Jaccard similarity to the output Tags of a KN finds the KN with at
+     * least the given probability.
+     *
+     * @param similarity the Jaccard similarity, between 0 and 1
+     * @param recall     the target probability, between 0 and 1
+     * @return the number of bands to probe, or -1 if probing all the bands
+     * does not reach the target
+     */
+    static int getBandCount(final double similarity, final double recall) {
+        final double bandMatch = Math.pow(similarity, ROWS);
+        double missed = 1;
+        for (int bands = 1; bands <= BANDS; bands++) {
+            missed *= 1 - bandMatch;
+            if (1 - missed >= recall) {
+                return bands;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the KNs sharing a bucket with the given Tags in one of the first
+     * bands.
+     *
+     * @param tags      the Tags
+     * @param bandCount the number of bands to probe
+     * @return the candidate KNs, which may not actually match the Tags
+     */
+    Collection<KnowledgeNode> getCandidates(
+            final Set<Tag> tags,
+            final int bandCount) {
+        if (tags.isEmpty()) {
+            return Collections.emptySet();
+        }
+        final int[] signature = getSignature(tags);
+        final Set<KnowledgeNode> candidates =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int band = 0; band < bandCount; band++) {
+            final Set<KnowledgeNode> kns =
+                    buckets.get(band).get(getBucket(signature, band));
+            if (kns != null) {
+                candidates.addAll(kns);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Computes the MinHash signature of the given Tags.
+     *
+     * @param tags the Tags, not empty
+     * @return the signature
+     */
+    private int[] getSignature(final Set<Tag> tags) {
+        final int[] signature = new int[SIGNATURE_LENGTH];
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            int min = Integer.MAX_VALUE;
+            for (final Tag t : tags) {
+                min = Math.min(min, hash(t.hashCode(), i));
+            }
+            signature[i] = min;
+        }
+        return signature;
+    }
+
+    /**
+     * @param signature a signature
+     * @param band      the band
+     * @return the bucket of the given band of the signature
+     */
+    private static Long getBucket(final int[] signature, final int band) {
+        long bucket = 0;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            bucket = bucket * BUCKET_MULTIPLIER + signature[row];
+        }
+        return bucket;
+    }
+
+    /**
+     * Hashes a value with the given function of a multiply-shift family of
+     * universal hash functions.
+     *
+     * @param value    the value to hash
+     * @param function the index of the hash function
+     * @return the hash
+     */
+    private int hash(final int value, final int function) {
+        return (int) ((multipliers[function] * value + increments[function])
+                >>> Integer.SIZE);
+    }
+}
@@ -0,0 +1,129 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * Reverse index from output Tags to the KNs producing them. Used during
+ * backward search in the KNN to only visit the KNs sharing at least one output
+ * Tag with the search input.
+ * <p>
+ * KNs are held by identity, since their hash code changes as they are
+ * excited. Secondary indexes, such as a {@link MinHashIndex}, can be attached
+ * to the index, to be kept up to date with it.
+ */
+class OutputTagIndex {
+    private final Map<Tag, Set<KnowledgeNode>> producers = new HashMap<>();
+    private final List<KnowledgeGraphListener> listeners = new ArrayList<>();
+    /**
+     * Number of changes to the index. Read without locking by concurrent
+     * searches, so that cached results can be validated.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Indexes the output Tags of the given KN.
+     *
+     * @param kn the KN to index
+     */
+    void add(final KnowledgeNode kn) {
+        version.incrementAndGet();
+        for (final KnowledgeGraphListener listener : listeners) {
+            listener.add(kn);
+        }
+        for (final Tag t : kn.getOutputTags()) {
+            producers.computeIfAbsent(t, k -> Collections.newSetFromMap(
+                    new IdentityHashMap<>())).add(kn);
+        }
+    }
+
+    /**
+     * Removes the given KN from the index.
+     *
+     * @param kn the KN to remove
+     */
+    void remove(final KnowledgeNode kn) {
+        version.incrementAndGet();
+        for (final KnowledgeGraphListener listener : listeners) {
+            listener.remove(kn);
+        }
+        for (final Tag t : kn.getOutputTags()) {
+            final Set<KnowledgeNode> kns = producers.get(t);
+            if (kns != null) {
+                kns.remove(kn);
+                if (kns.isEmpty()) {
+                    producers.remove(t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all the KNs from the index.
+     */
+    void clear() {
+        version.incrementAndGet();
+        producers.clear();
+        for (final KnowledgeGraphListener listener : listeners) {
+            listener.clear();
+        }
+    }
+
+    /**
+     * Gets the version of the index, which changes whenever a KN is added to
+     * or removed from the index, i.e., whenever the structure of the KNN
+     * changes.
+     *
+     * @return the version of the index
+     */
+    long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Attaches a secondary index, which is filled with the KNs currently
+     * indexed, and then updated as KNs are added and removed.
+     *
+     * @param listener the empty secondary index
+     */
+    void attach(final KnowledgeGraphListener listener) {
+        final Set<KnowledgeNode> kns =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final Set<KnowledgeNode> tagProducers : producers.values()) {
+            kns.addAll(tagProducers);
+        }
+        listener.addAll(kns);
+        listeners.add(listener);
+    }
+
+    /**
+     * Detaches a secondary index, which is no longer updated.
+     *
+     * @param listener the secondary index
+     */
+    void detach(final KnowledgeGraphListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the KNs having the given Tag as output Tag.
+     *
+     * @param tag the output Tag
+     * @return the KNs producing the Tag
+     */
+    Set<KnowledgeNode> getProducers(final Tag tag) {
+        final Set<KnowledgeNode> kns = producers.get(tag);
+        if (kns == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(kns);
+    }
+}
@@ -0,0 +1,133 @@
+package knn.internal;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveAction;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * Searcher which performs forward search in the KNN, splitting the input Tags
+ * of each ply across the common fork-join pool.
+ * <p>
+ * Each ply runs in two phases. First, the KNs of the input Tags are looked up
+ * and excited in parallel. Since the input Tags of a ply are distinct, every
+ * KN is excited by exactly one task, and the KNN itself is only read. Then,
+ * the excitations are recorded sequentially by the direct searcher, which
+ * updates the recency list, expired KNs and active Tags exactly as sequential
+ * forward search does. The results are therefore identical to those of
+ * {@link ForwardSearcher}.
+ */
+class ParallelForwardSearcher extends ForwardSearcher {
+    /**
+     * Number of input Tags below which a task excites its KNs directly
+     * instead of splitting further.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 512;
+
+    private final DirectSearcher directSearcher;
+
+    @Inject
+    ParallelForwardSearcher(
+            @Assisted final DirectSearcher directSearcher) {
+        super(directSearcher);
+        this.directSearcher = directSearcher;
+    }
+
+    @Override
+    Set<Tag> searchInternal(final Set<Tag> inputTags, final double ply) {
+        final Set<Tag> allActivatedTags = new HashSet<>();
+        Set<Tag> currentPlyInputTags = new HashSet<>(inputTags);
+        for (int i = 0; i < ply && !currentPlyInputTags.isEmpty(); i++) {
+            final Set<Tag> activatedTags = searchPly(currentPlyInputTags);
+            allActivatedTags.addAll(activatedTags);
+            currentPlyInputTags = activatedTags;
+        }
+        return Collections.unmodifiableSet(allActivatedTags);
+    }
+
+    /**
+     * Performs a single ply of forward search.
+     *
+     * @param plyInputTags the input Tags of the ply
+     * @return the Tags activated during the ply
+     */
+    private Set<Tag> searchPly(final Set<Tag> plyInputTags) {
+        final Tag[] tags = plyInputTags.toArray(new Tag[plyInputTags.size()]);
+        final KnowledgeNode[] kns = new KnowledgeNode[tags.length];
+        final boolean[] fired = new boolean[tags.length];
+        final Set<Tag> activatedTags = ConcurrentHashMap.newKeySet();
+        new ExciteTask(tags, kns, fired, activatedTags, 0, tags.length)
+                .invoke();
+        for (int i = 0; i < tags.length; i++) {
+            directSearcher.record(tags[i], kns[i], fired[i]);
+        }
+        return new HashSet<>(activatedTags);
+    }
+
+    /**
+     * Fork-join task exciting the KNs of a range of input Tags.
+     */
+    private final class ExciteTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Tag[] tags;
+        private final KnowledgeNode[] kns;
+        private final boolean[] fired;
+        private final Set<Tag> activatedTags;
+        private final int from;
+        private final int to;
+
+        /**
+         * Creates the task.
+         *
+         * @param tags          the input Tags of the ply
+         * @param kns           the KNs of the input Tags, filled in by the task
+         * @param fired         whether each KN was newly fired, filled in by
+         *                      the task
+         * @param activatedTags the concurrent set of activated Tags
+         * @param from          the first index of the range (inclusive)
+         * @param to            the last index of the range (exclusive)
+         */
+        ExciteTask(
+                final Tag[] tags,
+                final KnowledgeNode[] kns,
+                final boolean[] fired,
+                final Set<Tag> activatedTags,
+                final int from,
+                final int to) {
+            this.tags = tags;
+            this.kns = kns;
+            this.fired = fired;
+            this.activatedTags = activatedTags;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    final KnowledgeNode kn =
+                            directSearcher.getKnowledgeNode(tags[i]);
+                    if (kn != null && directSearcher.excite(kn)) {
+                        fired[i] = true;
+                        activatedTags.addAll(kn.getOutputTags());
+                    }
+                    kns[i] = kn;
+                }
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(
+                        new ExciteTask(tags, kns, fired, activatedTags,
+                                from, middle),
+                        new ExciteTask(tags, kns, fired, activatedTags,
+                                middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkFactory;
+import knn.api.KnowledgeNodeRecencyList;
+import knn.api.KnowledgeNodeShardTransport;
+import knn.api.PartitionedKnowledgeNodeNetwork;
+import tags.Tag;
+
+/**
+ * Partitioned KNN running all its shards in the current process. The plies
+ * of a search are synchronized: every shard receives its input for a ply
+ * before any shard sends the Tags it activates for the next ply. This class
+ * is not thread-safe.
+ */
+class PartitionedKnowledgeNodeNetworkImpl
+        implements PartitionedKnowledgeNodeNetwork {
+    private final List<KnowledgeNodeNetwork> shards;
+    private final KnowledgeNodeShardTransport transport;
+
+    @Inject
+    PartitionedKnowledgeNodeNetworkImpl(
+            @Assisted("shardCount") final int shardCount,
+            @Assisted("transport") final KnowledgeNodeShardTransport transport,
+            final KnowledgeNodeNetworkFactory knowledgeNodeNetworkFactory) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException(
+                    "A partitioned KNN needs at least one shard: "
+                            + shardCount);
+        }
+        this.shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(knowledgeNodeNetworkFactory.create(
+                    new HashMap<>(), new HashSet<>(),
+                    new KnowledgeNodeRecencyList(), 1, Long.MAX_VALUE));
+        }
+        this.transport = transport;
+    }
+
+    @Override
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    @Override
+    public int getShard(final Tag tag) {
+        return Math.floorMod(tag.hashCode(), shards.size());
+    }
+
+    @Override
+    public void resetEmpty() {
+        shards.forEach(KnowledgeNodeNetwork::resetEmpty);
+    }
+
+    @Override
+    public List<KnowledgeNode> loadData(final String filename) {
+        final List<KnowledgeNode> knowledgeNodes =
+                KnowledgeNodeReader.read(filename).getKnowledgeNodes();
+        resetEmpty();
+        for (final KnowledgeNode kn : knowledgeNodes) {
+            getOwner(kn.getInputTag()).addKnowledgeNode(kn);
+        }
+        return knowledgeNodes;
+    }
+
+    @Override
+    public void addKnowledgeNode(final KnowledgeNode kn) {
+        deleteExpiredKnowledgeNodes();
+        getOwner(kn.getInputTag()).addKnowledgeNode(kn);
+    }
+
+    @Override
+    public void deleteKnowledgeNode(final Tag tag) {
+        deleteExpiredKnowledgeNodes();
+        getOwner(tag).deleteKnowledgeNode(tag);
+    }
+
+    @Override
+    public void deleteExpiredKnowledgeNodes() {
+        shards.forEach(KnowledgeNodeNetwork::deleteExpiredKnowledgeNodes);
+    }
+
+    @Override
+    public KnowledgeNode getKnowledgeNode(final Tag tag) {
+        return getOwner(tag).getKnowledgeNode(tag);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (final KnowledgeNodeNetwork shard : shards) {
+            size += shard.getKnowledgeNodes().size();
+        }
+        return size;
+    }
+
+    @Override
+    public void clearActiveTags() {
+        shards.forEach(KnowledgeNodeNetwork::clearActiveTags);
+    }
+
+    @Override
+    public Set<Tag> getActiveTags() {
+        final Set<Tag> activeTags = new HashSet<>();
+        for (final KnowledgeNodeNetwork shard : shards) {
+            activeTags.addAll(shard.getActiveTags());
+        }
+        return Collections.unmodifiableSet(activeTags);
+    }
+
+    @Override
+    public void setBackwardSearchMatchRatio(final double ratio) {
+        for (final KnowledgeNodeNetwork shard : shards) {
+            shard.setBackwardSearchMatchRatio(ratio);
+        }
+    }
+
+    @Override
+    public Set<Tag> forwardSearch(final Set<Tag> inputTags, final int ply) {
+        final double plyCount = Searcher.getPlyCount(ply);
+        final Set<Tag> allActivatedTags = new HashSet<>();
+        sendToOwners(inputTags);
+        for (int i = 0; i < plyCount; i++) {
+            final List<Set<Tag>> inputs = receiveAll();
+            if (isEmpty(inputs)) {
+                break;
+            }
+            for (int shard = 0; shard < shards.size(); shard++) {
+                if (inputs.get(shard).isEmpty()) {
+                    continue;
+                }
+                final Set<Tag> activatedTags =
+                        shards.get(shard).forwardSearch(inputs.get(shard), 1);
+                allActivatedTags.addAll(activatedTags);
+                if (i + 1 < plyCount) {
+                    sendToOwners(activatedTags);
+                }
+            }
+        }
+        return Collections.unmodifiableSet(allActivatedTags);
+    }
+
+    @Override
+    public Set<Tag> backwardSearch(final Set<Tag> inputTags, final int ply) {
+        final double plyCount = Searcher.getPlyCount(ply);
+        final Set<Tag> allActivatedTags = new HashSet<>();
+        sendToAll(inputTags);
+        for (int i = 0; i < plyCount; i++) {
+            final List<Set<Tag>> inputs = receiveAll();
+            if (isEmpty(inputs)) {
+                break;
+            }
+            for (int shard = 0; shard < shards.size(); shard++) {
+                // Every shard receives the whole ply, so that matches are
+                // counted against all its Tags.
+                final Set<Tag> activatedTags = shards.get(shard)
+                        .batchBackwardSearch(
+                                Collections.singletonList(inputs.get(shard)),
+                                1)
+                        .get(0);
+                allActivatedTags.addAll(activatedTags);
+                if (i + 1 < plyCount && !activatedTags.isEmpty()) {
+                    sendToAll(activatedTags);
+                }
+            }
+        }
+        allActivatedTags.removeAll(getActiveTags());
+        for (final Tag t : allActivatedTags) {
+            getOwner(t).addActiveTag(t);
+        }
+        return Collections.unmodifiableSet(allActivatedTags);
+    }
+
+    @Override
+    public Set<Tag> lambdaSearch(final Set<Tag> inputTags, final int ply) {
+        return forwardSearch(backwardSearch(inputTags, ply), ply);
+    }
+
+    /**
+     * @param tag a Tag
+     * @return the shard owning the Tag
+     */
+    private KnowledgeNodeNetwork getOwner(final Tag tag) {
+        return shards.get(getShard(tag));
+    }
+
+    /**
+     * Sends each of the given Tags to the shard owning it, in one message per
+     * shard.
+     *
+     * @param tags the Tags to send
+     */
+    private void sendToOwners(final Set<Tag> tags) {
+        final Map<Integer, Set<Tag>> messages = new HashMap<>();
+        for (final Tag t : tags) {
+            messages.computeIfAbsent(getShard(t), k -> new HashSet<>()).add(t);
+        }
+        for (final Map.Entry<Integer, Set<Tag>> message
+                : messages.entrySet()) {
+            transport.send(message.getKey(), message.getValue());
+        }
+    }
+
+    /**
+     * Sends the given Tags to every shard.
+     *
+     * @param tags the Tags to send
+     */
+    private void sendToAll(final Set<Tag> tags) {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            transport.send(shard, tags);
+        }
+    }
+
+    /**
+     * Receives the input of every shard for the next ply.
+     *
+     * @return the received Tags of each shard
+     */
+    private List<Set<Tag>> receiveAll() {
+        final List<Set<Tag>> inputs = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            inputs.add(transport.receive(shard));
+        }
+        return inputs;
+    }
+
+    /**
+     * @param inputs the received Tags of each shard
+     * @return true if no shard received any Tag
+     */
+    private static boolean isEmpty(final List<Set<Tag>> inputs) {
+        for (final Set<Tag> tags : inputs) {
+            if (!tags.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,424 @@
+package knn.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import tags.Tag;
+
+/**
+ * Reachability index over the graph of the KNN, where each KN links its input
+ * Tag to its output Tags. Used during read-only forward search until
+ * quiescence, which activates exactly the Tags reachable from its input when
+ * none of the KNs it excites needs several excitations to fire.
+ * <p>
+ * The graph is condensed into its strongly connected components, found with
+ * Tarjan's algorithm, and the components reachable from each component are
+ * stored in a bit set. The Tags reachable from a set of Tags are then the
+ * union of the closures of their components, without traversal. The closures
+ * take up to one bit per pair of components, e.g. about 1.2 GB for 100,000
+ * components, so the index is meant for KNNs whose Tags mostly lie on a few
+ * large cycles.
+ * <p>
+ * Added KNs are inserted incrementally: each new link from a component to
+ * another is propagated to the closures of the components reaching it. A
+ * removed KN which is not part of a cycle only updates the closures of the
+ * components reaching it. A link closing a cycle, or a removed KN of a cycle,
+ * invalidates the condensation, which is rebuilt on the next query, as do
+ * the KNs added when the index is attached. The index is thread-safe.
+ */
+class ReachabilityIndex implements KnowledgeGraphListener {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int[] NO_IDS = new int[0];
+
+    private final TagDictionary dictionary = new TagDictionary();
+    private KnowledgeNode[] nodes = new KnowledgeNode[INITIAL_CAPACITY];
+    private int[][] successors = new int[INITIAL_CAPACITY][];
+    /**
+     * IDs of the input Tags of the KNs which need several excitations to
+     * fire.
+     */
+    private final BitSet slowTags = new BitSet();
+
+    private int[] components = new int[INITIAL_CAPACITY];
+    /**
+     * Number of Tag IDs assigned to a component.
+     */
+    private int componentTagCount;
+    private final List<int[]> members = new ArrayList<>();
+    private final List<BitSet> closures = new ArrayList<>();
+    private boolean stale;
+
+    @Override
+    public synchronized void add(final KnowledgeNode kn) {
+        final int id = dictionary.intern(kn.getInputTag());
+        if (id < nodes.length && nodes[id] != null) {
+            remove(nodes[id]);
+        }
+        final int[] outputIds;
+        if (isLink(kn)) {
+            outputIds = new int[kn.getOutputTags().size()];
+            int i = 0;
+            for (final Tag t : kn.getOutputTags()) {
+                outputIds[i++] = dictionary.intern(t);
+            }
+        } else {
+            if (kn.getThreshold() > KnowledgeNode.ACTIVATION_INCREMENT) {
+                slowTags.set(id);
+            }
+            outputIds = NO_IDS;
+        }
+        ensureCapacity(dictionary.size());
+        nodes[id] = kn;
+        successors[id] = outputIds;
+        if (!stale) {
+            addComponents();
+            for (final int outputId : outputIds) {
+                link(id, outputId);
+            }
+        }
+    }
+
+    /**
+     * Adds the given KNs at once, rebuilding the condensation on the next
+     * query rather than inserting each KN incrementally.
+     *
+     * @param kns the added KNs
+     */
+    @Override
+    public synchronized void addAll(final Collection<KnowledgeNode> kns) {
+        stale = true;
+        kns.forEach(this::add);
+    }
+
+    @Override
+    public synchronized void remove(final KnowledgeNode kn) {
+        final int id = dictionary.getId(kn.getInputTag());
+        if (id == TagDictionary.NO_ID || nodes[id] != kn) {
+            return;
+        }
+        slowTags.clear(id);
+        nodes[id] = null;
+        final boolean isLinked = successors[id].length > 0;
+        successors[id] = NO_IDS;
+        if (!isLinked || stale) {
+            return;
+        }
+        final int component = components[id];
+        if (members.get(component).length > 1
+                || closures.get(component).get(component)) {
+            stale = true; // The KN is part of a cycle.
+        } else {
+            unlink(component);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        dictionary.clear();
+        nodes = new KnowledgeNode[INITIAL_CAPACITY];
+        successors = new int[INITIAL_CAPACITY][];
+        components = new int[INITIAL_CAPACITY];
+        members.clear();
+        closures.clear();
+        componentTagCount = 0;
+        slowTags.clear();
+        stale = false;
+    }
+
+    /**
+     * Gets the Tags reachable from the given Tags through at least one KN.
+     * The given Tags are only included if they lie on a cycle.
+     *
+     * @param tags the Tags
+     * @return the reachable Tags
+     */
+    synchronized Set<Tag> getReachableTags(final Set<Tag> tags) {
+        final Set<Tag> reachableTags = new HashSet<>();
+        final BitSet reachableComponents = getReachableComponents(tags);
+        for (int c = reachableComponents.nextSetBit(0); c >= 0;
+             c = reachableComponents.nextSetBit(c + 1)) {
+            for (final int id : members.get(c)) {
+                reachableTags.add(dictionary.getTag(id));
+            }
+        }
+        return reachableTags;
+    }
+
+    /**
+     * Gets the result of read-only forward search until quiescence from the
+     * given Tags, i.e., the Tags reachable from them, unless the search could
+     * excite a KN which needs several excitations to fire. The reachable Tags
+     * are then not exact, and the KNN must be traversed instead.
+     *
+     * @param tags the input Tags of the search
+     * @return the reachable Tags, or nothing if a reachable Tag is the input
+     * Tag of a KN which needs several excitations to fire
+     */
+    synchronized Optional<Set<Tag>> getExactReachableTags(
+            final Set<Tag> tags) {
+        final Set<Tag> reachableTags = new HashSet<>();
+        final BitSet reachableComponents = getReachableComponents(tags);
+        for (int c = reachableComponents.nextSetBit(0); c >= 0;
+             c = reachableComponents.nextSetBit(c + 1)) {
+            for (final int id : members.get(c)) {
+                if (slowTags.get(id)) {
+                    return Optional.empty();
+                }
+                reachableTags.add(dictionary.getTag(id));
+            }
+        }
+        return Optional.of(reachableTags);
+    }
+
+    /**
+     * Checks if the given KN links its input Tag to its output Tags, i.e., if
+     * it fires on its first excitation.
+     *
+     * @param kn the KN
+     * @return true if the KN fires on its first excitation
+     */
+    static boolean isLink(final KnowledgeNode kn) {
+        return kn.getThreshold() > 0
+                && kn.getThreshold() <= KnowledgeNode.ACTIVATION_INCREMENT;
+    }
+
+    /**
+     * Gets the components reachable from the given Tags, rebuilding the
+     * condensation first if it is stale.
+     *
+     * @param tags the Tags
+     * @return the reachable components
+     */
+    private BitSet getReachableComponents(final Set<Tag> tags) {
+        if (stale) {
+            rebuild();
+        }
+        final BitSet reachableComponents = new BitSet(closures.size());
+        for (final Tag t : tags) {
+            final int id = dictionary.getId(t);
+            if (id != TagDictionary.NO_ID) {
+                reachableComponents.or(closures.get(components[id]));
+            }
+        }
+        return reachableComponents;
+    }
+
+    /**
+     * Adds a singleton component for every Tag without a component.
+     */
+    private void addComponents() {
+        for (int id = componentTagCount; id < dictionary.size(); id++) {
+            components[id] = closures.size();
+            members.add(new int[]{id});
+            closures.add(new BitSet());
+        }
+        componentTagCount = dictionary.size();
+    }
+
+    /**
+     * Propagates a new link between two Tags to the closures, unless it
+     * closes a new cycle, in which case the index is marked as stale.
+     *
+     * @param from the ID of the input Tag
+     * @param to   the ID of the output Tag
+     */
+    private void link(final int from, final int to) {
+        final int fromComponent = components[from];
+        final int toComponent = components[to];
+        final BitSet fromClosure = closures.get(fromComponent);
+        if (fromClosure.get(toComponent)) {
+            return; // Already reachable.
+        }
+        if (fromComponent == toComponent
+                || closures.get(toComponent).get(fromComponent)) {
+            stale = true; // The link closes a new cycle.
+            return;
+        }
+        final BitSet reached = (BitSet) closures.get(toComponent).clone();
+        reached.set(toComponent);
+        for (final BitSet closure : closures) {
+            if (closure.get(fromComponent)) {
+                closure.or(reached);
+            }
+        }
+        fromClosure.or(reached);
+    }
+
+    /**
+     * Recomputes the closures after the links of a component outside any
+     * cycle are removed. The condensation is unchanged, and only the closures
+     * of the components reaching the component are recomputed, from the
+     * closures of their successors.
+     *
+     * @param component the component which lost its links
+     */
+    private void unlink(final int component) {
+        final BitSet affected = new BitSet(closures.size());
+        for (int c = 0; c < closures.size(); c++) {
+            if (closures.get(c).get(component)) {
+                affected.set(c);
+            }
+        }
+        closures.get(component).clear();
+        final BitSet recomputed = new BitSet(closures.size());
+        final Deque<Integer> stack = new ArrayDeque<>();
+        for (int c = affected.nextSetBit(0); c >= 0;
+             c = affected.nextSetBit(c + 1)) {
+            // Iterative depth-first search over the condensation, which has
+            // no cycle, so that successors are recomputed first.
+            stack.push(c);
+            while (!stack.isEmpty()) {
+                final int current = stack.peek();
+                if (recomputed.get(current)) {
+                    stack.pop();
+                    continue;
+                }
+                boolean isReady = true;
+                for (final int id : members.get(current)) {
+                    for (final int next : getSuccessors(id)) {
+                        final int nextComponent = components[next];
+                        if (nextComponent != current
+                                && affected.get(nextComponent)
+                                && !recomputed.get(nextComponent)) {
+                            stack.push(nextComponent);
+                            isReady = false;
+                        }
+                    }
+                }
+                if (isReady) {
+                    closures.set(current, computeClosure(current));
+                    recomputed.set(current);
+                    stack.pop();
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the condensation and the closures from scratch.
+     */
+    private void rebuild() {
+        final int size = dictionary.size();
+        Arrays.fill(components, 0, size, -1);
+        members.clear();
+        closures.clear();
+        final int[] indexes = new int[size];
+        final int[] lowLinks = new int[size];
+        final boolean[] onStack = new boolean[size];
+        final int[] stack = new int[size];
+        final int[] callStack = new int[size];
+        final int[] nextSuccessors = new int[size];
+        Arrays.fill(indexes, -1);
+        int index = 0;
+        int stackSize = 0;
+        for (int root = 0; root < size; root++) {
+            if (indexes[root] >= 0) {
+                continue;
+            }
+            // Iterative depth-first search, to support long chains of KNs.
+            int depth = 0;
+            callStack[depth++] = root;
+            indexes[root] = index;
+            lowLinks[root] = index++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while (depth > 0) {
+                final int id = callStack[depth - 1];
+                final int[] outputIds = getSuccessors(id);
+                if (nextSuccessors[id] < outputIds.length) {
+                    final int next = outputIds[nextSuccessors[id]++];
+                    if (indexes[next] < 0) {
+                        callStack[depth++] = next;
+                        indexes[next] = index;
+                        lowLinks[next] = index++;
+                        stack[stackSize++] = next;
+                        onStack[next] = true;
+                    } else if (onStack[next]) {
+                        lowLinks[id] = Math.min(lowLinks[id], indexes[next]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (depth > 0) {
+                    final int parent = callStack[depth - 1];
+                    lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[id]);
+                }
+                if (lowLinks[id] == indexes[id]) {
+                    // Components are completed after all their successors.
+                    int memberCount = 0;
+                    while (stack[stackSize - 1 - memberCount] != id) {
+                        memberCount++;
+                    }
+                    memberCount++;
+                    final int[] component = Arrays.copyOfRange(stack,
+                            stackSize - memberCount, stackSize);
+                    stackSize -= memberCount;
+                    for (final int member : component) {
+                        onStack[member] = false;
+                        components[member] = members.size();
+                    }
+                    members.add(component);
+                    closures.add(computeClosure(members.size() - 1));
+                }
+            }
+        }
+        componentTagCount = size;
+        stale = false;
+    }
+
+    /**
+     * Computes the closure of a component, from the closures of the
+     * components it links to, which must be up to date.
+     *
+     * @param componentId the component
+     * @return the components reachable from the component
+     */
+    private BitSet computeClosure(final int componentId) {
+        final BitSet closure = new BitSet();
+        for (final int id : members.get(componentId)) {
+            for (final int next : getSuccessors(id)) {
+                if (components[next] == componentId) {
+                    closure.set(componentId); // The component is a cycle.
+                } else {
+                    closure.set(components[next]);
+                    closure.or(closures.get(components[next]));
+                }
+            }
+        }
+        return closure;
+    }
+
+    /**
+     * @param id the ID of a Tag
+     * @return the IDs of the Tags linked from the Tag
+     */
+    private int[] getSuccessors(final int id) {
+        if (successors[id] == null) {
+            return NO_IDS;
+        }
+        return successors[id];
+    }
+
+    /**
+     * Makes sure the arrays can be indexed by all IDs below the given
+     * capacity.
+     *
+     * @param capacity the number of IDs
+     */
+    private void ensureCapacity(final int capacity) {
+        if (capacity > nodes.length) {
+            final int newLength = Math.max(capacity, 2 * nodes.length);
+            nodes = Arrays.copyOf(nodes, newLength);
+            successors = Arrays.copyOf(successors, newLength);
+            components = Arrays.copyOf(components, newLength);
+        }
+    }
+}
@@ -26,9 +26,20 @@ abstract class Searcher<T> {
      * @return the Tags activated as a result of searching
      */
     Set<Tag> search(final T input, final double ply) {
+        return searchInternal(input, getPlyCount(ply));
+    }
+
+    /**
+     * Gets the number of plies to search for the given ply.
+     *
+     * @param ply the ply of the search. If set to 0, the search continues
+     *            until quiescence.
+     * @return the number of plies to search
+     */
+    static double getPlyCount(final double ply) {
         if (ply == 0) {
-            return searchInternal(input, Double.POSITIVE_INFINITY);
+            return Double.POSITIVE_INFINITY;
         }
-        return searchInternal(input, ply);
+        return ply;
     }
 }
@@ -0,0 +1,53 @@
+package knn.internal;
+
+import javax.inject.Inject;
+
+/**
+ * The Guice factories for the searchers of the KNN, injected together.
+ */
+final class SearcherFactories {
+    private final DirectSearcherFactory directSearcherFactory;
+    private final ForwardSearcherFactory forwardSearcherFactory;
+    private final BackwardSearcherFactory backwardSearcherFactory;
+    private final LambdaSearcherFactory lambdaSearcherFactory;
+
+    @Inject
+    SearcherFactories(
+            final DirectSearcherFactory directSearcherFactory,
+            final ForwardSearcherFactory forwardSearcherFactory,
+            final BackwardSearcherFactory backwardSearcherFactory,
+            final LambdaSearcherFactory lambdaSearcherFactory) {
+        this.directSearcherFactory = directSearcherFactory;
+        this.forwardSearcherFactory = forwardSearcherFactory;
+        this.backwardSearcherFactory = backwardSearcherFactory;
+        this.lambdaSearcherFactory = lambdaSearcherFactory;
+    }
+
+    /**
+     * @return the factory for the direct searcher
+     */
+    DirectSearcherFactory getDirectSearcherFactory() {
+        return directSearcherFactory;
+    }
+
+    /**
+     * @return the factory for the forward searcher
+     */
+    ForwardSearcherFactory getForwardSearcherFactory() {
+        return forwardSearcherFactory;
+    }
+
+    /**
+     * @return the factory for the backward searcher
+     */
+    BackwardSearcherFactory getBackwardSearcherFactory() {
+        return backwardSearcherFactory;
+    }
+
+    /**
+     * @return the factory for the lambda searcher
+     */
+    LambdaSearcherFactory getLambdaSearcherFactory() {
+        return lambdaSearcherFactory;
+    }
+}
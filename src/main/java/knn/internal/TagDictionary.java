@@ -0,0 +1,81 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import tags.Tag;
+
+/**
+ * Dictionary interning Tags to dense int IDs, starting at 0. IDs are never
+ * reused until the dictionary is cleared, so they can be used to index arrays
+ * and bit sets.
+ */
+class TagDictionary {
+    /**
+     * ID returned for Tags which are not in the dictionary.
+     */
+    static final int NO_ID = -1;
+
+    private final Map<Tag, Integer> ids = new HashMap<>();
+    private final List<Tag> tags = new ArrayList<>();
+
+    /**
+     * Gets the ID of the given Tag, assigning it a new ID if it is not already
+     * in the dictionary.
+     *
+     * @param tag the Tag to intern
+     * @return the ID of the Tag
+     */
+    int intern(final Tag tag) {
+        final Integer id = ids.get(tag);
+        if (id != null) {
+            return id;
+        }
+        final int newId = tags.size();
+        ids.put(tag, newId);
+        tags.add(tag);
+        return newId;
+    }
+
+    /**
+     * Gets the ID of the given Tag.
+     *
+     * @param tag the Tag
+     * @return the ID of the Tag, or {@link #NO_ID} if it is not in the
+     * dictionary
+     */
+    int getId(final Tag tag) {
+        final Integer id = ids.get(tag);
+        if (id == null) {
+            return NO_ID;
+        }
+        return id;
+    }
+
+    /**
+     * Gets the Tag with the given ID.
+     *
+     * @param id the ID
+     * @return the Tag with the given ID
+     */
+    Tag getTag(final int id) {
+        return tags.get(id);
+    }
+
+    /**
+     * @return the number of Tags in the dictionary, i.e., the next ID to be
+     * assigned
+     */
+    int size() {
+        return tags.size();
+    }
+
+    /**
+     * Removes all the Tags from the dictionary.
+     */
+    void clear() {
+        ids.clear();
+        tags.clear();
+    }
+}
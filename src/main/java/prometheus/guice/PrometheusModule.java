@@ -11,11 +11,44 @@ import prometheus.internal.PrometheusInternalModule;
  * Public Guice module for Prometheus.
  */
 public final class PrometheusModule extends AbstractModule {
+    private final KnowledgeNodeNetworkModule knowledgeNodeNetworkModule;
+    private final ExpertSystemModule expertSystemModule;
+
+    /**
+     * Creates the Prometheus module with the default KNN.
+     */
+    public PrometheusModule() {
+        this(new KnowledgeNodeNetworkModule());
+    }
+
+    /**
+     * Creates the Prometheus module with the given KNN module.
+     *
+     * @param knowledgeNodeNetworkModule the configured KNN module
+     */
+    public PrometheusModule(
+            final KnowledgeNodeNetworkModule knowledgeNodeNetworkModule) {
+        this(knowledgeNodeNetworkModule, new ExpertSystemModule());
+    }
+
+    /**
+     * Creates the Prometheus module with the given KNN and ES modules.
+     *
+     * @param knowledgeNodeNetworkModule the configured KNN module
+     * @param expertSystemModule         the configured ES module
+     */
+    public PrometheusModule(
+            final KnowledgeNodeNetworkModule knowledgeNodeNetworkModule,
+            final ExpertSystemModule expertSystemModule) {
+        this.knowledgeNodeNetworkModule = knowledgeNodeNetworkModule;
+        this.expertSystemModule = expertSystemModule;
+    }
+
     @Override
     protected void configure() {
         install(new NeuralNetworkModule());
-        install(new KnowledgeNodeNetworkModule());
-        install(new ExpertSystemModule());
+        install(knowledgeNodeNetworkModule);
+        install(expertSystemModule);
         install(new MetaReasonerModule());
 
         install(new PrometheusInternalModule());
@@ -3,11 +3,12 @@ package prometheus.internal;
 import javax.inject.Inject;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.TreeSet;
 import es.api.ExpertSystem;
 import es.api.ExpertSystemFactory;
+import es.api.IndexedFactSet;
 import knn.api.KnowledgeNodeNetwork;
 import knn.api.KnowledgeNodeNetworkFactory;
+import knn.api.KnowledgeNodeRecencyList;
 import meta.api.MetaReasoner;
 import meta.api.MetaReasonerFactory;
 import nn.api.NeuralNetwork;
@@ -31,11 +32,11 @@ class PrometheusImpl implements Prometheus {
             final MetaReasonerFactory metaReasonerFactory) {
         this.nn = neuralNetworkFactory.create();
         this.es = expertSystemFactory
-                .create(new HashSet<>(), new HashSet<>(), new HashSet<>(),
-                        new HashSet<>());
+                .create(new HashSet<>(), new HashSet<>(),
+                        new IndexedFactSet(), new HashSet<>());
         this.knn = knowledgeNodeNetworkFactory.create(
-                new HashMap<>(), new HashSet<>(), new TreeSet<>(), 1,
-                Long.MAX_VALUE);
+                new HashMap<>(), new HashSet<>(),
+                new KnowledgeNodeRecencyList(), 1, Long.MAX_VALUE);
         this.meta = metaReasonerFactory.create();
     }
 
@@ -4,24 +4,20 @@ package tags;
  * Arguments are composed of a name and symbol.
  */
 public abstract class Argument {
-    private String name;
-    private ArgType symbol;
+    private final String name;
+    private final ArgType symbol;
 
     /**
-     * Constructor for Argument
-     * <p>
-     * Attempts to split an argument string (e.g. height=10) on the mathematical
-     * symbol (in this case 10), assigns name to first token, if there are
-     * multiple tokens
+     * Constructor for Argument.
      *
-     * @param tokens argument string split on mathematical symbols
+     * @param name the name of the argument (e.g. height in height=10), or an
+     *             empty String if the argument has no name
+     * @param symbol the symbol of the argument
+     * @see TagParser#parseArgument(CharSequence, int, int)
      */
-    Argument(final String[] tokens) {
-        if (tokens.length > 1) {
-            this.name = tokens[0];
-        } else {
-            this.name = "";
-        }
+    Argument(final String name, final ArgType symbol) {
+        this.name = name;
+        this.symbol = symbol;
     }
 
     /**
@@ -31,15 +27,6 @@ public abstract class Argument {
         return name;
     }
 
-    /**
-     * Sets the name of the argument.
-     *
-     * @param name the name
-     */
-    final void setName(final String name) {
-        this.name = name;
-    }
-
     /**
      * @return the symbol of the argument
      */
@@ -47,15 +34,6 @@ public abstract class Argument {
         return symbol;
     }
 
-    /**
-     * Sets the symbol of the argument.
-     *
-     * @param symbol the symbol
-     */
-    final void setSymbol(final ArgType symbol) {
-        this.symbol = symbol;
-    }
-
     /**
      * Compares two arguments, calling appropriate overloaded method.
      *
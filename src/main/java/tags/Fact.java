@@ -1,7 +1,6 @@
 package tags;
 
 import java.text.MessageFormat;
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import org.apache.commons.lang3.builder.EqualsBuilder;
@@ -29,11 +28,12 @@ public final class Fact extends Predicate {
      */
 
     public Fact(final String value, final double confidenceValue) {
+        final int nameEnd =
+                TagParser.findPredicateNameEnd(value, 0, value.length());
 
-        final String[] tokens = value.split("[(),]");
-
-        this.setPredicateName(tokens[0]);
-        this.setArguments(argStringParser(tokens));
+        this.setPredicateName(value.substring(0, nameEnd));
+        this.setArguments(
+                TagParser.parseArguments(value, nameEnd, value.length()));
         this.setConfidence(confidenceValue);
     }
 
@@ -54,52 +54,11 @@ public final class Fact extends Predicate {
         this.setConfidence(confidence);
     }
 
-    /**
-     * Calls the appropriate Argument constructor on a string token.
-     * <p>
-     * If argument is numeric {@literal ->} NumericArgument; If contains
-     * {@literal [?*&]} {@literal ->} VariableArgument; Else {@literal
-     * ->}StringArgument
-     *
-     * @param argString String token
-     * @return A single argument
-     */
-    static Argument makeArgument(final String argString) {
-        final String[] argTokens = argString.split("[=><!]");
-        final int lastElem = argTokens.length - 1;
-
-        if (argTokens[lastElem].matches("-?\\d+(\\.\\d+)?")) {
-            return new NumericArgument(argString, argTokens);
-        } else if (argTokens[lastElem].matches("[?*]")
-                || argTokens[lastElem].charAt(0) == '&') {
-            return new VariableArgument(argString, argTokens);
-        } else {
-            return new StringArgument(argString, argTokens);
-        }
-    }
-
     @Override
     Predicate getPredicateCopy() {
         return new Fact(getPredicateName(), getArguments(), getConfidence());
     }
 
-    /**
-     * Parses a raw string into a list of string tokens that represent each
-     * argument.
-     * <p>
-     *
-     * @param tokens string input
-     * @return list of string arguments
-     */
-    private List<Argument> argStringParser(final String[] tokens) {
-        final List<Argument> argSet = new ArrayList<>();
-        for (int i = 1; i < tokens.length; i++) {
-            final Argument argument = makeArgument(tokens[i]);
-            argSet.add(argument);
-        }
-        return argSet;
-    }
-
     /**
      * Compares two facts to see if they are compatible.
      * <p>
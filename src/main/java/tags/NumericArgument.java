@@ -16,34 +16,25 @@ final class NumericArgument extends Argument {
     /**
      * Constructor of numeric arguments.
      * <p>
-     * Arguments must be a string that is purely numeric e.g. "5
-     * or composed of a name delimited by {@literal ["<",">,"="]}
+     * Arguments are either purely numeric e.g. "5" (symbol INT) or composed of
+     * a name delimited by {@literal ["<",">,"="]} (symbols LT, GT and EQ).
      *
-     * @param string argument as a string
-     * @param tokens argument as tokens, split on mathematiccal symbols
+     * @param name   the name of the argument
+     * @param symbol the symbol of the argument
+     * @param isNeg  true if the argument is negated
+     * @param value  the value of the argument
      */
-    NumericArgument(final String string, final String[] tokens) {
-        super(tokens);
-        this.isNeg = (string.contains("!"));
-
-        if (string.contains("=")) {
-            this.setSymbol(ArgType.EQ);
-        } else if (string.contains(">")) {
-            this.setSymbol(ArgType.GT);
-        } else if (string.contains("<")) {
-            this.setSymbol(ArgType.LT);
-        } else {
-            this.setSymbol(ArgType.INT);
-        }
-
-        this.value = Integer.parseInt(tokens[tokens.length - 1]);
-
+    NumericArgument(final String name, final ArgType symbol,
+                    final boolean isNeg, final int value) {
+        super(name, symbol);
+        this.isNeg = isNeg;
+        this.value = value;
     }
 
     /**
      * @return true if the numeric argument is negated
      */
-    private boolean isNeg() {
+    boolean isNeg() {
         return isNeg;
     }
 
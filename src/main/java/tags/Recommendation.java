@@ -1,7 +1,6 @@
 package tags;
 
 import java.text.MessageFormat;
-import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -28,10 +27,13 @@ public final class Recommendation extends Predicate {
      */
 
     public Recommendation(final String value, final double confidence) {
-        final String[] tokens = value.split("[(),]");
+        final int nameEnd =
+                TagParser.findPredicateNameEnd(value, 0, value.length());
 
-        this.setPredicateName(tokens[0].replace("@", ""));
-        this.setArguments(argStringParser(tokens));
+        this.setPredicateName(
+                TagParser.parseRecommendationName(value, 0, nameEnd));
+        this.setArguments(
+                TagParser.parseArguments(value, nameEnd, value.length()));
         this.setConfidence(confidence);
     }
 
@@ -52,41 +54,12 @@ public final class Recommendation extends Predicate {
         this.setConfidence(confidence);
     }
 
-    /**
-     * Calls the appropriate Argument constructor on a string token.
-     * <p>
-     *
-     * @param argString String token
-     * @return A single argument
-     * @see Fact#makeArgument(String)
-     */
-
-    private static Argument makeArgument(final String argString) {
-        return Fact.makeArgument(argString);
-    }
-
     @Override
     Predicate getPredicateCopy() {
         return new Recommendation(getPredicateName(), getArguments(),
                 getConfidence());
     }
 
-    /**
-     * Parses a raw string into a list of string tokens that represent each
-     * argument.
-     *
-     * @param tokens string input
-     * @return list of string arguments
-     */
-    private List<Argument> argStringParser(final String[] tokens) {
-        final List<Argument> argSet = new ArrayList<>();
-        for (int i = 1; i < tokens.length; i++) {
-            final Argument argument = makeArgument(tokens[i]);
-            argSet.add(argument);
-        }
-        return argSet;
-    }
-
     /**
      * Prints predicate name, arguments and confidence value of recommendation
      * <p>
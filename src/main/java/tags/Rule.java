@@ -1,7 +1,6 @@
 package tags;
 
 import java.text.MessageFormat;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -103,23 +102,10 @@ public final class Rule extends Tag {
      * @see #makeRules(String)
      */
     public Rule(final String string) {
+        this.inputFacts = new HashSet<>();
         this.outputPredicates = new HashSet<>();
-        final List<String> tokens =
-                new ArrayList<>(Arrays.asList(string.split(" ")));
-        final int outputFactIndex = tokens.indexOf("->");
-
-        for (final String outputFact : tokens
-                .subList(outputFactIndex + 1, tokens.size())) {
-            this.addOutputPredicate(outputFact);
-        }
-
-        final Fact[] arrInputFacts = new Fact[outputFactIndex];
-        for (int i = 0; i < arrInputFacts.length; i++) {
-            final Fact fact = new Fact(tokens.get(i));
-            arrInputFacts[i] = fact;
-        }
-
-        this.inputFacts = new HashSet<>(Arrays.asList(arrInputFacts));
+        TagParser.parseRule(string, 0, string.length(), inputFacts,
+                outputPredicates);
         this.setConfidence(1.0);
     }
 
@@ -144,56 +130,7 @@ public final class Rule extends Tag {
      * @return List of Rules.
      */
     public static List<Rule> makeRules(final String value) {
-        final List<String> tokens =
-                new ArrayList<>(Arrays.asList(value.split(" ")));
-        final List<Rule> ruleList = new ArrayList<>();
-
-        final int outputPredicateIndex = tokens.indexOf("->");
-
-        final Predicate[] outputPredicates =
-                makeOutputPredicates(tokens, outputPredicateIndex);
-
-        final List<Fact> inputFactList = new ArrayList<>();
-
-        for (int i = 0; i < outputPredicateIndex + 1; i++) {
-            if (!tokens.get(i).equals("OR") && !tokens.get(i).equals("->")) {
-                final Fact predicate = new Fact(tokens.get(i));
-                inputFactList.add(predicate);
-            } else {
-                final Fact[] inputFacts =
-                        inputFactList.toArray(new Fact[inputFactList.size()]);
-                final Rule rule = new Rule(inputFacts, outputPredicates);
-                ruleList.add(rule);
-
-                inputFactList.clear();
-            }
-        }
-        return ruleList;
-    }
-
-    /**
-     * Makes an array of output Predicates.
-     *
-     * @param tokens               the tokens
-     * @param outputPredicateIndex the index of the output predicate
-     * @return the array of output Predicates.
-     */
-    private static Predicate[] makeOutputPredicates(
-            final List<String> tokens,
-            final int outputPredicateIndex) {
-        final Predicate[] outputPredicates =
-                new Predicate[tokens.size() - outputPredicateIndex - 1];
-
-        for (int i = outputPredicateIndex + 1; i < tokens.size(); i++) {
-            if (!tokens.get(i).contains("@")) {
-                final Fact fact = new Fact(tokens.get(i));
-                outputPredicates[i - outputPredicateIndex - 1] = fact;
-            } else {
-                final Recommendation rec = new Recommendation(tokens.get(i));
-                outputPredicates[i - outputPredicateIndex - 1] = rec;
-            }
-        }
-        return outputPredicates;
+        return TagParser.parseRules(value);
     }
 
     /**
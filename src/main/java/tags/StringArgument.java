@@ -21,23 +21,22 @@ final class StringArgument extends Argument {
      * Arguments must be a string made up of alpha characters, can contain ["=",
      * "!"] characters
      *
-     * @param string argument as a string
-     * @param tokens argument as tokens, split on mathematical symbols
+     * @param name  the name of the argument
+     * @param isNeg true if the argument is negated
+     * @param value the value of the argument
      */
 
-    StringArgument(final String string, final String[] tokens) {
-
-        super(tokens);
-
-        isNeg = (string.contains("!"));
-        value = tokens[tokens.length - 1];
-        setSymbol(ArgType.STRING);
+    StringArgument(final String name, final boolean isNeg,
+                   final String value) {
+        super(name, ArgType.STRING);
+        this.isNeg = isNeg;
+        this.value = value;
     }
 
     /**
      * @return if the argument is negated
      */
-    private boolean isNeg() {
+    boolean isNeg() {
         return isNeg;
     }
 
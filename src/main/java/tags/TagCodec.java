@@ -0,0 +1,233 @@
+package tags;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Binary encoding of Tags, used by KNN snapshots.
+ * <p>
+ * Strings and Tags are not stored inline but as IDs, which are resolved by the
+ * caller: a Predicate refers to the IDs of its name and argument Strings, and
+ * a Rule to the IDs of its input Facts and output Predicates. Decoding builds
+ * the Tags directly, without parsing. All numbers are big-endian.
+ */
+public final class TagCodec {
+    private static final byte FACT = 0;
+    private static final byte RECOMMENDATION = 1;
+    private static final byte RULE = 2;
+    private static final byte STRING_ARGUMENT = 0;
+    private static final byte NUMERIC_ARGUMENT = 1;
+    private static final byte VARIABLE_ARGUMENT = 2;
+    private static final byte NO_SYMBOL = -1;
+    private static final Argument.ArgType[] SYMBOLS =
+            Argument.ArgType.values();
+
+    private TagCodec() {
+    }
+
+    /**
+     * Calls the given action on the Strings referred to by the encoding of a
+     * Tag. Rules refer to no Strings, only to Tags.
+     *
+     * @param tag    the Tag
+     * @param action the action to call on each String
+     */
+    public static void forEachString(
+            final Tag tag,
+            final Consumer<String> action) {
+        if (tag instanceof Predicate) {
+            final Predicate predicate = (Predicate) tag;
+            action.accept(predicate.getPredicateName());
+            for (final Argument argument : predicate.getArguments()) {
+                action.accept(argument.getName());
+                if (argument instanceof StringArgument) {
+                    action.accept(((StringArgument) argument).getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls the given action on the Tags referred to by the encoding of a
+     * Tag, i.e. the input Facts and output Predicates of a Rule.
+     *
+     * @param tag    the Tag
+     * @param action the action to call on each Tag
+     */
+    public static void forEachTag(
+            final Tag tag,
+            final Consumer<Tag> action) {
+        if (tag instanceof Rule) {
+            final Rule rule = (Rule) tag;
+            rule.getInputFacts().forEach(action);
+            rule.getOutputPredicates().forEach(action);
+        }
+    }
+
+    /**
+     * Encodes a Tag.
+     *
+     * @param tag       the Tag
+     * @param out       the output
+     * @param stringIds gives the IDs of the Strings of the Tag
+     * @param tagIds    gives the IDs of the Tags of a Rule
+     * @throws IOException if writing the output fails
+     * @see #forEachString(Tag, Consumer)
+     * @see #forEachTag(Tag, Consumer)
+     */
+    public static void write(
+            final Tag tag,
+            final DataOutput out,
+            final ToIntFunction<String> stringIds,
+            final ToIntFunction<Tag> tagIds) throws IOException {
+        if (tag instanceof Rule) {
+            final Rule rule = (Rule) tag;
+            out.writeByte(RULE);
+            out.writeDouble(rule.getConfidence());
+            out.writeInt(rule.getInputFacts().size());
+            for (final Fact fact : rule.getInputFacts()) {
+                out.writeInt(tagIds.applyAsInt(fact));
+            }
+            out.writeInt(rule.getOutputPredicates().size());
+            for (final Predicate predicate : rule.getOutputPredicates()) {
+                out.writeInt(tagIds.applyAsInt(predicate));
+            }
+            return;
+        }
+        final Predicate predicate = (Predicate) tag;
+        if (predicate instanceof Recommendation) {
+            out.writeByte(RECOMMENDATION);
+        } else {
+            out.writeByte(FACT);
+        }
+        out.writeInt(stringIds.applyAsInt(predicate.getPredicateName()));
+        out.writeDouble(predicate.getConfidence());
+        out.writeInt(predicate.getArguments().size());
+        for (final Argument argument : predicate.getArguments()) {
+            writeArgument(argument, out, stringIds);
+        }
+    }
+
+    /**
+     * Decodes a Tag.
+     *
+     * @param in      the input, positioned at the start of the Tag
+     * @param strings gives the Strings with the given IDs
+     * @param tags    gives the Tags with the given IDs
+     * @return the Tag
+     * @throws IllegalArgumentException if the input is not a Tag
+     */
+    public static Tag read(
+            final ByteBuffer in,
+            final IntFunction<String> strings,
+            final IntFunction<Tag> tags) {
+        final byte kind = in.get();
+        if (kind == RULE) {
+            final double confidence = in.getDouble();
+            final Set<Fact> inputFacts = new HashSet<>();
+            for (int i = in.getInt(); i > 0; i--) {
+                inputFacts.add((Fact) tags.apply(in.getInt()));
+            }
+            final Set<Predicate> outputPredicates = new HashSet<>();
+            for (int i = in.getInt(); i > 0; i--) {
+                outputPredicates.add((Predicate) tags.apply(in.getInt()));
+            }
+            final Rule rule = new Rule(inputFacts, outputPredicates);
+            rule.setConfidence(confidence);
+            return rule;
+        }
+        if (kind != FACT && kind != RECOMMENDATION) {
+            throw new IllegalArgumentException("Invalid Tag kind: " + kind);
+        }
+        final String name = strings.apply(in.getInt());
+        final double confidence = in.getDouble();
+        final int argumentCount = in.getInt();
+        final List<Argument> arguments = new ArrayList<>(argumentCount);
+        for (int i = 0; i < argumentCount; i++) {
+            arguments.add(readArgument(in, strings));
+        }
+        if (kind == RECOMMENDATION) {
+            return new Recommendation(name, arguments, confidence);
+        }
+        return new Fact(name, arguments, confidence);
+    }
+
+    /**
+     * Encodes an argument.
+     *
+     * @param argument  the argument
+     * @param out       the output
+     * @param stringIds gives the IDs of the Strings of the argument
+     * @throws IOException if writing the output fails
+     */
+    private static void writeArgument(
+            final Argument argument,
+            final DataOutput out,
+            final ToIntFunction<String> stringIds) throws IOException {
+        if (argument instanceof StringArgument) {
+            out.writeByte(STRING_ARGUMENT);
+        } else if (argument instanceof NumericArgument) {
+            out.writeByte(NUMERIC_ARGUMENT);
+        } else {
+            out.writeByte(VARIABLE_ARGUMENT);
+        }
+        out.writeInt(stringIds.applyAsInt(argument.getName()));
+        if (argument.getSymbol() == null) {
+            out.writeByte(NO_SYMBOL);
+        } else {
+            out.writeByte(argument.getSymbol().ordinal());
+        }
+        if (argument instanceof StringArgument) {
+            final StringArgument stringArgument = (StringArgument) argument;
+            out.writeBoolean(stringArgument.isNeg());
+            out.writeInt(stringIds.applyAsInt(stringArgument.getValue()));
+        } else if (argument instanceof NumericArgument) {
+            final NumericArgument numericArgument = (NumericArgument) argument;
+            out.writeBoolean(numericArgument.isNeg());
+            out.writeInt(numericArgument.getValue());
+        }
+    }
+
+    /**
+     * Decodes an argument.
+     *
+     * @param in      the input, positioned at the start of the argument
+     * @param strings gives the Strings with the given IDs
+     * @return the argument
+     * @throws IllegalArgumentException if the input is not an argument
+     */
+    private static Argument readArgument(
+            final ByteBuffer in,
+            final IntFunction<String> strings) {
+        final byte kind = in.get();
+        final String name = strings.apply(in.getInt());
+        final byte symbolOrdinal = in.get();
+        Argument.ArgType symbol = null;
+        if (symbolOrdinal != NO_SYMBOL) {
+            symbol = SYMBOLS[symbolOrdinal];
+        }
+        switch (kind) {
+            case STRING_ARGUMENT:
+                final boolean isNegString = in.get() != 0;
+                return new StringArgument(name, isNegString,
+                        strings.apply(in.getInt()));
+            case NUMERIC_ARGUMENT:
+                final boolean isNegNumeric = in.get() != 0;
+                return new NumericArgument(name, symbol, isNegNumeric,
+                        in.getInt());
+            case VARIABLE_ARGUMENT:
+                return new VariableArgument(name, symbol);
+            default:
+                throw new IllegalArgumentException(
+                        "Invalid argument kind: " + kind);
+        }
+    }
+}
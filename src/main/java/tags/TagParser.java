@@ -0,0 +1,698 @@
+package tags;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hand-written parser of Tags and KN data lines.
+ * <p>
+ * Tags are read in a single pass over the characters of a {@link
+ * CharSequence}, without regular expressions and without splitting the input
+ * into intermediate String arrays. The Tags are the same as the ones built by
+ * the String constructors of {@link Fact}, {@link Recommendation} and {@link
+ * Rule}, which delegate to this class.
+ * <p>
+ * An instance of the parser is a cursor over the fields of a KN data line,
+ * i.e. {@code "P(A); 100; @Q(B); 100; R(C)"}. Fields are separated by a
+ * semicolon followed by whitespace, and trailing empty fields are ignored.
+ */
+public final class TagParser {
+    private static final char RECOMMENDATION_MARK = '@';
+    private static final char SPACE = ' ';
+    private static final int RADIX = 10;
+    private static final String ARROW = "->";
+    private static final String OR = "OR";
+
+    private final CharSequence text;
+    private final int end;
+    private int fieldStart;
+    private int fieldEnd;
+    private int nextFieldStart;
+
+    /**
+     * Creates a parser over the fields of a KN data line.
+     *
+     * @param text the KN data line
+     */
+    public TagParser(final CharSequence text) {
+        this.text = text;
+        this.end = findLastFieldEnd(text);
+    }
+
+    /**
+     * Moves to the next field of the line.
+     *
+     * @return true if there was a next field, false if the end of the line is
+     * reached
+     */
+    public boolean nextField() {
+        fieldStart = nextFieldStart;
+        if (fieldStart >= end) {
+            fieldEnd = fieldStart;
+            return false;
+        }
+        int i = fieldStart;
+        while (i < end && !isSeparator(text, i, end)) {
+            i++;
+        }
+        fieldEnd = i;
+        if (i < end) {
+            i++;
+            while (i < end && isWhitespace(text.charAt(i))) {
+                i++;
+            }
+        }
+        nextFieldStart = i;
+        return true;
+    }
+
+    /**
+     * @return the current field
+     */
+    public String getField() {
+        return text.subSequence(fieldStart, fieldEnd).toString();
+    }
+
+    /**
+     * @return true if the current field is a non-negative number, such as an
+     * activation threshold
+     */
+    public boolean isNumber() {
+        if (fieldStart == fieldEnd) {
+            return false;
+        }
+        for (int i = fieldStart; i < fieldEnd; i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the current field as a number
+     * @throws NumberFormatException if the current field is not a number
+     */
+    public int getNumber() {
+        return parseInt(text, fieldStart, fieldEnd);
+    }
+
+    /**
+     * @return the current field as a Tag, or null if the field is not a Tag
+     * @see #parseTag(CharSequence, int, int)
+     */
+    public Tag getTag() {
+        return parseTag(text, fieldStart, fieldEnd);
+    }
+
+    /**
+     * Parses a Tag. Recommendations start with "@", Rules contain "-&gt;" and
+     * Facts contain parentheses.
+     *
+     * @param text  the text containing the Tag
+     * @param start the index of the first character of the Tag
+     * @param end   the index after the last character of the Tag
+     * @return the Tag, or null if the text is not a Tag
+     */
+    public static Tag parseTag(
+            final CharSequence text,
+            final int start,
+            final int end) {
+        if (start == end) {
+            return null;
+        }
+        if (text.charAt(start) == RECOMMENDATION_MARK) {
+            return parseRecommendation(text, start, end);
+        }
+        boolean hasOpeningParenthesis = false;
+        boolean hasParentheses = false;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if (c == '-' && i + 1 < end && text.charAt(i + 1) == '>') {
+                final Set<Fact> inputFacts = new HashSet<>();
+                final Set<Predicate> outputPredicates = new HashSet<>();
+                parseRule(text, start, end, inputFacts, outputPredicates);
+                return new Rule(inputFacts, outputPredicates);
+            } else if (c == '(') {
+                hasOpeningParenthesis = true;
+            } else if (c == ')' && hasOpeningParenthesis) {
+                hasParentheses = true;
+            }
+        }
+        if (hasParentheses) {
+            return parseFact(text, start, end);
+        }
+        return null;
+    }
+
+    /**
+     * Parses Rules from a Rule String, one Rule for each alternative separated
+     * by "OR".
+     *
+     * @param text the Rules
+     * @return the Rules, or an empty list if there is no "-&gt;"
+     * @see Rule#makeRules(String)
+     */
+    public static List<Rule> parseRules(final CharSequence text) {
+        final List<Set<Fact>> alternatives = new ArrayList<>();
+        final Set<Predicate> outputPredicates = new HashSet<>();
+        Set<Fact> inputFacts = new HashSet<>();
+        boolean isOutput = false;
+        final int end = findLastTokenEnd(text, 0, text.length());
+        int tokenStart = 0;
+        while (tokenStart <= end) {
+            final int tokenEnd = findTokenEnd(text, tokenStart, end);
+            if (isOutput) {
+                outputPredicates.add(
+                        parseOutputPredicate(text, tokenStart, tokenEnd));
+            } else if (regionEquals(text, tokenStart, tokenEnd, OR)
+                    || regionEquals(text, tokenStart, tokenEnd, ARROW)) {
+                alternatives.add(inputFacts);
+                inputFacts = new HashSet<>();
+                isOutput = regionEquals(text, tokenStart, tokenEnd, ARROW);
+            } else {
+                inputFacts.add(parseFact(text, tokenStart, tokenEnd));
+            }
+            tokenStart = tokenEnd + 1;
+        }
+        final List<Rule> rules = new ArrayList<>();
+        if (isOutput) {
+            for (final Set<Fact> alternative : alternatives) {
+                rules.add(new Rule(alternative, outputPredicates));
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Parses a single Rule. The Facts before the first "-&gt;" are inputs and
+     * the Predicates after it are outputs.
+     *
+     * @param text             the text containing the Rule
+     * @param start            the index of the first character of the Rule
+     * @param end              the index after the last character of the Rule
+     * @param inputFacts       the collection to add the input Facts to
+     * @param outputPredicates the collection to add the output Predicates to
+     * @throws IllegalArgumentException if there is no "-&gt;" token
+     */
+    static void parseRule(
+            final CharSequence text,
+            final int start,
+            final int end,
+            final Collection<Fact> inputFacts,
+            final Collection<Predicate> outputPredicates) {
+        final int lastTokenEnd = findLastTokenEnd(text, start, end);
+        boolean isOutput = false;
+        int tokenStart = start;
+        while (tokenStart <= lastTokenEnd) {
+            final int tokenEnd = findTokenEnd(text, tokenStart, lastTokenEnd);
+            if (isOutput) {
+                outputPredicates.add(
+                        parseOutputPredicate(text, tokenStart, tokenEnd));
+            } else if (regionEquals(text, tokenStart, tokenEnd, ARROW)) {
+                isOutput = true;
+            } else {
+                inputFacts.add(parseFact(text, tokenStart, tokenEnd));
+            }
+            tokenStart = tokenEnd + 1;
+        }
+        if (!isOutput) {
+            throw new IllegalArgumentException(
+                    "Missing -> in Rule: " + text.subSequence(start, end));
+        }
+    }
+
+    /**
+     * Parses a Fact.
+     *
+     * @param text  the text containing the Fact
+     * @param start the index of the first character of the Fact
+     * @param end   the index after the last character of the Fact
+     * @return the Fact
+     */
+    static Fact parseFact(
+            final CharSequence text,
+            final int start,
+            final int end) {
+        final int nameEnd = findPredicateNameEnd(text, start, end);
+        return new Fact(text.subSequence(start, nameEnd).toString(),
+                parseArguments(text, nameEnd, end), 1.0);
+    }
+
+    /**
+     * Parses a Recommendation. All the "@" of the predicate name are removed.
+     *
+     * @param text  the text containing the Recommendation
+     * @param start the index of the first character of the Recommendation
+     * @param end   the index after the last character of the Recommendation
+     * @return the Recommendation
+     */
+    static Recommendation parseRecommendation(
+            final CharSequence text,
+            final int start,
+            final int end) {
+        final int nameEnd = findPredicateNameEnd(text, start, end);
+        return new Recommendation(parseRecommendationName(text, start, nameEnd),
+                parseArguments(text, nameEnd, end), 1.0);
+    }
+
+    /**
+     * Finds the end of the predicate name, i.e. the first parenthesis or
+     * comma.
+     *
+     * @param text  the text containing the Predicate
+     * @param start the index of the first character of the Predicate
+     * @param end   the index after the last character of the Predicate
+     * @return the index after the last character of the predicate name
+     */
+    static int findPredicateNameEnd(
+            final CharSequence text,
+            final int start,
+            final int end) {
+        int i = start;
+        while (i < end && !isArgumentDelimiter(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Gets a Recommendation name, without its "@" characters.
+     *
+     * @param text  the text containing the name
+     * @param start the index of the first character of the name
+     * @param end   the index after the last character of the name
+     * @return the name
+     */
+    static String parseRecommendationName(
+            final CharSequence text,
+            final int start,
+            final int end) {
+        final StringBuilder name = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if (c != RECOMMENDATION_MARK) {
+                name.append(c);
+            }
+        }
+        return name.toString();
+    }
+
+    /**
+     * Parses the arguments following a predicate name. Arguments are
+     * delimited by parentheses and commas, and trailing empty arguments are
+     * ignored.
+     *
+     * @param text  the text containing the arguments
+     * @param start the index of the delimiter after the predicate name
+     * @param end   the index after the last character of the Predicate
+     * @return the (mutable) list of arguments
+     * @throws IllegalArgumentException if an argument other than the last
+     *                                  ones is empty
+     */
+    static List<Argument> parseArguments(
+            final CharSequence text,
+            final int start,
+            final int end) {
+        final List<Argument> arguments = new ArrayList<>();
+        int argumentStart = start + 1;
+        boolean hasEmptyArgument = false;
+        while (argumentStart <= end) {
+            int argumentEnd = argumentStart;
+            while (argumentEnd < end
+                    && !isArgumentDelimiter(text.charAt(argumentEnd))) {
+                argumentEnd++;
+            }
+            if (argumentStart == argumentEnd) {
+                hasEmptyArgument = true;
+            } else if (hasEmptyArgument) {
+                throw new IllegalArgumentException(
+                        "Empty argument in Predicate: "
+                                + text.subSequence(start, end));
+            } else {
+                arguments.add(parseArgument(text, argumentStart, argumentEnd));
+            }
+            argumentStart = argumentEnd + 1;
+        }
+        return arguments;
+    }
+
+    /**
+     * Parses an argument.
+     * <p>
+     * An argument is an optional name followed by the operators "=", "&gt;",
+     * "&lt;" or "!" and by a value. If the value is numeric, the argument is a
+     * {@link NumericArgument}; if it is "?", "*" or starts with "&amp;", it is
+     * a {@link VariableArgument}; otherwise it is a {@link StringArgument}.
+     *
+     * @param text  the text containing the argument
+     * @param start the index of the first character of the argument
+     * @param end   the index after the last character of the argument
+     * @return the argument
+     * @throws IllegalArgumentException if the argument has no value
+     */
+    static Argument parseArgument(
+            final CharSequence text,
+            final int start,
+            final int end) {
+        boolean hasEq = false;
+        boolean hasGt = false;
+        boolean hasLt = false;
+        boolean isNeg = false;
+        int nameEnd = end;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if (isOperator(c)) {
+                hasEq |= c == '=';
+                hasGt |= c == '>';
+                hasLt |= c == '<';
+                isNeg |= c == '!';
+                if (nameEnd == end) {
+                    nameEnd = i;
+                }
+            }
+        }
+        int valueEnd = end;
+        while (valueEnd > start && isOperator(text.charAt(valueEnd - 1))) {
+            valueEnd--;
+        }
+        if (valueEnd == start) {
+            throw new IllegalArgumentException(
+                    "Missing argument value: " + text.subSequence(start, end));
+        }
+        int valueStart = valueEnd;
+        while (valueStart > start && !isOperator(text.charAt(valueStart - 1))) {
+            valueStart--;
+        }
+        String name = "";
+        if (valueStart > start) {
+            name = text.subSequence(start, nameEnd).toString();
+        }
+
+        if (isNumeric(text, valueStart, valueEnd)) {
+            Argument.ArgType symbol = Argument.ArgType.INT;
+            if (hasEq) {
+                symbol = Argument.ArgType.EQ;
+            } else if (hasGt) {
+                symbol = Argument.ArgType.GT;
+            } else if (hasLt) {
+                symbol = Argument.ArgType.LT;
+            }
+            return new NumericArgument(name, symbol, isNeg,
+                    parseInt(text, valueStart, valueEnd));
+        }
+        final char firstValueChar = text.charAt(valueStart);
+        if (firstValueChar == '&' || valueEnd - valueStart == 1
+                && (firstValueChar == '?' || firstValueChar == '*')) {
+            return parseVariableArgument(text, start, nameEnd, name);
+        }
+        return new StringArgument(name, isNeg,
+                text.subSequence(valueStart, valueEnd).toString());
+    }
+
+    /**
+     * Parses a variable argument, whose type is given by the text before the
+     * first operator.
+     *
+     * @param text        the text containing the argument
+     * @param start       the index of the first character of the argument
+     * @param nameEnd     the index of the first operator of the argument, or
+     *                    the end of the argument if it has no operator
+     * @param defaultName the name of the argument if it is not a variable
+     * @return the argument
+     */
+    private static Argument parseVariableArgument(
+            final CharSequence text,
+            final int start,
+            final int nameEnd,
+            final String defaultName) {
+        if (nameEnd > start) {
+            final char first = text.charAt(start);
+            if (nameEnd - start == 1 && first == '*') {
+                return new VariableArgument("*", Argument.ArgType.MATCHALL);
+            } else if (nameEnd - start == 1 && first == '?') {
+                return new VariableArgument("?", Argument.ArgType.MATCHONE);
+            } else if (first == '&') {
+                return new VariableArgument(
+                        text.subSequence(start, nameEnd).toString(),
+                        Argument.ArgType.VAR);
+            }
+        }
+        return new VariableArgument(defaultName, null);
+    }
+
+    /**
+     * Parses an output Predicate of a Rule: a Recommendation if it contains
+     * "@", a Fact otherwise.
+     *
+     * @param text  the text containing the Predicate
+     * @param start the index of the first character of the Predicate
+     * @param end   the index after the last character of the Predicate
+     * @return the Predicate
+     */
+    private static Predicate parseOutputPredicate(
+            final CharSequence text,
+            final int start,
+            final int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == RECOMMENDATION_MARK) {
+                return parseRecommendation(text, start, end);
+            }
+        }
+        return parseFact(text, start, end);
+    }
+
+    /**
+     * Parses an integer, made of an optional minus sign and decimal digits.
+     *
+     * @param text  the text containing the integer
+     * @param start the index of the first character of the integer
+     * @param end   the index after the last character of the integer
+     * @return the integer
+     * @throws NumberFormatException if the text is not an integer or does not
+     *                               fit in an int
+     */
+    private static int parseInt(
+            final CharSequence text,
+            final int start,
+            final int end) {
+        final boolean isNegative = start < end && text.charAt(start) == '-';
+        int i = start;
+        if (isNegative) {
+            i++;
+        }
+        if (i == end) {
+            throw numberFormatException(text, start, end);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            final int digit = Character.digit(text.charAt(i), RADIX);
+            if (digit < 0) {
+                throw numberFormatException(text, start, end);
+            }
+            value = value * RADIX + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw numberFormatException(text, start, end);
+            }
+        }
+        if (isNegative) {
+            value = -value;
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw numberFormatException(text, start, end);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Creates the exception thrown for an invalid integer.
+     *
+     * @param text  the text containing the integer
+     * @param start the index of the first character of the integer
+     * @param end   the index after the last character of the integer
+     * @return the exception
+     */
+    private static NumberFormatException numberFormatException(
+            final CharSequence text,
+            final int start,
+            final int end) {
+        return new NumberFormatException(
+                "For input string: \"" + text.subSequence(start, end) + "\"");
+    }
+
+    /**
+     * Checks if an argument value is a decimal number, i.e. an optional minus
+     * sign, ASCII digits and an optional fractional part.
+     *
+     * @param text  the text containing the value
+     * @param start the index of the first character of the value
+     * @param end   the index after the last character of the value
+     * @return true if the value is a decimal number
+     */
+    private static boolean isNumeric(
+            final CharSequence text,
+            final int start,
+            final int end) {
+        int i = start;
+        if (i < end && text.charAt(i) == '-') {
+            i++;
+        }
+        final int integerStart = i;
+        while (i < end && isAsciiDigit(text.charAt(i))) {
+            i++;
+        }
+        if (i == integerStart) {
+            return false;
+        }
+        if (i < end && text.charAt(i) == '.') {
+            final int fractionStart = ++i;
+            while (i < end && isAsciiDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == fractionStart) {
+                return false;
+            }
+        }
+        return i == end;
+    }
+
+    /**
+     * Finds the end of the last non-empty field of a KN data line.
+     *
+     * @param text the KN data line
+     * @return the index after the last character of the last non-empty field
+     */
+    private static int findLastFieldEnd(final CharSequence text) {
+        int end = text.length();
+        while (end > 0 && isWhitespace(text.charAt(end - 1))) {
+            int separatorStart = end - 1;
+            while (separatorStart > 0
+                    && isWhitespace(text.charAt(separatorStart - 1))) {
+                separatorStart--;
+            }
+            if (separatorStart == 0 || text.charAt(separatorStart - 1) != ';') {
+                break;
+            }
+            end = separatorStart - 1;
+        }
+        return end;
+    }
+
+    /**
+     * Finds the end of the last non-empty token of a Rule, trailing spaces
+     * being ignored.
+     *
+     * @param text  the text containing the Rule
+     * @param start the index of the first character of the Rule
+     * @param end   the index after the last character of the Rule
+     * @return the index after the last character of the last token
+     */
+    private static int findLastTokenEnd(
+            final CharSequence text,
+            final int start,
+            final int end) {
+        int i = end;
+        while (i > start && text.charAt(i - 1) == SPACE) {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * Finds the end of a space-delimited token of a Rule.
+     *
+     * @param text  the text containing the Rule
+     * @param start the index of the first character of the token
+     * @param end   the index after the last character of the Rule
+     * @return the index after the last character of the token
+     */
+    private static int findTokenEnd(
+            final CharSequence text,
+            final int start,
+            final int end) {
+        int i = start;
+        while (i < end && text.charAt(i) != SPACE) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Checks if a region of the text is equal to a String.
+     *
+     * @param text   the text
+     * @param start  the index of the first character of the region
+     * @param end    the index after the last character of the region
+     * @param string the String
+     * @return true if the region is equal to the String
+     */
+    private static boolean regionEquals(
+            final CharSequence text,
+            final int start,
+            final int end,
+            final String string) {
+        if (end - start != string.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) != string.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a KN field separator, i.e. a semicolon followed by whitespace,
+     * starts at the given index.
+     *
+     * @param text  the KN data line
+     * @param index the index
+     * @param end   the end of the KN data line
+     * @return true if a field separator starts at the index
+     */
+    private static boolean isSeparator(
+            final CharSequence text,
+            final int index,
+            final int end) {
+        return text.charAt(index) == ';' && index + 1 < end
+                && isWhitespace(text.charAt(index + 1));
+    }
+
+    /**
+     * @param c a character
+     * @return true if the character delimits Predicate arguments
+     */
+    private static boolean isArgumentDelimiter(final char c) {
+        return c == '(' || c == ')' || c == ',';
+    }
+
+    /**
+     * @param c a character
+     * @return true if the character is an argument operator
+     */
+    private static boolean isOperator(final char c) {
+        return c == '=' || c == '>' || c == '<' || c == '!';
+    }
+
+    /**
+     * @param c a character
+     * @return true if the character is an ASCII digit
+     */
+    private static boolean isAsciiDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @param c a character
+     * @return true if the character is a whitespace character, as in regular
+     * expressions
+     */
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+                || c == '\f' || c == '\r';
+    }
+}
@@ -17,22 +17,11 @@ final class VariableArgument extends Argument {
      * Arguments must be a string made up of alpha characters, as well as one of
      * ["*", "?", {@literal &}] characters
      *
-     * @param string argument as a string
-     * @param tokens argument as tokens, split on mathematical symbols
+     * @param name   the name of the argument
+     * @param symbol the symbol of the argument: MATCHALL, MATCHONE or VAR
      */
-    VariableArgument(final String string, final String[] tokens) {
-        super(tokens);
-
-        if (tokens[0].equals("*")) {
-            this.setSymbol(ArgType.MATCHALL);
-            this.setName("*");
-        } else if (tokens[0].equals("?")) {
-            this.setSymbol(ArgType.MATCHONE);
-            this.setName("?");
-        } else if (tokens[0].charAt(0) == '&') {
-            this.setSymbol(ArgType.VAR);
-            this.setName(tokens[0]);
-        }
+    VariableArgument(final String name, final ArgType symbol) {
+        super(name, symbol);
     }
 
     /**
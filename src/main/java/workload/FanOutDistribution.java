@@ -0,0 +1,51 @@
+package workload;
+
+import java.util.SplittableRandom;
+
+/**
+ * Distribution of the number of output Tags of the generated KNs and Rules.
+ */
+public enum FanOutDistribution {
+    /**
+     * Every KN or Rule has the mean fan-out, rounded.
+     */
+    FIXED {
+        @Override
+        int sample(final SplittableRandom random, final double mean) {
+            return (int) Math.round(mean);
+        }
+    },
+    /**
+     * Fan-outs are uniform between 1 and twice the mean minus 1.
+     */
+    UNIFORM {
+        @Override
+        int sample(final SplittableRandom random, final double mean) {
+            return 1 + random.nextInt(2 * (int) Math.round(mean) - 1);
+        }
+    },
+    /**
+     * Fan-outs follow a Pareto distribution with minimum 1, so that a few KNs
+     * or Rules have a very large fan-out. The mean is only approximate, since
+     * the fan-outs are rounded down and capped.
+     */
+    POWER_LAW {
+        @Override
+        int sample(final SplittableRandom random, final double mean) {
+            if (mean <= 1) {
+                return 1;
+            }
+            final double shape = mean / (mean - 1);
+            return (int) Math.pow(1 - random.nextDouble(), -1 / shape);
+        }
+    };
+
+    /**
+     * Samples a fan-out.
+     *
+     * @param random the random generator
+     * @param mean   the mean fan-out, at least 1
+     * @return the fan-out, at least 1
+     */
+    abstract int sample(SplittableRandom random, double mean);
+}
@@ -0,0 +1,399 @@
+package workload;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Generator of synthetic KNN data files and rule corpora.
+ * <p>
+ * KNN data is generated in the line format read by
+ * {@link knn.api.KnowledgeNodeNetwork#loadData(String)}: the KN of index
+ * {@code index} has the input Tag {@code n<index>(...)}, and its output Tags
+ * are either the input Tags of other KNs, so that searches chain through the
+ * network, or Tags from a shared pool {@code s<number>(...)} produced by many
+ * KNs. Rules are generated in the format read by
+ * {@link tags.Rule#makeRules(String)} and chain the same way: the Rule of
+ * index {@code index} has the input Facts {@code p<index>_<number>(...)}, and
+ * outputs input Facts of other Rules, shared Facts or a Recommendation.
+ * <p>
+ * An output pointing to a KN or Rule with a lower or equal index closes a
+ * cycle, so a cycle density of 0 gives an acyclic workload. Every line is
+ * generated from its own random generator, derived from the seed and the line
+ * index, and the Tags of a KN or Rule can be regenerated from its index alone.
+ * The workload is therefore never held in memory, and the same seed and
+ * settings always give the same lines.
+ */
+public final class WorkloadGenerator {
+    private static final long INDEX_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long STREAM_GAMMA = 0xC2B2AE3D27D4EB4FL;
+    private static final int NODE_STREAM = 1;
+    private static final int NODE_TAG_STREAM = 2;
+    private static final int SHARED_TAG_STREAM = 3;
+    private static final int RULE_STREAM = 4;
+    private static final int RULE_INPUT_STREAM = 5;
+    private static final int RULE_SHAPE_STREAM = 6;
+    private static final int MAX_ARITY = 3;
+    private static final int MAX_RULE_INPUTS = 3;
+    private static final int MAX_VALUE = 100;
+    private static final int MAX_FAN_OUT = 10_000;
+    private static final int THRESHOLD = 100;
+    private static final int DEFAULT_COUNT = 1000;
+    private static final int DEFAULT_SHARED_TAG_COUNT = 100;
+    private static final String[] COMPARATORS = {"=", ">", "<"};
+    private static final String KNN_SEPARATOR = "; ";
+
+    private final long seed;
+    private int count = DEFAULT_COUNT;
+    private double meanFanOut = 2;
+    private FanOutDistribution fanOutDistribution = FanOutDistribution.FIXED;
+    private double cycleDensity = 0;
+    private double numericRatio = 0;
+    private double variableRatio = 0;
+    private double sharedTagRatio = 0;
+    private int sharedTagCount = DEFAULT_SHARED_TAG_COUNT;
+
+    /**
+     * Creates a generator of 1000 KNs or Rules with a fixed fan-out of 2, no
+     * cycles, no shared Tags and only String arguments.
+     *
+     * @param seed the seed of the generated workload
+     */
+    public WorkloadGenerator(final long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param newCount the number of KNs or Rules to generate
+     * @return this generator
+     */
+    public WorkloadGenerator setCount(final int newCount) {
+        checkArgument(newCount >= 1, "Count must be positive.");
+        this.count = newCount;
+        return this;
+    }
+
+    /**
+     * @param newMeanFanOut the mean number of output Tags of each KN or Rule
+     * @return this generator
+     */
+    public WorkloadGenerator setMeanFanOut(final double newMeanFanOut) {
+        checkArgument(newMeanFanOut >= 1, "Mean fan-out must be at least 1.");
+        this.meanFanOut = newMeanFanOut;
+        return this;
+    }
+
+    /**
+     * @param distribution the distribution of the fan-outs
+     * @return this generator
+     */
+    public WorkloadGenerator setFanOutDistribution(
+            final FanOutDistribution distribution) {
+        this.fanOutDistribution = distribution;
+        return this;
+    }
+
+    /**
+     * @param density the probability for an output Tag to close a cycle
+     * @return this generator
+     */
+    public WorkloadGenerator setCycleDensity(final double density) {
+        checkRatio(density);
+        this.cycleDensity = density;
+        return this;
+    }
+
+    /**
+     * Sets the mix of argument types. The remaining arguments are Strings.
+     *
+     * @param numeric  the ratio of numeric arguments
+     * @param variable the ratio of variable arguments
+     * @return this generator
+     */
+    public WorkloadGenerator setArgumentMix(
+            final double numeric,
+            final double variable) {
+        checkRatio(numeric);
+        checkRatio(variable);
+        checkRatio(numeric + variable);
+        this.numericRatio = numeric;
+        this.variableRatio = variable;
+        return this;
+    }
+
+    /**
+     * Sets how often Tags are reused across KNs or Rules.
+     *
+     * @param ratio the probability for a Tag to be taken from the shared pool
+     * @param poolSize the number of shared Tags
+     * @return this generator
+     */
+    public WorkloadGenerator setSharedTags(
+            final double ratio,
+            final int poolSize) {
+        checkRatio(ratio);
+        checkArgument(poolSize >= 1, "Shared Tag pool must not be empty.");
+        this.sharedTagRatio = ratio;
+        this.sharedTagCount = poolSize;
+        return this;
+    }
+
+    /**
+     * @return the KNN data lines, generated lazily
+     */
+    public Stream<String> knowledgeNodes() {
+        return IntStream.range(0, count).mapToObj(this::makeKnowledgeNode);
+    }
+
+    /**
+     * @return the rule lines, generated lazily
+     */
+    public Stream<String> rules() {
+        return IntStream.range(0, count).mapToObj(this::makeRule);
+    }
+
+    /**
+     * Writes the KNN data to a file, line by line.
+     *
+     * @param path the file to write
+     * @throws IOException if writing fails
+     */
+    public void writeKnowledgeNodes(final Path path) throws IOException {
+        write(knowledgeNodes(), path);
+    }
+
+    /**
+     * Writes the rules to a file, line by line.
+     *
+     * @param path the file to write
+     * @throws IOException if writing fails
+     */
+    public void writeRules(final Path path) throws IOException {
+        write(rules(), path);
+    }
+
+    /**
+     * Makes the data line of a KN, with a threshold and output values of
+     * 100.
+     *
+     * @param index the index of the KN
+     * @return the KN data line
+     */
+    private String makeKnowledgeNode(final int index) {
+        final SplittableRandom random = randomFor(NODE_STREAM, index);
+        final StringBuilder line = new StringBuilder(makeNodeTag(index))
+                .append(KNN_SEPARATOR).append(THRESHOLD);
+        final int fanOut = sampleFanOut(random);
+        for (int i = 0; i < fanOut; i++) {
+            line.append(KNN_SEPARATOR).append(pickNodeOutput(random, index))
+                    .append(KNN_SEPARATOR).append(THRESHOLD);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Picks an output Tag for a KN.
+     *
+     * @param random the random generator of the KN
+     * @param index  the index of the KN
+     * @return the output Tag
+     */
+    private String pickNodeOutput(
+            final SplittableRandom random,
+            final int index) {
+        if (random.nextDouble() < sharedTagRatio) {
+            return makeSharedTag(random.nextInt(sharedTagCount));
+        }
+        if (random.nextDouble() < cycleDensity) {
+            return makeNodeTag(random.nextInt(index + 1));
+        }
+        if (index + 1 < count) {
+            return makeNodeTag(index + 1 + random.nextInt(count - index - 1));
+        }
+        return makeSharedTag(random.nextInt(sharedTagCount));
+    }
+
+    /**
+     * Makes the line of a Rule.
+     *
+     * @param index the index of the Rule
+     * @return the Rule line
+     */
+    private String makeRule(final int index) {
+        final SplittableRandom random = randomFor(RULE_STREAM, index);
+        final StringBuilder line = new StringBuilder();
+        final int inputCount = getRuleInputCount(index);
+        for (int i = 0; i < inputCount; i++) {
+            line.append(makeRuleInput(index, i)).append(' ');
+        }
+        line.append("->");
+        final int fanOut = sampleFanOut(random);
+        for (int i = 0; i < fanOut; i++) {
+            line.append(' ').append(pickRuleOutput(random, index));
+        }
+        return line.toString();
+    }
+
+    /**
+     * Picks an output Predicate for a Rule.
+     *
+     * @param random the random generator of the Rule
+     * @param index  the index of the Rule
+     * @return the output Predicate
+     */
+    private String pickRuleOutput(
+            final SplittableRandom random,
+            final int index) {
+        if (random.nextDouble() < sharedTagRatio) {
+            return makeSharedTag(random.nextInt(sharedTagCount));
+        }
+        int target = -1;
+        if (random.nextDouble() < cycleDensity) {
+            target = random.nextInt(index + 1);
+        } else if (index + 1 < count) {
+            target = index + 1 + random.nextInt(count - index - 1);
+        }
+        if (target < 0) {
+            return "@r" + index + makeArguments(random);
+        }
+        return makeRuleInput(target, random.nextInt(getRuleInputCount(target)));
+    }
+
+    /**
+     * @param index the index of a Rule
+     * @return the number of input Facts of the Rule
+     */
+    private int getRuleInputCount(final int index) {
+        return 1 + randomFor(RULE_SHAPE_STREAM, index)
+                .nextInt(MAX_RULE_INPUTS);
+    }
+
+    /**
+     * Makes an input Fact of a Rule.
+     *
+     * @param index the index of the Rule
+     * @param input the index of the input Fact within the Rule
+     * @return the input Fact
+     */
+    private String makeRuleInput(final int index, final int input) {
+        final SplittableRandom random = randomFor(RULE_INPUT_STREAM,
+                (long) index * MAX_RULE_INPUTS + input);
+        if (random.nextDouble() < sharedTagRatio) {
+            return makeSharedTag(random.nextInt(sharedTagCount));
+        }
+        return "p" + index + "_" + input + makeArguments(random);
+    }
+
+    /**
+     * @param index the index of a KN
+     * @return the input Tag of the KN
+     */
+    private String makeNodeTag(final int index) {
+        return "n" + index + makeArguments(randomFor(NODE_TAG_STREAM, index));
+    }
+
+    /**
+     * @param index the index of a shared Tag
+     * @return the shared Tag
+     */
+    private String makeSharedTag(final int index) {
+        return "s" + index
+                + makeArguments(randomFor(SHARED_TAG_STREAM, index));
+    }
+
+    /**
+     * Makes a parenthesized argument list following the argument mix.
+     *
+     * @param random the random generator of the Tag
+     * @return the argument list
+     */
+    private String makeArguments(final SplittableRandom random) {
+        final StringBuilder arguments = new StringBuilder("(");
+        final int arity = 1 + random.nextInt(MAX_ARITY);
+        for (int i = 0; i < arity; i++) {
+            if (i > 0) {
+                arguments.append(',');
+            }
+            final double type = random.nextDouble();
+            if (type < numericRatio) {
+                arguments.append('a').append(i)
+                        .append(COMPARATORS[random.nextInt(COMPARATORS.length)])
+                        .append(random.nextInt(MAX_VALUE));
+            } else if (type < numericRatio + variableRatio) {
+                arguments.append("&x").append(i);
+            } else {
+                arguments.append('v').append(random.nextInt(MAX_VALUE));
+            }
+        }
+        return arguments.append(')').toString();
+    }
+
+    /**
+     * @param random the random generator of a KN or Rule
+     * @return a fan-out following the distribution, between 1 and the
+     * maximum fan-out
+     */
+    private int sampleFanOut(final SplittableRandom random) {
+        final int fanOut = fanOutDistribution.sample(random, meanFanOut);
+        return Math.max(1, Math.min(fanOut, MAX_FAN_OUT));
+    }
+
+    /**
+     * Derives the random generator of an element of the workload.
+     *
+     * @param stream the kind of element
+     * @param index  the index of the element
+     * @return the random generator of the element
+     */
+    private SplittableRandom randomFor(final int stream, final long index) {
+        return new SplittableRandom(
+                seed + stream * STREAM_GAMMA + index * INDEX_GAMMA);
+    }
+
+    /**
+     * Writes lines to a file.
+     *
+     * @param lines the lines
+     * @param path  the file to write
+     * @throws IOException if writing fails
+     */
+    private static void write(final Stream<String> lines, final Path path)
+            throws IOException {
+        try (BufferedWriter writer =
+                     Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            final Iterator<String> iterator = lines.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * @param ratio the ratio to check
+     * @throws IllegalArgumentException if the ratio is not between 0 and 1
+     */
+    private static void checkRatio(final double ratio) {
+        checkArgument(ratio >= 0 && ratio <= 1,
+                "Ratio must be between 0 and 1: " + ratio);
+    }
+
+    /**
+     * @param condition the condition to check
+     * @param message   the message of the exception
+     * @throws IllegalArgumentException if the condition is false
+     */
+    private static void checkArgument(
+            final boolean condition,
+            final String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
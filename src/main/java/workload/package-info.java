@@ -0,0 +1,6 @@
+/**
+ * Synthetic workload generation for scaling tests and benchmarks of the KNN
+ * and the ES.
+ */
+
+package workload;
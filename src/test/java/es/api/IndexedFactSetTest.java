@@ -0,0 +1,81 @@
+package es.api;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class IndexedFactSetTest {
+    private IndexedFactSet facts;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        facts = new IndexedFactSet();
+    }
+
+    @Test
+    public void mustGetCandidatesWithSameNameAndArity() throws Exception {
+        final Fact fact1 = new Fact("P(A,B)");
+        final Fact fact2 = new Fact("P(A)");
+        final Fact fact3 = new Fact("Q(A,B)");
+        final Fact matchAllFact = new Fact("P(*)");
+
+        // given
+        facts.addAll(Arrays.asList(fact1, fact2, fact3, matchAllFact));
+
+        // when
+        final Set<Fact> candidates = toSet(facts.getCandidates(new Fact("P(?,B)")));
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList(fact1, matchAllFact)), candidates);
+    }
+
+    @Test
+    public void mustGetAllCandidatesForMatchAllCondition() throws Exception {
+        final Fact fact1 = new Fact("P(A,B)");
+        final Fact fact2 = new Fact("P(A)");
+
+        // given
+        facts.addAll(Arrays.asList(fact1, fact2, new Fact("Q(A)")));
+
+        // when
+        final Set<Fact> candidates = toSet(facts.getCandidates(new Fact("P(*)")));
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList(fact1, fact2)), candidates);
+    }
+
+    @Test
+    public void mustUnindexRemovedFacts() throws Exception {
+        final Fact fact1 = new Fact("P(A)");
+        final Fact fact2 = new Fact("P(B)");
+
+        // given
+        facts.addAll(Arrays.asList(fact1, fact2));
+
+        // when
+        facts.remove(fact1);
+        final Iterator<Fact> iterator = facts.iterator();
+        iterator.next();
+        iterator.remove();
+
+        // then
+        assertTrue(facts.isEmpty());
+        assertTrue(toSet(facts.getCandidates(new Fact("P(?)"))).isEmpty());
+    }
+
+    private static Set<Fact> toSet(final Iterable<Fact> iterable) {
+        final Set<Fact> set = new HashSet<>();
+        for (final Fact fact : iterable) {
+            set.add(fact);
+        }
+        return set;
+    }
+}
@@ -1,5 +1,6 @@
 package es.internal;
 
+import es.api.IndexedFactSet;
 import java.util.HashSet;
 import java.util.Set;
 import es.api.ExpertSystem;
@@ -11,6 +12,7 @@ import tags.Rule;
 import tags.Tag;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -22,7 +24,7 @@ public class ExpertSystemImplTest {
     private ExpertSystem es;
     private Set<Rule> readyRules;
     private Set<Rule> activeRules;
-    private Set<Fact> facts;
+    private IndexedFactSet facts;
     private Set<Recommendation> recommendations;
     private Thinker thinker;
     private Teacher teacher;
@@ -31,7 +33,7 @@ public class ExpertSystemImplTest {
     @BeforeMethod
     public void setUp() throws Exception {
         readyRules = new HashSet<>();
-        facts = new HashSet<>();
+        facts = new IndexedFactSet();
         recommendations = new HashSet<>();
         activeRules = new HashSet<>();
         thinker = mock(Thinker.class);
@@ -140,6 +142,7 @@ public class ExpertSystemImplTest {
         assertTrue(activeRules.isEmpty());
         assertTrue(facts.isEmpty());
         assertTrue(recommendations.isEmpty());
+        verify(thinker).cleared();
     }
 
     @Test
@@ -157,6 +160,7 @@ public class ExpertSystemImplTest {
         assertTrue(readyRules.contains(readyRule));
         assertTrue(readyRules.contains(activeRule));
         assertTrue(activeRules.isEmpty());
+        verify(thinker).readyRuleAdded(activeRule);
     }
 
     @Test
@@ -234,6 +238,7 @@ public class ExpertSystemImplTest {
         // then
         assertTrue(readyRules.contains(rule));
         assertTrue(activeRules.isEmpty());
+        verify(thinker).readyRuleAdded(rule);
     }
 
     @Test
@@ -245,6 +250,7 @@ public class ExpertSystemImplTest {
 
         // then
         assertTrue(facts.contains(fact));
+        verify(thinker).factAdded(fact);
     }
 
     @Test
@@ -270,6 +276,7 @@ public class ExpertSystemImplTest {
 
         // then
         assertTrue(facts.isEmpty());
+        verify(thinker).factRemoved(fact);
     }
 
     @Test
@@ -0,0 +1,192 @@
+package es.internal;
+
+import es.api.IndexedFactSet;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Predicate;
+import tags.Recommendation;
+import tags.Rule;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class ReteThinkCycleExecutorTest {
+    private ReteThinkCycleExecutor thinkCycleExecutor;
+    private Set<Rule> readyRules;
+    private Set<Rule> activeRules;
+    private IndexedFactSet facts;
+    private Set<Recommendation> recommendations;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        readyRules = new HashSet<>();
+        activeRules = new HashSet<>();
+        facts = new IndexedFactSet();
+        recommendations = new HashSet<>();
+        thinkCycleExecutor = new ReteThinkCycleExecutor(readyRules, activeRules, facts, recommendations);
+    }
+
+    @Test
+    public void mustThinkCycle() throws Exception {
+        // given
+        Fact fact = new Fact("P(A)");
+        Recommendation recommendation = new Recommendation("@P(B)");
+        Rule rule = new Rule(
+                Collections.singleton(fact),
+                Collections.singleton(recommendation));
+        readyRules.add(rule);
+        thinkCycleExecutor.readyRuleAdded(rule);
+        facts.add(fact);
+        thinkCycleExecutor.factAdded(fact);
+
+        // when
+        Set<Predicate> actualActivatedPredicates = thinkCycleExecutor.thinkCycle();
+
+        // then
+        assertEquals(Collections.singleton(recommendation), actualActivatedPredicates);
+        assertTrue(readyRules.isEmpty());
+        assertTrue(activeRules.contains(rule));
+        assertTrue(recommendations.contains(recommendation));
+    }
+
+    @Test
+    public void mustNotActivateRuleAfterFactRemoved() throws Exception {
+        // given
+        Fact fact = new Fact("P(A)");
+        Rule rule = new Rule(
+                Collections.singleton(fact),
+                Collections.singleton(new Recommendation("@P(B)")));
+        readyRules.add(rule);
+        thinkCycleExecutor.readyRuleAdded(rule);
+        facts.add(fact);
+        thinkCycleExecutor.factAdded(fact);
+        facts.remove(fact);
+        thinkCycleExecutor.factRemoved(fact);
+
+        // when
+        Set<Predicate> actualActivatedPredicates = thinkCycleExecutor.thinkCycle();
+
+        // then
+        assertTrue(actualActivatedPredicates.isEmpty());
+        assertTrue(readyRules.contains(rule));
+    }
+
+    @Test
+    public void mustMatchThinkCycleExecutor() throws Exception {
+        Set<Rule> expectedReadyRules = new HashSet<>();
+        Set<Rule> expectedActiveRules = new HashSet<>();
+        IndexedFactSet expectedFacts = new IndexedFactSet();
+        Set<Recommendation> expectedRecommendations = new HashSet<>();
+        ThinkCycleExecutor expectedThinkCycleExecutor = new ThinkCycleExecutor(
+                expectedReadyRules, expectedActiveRules, expectedFacts, expectedRecommendations);
+        Random random = new Random(0);
+
+        // given
+        for (int i = 0; i < 200; i++) {
+            Rule rule = new Rule(
+                    new Fact[]{randomFact(random), randomFact(random)},
+                    new Predicate[]{randomFact(random)});
+            readyRules.add(rule);
+            thinkCycleExecutor.readyRuleAdded(rule);
+            expectedReadyRules.add(rule);
+        }
+        for (int i = 0; i < 5; i++) {
+            Fact fact = randomFact(random);
+            facts.add(fact);
+            thinkCycleExecutor.factAdded(fact);
+            expectedFacts.add(fact);
+        }
+
+        // when
+        Set<Predicate> activatedPredicates;
+        Set<Predicate> expectedActivatedPredicates;
+        do {
+            activatedPredicates = thinkCycleExecutor.thinkCycle();
+            expectedActivatedPredicates = expectedThinkCycleExecutor.thinkCycle();
+
+            // then
+            assertEquals(expectedActivatedPredicates, activatedPredicates);
+        } while (!activatedPredicates.isEmpty());
+        assertEquals(expectedReadyRules, readyRules);
+        assertEquals(expectedActiveRules, activeRules);
+        assertEquals(expectedFacts, facts);
+    }
+
+    @Test
+    public void mustBuildNetworkFromExistingRulesAndFacts() throws Exception {
+        // given
+        Fact fact = new Fact("P(A)");
+        Recommendation recommendation = new Recommendation("@P(B)");
+        readyRules.add(new Rule(
+                Collections.singleton(fact),
+                Collections.singleton(recommendation)));
+        facts.add(fact);
+        thinkCycleExecutor = new ReteThinkCycleExecutor(readyRules, activeRules, facts, recommendations);
+
+        // when
+        Set<Predicate> actualActivatedPredicates = thinkCycleExecutor.thinkCycle();
+
+        // then
+        assertEquals(Collections.singleton(recommendation), actualActivatedPredicates);
+    }
+
+    @Test
+    public void mustNotActivateRuleAfterCleared() throws Exception {
+        // given
+        Fact fact = new Fact("P(A)");
+        Rule rule = new Rule(
+                Collections.singleton(fact),
+                Collections.singleton(new Recommendation("@P(B)")));
+        readyRules.add(rule);
+        thinkCycleExecutor.readyRuleAdded(rule);
+        facts.add(fact);
+        thinkCycleExecutor.factAdded(fact);
+        readyRules.clear();
+        facts.clear();
+        thinkCycleExecutor.cleared();
+
+        // when
+        Set<Predicate> actualActivatedPredicates = thinkCycleExecutor.thinkCycle();
+
+        // then
+        assertTrue(actualActivatedPredicates.isEmpty());
+    }
+
+    @Test
+    public void mustBindVariablesOnlyFromActivatedRules() throws Exception {
+        Fact output = new Fact("Q(&x)");
+
+        // given
+        Rule activatedRule = new Rule(
+                Collections.singleton(new Fact("P(A)")),
+                Collections.singleton(output));
+        Rule readyRule = new Rule(
+                new Fact[]{new Fact("P(&x)"), new Fact("Z(B)")},
+                new Predicate[]{new Fact("R(&x)")});
+        for (Rule rule : Arrays.asList(activatedRule, readyRule)) {
+            readyRules.add(rule);
+            thinkCycleExecutor.readyRuleAdded(rule);
+        }
+        Fact fact = new Fact("P(A)");
+        facts.add(fact);
+        thinkCycleExecutor.factAdded(fact);
+
+        // when
+        Set<Predicate> actualActivatedPredicates = thinkCycleExecutor.thinkCycle();
+
+        // then
+        assertEquals(Collections.singleton(output), actualActivatedPredicates);
+        assertTrue(readyRules.contains(readyRule));
+    }
+
+    private static Fact randomFact(Random random) {
+        return new Fact(Arrays.asList("P", "Q", "R").get(random.nextInt(3)) + "(" + random.nextInt(5) + ")");
+    }
+}
@@ -0,0 +1,105 @@
+package es.internal;
+
+import es.api.IndexedFactSet;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Predicate;
+import tags.Recommendation;
+import tags.Rule;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class SemiNaiveThinkCycleExecutorTest {
+    private static final int CASCADE_LENGTH = 50;
+
+    private SemiNaiveThinkCycleExecutor thinkCycleExecutor;
+    private Set<Rule> readyRules;
+    private Set<Rule> activeRules;
+    private IndexedFactSet facts;
+    private Set<Recommendation> recommendations;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        readyRules = new HashSet<>();
+        activeRules = new HashSet<>();
+        facts = new IndexedFactSet();
+        recommendations = new HashSet<>();
+        thinkCycleExecutor = new SemiNaiveThinkCycleExecutor(readyRules, activeRules, facts, recommendations);
+    }
+
+    @Test
+    public void mustActivateCascade() throws Exception {
+        // given
+        for (int i = 0; i < CASCADE_LENGTH; i++) {
+            readyRules.add(new Rule(
+                    Collections.singleton(new Fact("P" + i + "(A)")),
+                    Collections.singleton(new Fact("P" + (i + 1) + "(A)"))));
+        }
+        readyRules.add(new Rule(
+                Collections.singleton(new Fact("Q(A)")),
+                Collections.singleton(new Recommendation("@R(A)"))));
+        facts.add(new Fact("P0(A)"));
+        thinkCycleExecutor.prepare();
+
+        // when
+        int numCycles = 0;
+        while (!thinkCycleExecutor.thinkCycle().isEmpty()) {
+            numCycles++;
+        }
+
+        // then
+        assertEquals(CASCADE_LENGTH, numCycles);
+        assertEquals(1, readyRules.size());
+        assertTrue(facts.contains(new Fact("P" + CASCADE_LENGTH + "(A)")));
+        assertTrue(recommendations.isEmpty());
+    }
+
+    @Test
+    public void mustReevaluateAllRulesAfterPrepare() throws Exception {
+        final Recommendation recommendation = new Recommendation("@R(A)");
+
+        // given
+        readyRules.add(new Rule(
+                Collections.singleton(new Fact("Q(A)")),
+                Collections.singleton(recommendation)));
+        thinkCycleExecutor.prepare();
+        assertTrue(thinkCycleExecutor.thinkCycle().isEmpty());
+        facts.add(new Fact("Q(A)"));
+        thinkCycleExecutor.prepare();
+
+        // when
+        final Set<Predicate> activatedPredicates = thinkCycleExecutor.thinkCycle();
+
+        // then
+        assertEquals(Collections.singleton(recommendation), activatedPredicates);
+    }
+
+    @Test
+    public void mustBindVariablesOnlyFromActivatedRules() throws Exception {
+        final Fact output = new Fact("Q(&x)");
+
+        // given
+        readyRules.add(new Rule(
+                Collections.singleton(new Fact("P(A)")),
+                Collections.singleton(output)));
+        final Rule readyRule = new Rule(
+                new Fact[]{new Fact("P(&x)"), new Fact("Z(B)")},
+                new Predicate[]{new Fact("R(&x)")});
+        readyRules.add(readyRule);
+        facts.add(new Fact("P(A)"));
+        thinkCycleExecutor.prepare();
+
+        // when
+        final Set<Predicate> activatedPredicates = thinkCycleExecutor.thinkCycle();
+
+        // then
+        assertEquals(Collections.singleton(output), activatedPredicates);
+        assertTrue(readyRules.contains(readyRule));
+    }
+}
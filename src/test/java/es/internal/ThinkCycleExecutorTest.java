@@ -1,5 +1,6 @@
 package es.internal;
 
+import es.api.IndexedFactSet;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import tags.Fact;
@@ -18,7 +19,7 @@ public class ThinkCycleExecutorTest {
     private ThinkCycleExecutor thinkCycleExecutor;
     private Set<Rule> readyRules;
     private Set<Rule> activeRules;
-    private Set<Fact> facts;
+    private IndexedFactSet facts;
     private Set<Recommendation> recommendations;
 
 
@@ -26,7 +27,7 @@ public class ThinkCycleExecutorTest {
     public void setUp() throws Exception {
         readyRules = new HashSet<>();
         activeRules = new HashSet<>();
-        facts = new HashSet<>();
+        facts = new IndexedFactSet();
         recommendations = new HashSet<>();
         thinkCycleExecutor = new ThinkCycleExecutor(readyRules, activeRules, facts, recommendations);
     }
@@ -1,5 +1,6 @@
 package es.internal;
 
+import es.api.IndexedFactSet;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -20,14 +21,14 @@ public class ThinkerTest {
     private ThinkCycleExecutor thinkCycleExecutor;
     private Set<Rule> readyRules;
     private Set<Rule> activeRules;
-    private Set<Fact> facts;
+    private IndexedFactSet facts;
     private Set<Recommendation> recommendations;
 
     @BeforeMethod
     public void setUp() throws Exception {
         readyRules = new HashSet<>();
         activeRules = new HashSet<>();
-        facts = new HashSet<>();
+        facts = new IndexedFactSet();
         recommendations = new HashSet<>();
         thinkCycleExecutor = mock(ThinkCycleExecutor.class);
         final ThinkCycleExecutorFactory thinkCycleExecutorFactory = mock(ThinkCycleExecutorFactory.class);
@@ -20,10 +20,14 @@ public class ExpertSystemTest {
 
     @BeforeMethod
     public void setUp() throws Exception {
-        Prometheus prometheus = Guice.createInjector(new PrometheusModule()).getInstance(Prometheus.class);
+        Prometheus prometheus = Guice.createInjector(createModule()).getInstance(Prometheus.class);
         es = prometheus.getExpertSystem();
     }
 
+    protected PrometheusModule createModule() {
+        return new PrometheusModule();
+    }
+
     @Test
     public void testES() {
         System.out.println();
@@ -453,4 +457,20 @@ public class ExpertSystemTest {
         System.out.println("[ES] Final taught rules" + taughtSentences);
     }
 
-}
\ No newline at end of file
+    /**
+     * Tests that Rules and Facts added between think calls are matched.
+     */
+    @Test
+    public void testESAddBetweenThinks() {
+        Recommendation recommendation = new Recommendation("@move(10)");
+        es.addReadyRule(new Rule(
+                new Fact[]{new Fact("human(near)"), new Fact("battery(full)")},
+                new Predicate[]{recommendation}));
+        es.addFact(new Fact("human(near)"));
+        assertEquals(es.think(), new HashSet<>());
+
+        es.addFact(new Fact("battery(full)"));
+
+        assertEquals(es.think(), new HashSet<>(Arrays.asList(recommendation)));
+    }
+}
@@ -0,0 +1,125 @@
+package integration;
+
+import com.google.inject.Guice;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkOption;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import prometheus.api.Prometheus;
+import prometheus.guice.PrometheusModule;
+import tags.Fact;
+import tags.Tag;
+import workload.WorkloadGenerator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that approximate backward search only finds true matches, and finds
+ * most of them.
+ */
+public class KnowledgeNodeNetworkApproximateTest {
+    private static final int SIZE = 2000;
+    private Path dataFile;
+
+    @BeforeClass
+    public void generateData() throws Exception {
+        dataFile = Files.createTempFile("knn", ".txt");
+        new WorkloadGenerator(7)
+                .setCount(SIZE)
+                .setMeanFanOut(4)
+                .writeKnowledgeNodes(dataFile);
+    }
+
+    @AfterClass
+    public void deleteData() throws Exception {
+        Files.delete(dataFile);
+    }
+
+    @Test
+    public void mustFindSubsetOfExactMatches() {
+        KnowledgeNodeNetwork knn = createKnowledgeNodeNetwork();
+        KnowledgeNodeNetwork approximateKnn =
+                createKnowledgeNodeNetwork(KnowledgeNodeNetworkOption.APPROXIMATE_BACKWARD_SEARCH);
+        List<KnowledgeNode> kns = knn.loadData(dataFile.toString());
+        approximateKnn.loadData(dataFile.toString());
+        knn.setBackwardSearchMatchRatio(0.5);
+        approximateKnn.setBackwardSearchMatchRatio(0.5);
+        approximateKnn.setBackwardSearchRecall(0.9);
+
+        int exactCount = 0;
+        int approximateCount = 0;
+        for (int i = 0; i < SIZE; i += SIZE / 50) {
+            Set<Tag> inputs = new HashSet<>(kns.get(i).getOutputTags());
+            knn.clearActiveTags();
+            approximateKnn.clearActiveTags();
+
+            Set<Tag> exact = knn.backwardSearch(inputs, 1);
+            Set<Tag> approximate = approximateKnn.backwardSearch(inputs, 1);
+
+            assertTrue(exact.containsAll(approximate));
+            assertTrue(approximate.contains(kns.get(i).getInputTag()));
+            exactCount += exact.size();
+            approximateCount += approximate.size();
+        }
+        assertFalse(approximateCount == 0);
+        assertTrue(approximateCount >= exactCount / 2);
+    }
+
+    @Test
+    public void mustFallBackToExactSearch() {
+        KnowledgeNodeNetwork knn = createKnowledgeNodeNetwork();
+        KnowledgeNodeNetwork approximateKnn =
+                createKnowledgeNodeNetwork(KnowledgeNodeNetworkOption.APPROXIMATE_BACKWARD_SEARCH);
+        List<KnowledgeNode> kns = knn.loadData(dataFile.toString());
+        approximateKnn.loadData(dataFile.toString());
+        knn.setBackwardSearchMatchRatio(0.5);
+        approximateKnn.setBackwardSearchMatchRatio(0.5);
+        approximateKnn.setBackwardSearchRecall(1);
+        Set<Tag> inputs = new HashSet<>(kns.get(0).getOutputTags());
+
+        assertEquals(approximateKnn.backwardSearch(inputs, 2), knn.backwardSearch(inputs, 2));
+    }
+
+    @Test
+    public void mustFindKnowledgeNodesWithManyOutputTags() {
+        KnowledgeNodeNetwork approximateKnn =
+                createKnowledgeNodeNetwork(KnowledgeNodeNetworkOption.APPROXIMATE_BACKWARD_SEARCH);
+        Set<Tag> manyOutputs = new HashSet<>();
+        for (int i = 0; i < 30; i++) {
+            manyOutputs.add(new Fact("many(" + i + ")"));
+        }
+        Tag target = new Fact("target()");
+        for (int i = 0; i < SIZE; i++) {
+            approximateKnn.addKnowledgeNode(new KnowledgeNode(new Fact("few(" + i + ")"),
+                    Collections.singleton(new Fact("out(" + i + ")")), 1));
+        }
+        approximateKnn.addKnowledgeNode(new KnowledgeNode(target, manyOutputs, 1));
+        approximateKnn.setBackwardSearchMatchRatio(0.5);
+        approximateKnn.setBackwardSearchRecall(0.9);
+        Set<Tag> inputs = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            inputs.add(new Fact("many(" + i + ")"));
+        }
+
+        assertEquals(approximateKnn.backwardSearch(inputs, 1), Collections.singleton(target));
+    }
+
+    private KnowledgeNodeNetwork createKnowledgeNodeNetwork(
+            final KnowledgeNodeNetworkOption... options) {
+        return Guice.createInjector(new PrometheusModule(
+                new KnowledgeNodeNetworkModule(options)))
+                .getInstance(Prometheus.class).getKnowledgeNodeNetwork();
+    }
+}
@@ -0,0 +1,16 @@
+package integration;
+
+import knn.api.KnowledgeNodeNetworkOption;
+import knn.guice.KnowledgeNodeNetworkModule;
+
+/**
+ * Checks that the concurrent KNN gives the same results as the default KNN.
+ */
+public class KnowledgeNodeNetworkConcurrentTest
+        extends KnowledgeNodeNetworkTagIdsTest {
+    @Override
+    protected KnowledgeNodeNetworkModule createModule() {
+        return new KnowledgeNodeNetworkModule(
+                KnowledgeNodeNetworkOption.CONCURRENT);
+    }
+}
@@ -0,0 +1,122 @@
+package integration;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkFactory;
+import knn.api.KnowledgeNodeNetworkOption;
+import knn.api.KnowledgeNodeRecencyList;
+import knn.api.LogicalKnowledgeNodeClock;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import prometheus.api.Prometheus;
+import prometheus.guice.PrometheusModule;
+import tags.Fact;
+import tags.Tag;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that KNs age and expire deterministically on the logical clock.
+ */
+public class KnowledgeNodeNetworkLogicalClockTest {
+    private static final long AGE_LIMIT = 10;
+    private Injector injector;
+    private KnowledgeNodeNetwork knn;
+    private LogicalKnowledgeNodeClock clock;
+
+    @BeforeMethod
+    public void setup() {
+        injector = Guice.createInjector(new PrometheusModule(
+                new KnowledgeNodeNetworkModule(KnowledgeNodeNetworkOption.LOGICAL_CLOCK)));
+        knn = injector.getInstance(Prometheus.class).getKnowledgeNodeNetwork();
+        clock = (LogicalKnowledgeNodeClock) injector.getInstance(KnowledgeNodeClock.class);
+    }
+
+    @Test
+    public void mustExpireOnLogicalTime() throws Exception {
+        Tag a = new Fact("a(x)");
+        knn.addKnowledgeNode(new KnowledgeNode("a(x); b(x)"));
+
+        clock.advance(KnowledgeNode.AGE_THRESHOLD);
+        knn.deleteExpiredKnowledgeNodes();
+        assertNotNull(knn.getKnowledgeNode(a));
+
+        clock.advance(KnowledgeNode.AGE_THRESHOLD / 1000); // One expiry wheel tick.
+        knn.deleteExpiredKnowledgeNodes();
+        assertNull(knn.getKnowledgeNode(a));
+        assertEquals(knn.forwardSearch(Collections.singleton(a), 1), Collections.<Tag>emptySet());
+    }
+
+    @Test
+    public void mustApplyBackwardSearchAgeLimitOnLogicalTime() throws Exception {
+        KnowledgeNodeNetwork ageLimitedKnn = injector.getInstance(KnowledgeNodeNetworkFactory.class)
+                .create(new HashMap<>(), new HashSet<>(), new KnowledgeNodeRecencyList(), 1, AGE_LIMIT);
+        Tag a = new Fact("a(x)");
+        Set<Tag> inputs = Collections.singleton(new Fact("b(x)"));
+        ageLimitedKnn.addKnowledgeNode(new KnowledgeNode("a(x); b(x)"));
+
+        clock.advance(AGE_LIMIT);
+        assertEquals(ageLimitedKnn.backwardSearch(inputs, 1), Collections.singleton(a));
+
+        ageLimitedKnn.clearActiveTags();
+        clock.advance(1);
+        assertEquals(ageLimitedKnn.backwardSearch(inputs, 1), Collections.<Tag>emptySet());
+    }
+
+    @DataProvider
+    public Object[][] searchOptions() {
+        return new Object[][]{
+                {KnowledgeNodeNetworkOption.LOGICAL_CLOCK},
+                {KnowledgeNodeNetworkOption.TAG_IDS},
+                {KnowledgeNodeNetworkOption.PARALLEL_FORWARD_SEARCH},
+                {KnowledgeNodeNetworkOption.CONCURRENT}};
+    }
+
+    @Test(dataProvider = "searchOptions")
+    public void mustLogKnowledgeNodesExpiredInSearch(KnowledgeNodeNetworkOption option) throws Exception {
+        Injector searchInjector = Guice.createInjector(new PrometheusModule(new KnowledgeNodeNetworkModule(
+                KnowledgeNodeNetworkOption.LOGICAL_CLOCK, option)));
+        KnowledgeNodeNetwork searchKnn = searchInjector.getInstance(Prometheus.class).getKnowledgeNodeNetwork();
+        LogicalKnowledgeNodeClock searchClock =
+                (LogicalKnowledgeNodeClock) searchInjector.getInstance(KnowledgeNodeClock.class);
+        Path dbFile = Files.createTempFile("knn", ".snapshot");
+        Path logFile = Files.createTempFile("knn", ".log");
+        Files.delete(dbFile);
+        Files.delete(logFile);
+        Tag a = new Fact("A(1)");
+
+        // given
+        searchKnn.recover(dbFile.toString(), logFile.toString(), 1);
+        searchKnn.addKnowledgeNode(new KnowledgeNode("A(1); B(1)"));
+        searchClock.advance(KnowledgeNode.AGE_THRESHOLD + 1);
+        searchKnn.forwardSearch(Collections.singleton(a), 1);
+        searchKnn.forwardSearch(Collections.singleton(a), 1);
+        assertNull(searchKnn.getKnowledgeNode(a));
+        searchKnn.closeLog();
+        searchKnn.resetEmpty();
+
+        // when
+        searchKnn.recover(dbFile.toString(), logFile.toString(), 1);
+
+        // then
+        assertTrue(searchKnn.getKnowledgeNodes().isEmpty());
+        searchKnn.closeLog();
+        Files.deleteIfExists(dbFile);
+        Files.delete(logFile);
+    }
+}
@@ -0,0 +1,122 @@
+package integration;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import knn.api.InProcessKnowledgeNodeShardTransport;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.PartitionedKnowledgeNodeNetwork;
+import knn.api.PartitionedKnowledgeNodeNetworkFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import prometheus.api.Prometheus;
+import prometheus.guice.PrometheusModule;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that the partitioned KNN gives the same results as the default KNN.
+ */
+public class KnowledgeNodeNetworkPartitionedTest {
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+    private static final int SHARD_COUNT = 3;
+    private KnowledgeNodeNetwork knn;
+    private PartitionedKnowledgeNodeNetwork partitionedKnn;
+    private InProcessKnowledgeNodeShardTransport transport;
+
+    @BeforeMethod
+    public void setup() {
+        final Injector injector = Guice.createInjector(new PrometheusModule());
+        knn = injector.getInstance(Prometheus.class).getKnowledgeNodeNetwork();
+        transport = new InProcessKnowledgeNodeShardTransport(SHARD_COUNT);
+        partitionedKnn = injector.getInstance(PartitionedKnowledgeNodeNetworkFactory.class)
+                .create(SHARD_COUNT, transport);
+        knn.loadData(ANIMAL_DATA_PATH);
+        partitionedKnn.loadData(ANIMAL_DATA_PATH);
+    }
+
+    @Test
+    public void loadDataTest() {
+        assertEquals(partitionedKnn.size(), knn.getKnowledgeNodes().size());
+        for (KnowledgeNode kn : knn.getKnowledgeNodes()) {
+            assertEquals(partitionedKnn.getKnowledgeNode(kn.getInputTag()).getOutputTags(), kn.getOutputTags());
+        }
+    }
+
+    @Test
+    public void forwardSearchTest() {
+        Set<Tag> inputs = new HashSet<>(Arrays.asList(
+                new Fact("dog(wolflike,length>50,weight>20)"),
+                new Fact("cat(feline,length>50,weight>20)")));
+
+        assertEquals(partitionedKnn.forwardSearch(inputs, 0), knn.forwardSearch(inputs, 0));
+        assertTrue(transport.getMessageCount() > 0);
+        assertSameState();
+    }
+
+    @Test
+    public void backwardSearchTest() {
+        Set<Tag> inputs = new HashSet<>(Arrays.asList(
+                new Fact("dog(wolflike,length>50,weight>20)"),
+                new Fact("cat(feline,length>50,weight>20)"),
+                new Fact("fur(strands,insulator)")));
+        knn.setBackwardSearchMatchRatio(0.5);
+        partitionedKnn.setBackwardSearchMatchRatio(0.5);
+
+        assertEquals(partitionedKnn.backwardSearch(inputs, 0), knn.backwardSearch(inputs, 0));
+        assertSameState();
+    }
+
+    @Test
+    public void lambdaSearchTest() {
+        Set<Tag> inputs = new HashSet<>(Arrays.asList(
+                new Fact("fur(strands,insulator)"),
+                new Fact("bark(sound,loud)")));
+        knn.setBackwardSearchMatchRatio(0.5);
+        partitionedKnn.setBackwardSearchMatchRatio(0.5);
+
+        assertEquals(partitionedKnn.lambdaSearch(inputs, 2), knn.lambdaSearch(inputs, 2));
+        assertEquals(partitionedKnn.lambdaSearch(inputs, 2), knn.lambdaSearch(inputs, 2));
+        assertSameState();
+    }
+
+    @Test
+    public void deleteKnowledgeNodeTest() {
+        Tag input = new Fact("dog(wolflike,length>50,weight>20)");
+        Set<Tag> inputs = new HashSet<>(Arrays.asList(input));
+
+        knn.deleteKnowledgeNode(input);
+        partitionedKnn.deleteKnowledgeNode(input);
+
+        assertEquals(partitionedKnn.size(), knn.getKnowledgeNodes().size());
+        assertNull(partitionedKnn.getKnowledgeNode(input));
+        assertEquals(partitionedKnn.forwardSearch(inputs, 0), knn.forwardSearch(inputs, 0));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mustRejectMissingShards() {
+        Guice.createInjector(new PrometheusModule())
+                .getInstance(PartitionedKnowledgeNodeNetworkFactory.class)
+                .create(0, transport);
+    }
+
+    private void assertSameState() {
+        assertEquals(partitionedKnn.getActiveTags(), knn.getActiveTags());
+        for (Tag t : knn.getActiveTags()) {
+            if (knn.getKnowledgeNode(t) != null) {
+                assertEquals(partitionedKnn.getKnowledgeNode(t).isFired(),
+                        knn.getKnowledgeNode(t).isFired());
+                assertEquals(partitionedKnn.getKnowledgeNode(t).getBelief(),
+                        knn.getKnowledgeNode(t).getBelief());
+            }
+        }
+    }
+}
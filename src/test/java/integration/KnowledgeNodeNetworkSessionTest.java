@@ -0,0 +1,70 @@
+package integration;
+
+import com.google.inject.Guice;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkSession;
+import knn.api.SharedKnowledgeNodeNetwork;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+import prometheus.api.Prometheus;
+import prometheus.guice.PrometheusModule;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that sessions on a shared KNN give the same results as the KNN, and
+ * do not interfere with each other.
+ */
+public class KnowledgeNodeNetworkSessionTest {
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+    private KnowledgeNodeNetwork knn;
+    private SharedKnowledgeNodeNetwork sharedKnn;
+
+    @BeforeTest
+    public void setup() {
+        knn = Guice.createInjector(new PrometheusModule())
+                .getInstance(Prometheus.class).getKnowledgeNodeNetwork();
+    }
+
+    @BeforeMethod
+    public void setupKNN() {
+        knn.loadData(ANIMAL_DATA_PATH);
+        sharedKnn = knn.snapshot();
+    }
+
+    @Test
+    public void forwardSearchTest() {
+        Set<Tag> inputs = new HashSet<>(Arrays.asList(
+                new Fact("dog(wolflike,length>50,weight>20)"),
+                new Fact("cat(feline,length>50,weight>20)")));
+        KnowledgeNodeNetworkSession session1 = sharedKnn.createSession();
+        KnowledgeNodeNetworkSession session2 = sharedKnn.createSession();
+
+        Set<Tag> activatedTags = session1.forwardSearch(inputs, 0);
+
+        assertEquals(activatedTags, knn.forwardSearch(inputs, 0));
+        assertEquals(session1.getActiveTags(), knn.getActiveTags());
+        assertTrue(session2.getActiveTags().isEmpty());
+        assertEquals(session2.forwardSearch(inputs, 0), activatedTags);
+    }
+
+    @Test
+    public void lambdaSearchTest() {
+        Set<Tag> inputs = new HashSet<>(Arrays.asList(
+                new Fact("fur(strands,insulator)"),
+                new Fact("bark(sound,loud)")));
+        knn.setBackwardSearchMatchRatio(0.5);
+        KnowledgeNodeNetworkSession session = knn.snapshot().createSession();
+
+        assertEquals(session.lambdaSearch(inputs, 2), knn.lambdaSearch(inputs, 2));
+        assertEquals(session.getActiveTags(), knn.getActiveTags());
+    }
+}
@@ -0,0 +1,147 @@
+package integration;
+
+import com.google.inject.Guice;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkOption;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import prometheus.api.Prometheus;
+import prometheus.guice.PrometheusModule;
+import tags.Fact;
+import tags.Tag;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Checks that the KNN executing on Tag IDs gives the same results as the
+ * default KNN.
+ */
+public class KnowledgeNodeNetworkTagIdsTest {
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+    private KnowledgeNodeNetwork knn;
+    private KnowledgeNodeNetwork idKnn;
+
+    @BeforeClass
+    public void setup() {
+        knn = Guice.createInjector(new PrometheusModule())
+                .getInstance(Prometheus.class).getKnowledgeNodeNetwork();
+        idKnn = Guice.createInjector(new PrometheusModule(createModule()))
+                .getInstance(Prometheus.class).getKnowledgeNodeNetwork();
+    }
+
+    protected KnowledgeNodeNetworkModule createModule() {
+        return new KnowledgeNodeNetworkModule(KnowledgeNodeNetworkOption.TAG_IDS);
+    }
+
+    @BeforeMethod
+    public void setupKNN() {
+        knn.loadData(ANIMAL_DATA_PATH);
+        idKnn.loadData(ANIMAL_DATA_PATH);
+    }
+
+    @Test
+    public void forwardSearchTest() {
+        Set<Tag> inputs = new HashSet<>(Arrays.asList(
+                new Fact("dog(wolflike,length>50,weight>20)"),
+                new Fact("cat(feline,length>50,weight>20)")));
+
+        assertEquals(idKnn.forwardSearch(inputs, 0), knn.forwardSearch(inputs, 0));
+        assertSameState();
+    }
+
+    @Test
+    public void backwardSearchTest() {
+        Set<Tag> inputs = new HashSet<>(Arrays.asList(
+                new Fact("dog(wolflike,length>50,weight>20)"),
+                new Fact("cat(feline,length>50,weight>20)"),
+                new Fact("fur(strands,insulator)")));
+        knn.setBackwardSearchMatchRatio(0.5);
+        idKnn.setBackwardSearchMatchRatio(0.5);
+
+        assertEquals(idKnn.backwardSearch(inputs, 0), knn.backwardSearch(inputs, 0));
+        assertSameState();
+    }
+
+    @Test
+    public void lambdaSearchTest() {
+        Set<Tag> inputs = new HashSet<>(Arrays.asList(
+                new Fact("fur(strands,insulator)"),
+                new Fact("bark(sound,loud)")));
+        knn.setBackwardSearchMatchRatio(0.5);
+        idKnn.setBackwardSearchMatchRatio(0.5);
+
+        assertEquals(idKnn.lambdaSearch(inputs, 2), knn.lambdaSearch(inputs, 2));
+        assertSameState();
+    }
+
+    @Test
+    public void directSearchTest() {
+        Tag input = new Fact("dog(wolflike,length>50,weight>20)");
+
+        assertEquals(idKnn.directSearch(input), knn.directSearch(input));
+        assertEquals(idKnn.directSearch(new Fact("unknown(x)")),
+                knn.directSearch(new Fact("unknown(x)")));
+        assertSameState();
+    }
+
+    @Test
+    public void thinkTest() {
+        Tag[] inputs = {
+                new Fact("dog(wolflike,length>50,weight>20)"),
+                new Fact("fur(strands,insulator)")};
+        knn.clearActiveTags();
+        idKnn.clearActiveTags();
+        knn.addActiveTags(inputs);
+        idKnn.addActiveTags(inputs);
+        knn.setBackwardSearchMatchRatio(0.5);
+        idKnn.setBackwardSearchMatchRatio(0.5);
+
+        assertEquals(idKnn.forwardThink(1), knn.forwardThink(1));
+        assertEquals(idKnn.backwardThink(1), knn.backwardThink(1));
+        assertEquals(idKnn.lambdaThink(1), knn.lambdaThink(1));
+        assertSameState();
+    }
+
+    @Test
+    public void deleteKnowledgeNodeTest() {
+        Tag input = new Fact("dog(wolflike,length>50,weight>20)");
+        Set<Tag> inputs = new HashSet<>(Arrays.asList(input));
+
+        knn.deleteKnowledgeNode(input);
+        idKnn.deleteKnowledgeNode(input);
+        knn.deleteExpiredKnowledgeNodes();
+        idKnn.deleteExpiredKnowledgeNodes();
+
+        assertEquals(idKnn.getKnowledgeNodes().size(),
+                knn.getKnowledgeNodes().size());
+        assertEquals(idKnn.getKnowledgeNode(input), null);
+        assertEquals(idKnn.forwardSearch(inputs, 0), knn.forwardSearch(inputs, 0));
+    }
+
+    @Test
+    public void snapshotTest() {
+        Set<Tag> inputs = new HashSet<>(Arrays.asList(
+                new Fact("dog(wolflike,length>50,weight>20)"),
+                new Fact("cat(feline,length>50,weight>20)")));
+
+        assertEquals(idKnn.snapshot().createSession().forwardSearch(inputs, 0),
+                knn.snapshot().createSession().forwardSearch(inputs, 0));
+        assertEquals(idKnn.snapshot().size(), knn.snapshot().size());
+    }
+
+    private void assertSameState() {
+        assertEquals(idKnn.getActiveTags(), knn.getActiveTags());
+        for (Tag t : knn.getActiveTags()) {
+            if (knn.getKnowledgeNode(t) != null) {
+                assertEquals(idKnn.getKnowledgeNode(t).getBelief(),
+                        knn.getKnowledgeNode(t).getBelief());
+            }
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package integration;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeClock;
+import knn.api.KnowledgeNodeLoadReport;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkOption;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import prometheus.api.Prometheus;
+import prometheus.guice.PrometheusModule;
+import tags.Tag;
+import workload.FanOutDistribution;
+import workload.WorkloadGenerator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that all the KNN implementations give the same results on a
+ * generated workload with cycles and shared Tags.
+ */
+public class KnowledgeNodeNetworkWorkloadTest {
+    private static final int SIZE = 2000;
+    private static final int STRIDE = SIZE / 10;
+    private final List<Injector> injectors = new ArrayList<>();
+    private Path dataFile;
+
+    @BeforeClass
+    public void generateData() throws Exception {
+        dataFile = Files.createTempFile("knn", ".txt");
+        new WorkloadGenerator(11)
+                .setCount(SIZE)
+                .setMeanFanOut(3)
+                .setFanOutDistribution(FanOutDistribution.POWER_LAW)
+                .setCycleDensity(0.2)
+                .setArgumentMix(0.2, 0.1)
+                .setSharedTags(0.3, 50)
+                .writeKnowledgeNodes(dataFile);
+    }
+
+    @AfterClass
+    public void deleteData() throws Exception {
+        Files.delete(dataFile);
+    }
+
+    @AfterMethod
+    public void closeClocks() throws Exception {
+        for (final Injector injector : injectors) {
+            final KnowledgeNodeClock clock =
+                    injector.getInstance(KnowledgeNodeClock.class);
+            if (clock instanceof AutoCloseable) {
+                ((AutoCloseable) clock).close();
+            }
+        }
+        injectors.clear();
+    }
+
+    @DataProvider
+    public Object[][] options() {
+        final KnowledgeNodeNetworkOption[] options =
+                KnowledgeNodeNetworkOption.values();
+        final Object[][] data = new Object[options.length][];
+        for (int i = 0; i < options.length; i++) {
+            data[i] = new Object[]{options[i]};
+        }
+        return data;
+    }
+
+    @Test
+    public void mustLoadAllKnowledgeNodes() {
+        // when
+        final KnowledgeNodeNetwork knn = createKnowledgeNodeNetwork();
+        final List<KnowledgeNode> kns = knn.loadData(dataFile.toString());
+
+        // then
+        assertEquals(kns.size(), SIZE);
+        assertEquals(knn.getKnowledgeNodes().size(), SIZE);
+    }
+
+    @Test(dataProvider = "options")
+    public void mustBulkLoadAllKnowledgeNodes(
+            final KnowledgeNodeNetworkOption option) {
+        // given
+        final KnowledgeNodeNetwork knn = createKnowledgeNodeNetwork(option);
+
+        // when
+        final KnowledgeNodeLoadReport report =
+                knn.bulkLoadData(dataFile.toString());
+
+        // then
+        assertFalse(report.hasErrors());
+        assertEquals(report.getKnowledgeNodes().size(), SIZE);
+        assertEquals(knn.getKnowledgeNodes().size(), SIZE);
+    }
+
+    @Test(dataProvider = "options")
+    public void mustGiveSameResultsForAllImplementations(
+            final KnowledgeNodeNetworkOption option) {
+        // given
+        final Fixture fixture = new Fixture(createKnowledgeNodeNetwork(),
+                createKnowledgeNodeNetwork(option));
+        final KnowledgeNodeNetwork knn = fixture.knn;
+        final KnowledgeNodeNetwork other = fixture.other;
+        final Set<Tag> inputs = fixture.getInputTags(0);
+        final Set<Tag> outputs = fixture.getOutputTags(1);
+        knn.setBackwardSearchMatchRatio(0.05);
+        other.setBackwardSearchMatchRatio(0.05);
+
+        // when
+        final Set<Tag> forward = knn.forwardSearch(inputs, 3);
+        final Set<Tag> backward = knn.backwardSearch(outputs, 2);
+
+        // then
+        assertFalse(forward.isEmpty());
+        assertFalse(backward.isEmpty());
+        assertEquals(other.forwardSearch(inputs, 3), forward);
+        assertEquals(other.backwardSearch(outputs, 2), backward);
+        assertEquals(other.forwardSearch(inputs, 0),
+                knn.forwardSearch(inputs, 0));
+        assertEquals(other.getActiveTags(), knn.getActiveTags());
+    }
+
+    @Test(dataProvider = "options")
+    public void mustCacheForwardClosureForAllImplementations(
+            final KnowledgeNodeNetworkOption option) {
+        // given
+        final Fixture fixture = new Fixture(option);
+        final KnowledgeNodeNetwork knn = fixture.knn;
+        final Set<Tag> inputs = fixture.getInputTags(0);
+        knn.setForwardClosureCacheSize(4);
+
+        // when
+        final Set<Tag> closure = knn.forwardClosure(inputs, 3);
+        final Set<Tag> cachedClosure = knn.forwardClosure(inputs, 3);
+        knn.deleteKnowledgeNode(fixture.kns.get(0).getInputTag());
+        final Set<Tag> updatedClosure = knn.forwardClosure(inputs, 3);
+
+        // then
+        assertEquals(closure, fixture.other.forwardSearch(inputs, 3));
+        assertTrue(knn.getActiveTags().isEmpty(),
+                "Forward closure must not activate Tags");
+        assertEquals(cachedClosure, closure);
+        assertFalse(updatedClosure.equals(closure));
+        assertEquals(knn.getForwardClosureCacheStats().getHitCount(), 1);
+    }
+
+    @Test(dataProvider = "options")
+    public void mustIndexForwardClosureForAllImplementations(
+            final KnowledgeNodeNetworkOption option) {
+        // given
+        final Fixture fixture = new Fixture(option);
+        final KnowledgeNodeNetwork knn = fixture.knn;
+        final KnowledgeNodeNetwork other = fixture.other;
+        final List<KnowledgeNode> kns = fixture.kns;
+        final Set<Tag> inputs = fixture.getInputTags(0);
+        knn.setForwardClosureIndexEnabled(true);
+
+        // when
+        final Set<Tag> closure = knn.forwardClosure(inputs, 0);
+        final Set<Tag> expected = other.forwardSearch(inputs, 0);
+        for (int i = 1; i < SIZE; i += STRIDE) {
+            knn.deleteKnowledgeNode(kns.get(i).getInputTag());
+            other.deleteKnowledgeNode(kns.get(i).getInputTag());
+        }
+        knn.addKnowledgeNode(new KnowledgeNode(kns.get(2).getInputTag(),
+                kns.get(0).getOutputTags(), 100));
+        other.addKnowledgeNode(new KnowledgeNode(kns.get(2).getInputTag(),
+                kns.get(0).getOutputTags(), 100));
+
+        // then
+        assertFalse(closure.isEmpty());
+        assertEquals(closure, expected);
+        assertEquals(knn.forwardClosure(inputs, 0),
+                other.forwardClosure(inputs, 0));
+    }
+
+    @Test(dataProvider = "options")
+    public void mustMeetBetweenInputAndGoalForAllImplementations(
+            final KnowledgeNodeNetworkOption option) {
+        // given
+        final Fixture fixture = new Fixture(option);
+        final KnowledgeNodeNetwork knn = fixture.knn;
+        final KnowledgeNodeNetwork other = fixture.other;
+        final Set<Tag> inputs =
+                new HashSet<>(fixture.kns.get(0).getOutputTags());
+        final Set<Tag> backwardTags = other.backwardSearch(inputs, 3);
+        final Set<Tag> goals = new HashSet<>();
+        for (final KnowledgeNode kn : fixture.kns) {
+            if (backwardTags.contains(kn.getInputTag())
+                    && kn.getThreshold() > 0 && kn.getThreshold()
+                    <= KnowledgeNode.ACTIVATION_INCREMENT) {
+                goals.addAll(kn.getOutputTags());
+            }
+        }
+        goals.removeAll(inputs);
+
+        // when
+        final Set<Tag> meetingTags =
+                knn.bidirectionalLambdaSearch(inputs, goals, 3);
+
+        // then
+        assertFalse(meetingTags.isEmpty());
+        assertTrue(backwardTags.containsAll(meetingTags));
+        for (final Tag t : meetingTags) {
+            final Set<Tag> reachedTags = new HashSet<>(
+                    other.forwardClosure(Collections.singleton(t), 3));
+            reachedTags.add(t);
+            reachedTags.retainAll(goals);
+            assertFalse(reachedTags.isEmpty());
+        }
+        assertTrue(knn.getActiveTags().isEmpty());
+    }
+
+    @Test(dataProvider = "options")
+    public void mustBatchSearchesForAllImplementations(
+            final KnowledgeNodeNetworkOption option) {
+        // given
+        final Fixture fixture = new Fixture(option);
+        final KnowledgeNodeNetwork knn = fixture.knn;
+        final KnowledgeNodeNetwork other = fixture.other;
+        other.setBackwardSearchRecall(1);
+        final List<Set<Tag>> forwardInputs = new ArrayList<>();
+        final List<Set<Tag>> backwardInputs = new ArrayList<>();
+        for (int i = 0; i < SIZE; i += STRIDE / 2) {
+            forwardInputs.add(Collections.singleton(
+                    fixture.kns.get(i).getInputTag()));
+            backwardInputs.add(fixture.kns.get(i).getOutputTags());
+        }
+
+        // when
+        final List<Set<Tag>> forwardResults =
+                knn.batchForwardSearch(forwardInputs, 3);
+        final List<Set<Tag>> backwardResults =
+                knn.batchBackwardSearch(backwardInputs, 3);
+
+        // then
+        for (int i = 0; i < forwardInputs.size(); i++) {
+            assertEquals(forwardResults.get(i),
+                    other.forwardClosure(forwardInputs.get(i), 3));
+            assertEquals(backwardResults.get(i),
+                    other.backwardSearch(backwardInputs.get(i), 3));
+            other.clearActiveTags();
+        }
+        assertTrue(knn.getActiveTags().isEmpty());
+    }
+
+    @Test(dataProvider = "options")
+    public void mustRankSubsetOfResultsForAllImplementations(
+            final KnowledgeNodeNetworkOption option) {
+        // given
+        final Fixture fixture = new Fixture(option);
+        final KnowledgeNodeNetwork knn = fixture.knn;
+        final KnowledgeNodeNetwork other = fixture.other;
+        final Set<Tag> outputs = fixture.getOutputTags(1);
+        knn.setBackwardSearchMatchRatio(0.05);
+        other.setBackwardSearchMatchRatio(0.05);
+        other.setBackwardSearchRecall(1);
+
+        // when
+        final Set<Tag> backward = other.backwardSearch(outputs, 1);
+        final List<Tag> ranked = knn.rankedBackwardSearch(outputs, 1, 10);
+        knn.clearActiveTags();
+        final List<Tag> all = knn.rankedBackwardSearch(outputs, 1, SIZE);
+
+        // then
+        assertEquals(ranked.size(), 10);
+        assertTrue(backward.containsAll(ranked));
+        assertEquals(new HashSet<>(all), backward);
+        assertEquals(all.subList(0, 10), ranked);
+    }
+
+    @Test
+    public void mustRankSubsetOfLambdaSearchResults() {
+        // given
+        final Fixture fixture = new Fixture(createKnowledgeNodeNetwork(),
+                createKnowledgeNodeNetwork());
+        final KnowledgeNodeNetwork knn = fixture.knn;
+        final KnowledgeNodeNetwork other = fixture.other;
+        final Set<Tag> outputs = fixture.getOutputTags(1);
+        knn.setBackwardSearchMatchRatio(0.05);
+        other.setBackwardSearchMatchRatio(0.05);
+
+        // when
+        final Set<Tag> lambda = other.lambdaSearch(outputs, 1);
+        final List<Tag> ranked = knn.rankedLambdaSearch(outputs, 1, 10);
+
+        // then
+        assertFalse(ranked.isEmpty());
+        assertTrue(ranked.size() <= 10);
+        assertTrue(lambda.containsAll(ranked));
+    }
+
+    @Test(dataProvider = "options")
+    public void mustResetFromSavedSnapshot(
+            final KnowledgeNodeNetworkOption option) throws Exception {
+        final Path snapshotFile = Files.createTempFile("knn", ".snapshot");
+
+        // given
+        final KnowledgeNodeNetwork knn = createKnowledgeNodeNetwork(option);
+        final KnowledgeNodeNetwork other = createKnowledgeNodeNetwork(option);
+        final Set<Tag> inputs =
+                getInputTags(knn.loadData(dataFile.toString()), 0);
+
+        // when
+        knn.save(snapshotFile.toString());
+        other.reset(snapshotFile.toString());
+
+        // then
+        assertEquals(other.getKnowledgeNodes().size(), SIZE);
+        assertEquals(other.forwardSearch(inputs, 3),
+                knn.forwardSearch(inputs, 3));
+        Files.delete(snapshotFile);
+    }
+
+    @Test(dataProvider = "options")
+    public void mustRecoverLoggedMutations(
+            final KnowledgeNodeNetworkOption option) throws Exception {
+        final Path dbFile = Files.createTempFile("knn", ".snapshot");
+        final Path logFile = Files.createTempFile("knn", ".log");
+        Files.delete(dbFile);
+        Files.delete(logFile);
+
+        // given
+        final KnowledgeNodeNetwork knn = createKnowledgeNodeNetwork(option);
+        final KnowledgeNodeNetwork other = createKnowledgeNodeNetwork(option);
+        knn.recover(dbFile.toString(), logFile.toString(), 16);
+        final List<KnowledgeNode> kns = knn.loadData(dataFile.toString());
+        for (int i = 0; i < SIZE; i += STRIDE) {
+            knn.deleteKnowledgeNode(kns.get(i).getInputTag());
+            knn.addKnowledgeNode(new KnowledgeNode(
+                    kns.get(i + 1).getInputTag(),
+                    kns.get(i).getOutputTags(), 100));
+        }
+        final Set<Tag> inputs = getInputTags(kns, 1);
+
+        // when
+        knn.closeLog();
+        other.recover(dbFile.toString(), logFile.toString(), 16);
+
+        // then
+        assertEquals(other.getKnowledgeNodes().size(), SIZE - 10);
+        assertEquals(other.forwardSearch(inputs, 3),
+                knn.forwardSearch(inputs, 3));
+        other.compactLog();
+        assertEquals(Files.size(logFile), 2 * Integer.BYTES);
+        other.closeLog();
+        Files.deleteIfExists(dbFile);
+        Files.deleteIfExists(logFile);
+    }
+
+    private KnowledgeNodeNetwork createKnowledgeNodeNetwork(
+            final KnowledgeNodeNetworkOption... options) {
+        final Injector injector = Guice.createInjector(new PrometheusModule(
+                new KnowledgeNodeNetworkModule(options)));
+        injectors.add(injector);
+        return injector.getInstance(Prometheus.class)
+                .getKnowledgeNodeNetwork();
+    }
+
+    /**
+     * Gets the input Tags of every {@link #STRIDE}-th KN.
+     *
+     * @param kns   the KNs
+     * @param first the index of the first KN
+     * @return the input Tags
+     */
+    private static Set<Tag> getInputTags(
+            final List<KnowledgeNode> kns,
+            final int first) {
+        final Set<Tag> inputTags = new HashSet<>();
+        for (int i = first; i < kns.size(); i += STRIDE) {
+            inputTags.add(kns.get(i).getInputTag());
+        }
+        return inputTags;
+    }
+
+    /**
+     * Two KNNs loaded with the workload, one to search and the other to
+     * compare its results with.
+     */
+    private final class Fixture {
+        private final KnowledgeNodeNetwork knn;
+        private final KnowledgeNodeNetwork other;
+        private final List<KnowledgeNode> kns;
+
+        private Fixture(final KnowledgeNodeNetworkOption option) {
+            this(createKnowledgeNodeNetwork(option),
+                    createKnowledgeNodeNetwork(option));
+        }
+
+        private Fixture(
+                final KnowledgeNodeNetwork knn,
+                final KnowledgeNodeNetwork other) {
+            this.knn = knn;
+            this.other = other;
+            this.kns = knn.loadData(dataFile.toString());
+            other.loadData(dataFile.toString());
+        }
+
+        /**
+         * Gets the input Tags of every {@link #STRIDE}-th loaded KN.
+         *
+         * @param first the index of the first KN
+         * @return the input Tags
+         */
+        private Set<Tag> getInputTags(final int first) {
+            return KnowledgeNodeNetworkWorkloadTest.getInputTags(kns, first);
+        }
+
+        /**
+         * Gets the output Tags of every {@link #STRIDE}-th loaded KN.
+         *
+         * @param first the index of the first KN
+         * @return the output Tags
+         */
+        private Set<Tag> getOutputTags(final int first) {
+            final Set<Tag> outputTags = new HashSet<>();
+            for (int i = first; i < kns.size(); i += STRIDE) {
+                outputTags.addAll(kns.get(i).getOutputTags());
+            }
+            return outputTags;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package integration;
+
+import es.api.ExpertSystemOption;
+import es.guice.ExpertSystemModule;
+import knn.guice.KnowledgeNodeNetworkModule;
+import prometheus.guice.PrometheusModule;
+
+/**
+ * Runs the ES integration tests with the Rete think cycle executor.
+ */
+public class ReteExpertSystemTest extends ExpertSystemTest {
+    @Override
+    protected PrometheusModule createModule() {
+        return new PrometheusModule(new KnowledgeNodeNetworkModule(),
+                new ExpertSystemModule(ExpertSystemOption.RETE));
+    }
+}
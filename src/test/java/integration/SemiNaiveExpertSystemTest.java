@@ -0,0 +1,17 @@
+package integration;
+
+import es.api.ExpertSystemOption;
+import es.guice.ExpertSystemModule;
+import knn.guice.KnowledgeNodeNetworkModule;
+import prometheus.guice.PrometheusModule;
+
+/**
+ * Runs the ES integration tests with the semi-naive think cycle executor.
+ */
+public class SemiNaiveExpertSystemTest extends ExpertSystemTest {
+    @Override
+    protected PrometheusModule createModule() {
+        return new PrometheusModule(new KnowledgeNodeNetworkModule(),
+                new ExpertSystemModule(ExpertSystemOption.SEMI_NAIVE));
+    }
+}
@@ -0,0 +1,61 @@
+package knn.api;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import knn.guice.KnowledgeNodeNetworkModule;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class KnowledgeNodeClockTest {
+    @Test
+    public void mustAdvanceLogicalClock() throws Exception {
+        // given
+        LogicalKnowledgeNodeClock clock = new LogicalKnowledgeNodeClock(10);
+
+        // when
+        long time = clock.advance(5);
+
+        // then
+        assertEquals(time, 15);
+        assertEquals(clock.currentTimeMillis(), 15);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mustNotMoveLogicalClockBackwards() throws Exception {
+        new LogicalKnowledgeNodeClock().advance(-1);
+    }
+
+    @Test
+    public void mustTickCoarseClock() throws Exception {
+        // given
+        long start = System.currentTimeMillis();
+
+        try (CoarseKnowledgeNodeClock clock = new CoarseKnowledgeNodeClock(1)) {
+            // when
+            Thread.sleep(50);
+
+            // then
+            assertTrue(clock.currentTimeMillis() > start);
+            assertTrue(clock.currentTimeMillis() <= System.currentTimeMillis());
+        }
+    }
+
+    @Test
+    public void mustStopCoarseClockOnClose() throws Exception {
+        // given
+        Injector injector = Guice.createInjector(new KnowledgeNodeNetworkModule(KnowledgeNodeNetworkOption.COARSE_CLOCK));
+        CoarseKnowledgeNodeClock clock = (CoarseKnowledgeNodeClock) injector.getInstance(KnowledgeNodeClock.class);
+        assertSame(injector.getInstance(KnowledgeNodeClock.class), clock);
+
+        // when
+        clock.close();
+        long time = clock.currentTimeMillis();
+        Thread.sleep(50);
+
+        // then
+        assertEquals(clock.currentTimeMillis(), time);
+    }
+}
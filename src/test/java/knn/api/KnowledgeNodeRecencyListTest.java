@@ -0,0 +1,123 @@
+package knn.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Tag;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class KnowledgeNodeRecencyListTest {
+    private KnowledgeNodeRecencyList recencyList;
+    private KnowledgeNode kn1;
+    private KnowledgeNode kn2;
+    private KnowledgeNode kn3;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        recencyList = new KnowledgeNodeRecencyList();
+        kn1 = new KnowledgeNode(mock(Tag.class), Collections.emptySet(), 1);
+        kn2 = new KnowledgeNode(mock(Tag.class), Collections.emptySet(), 1);
+        kn3 = new KnowledgeNode(mock(Tag.class), Collections.emptySet(), 1);
+    }
+
+    @Test
+    public void mustIterateFromNewestToOldest() throws Exception {
+        // when
+        recencyList.add(kn1);
+        recencyList.add(kn2);
+        recencyList.add(kn3);
+
+        // then
+        assertEquals(new ArrayList<>(recencyList), Arrays.asList(kn3, kn2, kn1));
+        assertEquals(recencyList.getOldest(), kn1);
+        assertEquals(recencyList.size(), 3);
+    }
+
+    @Test
+    public void mustWalkFromNewestToOldest() throws Exception {
+        // when
+        recencyList.add(kn1);
+        recencyList.add(kn2);
+        recencyList.add(kn3);
+
+        // then
+        assertEquals(recencyList.getNewest(), kn3);
+        assertEquals(recencyList.getOlder(kn3), kn2);
+        assertEquals(recencyList.getOlder(kn2), kn1);
+        assertNull(recencyList.getOlder(kn1));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mustNotWalkFromKnowledgeNodeOfAnotherList() throws Exception {
+        recencyList.getOlder(kn1);
+    }
+
+    @Test
+    public void mustMoveTouchedKnowledgeNodeToFront() throws Exception {
+        // given
+        recencyList.add(kn1);
+        recencyList.add(kn2);
+        recencyList.add(kn3);
+
+        // when
+        final boolean added = recencyList.add(kn1);
+
+        // then
+        assertFalse(added);
+        assertEquals(new ArrayList<>(recencyList), Arrays.asList(kn1, kn3, kn2));
+        assertEquals(recencyList.getOldest(), kn2);
+        assertEquals(recencyList.size(), 3);
+    }
+
+    @Test
+    public void mustRemoveKnowledgeNode() throws Exception {
+        // given
+        recencyList.add(kn1);
+        recencyList.add(kn2);
+        recencyList.add(kn3);
+
+        // when
+        recencyList.remove(kn2);
+        final Iterator<KnowledgeNode> iterator = recencyList.iterator();
+        iterator.next();
+        iterator.remove();
+
+        // then
+        assertEquals(new ArrayList<>(recencyList), Collections.singletonList(kn1));
+        assertFalse(recencyList.contains(kn2));
+        assertFalse(recencyList.contains(kn3));
+        assertTrue(recencyList.contains(kn1));
+    }
+
+    @Test
+    public void mustClear() throws Exception {
+        // given
+        recencyList.add(kn1);
+        recencyList.add(kn2);
+
+        // when
+        recencyList.clear();
+
+        // then
+        assertTrue(recencyList.isEmpty());
+        assertNull(recencyList.getOldest());
+        assertTrue(new KnowledgeNodeRecencyList().add(kn1));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mustNotShareKnowledgeNodeBetweenLists() throws Exception {
+        // given
+        recencyList.add(kn1);
+
+        // when
+        new KnowledgeNodeRecencyList().add(kn1);
+    }
+}
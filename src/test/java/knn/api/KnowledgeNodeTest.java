@@ -2,9 +2,49 @@ package knn.api;
 
 import org.testng.annotations.Test;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
 public class KnowledgeNodeTest {
     @Test(expectedExceptions =  KnowledgeNodeParseException.class)
     public void mustFailParsingKn() throws Exception{
         new KnowledgeNode("x");
     }
+
+    @Test
+    public void mustExpireAfterExpiryTime() throws Exception {
+        // given
+        KnowledgeNode kn = new KnowledgeNode("A(1); B(1)");
+
+        // when
+        boolean expiredAtExpiryTime = kn.expire(kn.getExpiryTime());
+        boolean expiredAfterExpiryTime = kn.expire(kn.getExpiryTime() + 1);
+
+        // then
+        assertFalse(expiredAtExpiryTime);
+        assertTrue(expiredAfterExpiryTime);
+        assertTrue(kn.isExpired());
+        assertFalse(kn.excite());
+    }
+
+    @Test
+    public void mustAgeOnGivenTime() throws Exception {
+        // given
+        KnowledgeNode kn = new KnowledgeNode("A(1); B(1)");
+        kn.setAgeTimeStamp(0);
+
+        // when
+        boolean fired = kn.excite(KnowledgeNode.AGE_THRESHOLD);
+        long age = kn.getCurrentAge(KnowledgeNode.AGE_THRESHOLD + 5);
+        boolean firedAfterThreshold = kn.excite(2 * KnowledgeNode.AGE_THRESHOLD + 1);
+        boolean firedAfterExpiry = kn.excite(2 * KnowledgeNode.AGE_THRESHOLD + 2);
+
+        // then
+        assertTrue(fired);
+        assertEquals(age, 5);
+        assertFalse(firedAfterThreshold);
+        assertFalse(firedAfterExpiry);
+        assertTrue(kn.isExpired());
+    }
 }
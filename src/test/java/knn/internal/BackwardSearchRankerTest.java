@@ -0,0 +1,71 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import knn.api.KnowledgeNode;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class BackwardSearchRankerTest {
+    private static final long TIME = 0;
+
+    @Test
+    public void mustKeepBestKnowledgeNodes() throws Exception {
+        final KnowledgeNode best = createKnowledgeNode("a(x)", 1, 1);
+        final KnowledgeNode stronger = createKnowledgeNode("b(x)", 1, 10);
+        final KnowledgeNode weaker = createKnowledgeNode("c(x)", 1, 1);
+        final BackwardSearchRanker ranker = new BackwardSearchRanker(2, 4, TIME);
+
+        // when
+        ranker.offer(weaker, 1);
+        ranker.offer(best, 4);
+        ranker.offer(stronger, 1);
+
+        // then
+        final Map<Tag, Double> scores = ranker.getScores();
+        assertEquals(scores.keySet(), new HashSet<>(Arrays.asList(best.getInputTag(), stronger.getInputTag())));
+        assertEquals(BackwardSearchRanker.rank(scores, 2), Arrays.asList(best.getInputTag(), stronger.getInputTag()));
+    }
+
+    @Test
+    public void mustStopWhenNoCandidateCanImprove() throws Exception {
+        final KnowledgeNode kn = createKnowledgeNode("a(x)", 1, 1);
+        final BackwardSearchRanker ranker = new BackwardSearchRanker(1, 4, TIME);
+
+        // given
+        assertTrue(ranker.canImprove(0, 0));
+        ranker.offer(kn, 4);
+
+        // then
+        assertFalse(ranker.canImprove(1, 0));
+        assertTrue(ranker.canImprove(4, 0));
+    }
+
+    @Test
+    public void mustScoreRecentKnowledgeNodesHigher() throws Exception {
+        final KnowledgeNode kn = createKnowledgeNode("a(x)", 1, 1);
+
+        // when
+        final double recentScore = BackwardSearchRanker.score(kn, 1, 2, 0);
+        final double oldScore = BackwardSearchRanker.score(kn, 1, 2, KnowledgeNode.AGE_THRESHOLD);
+
+        // then
+        assertTrue(recentScore > oldScore);
+        assertTrue(BackwardSearchRanker.getMaxScore(1, 2, 0) >= recentScore);
+        assertEquals(oldScore, recentScore - BackwardSearchRanker.RECENCY_WEIGHT / 2, 1e-9);
+    }
+
+    private static KnowledgeNode createKnowledgeNode(final String inputTag, final double belief, final int strength) {
+        final KnowledgeNode kn = new KnowledgeNode(new Fact(inputTag), Collections.singleton(new Fact("z(x)")), 1, belief,
+                strength);
+        kn.setAgeTimeStamp(TIME);
+        return kn;
+    }
+}
@@ -1,40 +1,71 @@
 package knn.internal;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeSet;
 import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeRecencyList;
+import knn.api.SystemKnowledgeNodeClock;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import tags.Tag;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertTrue;
 
 public class BackwardSearcherTest {
     private BackwardSearcher backwardSearcher;
     private BackwardSearchMatcher backwardSearchMatcher;
-    private TreeSet<KnowledgeNode> ageSortedKNs;
+    private KnowledgeNodeRecencyList ageSortedKNs;
+    private OutputTagIndex outputTagIndex;
 
     @BeforeMethod
     public void setUp() throws Exception {
         final Set<Tag> activeTags = new HashSet<>();
         backwardSearchMatcher = mock(BackwardSearchMatcher.class);
-        ageSortedKNs = new TreeSet<>();
+        ageSortedKNs = new KnowledgeNodeRecencyList();
+        outputTagIndex = new OutputTagIndex();
         final double partialMatchRatio = 0.5;
         final long ageLimit = Long.MAX_VALUE;
-        backwardSearcher = new BackwardSearcher(activeTags, ageSortedKNs, partialMatchRatio, ageLimit, backwardSearchMatcher);
+        backwardSearcher = new BackwardSearcher(activeTags, ageSortedKNs, outputTagIndex, partialMatchRatio, ageLimit,
+                backwardSearchMatcher, new SystemKnowledgeNodeClock());
     }
 
     @Test
     public void mustBackwardSearch() throws Exception {
-        final Set<Tag> inputTags = new HashSet<>(Arrays.asList(
-                mock(Tag.class), mock(Tag.class), mock(Tag.class), mock(Tag.class)));
-        final int ply = 5;
-        final int numRequiredMatches = 2;
+        final Tag t1 = mock(Tag.class);
+        final Tag t2 = mock(Tag.class);
+        final Tag t3 = mock(Tag.class);
+        final Tag t4 = mock(Tag.class);
+        final Set<Tag> inputTags = new HashSet<>(Arrays.asList(t1, t2, t3, t4));
+        final int ply = 1;
+        final Tag matchingInputTag = mock(Tag.class);
+        final Tag nonMatchingInputTag = mock(Tag.class);
+        final KnowledgeNode matchingKN = new KnowledgeNode(matchingInputTag, new HashSet<>(Arrays.asList(t1, t2)), 1);
+        final KnowledgeNode nonMatchingKN = new KnowledgeNode(nonMatchingInputTag, Collections.singleton(t3), 1);
+
+        // given
+        ageSortedKNs.add(matchingKN);
+        ageSortedKNs.add(nonMatchingKN);
+        outputTagIndex.add(matchingKN);
+        outputTagIndex.add(nonMatchingKN);
+
+        // when
+        final Set<Tag> allActivatedTags = backwardSearcher.searchInternal(inputTags, ply);
+
+        // then
+        assertEquals(Collections.singleton(matchingInputTag), allActivatedTags);
+    }
+
+    @Test
+    public void mustBackwardSearchWithoutRequiredMatches() throws Exception {
+        final Set<Tag> inputTags = Collections.singleton(mock(Tag.class));
+        final int ply = 1;
+        final int numRequiredMatches = 0;
         final KnowledgeNode kn = new KnowledgeNode("P(A); P(B)");
         final Tag backwardSearchMatcherTag = mock(Tag.class);
 
@@ -49,4 +80,4 @@ public class BackwardSearcherTest {
         // then
         assertTrue(allActivatedTags.contains(backwardSearchMatcherTag));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeRecencyList;
+import knn.api.SystemKnowledgeNodeClock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+public class BatchSearcherTest {
+    private Map<Tag, KnowledgeNode> mapKN;
+    private KnowledgeNodeRecencyList ageSortedKNs;
+    private OutputTagIndex outputTagIndex;
+    private BatchSearcher batchSearcher;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        mapKN = new HashMap<>();
+        ageSortedKNs = new KnowledgeNodeRecencyList();
+        outputTagIndex = new OutputTagIndex();
+        batchSearcher = new BatchSearcher(mapKN::get, outputTagIndex::getProducers, ageSortedKNs,
+                new SystemKnowledgeNodeClock());
+    }
+
+    @Test
+    public void mustForwardSearchEachQueryIndependently() throws Exception {
+        final KnowledgeNode kn1 = new KnowledgeNode(new Fact("a(x)"), tags("b(x)"), 100);
+        final KnowledgeNode kn2 = new KnowledgeNode(new Fact("b(x)"), tags("c(x)"), 100);
+        final KnowledgeNode kn3 = new KnowledgeNode(new Fact("d(x)"), tags("c(x)"), 200);
+
+        // given
+        add(kn1, kn2, kn3);
+
+        // when
+        final List<Set<Tag>> results = batchSearcher.searchForward(
+                Arrays.asList(tags("a(x)"), tags("b(x)", "d(x)"), tags("d(x)"), tags("e(x)")), 0);
+
+        // then
+        assertEquals(results, Arrays.asList(tags("b(x)", "c(x)"), tags("c(x)"), tags(), tags()));
+        assertFalse(kn1.isFired());
+        assertFalse(kn2.isFired());
+    }
+
+    @Test
+    public void mustLimitForwardSearchToPly() throws Exception {
+        // given
+        add(new KnowledgeNode(new Fact("a(x)"), tags("b(x)"), 100),
+                new KnowledgeNode(new Fact("b(x)"), tags("c(x)"), 100));
+
+        // when
+        final List<Set<Tag>> results = batchSearcher.searchForward(Arrays.asList(tags("a(x)"), tags("b(x)")), 1);
+
+        // then
+        assertEquals(results, Arrays.asList(tags("b(x)"), tags("c(x)")));
+    }
+
+    @Test
+    public void mustCountExcitationsOfEachQuery() throws Exception {
+        // given
+        add(new KnowledgeNode(new Fact("a(x)"), tags("b(x)", "c(x)"), 100),
+                new KnowledgeNode(new Fact("b(x)"), tags("c(x)", "d(x)"), 100),
+                new KnowledgeNode(new Fact("d(x)"), tags("c(x)"), 100),
+                new KnowledgeNode(new Fact("c(x)"), tags("e(x)"), 300));
+
+        // when
+        final List<Set<Tag>> results = batchSearcher.searchForward(
+                Arrays.asList(tags("a(x)"), tags("b(x)"), tags("a(x)", "c(x)")), 0);
+
+        // then
+        assertEquals(results, Arrays.asList(tags("b(x)", "c(x)", "d(x)", "e(x)"), tags("c(x)", "d(x)"),
+                tags("b(x)", "c(x)", "d(x)", "e(x)")));
+    }
+
+    @Test
+    public void mustBackwardSearchEachQueryWithItsOwnMatchCount() throws Exception {
+        // given
+        add(new KnowledgeNode(new Fact("a(x)"), tags("b(x)", "c(x)"), 100),
+                new KnowledgeNode(new Fact("d(x)"), tags("b(x)"), 100));
+
+        // when
+        final List<Set<Tag>> results = batchSearcher.searchBackward(
+                Arrays.asList(tags("b(x)", "c(x)"), tags("b(x)"), tags("c(x)", "e(x)")), 1, 1, Long.MAX_VALUE);
+
+        // then
+        assertEquals(results, Arrays.asList(tags("a(x)"), tags("a(x)", "d(x)"), tags()));
+    }
+
+    @Test
+    public void mustMatchAllWhenNoOverlapIsRequired() throws Exception {
+        // given
+        add(new KnowledgeNode(new Fact("a(x)"), tags("b(x)"), 100),
+                new KnowledgeNode(new Fact("d(x)"), tags("e(x)"), 100));
+
+        // when
+        final List<Set<Tag>> results = batchSearcher.searchBackward(
+                Arrays.asList(tags("b(x)"), tags("e(x)")), 1, 0, Long.MAX_VALUE);
+
+        // then
+        assertEquals(results, Arrays.asList(tags("a(x)", "d(x)"), tags("a(x)", "d(x)")));
+    }
+
+    private void add(final KnowledgeNode... kns) {
+        for (final KnowledgeNode kn : kns) {
+            mapKN.put(kn.getInputTag(), kn);
+            ageSortedKNs.add(kn);
+            outputTagIndex.add(kn);
+        }
+    }
+
+    private static Set<Tag> tags(final String... facts) {
+        final Set<Tag> tags = new HashSet<>();
+        Arrays.stream(facts).map(Fact::new).forEach(tags::add);
+        return tags;
+    }
+}
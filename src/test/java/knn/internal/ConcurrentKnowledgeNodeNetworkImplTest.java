@@ -0,0 +1,230 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import knn.api.KnowledgeNode;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeNetworkFactory;
+import knn.api.KnowledgeNodeNetworkOption;
+import knn.api.KnowledgeNodeClock;
+import knn.api.KnowledgeNodeRecencyList;
+import knn.api.LogicalKnowledgeNodeClock;
+import knn.api.SystemKnowledgeNodeClock;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Tag;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ConcurrentKnowledgeNodeNetworkImplTest {
+    private static final int NUM_THREADS = 8;
+    private static final int NUM_KNS_PER_THREAD = 1000;
+
+    private KnowledgeNodeNetwork knn;
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        final BackwardSearcherFactory backwardSearcherFactory = mock(BackwardSearcherFactory.class);
+        when(backwardSearcherFactory.create(any(), any(), any(), anyDouble(), anyLong()))
+                .thenReturn(mock(BackwardSearcher.class));
+        knn = new ConcurrentKnowledgeNodeNetworkImpl(
+                new HashMap<>(),
+                new HashSet<>(),
+                new KnowledgeNodeRecencyList(),
+                1,
+                Long.MAX_VALUE,
+                backwardSearcherFactory,
+                new SystemKnowledgeNodeClock());
+        executor = Executors.newFixedThreadPool(NUM_THREADS);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void mustAddAndSearchConcurrently() throws Exception {
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        final List<Tag> outputTags = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < NUM_THREADS; i++) {
+            tasks.add(() -> {
+                for (int j = 0; j < NUM_KNS_PER_THREAD; j++) {
+                    final Tag inputTag = mock(Tag.class);
+                    final Tag outputTag = mock(Tag.class);
+                    outputTags.add(outputTag);
+                    knn.addKnowledgeNode(new KnowledgeNode(inputTag, Collections.singleton(outputTag), 1));
+                    assertEquals(knn.directSearch(inputTag), Collections.singleton(outputTag));
+                }
+                return null;
+            });
+        }
+
+        // when
+        for (final Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+
+        // then
+        assertEquals(knn.getKnowledgeNodes().size(), NUM_THREADS * NUM_KNS_PER_THREAD);
+        assertEquals(knn.getActiveTags().size(), 2 * NUM_THREADS * NUM_KNS_PER_THREAD);
+        assertTrue(knn.getActiveTags().containsAll(outputTags));
+    }
+
+    @Test
+    public void mustDeleteConcurrently() throws Exception {
+        final List<Tag> inputTags = new ArrayList<>();
+        for (int i = 0; i < NUM_THREADS * NUM_KNS_PER_THREAD; i++) {
+            final Tag inputTag = mock(Tag.class);
+            inputTags.add(inputTag);
+            knn.addKnowledgeNode(new KnowledgeNode(inputTag, Collections.singleton(mock(Tag.class)), 1));
+        }
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            final List<Tag> threadTags = inputTags.subList(i * NUM_KNS_PER_THREAD, (i + 1) * NUM_KNS_PER_THREAD);
+            tasks.add(() -> {
+                for (final Tag t : threadTags) {
+                    knn.directSearch(t);
+                    knn.deleteKnowledgeNode(t);
+                }
+                return null;
+            });
+        }
+
+        // when
+        for (final Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+
+        // then
+        assertTrue(knn.getKnowledgeNodes().isEmpty());
+        for (final Tag t : inputTags) {
+            assertEquals(knn.getKnowledgeNode(t), null);
+        }
+    }
+
+    @Test
+    public void mustAgeKnowledgeNodesByExcitationInBackwardSearch() throws Exception {
+        // given
+        final Injector injector = Guice.createInjector(new KnowledgeNodeNetworkInternalModule(
+                KnowledgeNodeNetworkOption.CONCURRENT, KnowledgeNodeNetworkOption.LOGICAL_CLOCK));
+        final LogicalKnowledgeNodeClock clock =
+                (LogicalKnowledgeNodeClock) injector.getInstance(KnowledgeNodeClock.class);
+        final KnowledgeNodeNetwork agedKnn = injector.getInstance(KnowledgeNodeNetworkFactory.class).create(
+                new HashMap<>(), new HashSet<>(), new KnowledgeNodeRecencyList(), 0, 10);
+        final Tag excitedTag = mock(Tag.class);
+        final Tag idleTag = mock(Tag.class);
+        agedKnn.addKnowledgeNode(new KnowledgeNode(excitedTag, Collections.singleton(mock(Tag.class)), 1));
+        agedKnn.addKnowledgeNode(new KnowledgeNode(idleTag, Collections.singleton(mock(Tag.class)), 1));
+        clock.advance(20);
+        agedKnn.directSearch(excitedTag);
+        agedKnn.clearActiveTags();
+
+        // when
+        final Set<Tag> activatedTags = agedKnn.backwardSearch(Collections.singleton(mock(Tag.class)), 1);
+
+        // then
+        assertEquals(activatedTags, Collections.singleton(excitedTag));
+    }
+
+    @Test
+    public void mustMatchKnowledgeNodesOfAllStripesByAge() throws Exception {
+        final int knCount = 100;
+        final int ageLimit = 5;
+
+        // given
+        final Injector injector = Guice.createInjector(new KnowledgeNodeNetworkInternalModule(
+                KnowledgeNodeNetworkOption.CONCURRENT, KnowledgeNodeNetworkOption.LOGICAL_CLOCK));
+        final LogicalKnowledgeNodeClock clock =
+                (LogicalKnowledgeNodeClock) injector.getInstance(KnowledgeNodeClock.class);
+        final KnowledgeNodeNetwork agedKnn = injector.getInstance(KnowledgeNodeNetworkFactory.class).create(
+                new HashMap<>(), new HashSet<>(), new KnowledgeNodeRecencyList(), 0, ageLimit);
+        final List<Tag> inputTags = new ArrayList<>();
+        for (int i = 0; i < knCount; i++) {
+            final Tag inputTag = mock(Tag.class);
+            inputTags.add(inputTag);
+            agedKnn.addKnowledgeNode(new KnowledgeNode(inputTag, Collections.singleton(mock(Tag.class)), 1));
+            clock.advance(1);
+        }
+        agedKnn.directSearch(inputTags.get(0));
+        agedKnn.clearActiveTags();
+
+        // when
+        final Set<Tag> activatedTags = agedKnn.backwardSearch(Collections.singleton(mock(Tag.class)), 1);
+
+        // then
+        final Set<Tag> expectedTags = new HashSet<>(inputTags.subList(knCount - ageLimit, knCount));
+        expectedTags.add(inputTags.get(0));
+        assertEquals(activatedTags, expectedTags);
+    }
+
+    @Test
+    public void mustSearchBackwardWhileAdding() throws Exception {
+        // given
+        final KnowledgeNodeNetwork searchedKnn = Guice.createInjector(
+                new KnowledgeNodeNetworkInternalModule(KnowledgeNodeNetworkOption.CONCURRENT))
+                .getInstance(KnowledgeNodeNetworkFactory.class)
+                .create(new HashMap<>(), new HashSet<>(), new KnowledgeNodeRecencyList(), 0, Long.MAX_VALUE);
+        final Tag outputTag = mock(Tag.class);
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            final boolean searching = i % 2 == 0;
+            tasks.add(() -> {
+                for (int j = 0; j < NUM_KNS_PER_THREAD; j++) {
+                    if (!searching) {
+                        final Tag inputTag = mock(Tag.class);
+                        searchedKnn.addKnowledgeNode(
+                                new KnowledgeNode(inputTag, Collections.singleton(outputTag), 1));
+                        searchedKnn.directSearch(inputTag);
+                    } else if (j % NUM_THREADS == 0) {
+                        searchedKnn.backwardSearch(Collections.singleton(outputTag), 1);
+                    }
+                }
+                return null;
+            });
+        }
+
+        // when
+        for (final Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+
+        // then
+        searchedKnn.clearActiveTags();
+        assertEquals(searchedKnn.backwardSearch(Collections.singleton(outputTag), 1).size(),
+                NUM_THREADS / 2 * NUM_KNS_PER_THREAD);
+    }
+
+    @Test
+    public void mustBeSelectedByModuleOption() throws Exception {
+        // given
+        final KnowledgeNodeNetworkFactory factory = Guice.createInjector(
+                new KnowledgeNodeNetworkInternalModule(KnowledgeNodeNetworkOption.CONCURRENT))
+                .getInstance(KnowledgeNodeNetworkFactory.class);
+
+        // when
+        final KnowledgeNodeNetwork createdKnn = factory.create(
+                new HashMap<>(), new HashSet<>(), new KnowledgeNodeRecencyList(), 1, Long.MAX_VALUE);
+
+        // then
+        assertTrue(createdKnn instanceof ConcurrentKnowledgeNodeNetworkImpl);
+    }
+}
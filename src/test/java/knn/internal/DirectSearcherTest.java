@@ -5,8 +5,9 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeRecencyList;
+import knn.api.SystemKnowledgeNodeClock;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import tags.Tag;
@@ -19,14 +20,15 @@ public class DirectSearcherTest {
     private Map<Tag, KnowledgeNode> mapKN;
     private Set<Tag> activeTags;
     private DirectSearcher directSearcher;
-    private TreeSet<KnowledgeNode> ageSortedKNs;
+    private KnowledgeNodeRecencyList ageSortedKNs;
 
     @BeforeMethod
     public void setUp() throws Exception {
         mapKN = new HashMap<>();
         activeTags = new HashSet<>();
-        ageSortedKNs = new TreeSet<>();
-        directSearcher = new DirectSearcher(mapKN, activeTags, ageSortedKNs);
+        ageSortedKNs = new KnowledgeNodeRecencyList();
+        directSearcher = new DirectSearcher(mapKN, activeTags, ageSortedKNs, new OutputTagIndex(),
+                new SystemKnowledgeNodeClock());
     }
 
     @Test
@@ -0,0 +1,113 @@
+package knn.internal;
+
+import knn.api.KnowledgeNode;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ExpiryWheelTest {
+    @Test
+    public void mustReturnKnowledgeNodesAfterTheirExpiryTime() throws Exception {
+        // given
+        final KnowledgeNode kn = new KnowledgeNode("A(1); B(1)");
+        final long expiryTime = kn.getExpiryTime();
+        final ExpiryWheel wheel = new ExpiryWheel(1, expiryTime - 300_000);
+        wheel.schedule(kn);
+
+        // when
+        final List<KnowledgeNode> beforeExpiry = new ArrayList<>();
+        for (long time = expiryTime - 300_000; time <= expiryTime;
+             time += 997) {
+            beforeExpiry.addAll(wheel.advance(time));
+        }
+        beforeExpiry.addAll(wheel.advance(expiryTime));
+        final List<KnowledgeNode> afterExpiry = wheel.advance(expiryTime + 1);
+
+        // then
+        assertTrue(beforeExpiry.isEmpty());
+        assertEquals(afterExpiry, Collections.singletonList(kn));
+        assertEquals(wheel.size(), 0);
+    }
+
+    @Test
+    public void mustReturnEachKnowledgeNodeOnce() throws Exception {
+        // given
+        final List<KnowledgeNode> kns = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            kns.add(new KnowledgeNode("A(" + i + "); B(1)"));
+        }
+        final long expiryTime = kns.get(0).getExpiryTime();
+        final ExpiryWheel wheel = new ExpiryWheel(10, expiryTime - 50_000);
+        kns.forEach(wheel::schedule);
+
+        // when
+        final List<KnowledgeNode> due = new ArrayList<>();
+        for (long time = expiryTime - 50_000;
+             time < expiryTime + 100_000; time += 3_333) {
+            due.addAll(wheel.advance(time));
+        }
+
+        // then
+        assertEquals(wheel.size(), 0);
+        assertEquals(due.size(), kns.size());
+        assertEquals(new HashSet<>(due), new HashSet<>(kns));
+    }
+
+    @Test
+    public void mustReturnOverdueKnowledgeNodesOnNextAdvance() throws Exception {
+        // given
+        final KnowledgeNode kn = new KnowledgeNode("A(1); B(1)");
+        final long expiryTime = kn.getExpiryTime();
+        final ExpiryWheel wheel = new ExpiryWheel(1000, expiryTime + 5000);
+
+        // when
+        wheel.schedule(kn);
+
+        // then
+        assertEquals(wheel.size(), 1);
+        assertEquals(wheel.advance(expiryTime + 5000),
+                Collections.singletonList(kn));
+    }
+
+    @Test
+    public void mustRescheduleDistantExpiryTimes() throws Exception {
+        // given
+        final KnowledgeNode kn = new KnowledgeNode("A(1); B(1)");
+        final long expiryTime = kn.getExpiryTime();
+        final long start = expiryTime - (1L << 24) - 100;
+        final ExpiryWheel wheel = new ExpiryWheel(1, start);
+        wheel.schedule(kn);
+
+        // when
+        final List<KnowledgeNode> beforeExpiry =
+                wheel.advance(expiryTime - 1);
+        final List<KnowledgeNode> afterExpiry = wheel.advance(expiryTime + 1);
+
+        // then
+        assertTrue(beforeExpiry.isEmpty());
+        assertEquals(afterExpiry, Collections.singletonList(kn));
+    }
+
+    @Test
+    public void mustClear() throws Exception {
+        // given
+        final KnowledgeNode kn = new KnowledgeNode("A(1); B(1)");
+        final ExpiryWheel wheel = new ExpiryWheel(1000, kn.getExpiryTime());
+        wheel.schedule(new KnowledgeNode("B(1); C(1)"));
+        wheel.schedule(kn);
+
+        // when
+        wheel.clear();
+
+        // then
+        assertEquals(wheel.size(), 0);
+        assertEquals(wheel.advance(kn.getExpiryTime() + 10_000),
+                Collections.emptyList());
+    }
+}
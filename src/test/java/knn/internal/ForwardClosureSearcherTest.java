@@ -0,0 +1,153 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeCacheStats;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+
+public class ForwardClosureSearcherTest {
+    private Map<Tag, KnowledgeNode> mapKN;
+    private AtomicLong version;
+    private AtomicLong time;
+    private ForwardClosureSearcher forwardClosureSearcher;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        mapKN = new HashMap<>();
+        version = new AtomicLong();
+        time = new AtomicLong();
+        forwardClosureSearcher = new ForwardClosureSearcher(mapKN::get, version::get, time::get);
+    }
+
+    @Test
+    public void mustSearchWithoutExciting() throws Exception {
+        final KnowledgeNode kn1 = new KnowledgeNode(new Fact("a(x)"), Collections.singleton(new Fact("b(x)")), 100);
+        final KnowledgeNode kn2 = new KnowledgeNode(new Fact("b(x)"), Collections.singleton(new Fact("c(x)")), 100);
+
+        // given
+        mapKN.put(kn1.getInputTag(), kn1);
+        mapKN.put(kn2.getInputTag(), kn2);
+
+        // when
+        final Set<Tag> activatedTags = forwardClosureSearcher.search(Collections.singleton(new Fact("a(x)")), 0);
+
+        // then
+        assertEquals(activatedTags, new HashSet<>(Arrays.asList(new Fact("b(x)"), new Fact("c(x)"))));
+        assertFalse(kn1.isFired());
+        assertFalse(kn2.isFired());
+    }
+
+    @Test
+    public void mustReuseCachedResultUntilVersionChanges() throws Exception {
+        final KnowledgeNode kn = new KnowledgeNode(new Fact("a(x)"), Collections.singleton(new Fact("b(x)")), 100);
+        final Set<Tag> inputTags = Collections.singleton(new Fact("a(x)"));
+
+        // given
+        mapKN.put(kn.getInputTag(), kn);
+        forwardClosureSearcher.setCacheSize(1);
+        final Set<Tag> activatedTags = forwardClosureSearcher.search(inputTags, 1);
+
+        // when
+        final Set<Tag> cachedTags = forwardClosureSearcher.search(inputTags, 1);
+        mapKN.remove(kn.getInputTag());
+        version.incrementAndGet();
+        final Set<Tag> updatedTags = forwardClosureSearcher.search(inputTags, 1);
+
+        // then
+        assertSame(cachedTags, activatedTags);
+        assertEquals(updatedTags, Collections.emptySet());
+        final KnowledgeNodeCacheStats stats = forwardClosureSearcher.getCacheStats();
+        assertEquals(stats.getHitCount(), 1);
+        assertEquals(stats.getMissCount(), 2);
+        assertEquals(stats.getSize(), 1);
+    }
+
+    @Test
+    public void mustEvictLeastRecentlyUsedResult() throws Exception {
+        final Set<Tag> inputTags1 = Collections.singleton(new Fact("a(x)"));
+        final Set<Tag> inputTags2 = Collections.singleton(new Fact("b(x)"));
+        final Set<Tag> inputTags3 = Collections.singleton(new Fact("c(x)"));
+
+        // given
+        forwardClosureSearcher.setCacheSize(2);
+        forwardClosureSearcher.search(inputTags1, 1);
+        forwardClosureSearcher.search(inputTags2, 1);
+        forwardClosureSearcher.search(inputTags1, 1);
+
+        // when
+        forwardClosureSearcher.search(inputTags3, 1);
+        forwardClosureSearcher.search(inputTags1, 1);
+        forwardClosureSearcher.search(inputTags2, 1);
+
+        // then
+        final KnowledgeNodeCacheStats stats = forwardClosureSearcher.getCacheStats();
+        assertEquals(stats.getHitCount(), 2);
+        assertEquals(stats.getMissCount(), 4);
+        assertEquals(stats.getEvictionCount(), 2);
+    }
+
+    @Test
+    public void mustIgnoreExpiredKnowledgeNodes() throws Exception {
+        final KnowledgeNode kn1 = new KnowledgeNode(new Fact("a(x)"), Collections.singleton(new Fact("b(x)")), 1);
+        final KnowledgeNode kn2 = new KnowledgeNode(new Fact("b(x)"), Collections.singleton(new Fact("c(x)")), 1);
+        final Set<Tag> inputTags = Collections.singleton(new Fact("a(x)"));
+
+        // given
+        kn1.setAgeTimeStamp(KnowledgeNode.AGE_THRESHOLD);
+        kn2.setAgeTimeStamp(0);
+        mapKN.put(kn1.getInputTag(), kn1);
+        mapKN.put(kn2.getInputTag(), kn2);
+        forwardClosureSearcher.setCacheSize(1);
+        final Set<Tag> activatedTags = forwardClosureSearcher.search(inputTags, 0);
+
+        // when
+        time.set(KnowledgeNode.AGE_THRESHOLD + 1);
+        final Set<Tag> activatedTagsAfterExpiry = forwardClosureSearcher.search(inputTags, 0);
+
+        // then
+        assertEquals(activatedTags, new HashSet<>(Arrays.asList(new Fact("b(x)"), new Fact("c(x)"))));
+        assertEquals(activatedTagsAfterExpiry, Collections.singleton(new Fact("b(x)")));
+        assertEquals(forwardClosureSearcher.getCacheStats().getHitCount(), 0);
+    }
+
+    @Test
+    public void mustKeepCachedResultsWhenResized() throws Exception {
+        final int size = 100;
+
+        // given
+        forwardClosureSearcher.setCacheSize(size);
+        for (int i = 0; i < size; i++) {
+            forwardClosureSearcher.search(Collections.singleton(new Fact("a(x" + i + ")")), 1);
+        }
+
+        // when
+        forwardClosureSearcher.setCacheSize(10 * size);
+        for (int i = 0; i < size; i++) {
+            forwardClosureSearcher.search(Collections.singleton(new Fact("a(x" + i + ")")), 1);
+        }
+
+        // then
+        final KnowledgeNodeCacheStats stats = forwardClosureSearcher.getCacheStats();
+        assertEquals(stats.getSize(), size);
+        assertEquals(stats.getHitCount(), size);
+        assertEquals(stats.getEvictionCount(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mustRejectNegativeCacheSize() throws Exception {
+        forwardClosureSearcher.setCacheSize(-1);
+    }
+}
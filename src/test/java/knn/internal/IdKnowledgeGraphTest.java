@@ -0,0 +1,81 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import knn.api.KnowledgeNode;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Tag;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+public class IdKnowledgeGraphTest {
+    private IdKnowledgeGraph graph;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        graph = new IdKnowledgeGraph();
+    }
+
+    @Test
+    public void mustIndexKnowledgeNodeByIds() throws Exception {
+        final Tag input = mock(Tag.class);
+        final Tag t1 = mock(Tag.class);
+        final Tag t2 = mock(Tag.class);
+        final KnowledgeNode kn = new KnowledgeNode(input, new HashSet<>(Arrays.asList(t1, t2)), 1);
+
+        // when
+        graph.add(kn);
+
+        // then
+        final int id = graph.getId(input);
+        assertEquals(kn, graph.getKnowledgeNode(id));
+        assertEquals(new HashSet<>(Arrays.asList(t1, t2)), graph.toTags(toBitSet(graph.getOutputs(id))));
+        assertEquals(1, graph.getProducerCount(graph.getId(t1)));
+        assertEquals(id, graph.getProducers(graph.getId(t1))[0]);
+    }
+
+    @Test
+    public void mustRemoveKnowledgeNode() throws Exception {
+        final Tag input = mock(Tag.class);
+        final Tag t1 = mock(Tag.class);
+        final KnowledgeNode kn = new KnowledgeNode(input, Collections.singleton(t1), 1);
+
+        // given
+        graph.add(kn);
+
+        // when
+        graph.remove(kn);
+
+        // then
+        assertNull(graph.getKnowledgeNode(graph.getId(input)));
+        assertEquals(0, graph.getProducerCount(graph.getId(t1)));
+    }
+
+    @Test
+    public void mustSkipUnknownTags() throws Exception {
+        final Tag input = mock(Tag.class);
+        final KnowledgeNode kn = new KnowledgeNode(input, Collections.singleton(mock(Tag.class)), 1);
+
+        // given
+        graph.add(kn);
+
+        // when
+        final BitSet ids = graph.toIds(new HashSet<>(Arrays.asList(input, mock(Tag.class))));
+
+        // then
+        assertEquals(Collections.singleton(input), graph.toTags(ids));
+    }
+
+    private static BitSet toBitSet(final int[] ids) {
+        final BitSet bitSet = new BitSet();
+        for (final int id : ids) {
+            bitSet.set(id);
+        }
+        return bitSet;
+    }
+}
@@ -0,0 +1,176 @@
+package knn.internal;
+
+import knn.api.KnowledgeNode;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.assertEquals;
+
+public class KnowledgeNodeMutationLogTest {
+    private Path dbFile;
+    private Path logFile;
+    private List<String> mutations;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dbFile = Files.createTempFile("knn", ".snapshot");
+        logFile = Files.createTempFile("knn", ".log");
+        Files.delete(dbFile);
+        Files.delete(logFile);
+        mutations = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(dbFile);
+        Files.deleteIfExists(logFile);
+    }
+
+    @Test
+    public void mustReplayMutationsInOrder() throws Exception {
+        // given
+        final KnowledgeNodeMutationLog log = recover(1);
+        log.logAddition(new KnowledgeNode("A(1); B(1)"));
+        log.logAddition(new KnowledgeNode("B(1); 50; C(1); 100; @D(x)"));
+        log.logDeletions(Arrays.asList(
+                new KnowledgeNode("A(1); B(1)").getInputTag(),
+                new KnowledgeNode("B(1); C(1)").getInputTag()));
+        log.logDeletions(Collections.emptyList());
+        log.logAddition(new KnowledgeNode("A(1); C(1)"));
+        log.close();
+
+        // when
+        recover(1).close();
+
+        // then
+        assertEquals(mutations, Arrays.asList(
+                "+A[1] -> [B[1]]", "+B[1] -> [@D[x], C[1]]", "-A[1]", "-B[1]",
+                "+A[1] -> [C[1]]"));
+    }
+
+    @Test
+    public void mustDiscardTruncatedRecord() throws Exception {
+        // given
+        final KnowledgeNodeMutationLog log = recover(2);
+        log.logAddition(new KnowledgeNode("A(1); B(1)"));
+        log.logAddition(new KnowledgeNode("B(1); C(1)"));
+        log.close();
+        final byte[] bytes = Files.readAllBytes(logFile);
+        Files.write(logFile, Arrays.copyOf(bytes, bytes.length - 3));
+
+        // when
+        final KnowledgeNodeMutationLog recovered = recover(2);
+        recovered.logAddition(new KnowledgeNode("C(1); D(1)"));
+        recovered.sync();
+        mutations.clear();
+        recover(2).close();
+
+        // then
+        assertEquals(mutations, Arrays.asList(
+                "+A[1] -> [B[1]]", "+C[1] -> [D[1]]"));
+        recovered.close();
+    }
+
+    @Test
+    public void mustCompactIntoSnapshot() throws Exception {
+        // given
+        final KnowledgeNode a = new KnowledgeNode("A(1); B(1)");
+        final KnowledgeNode b = new KnowledgeNode("B(1); C(1)");
+        final KnowledgeNodeMutationLog log = recover(10);
+        log.logAddition(a);
+        log.logAddition(b);
+
+        // when
+        log.compact(Arrays.asList(b, a));
+        final long compactedSize = Files.size(logFile);
+        log.logAddition(new KnowledgeNode("C(1); D(1)"));
+        log.close();
+        mutations.clear();
+        recover(10).close();
+
+        // then
+        assertEquals(compactedSize, 2 * Integer.BYTES);
+        assertEquals(mutations, Arrays.asList(
+                "+A[1] -> [B[1]]", "+B[1] -> [C[1]]", "+C[1] -> [D[1]]"));
+    }
+
+    @Test
+    public void mustLogConcurrentMutations() throws Exception {
+        // given
+        final KnowledgeNodeMutationLog log = recover(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final int thread = i;
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 50; j++) {
+                    log.logAddition(new KnowledgeNode(
+                            "T" + thread + "(" + j + "); O(1)"));
+                }
+                return null;
+            }));
+        }
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        log.close();
+
+        // when
+        recover(1).close();
+
+        // then
+        assertEquals(mutations.size(), 200);
+        for (int i = 0; i < 4; i++) {
+            final List<String> threadMutations = new ArrayList<>();
+            for (final String mutation : mutations) {
+                if (mutation.startsWith("+T" + i + "[")) {
+                    threadMutations.add(mutation);
+                }
+            }
+            for (int j = 0; j < 50; j++) {
+                assertEquals(threadMutations.get(j),
+                        "+T" + i + "[" + j + "] -> [O[1]]");
+            }
+        }
+    }
+
+    @Test(expectedExceptions = UncheckedIOException.class)
+    public void mustRejectOtherFiles() throws Exception {
+        // given
+        Files.write(logFile, "A(1); B(1)\n".getBytes(StandardCharsets.UTF_8));
+
+        // when
+        recover(1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mustRejectInvalidSyncBatchSize() throws Exception {
+        // when
+        recover(0);
+    }
+
+    private KnowledgeNodeMutationLog recover(final int syncBatchSize) {
+        return KnowledgeNodeMutationLog.recover(dbFile.toString(),
+                logFile.toString(), syncBatchSize,
+                kn -> mutations.add("+" + kn.getInputTag() + " -> "
+                        + kn.getOutputTags().stream().map(Object::toString)
+                        .collect(Collectors.toCollection(TreeSet::new))),
+                tag -> mutations.add("-" + tag));
+    }
+}
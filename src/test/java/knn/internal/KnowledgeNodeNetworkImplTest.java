@@ -2,12 +2,18 @@ package knn.internal;
 
 import knn.api.KnowledgeNode;
 import knn.api.KnowledgeNodeNetwork;
+import knn.api.KnowledgeNodeRecencyList;
+import knn.api.SystemKnowledgeNodeClock;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import tags.Tag;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
@@ -18,7 +24,7 @@ public class KnowledgeNodeNetworkImplTest {
     private KnowledgeNodeNetwork knn;
     private Map<Tag, KnowledgeNode> mapKN;
     private Set<Tag> activeTags;
-    private TreeSet<KnowledgeNode> ageSortedKNs;
+    private KnowledgeNodeRecencyList ageSortedKNs;
     private DirectSearcher directSearcher;
     private ForwardSearcher forwardSearcher;
     private BackwardSearcher backwardSearcher;
@@ -28,7 +34,7 @@ public class KnowledgeNodeNetworkImplTest {
     public void setUp() throws Exception {
         mapKN = new HashMap<>();
         activeTags = new HashSet<>();
-        ageSortedKNs = new TreeSet<>();
+        ageSortedKNs = new KnowledgeNodeRecencyList();
         directSearcher = mock(DirectSearcher.class);
         forwardSearcher = mock(ForwardSearcher.class);
         backwardSearcher = mock(BackwardSearcher.class);
@@ -37,10 +43,12 @@ public class KnowledgeNodeNetworkImplTest {
         ForwardSearcherFactory forwardSearcherFactory = mock(ForwardSearcherFactory.class);
         BackwardSearcherFactory backwardSearcherFactory = mock(BackwardSearcherFactory.class);
         LambdaSearcherFactory lambdaSearcherFactory = mock(LambdaSearcherFactory.class);
-        when(directSearcherFactory.create(mapKN, activeTags, ageSortedKNs)).thenReturn(directSearcher);
+        when(directSearcherFactory.create(eq(mapKN), eq(activeTags), eq(ageSortedKNs), any(OutputTagIndex.class)))
+                .thenReturn(directSearcher);
         when(forwardSearcherFactory.create(directSearcher)).thenReturn(forwardSearcher);
         long ageLimit = Long.MAX_VALUE;
-        when(backwardSearcherFactory.create(activeTags, ageSortedKNs, BACKWARD_SEARCH_PARTIAL_MATCH_RATIO, ageLimit))
+        when(backwardSearcherFactory.create(eq(activeTags), eq(ageSortedKNs), any(OutputTagIndex.class),
+                eq(BACKWARD_SEARCH_PARTIAL_MATCH_RATIO), eq(ageLimit)))
                 .thenReturn(backwardSearcher);
         when(lambdaSearcherFactory.create(forwardSearcher, backwardSearcher)).thenReturn(lambdaSearcher);
         knn = new KnowledgeNodeNetworkImpl(
@@ -49,10 +57,9 @@ public class KnowledgeNodeNetworkImplTest {
                 ageSortedKNs,
                 BACKWARD_SEARCH_PARTIAL_MATCH_RATIO,
                 ageLimit,
-                directSearcherFactory,
-                forwardSearcherFactory,
-                backwardSearcherFactory,
-                lambdaSearcherFactory);
+                new SearcherFactories(directSearcherFactory, forwardSearcherFactory, backwardSearcherFactory,
+                        lambdaSearcherFactory),
+                new SystemKnowledgeNodeClock());
     }
 
     @Test
@@ -163,4 +170,41 @@ public class KnowledgeNodeNetworkImplTest {
         assertEquals(outputTags, activatedTags);
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void mustRecoverLoggedMutations() throws Exception {
+        Path dbFile = Files.createTempFile("knn", ".snapshot");
+        Path logFile = Files.createTempFile("knn", ".log");
+        Files.delete(dbFile);
+        Files.delete(logFile);
+        KnowledgeNode a = new KnowledgeNode("A(1); B(1)");
+        KnowledgeNode b = new KnowledgeNode("B(1); C(1)");
+        KnowledgeNode c = new KnowledgeNode("C(1); D(1)");
+        KnowledgeNode d = new KnowledgeNode("D(1); E(1)");
+
+        // given
+        knn.recover(dbFile.toString(), logFile.toString(), 1);
+        knn.addKnowledgeNode(a);
+        knn.addKnowledgeNode(b);
+        knn.addKnowledgeNode(c);
+        knn.addKnowledgeNode(d);
+        knn.deleteKnowledgeNode(b.getInputTag());
+        knn.deleteKnowledgeNode(b.getInputTag());
+        knn.deleteExpiredKnowledgeNodes();
+        knn.syncLog();
+        knn.closeLog();
+        knn.resetEmpty();
+
+        // when
+        knn.recover(dbFile.toString(), logFile.toString(), 1);
+
+        // then
+        List<Tag> inputTags = new ArrayList<>();
+        for (KnowledgeNode kn : knn.getKnowledgeNodes()) {
+            inputTags.add(kn.getInputTag());
+        }
+        assertEquals(inputTags, Arrays.asList(d.getInputTag(), c.getInputTag(), a.getInputTag()));
+        knn.closeLog();
+        Files.delete(logFile);
+    }
+}
@@ -0,0 +1,92 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeNetworkSession;
+import knn.api.SystemKnowledgeNodeClock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Tag;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class KnowledgeNodeNetworkSessionImplTest {
+    private Tag t1;
+    private Tag t2;
+    private Tag t3;
+    private KnowledgeNode kn1;
+    private KnowledgeGraphSnapshot graph;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        t1 = mock(Tag.class);
+        t2 = mock(Tag.class);
+        t3 = mock(Tag.class);
+        kn1 = new KnowledgeNode(t1, Collections.singleton(t2), 1);
+        final KnowledgeNode kn2 = new KnowledgeNode(t2, Collections.singleton(t3), 1);
+        graph = new KnowledgeGraphSnapshot(Arrays.asList(kn1, kn2), 1, Long.MAX_VALUE,
+                new SystemKnowledgeNodeClock());
+    }
+
+    @Test
+    public void mustForwardSearch() throws Exception {
+        final KnowledgeNodeNetworkSession session = graph.createSession();
+
+        // when
+        final Set<Tag> activatedTags = session.forwardSearch(Collections.singleton(t1), 0);
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList(t2, t3)), activatedTags);
+        assertEquals(new HashSet<>(Arrays.asList(t1, t2, t3)), session.getActiveTags());
+        assertTrue(session.isFired(t1));
+        assertFalse(kn1.isFired());
+    }
+
+    @Test
+    public void mustIsolateSessions() throws Exception {
+        final KnowledgeNodeNetworkSession session1 = graph.createSession();
+        final KnowledgeNodeNetworkSession session2 = graph.createSession();
+
+        // when
+        session1.directSearch(t1);
+
+        // then
+        assertTrue(session1.isFired(t1));
+        assertFalse(session2.isFired(t1));
+        assertTrue(session2.getActiveTags().isEmpty());
+    }
+
+    @Test
+    public void mustBackwardSearch() throws Exception {
+        final KnowledgeNodeNetworkSession session = graph.createSession();
+
+        // when
+        final Set<Tag> activatedTags = session.backwardSearch(Collections.singleton(t3), 0);
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList(t1, t2)), activatedTags);
+        assertEquals(new HashSet<>(Arrays.asList(t1, t2)), session.getActiveTags());
+    }
+
+    @Test
+    public void mustStopMatchingAllAtAgeLimit() throws Exception {
+        final KnowledgeNode oldKN = new KnowledgeNode(t1, Collections.singleton(t2), 1);
+        oldKN.setAgeTimeStamp(System.currentTimeMillis() - 10_000);
+        final KnowledgeNode newKN = new KnowledgeNode(t3, Collections.singleton(t2), 1);
+        final KnowledgeGraphSnapshot agedGraph = new KnowledgeGraphSnapshot(
+                Arrays.asList(oldKN, newKN), 0, 1000, new SystemKnowledgeNodeClock());
+        final KnowledgeNodeNetworkSession session = agedGraph.createSession();
+
+        // when
+        final Set<Tag> activatedTags = session.backwardSearch(Collections.singleton(t2), 1);
+
+        // then
+        assertEquals(Collections.singleton(t3), activatedTags);
+    }
+}
@@ -0,0 +1,112 @@
+package knn.internal;
+
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeLoadReport;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import workload.WorkloadGenerator;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class KnowledgeNodeReaderTest {
+    private Path dataFile;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dataFile = Files.createTempFile("knn", ".txt");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(dataFile);
+    }
+
+    @Test
+    public void mustReadKnowledgeNodesInFileOrder() throws Exception {
+        // given
+        new WorkloadGenerator(1).setCount(500).setMeanFanOut(3)
+                .setArgumentMix(0.3, 0.2).writeKnowledgeNodes(dataFile);
+        final List<KnowledgeNode> expected = new ArrayList<>();
+        for (final String line : Files.readAllLines(dataFile)) {
+            expected.add(new KnowledgeNode(line));
+        }
+
+        for (final int chunkSize : new int[]{1, 100, 1 << 20}) {
+            // when
+            final KnowledgeNodeLoadReport report =
+                    KnowledgeNodeReader.read(dataFile.toString(), chunkSize);
+
+            // then
+            assertFalse(report.hasErrors());
+            assertEquals(report.getKnowledgeNodes().size(), expected.size());
+            for (int i = 0; i < expected.size(); i++) {
+                final KnowledgeNode kn = report.getKnowledgeNodes().get(i);
+                assertEquals(kn.getInputTag(), expected.get(i).getInputTag());
+                assertEquals(kn.getOutputTags(),
+                        expected.get(i).getOutputTags());
+                assertEquals(kn.getThreshold(),
+                        expected.get(i).getThreshold());
+            }
+        }
+    }
+
+    @Test
+    public void mustReportInvalidLinesWithTheirNumber() throws Exception {
+        // given
+        Files.write(dataFile, ("P(A); Q(B)\r\nbad\n\nR(C); 50; @S(D)\rP(,A)\n"
+                + "T(E); x").getBytes(StandardCharsets.UTF_8));
+
+        for (final int chunkSize : new int[]{1, 8, 1 << 20}) {
+            // when
+            final KnowledgeNodeLoadReport report =
+                    KnowledgeNodeReader.read(dataFile.toString(), chunkSize);
+
+            // then
+            assertEquals(report.getKnowledgeNodes(), Arrays.asList(
+                    new KnowledgeNode("P(A); Q(B)"),
+                    new KnowledgeNode("R(C); 50; @S(D)")));
+            assertEquals(report.getErrors().size(), 3);
+            assertEquals(report.getErrors().get(0).getLineNumber(), 2);
+            assertEquals(report.getErrors().get(0).getLine(), "bad");
+            assertEquals(report.getErrors().get(0).getMessage(),
+                    "Invalid input tag: bad.");
+            assertEquals(report.getErrors().get(1).getLineNumber(), 5);
+            assertEquals(report.getErrors().get(1).getLine(), "P(,A)");
+            assertTrue(report.getErrors().get(1).getMessage()
+                    .startsWith("java.lang.IllegalArgumentException"));
+            assertEquals(report.getErrors().get(2).toString(),
+                    "line 6: Invalid output tag: x.");
+        }
+    }
+
+    @Test
+    public void mustReadEmptyFile() throws Exception {
+        // when
+        final KnowledgeNodeLoadReport report =
+                KnowledgeNodeReader.read(dataFile.toString());
+
+        // then
+        assertTrue(report.getKnowledgeNodes().isEmpty());
+        assertFalse(report.hasErrors());
+    }
+
+    @Test(expectedExceptions = UncheckedIOException.class)
+    public void mustFailOnMissingFile() throws Exception {
+        // given
+        Files.delete(dataFile);
+
+        // when
+        KnowledgeNodeReader.read(dataFile.toString());
+    }
+}
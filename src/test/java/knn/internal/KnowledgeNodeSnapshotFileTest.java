@@ -0,0 +1,152 @@
+package knn.internal;
+
+import knn.api.KnowledgeNode;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Argument;
+import tags.Fact;
+import tags.Predicate;
+import tags.Recommendation;
+import tags.Rule;
+import tags.Tag;
+import workload.WorkloadGenerator;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class KnowledgeNodeSnapshotFileTest {
+    private static final String ANIMAL_DATA_PATH = "data/animalData.txt";
+    private Path snapshotFile;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        snapshotFile = Files.createTempFile("knn", ".snapshot");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Test
+    public void mustReadWrittenKnowledgeNodes() throws Exception {
+        // given
+        final Path dataFile = Files.createTempFile("knn", ".txt");
+        new WorkloadGenerator(3).setCount(300).setMeanFanOut(3)
+                .setArgumentMix(0.3, 0.3).setSharedTags(0.3, 20)
+                .writeKnowledgeNodes(dataFile);
+        final List<KnowledgeNode> newestFirst = new ArrayList<>();
+        newestFirst.addAll(KnowledgeNodeReader.read(ANIMAL_DATA_PATH)
+                .getKnowledgeNodes());
+        newestFirst.addAll(KnowledgeNodeReader.read(dataFile.toString())
+                .getKnowledgeNodes());
+        newestFirst.add(new KnowledgeNode(
+                new Fact("P(&y,?,*,!5,b<3,c!=d)"),
+                new HashSet<>(Arrays.asList(new Recommendation("@Q(1)"),
+                        new Rule("P(x) R(!y) -> S(z) @T(1)"))),
+                42, 0.5, 3));
+        Files.delete(dataFile);
+
+        // when
+        KnowledgeNodeSnapshotFile.write(newestFirst, snapshotFile.toString());
+        final List<KnowledgeNode> oldestFirst =
+                KnowledgeNodeSnapshotFile.read(snapshotFile.toString());
+
+        // then
+        Collections.reverse(oldestFirst);
+        assertEquals(oldestFirst.size(), newestFirst.size());
+        for (int i = 0; i < newestFirst.size(); i++) {
+            final KnowledgeNode expected = newestFirst.get(i);
+            final KnowledgeNode actual = oldestFirst.get(i);
+            assertSameTag(actual.getInputTag(), expected.getInputTag());
+            assertEquals(actual.getOutputTags(), expected.getOutputTags());
+            assertEquals(actual.getOutputTags().toString(),
+                    expected.getOutputTags().toString());
+            assertEquals(actual.getThreshold(), expected.getThreshold());
+            assertEquals(actual.getBelief(), expected.getBelief());
+            assertEquals(actual.getStrength(), expected.getStrength());
+        }
+    }
+
+    @Test
+    public void mustKeepArgumentNamesAndSymbols() throws Exception {
+        // given
+        final Tag input = new Fact("P(a=&x,&y,?,*,!5,b<3,c!=d,e=f)");
+        final List<KnowledgeNode> kns = Collections.singletonList(
+                new KnowledgeNode(input, new HashSet<>(), 100));
+
+        // when
+        KnowledgeNodeSnapshotFile.write(kns, snapshotFile.toString());
+        final Tag read = KnowledgeNodeSnapshotFile.read(
+                snapshotFile.toString()).get(0).getInputTag();
+
+        // then
+        final List<Argument> expected = ((Predicate) input).getArguments();
+        final List<Argument> actual = ((Predicate) read).getArguments();
+        assertNull(actual.get(0).getSymbol());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(actual.get(i).getClass(), expected.get(i).getClass());
+            assertEquals(actual.get(i).getName(), expected.get(i).getName());
+            assertEquals(actual.get(i).getSymbol(),
+                    expected.get(i).getSymbol());
+            assertEquals(actual.get(i), expected.get(i));
+        }
+    }
+
+    @Test
+    public void mustStoreEqualTagsOnce() throws Exception {
+        // given
+        final List<KnowledgeNode> kns = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            kns.add(new KnowledgeNode("n" + i + "(x); 100; "
+                    + "shared(argument,with,a,long,value)"));
+        }
+        final Path otherFile = Files.createTempFile("knn", ".snapshot");
+
+        // when
+        KnowledgeNodeSnapshotFile.write(kns.subList(0, 1),
+                snapshotFile.toString());
+        KnowledgeNodeSnapshotFile.write(kns, otherFile.toString());
+
+        // then
+        final long growth = Files.size(otherFile) - Files.size(snapshotFile);
+        Files.delete(otherFile);
+        assertTrue(growth < 99 * 100, Long.toString(growth));
+    }
+
+    @Test(expectedExceptions = UncheckedIOException.class)
+    public void mustRejectOtherFiles() throws Exception {
+        // when
+        KnowledgeNodeSnapshotFile.read(ANIMAL_DATA_PATH);
+    }
+
+    @Test(expectedExceptions = UncheckedIOException.class)
+    public void mustRejectTruncatedSnapshots() throws Exception {
+        // given
+        KnowledgeNodeSnapshotFile.write(
+                KnowledgeNodeReader.read(ANIMAL_DATA_PATH).getKnowledgeNodes(),
+                snapshotFile.toString());
+        final byte[] bytes = Files.readAllBytes(snapshotFile);
+        Files.write(snapshotFile, Arrays.copyOf(bytes, bytes.length - 3));
+
+        // when
+        KnowledgeNodeSnapshotFile.read(snapshotFile.toString());
+    }
+
+    private void assertSameTag(final Tag actual, final Tag expected) {
+        assertEquals(actual, expected);
+        assertEquals(actual.toString(), expected.toString());
+        assertEquals(actual.getClass(), expected.getClass());
+    }
+}
@@ -1,16 +1,26 @@
 package knn.internal;
 
+import knn.api.KnowledgeNode;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import tags.Fact;
 import tags.Tag;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
 
 public class LambdaSearcherTest {
     private LambdaSearcher lambdaSearcher;
@@ -41,4 +51,71 @@ public class LambdaSearcherTest {
         // then
         assertEquals(forwardTags, activatedTags);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void mustMeetInTheMiddleWithBidirectionalSearch() throws Exception {
+        Function<Tag, Collection<KnowledgeNode>> producers = createProducers(
+                new KnowledgeNode(new Fact("c(x)"), tags("a(x)", "e(x)"), 100),
+                new KnowledgeNode(new Fact("e(x)"), tags("g(x)"), 100));
+
+        // when
+        Set<Tag> meetingTags = LambdaSearcher.searchBidirectional(tags("a(x)"), tags("g(x)"), 0,
+                inputTags -> searchBackward(producers, inputTags), producers);
+
+        // then
+        assertEquals(tags("c(x)"), meetingTags);
+    }
+
+    @Test
+    public void mustNotMeetBeyondPlyWithBidirectionalSearch() throws Exception {
+        Function<Tag, Collection<KnowledgeNode>> producers = createProducers(
+                new KnowledgeNode(new Fact("c(x)"), tags("a(x)", "e(x)"), 100),
+                new KnowledgeNode(new Fact("e(x)"), tags("g(x)"), 100));
+
+        // when
+        Set<Tag> meetingTags = LambdaSearcher.searchBidirectional(tags("a(x)"), tags("g(x)"), 1,
+                inputTags -> searchBackward(producers, inputTags), producers);
+
+        // then
+        assertTrue(meetingTags.isEmpty());
+    }
+
+    @Test
+    public void mustNotFollowSlowKnowledgeNodesFromGoal() throws Exception {
+        Function<Tag, Collection<KnowledgeNode>> producers = createProducers(
+                new KnowledgeNode(new Fact("c(x)"), tags("a(x)", "e(x)"), 100),
+                new KnowledgeNode(new Fact("e(x)"), tags("g(x)"), 200));
+
+        // when
+        Set<Tag> meetingTags = LambdaSearcher.searchBidirectional(tags("a(x)"), tags("g(x)"), 0,
+                inputTags -> searchBackward(producers, inputTags), producers);
+
+        // then
+        assertTrue(meetingTags.isEmpty());
+    }
+
+    private static Function<Tag, Collection<KnowledgeNode>> createProducers(KnowledgeNode... kns) {
+        Map<Tag, List<KnowledgeNode>> producers = new HashMap<>();
+        for (KnowledgeNode kn : kns) {
+            for (Tag t : kn.getOutputTags()) {
+                producers.computeIfAbsent(t, k -> new ArrayList<>()).add(kn);
+            }
+        }
+        return t -> producers.getOrDefault(t, Collections.emptyList());
+    }
+
+    private static Set<Tag> searchBackward(Function<Tag, Collection<KnowledgeNode>> producers,
+                                           Set<Tag> inputTags) {
+        Set<Tag> activatedTags = new HashSet<>();
+        for (Tag t : inputTags) {
+            producers.apply(t).forEach(kn -> activatedTags.add(kn.getInputTag()));
+        }
+        return activatedTags;
+    }
+
+    private static Set<Tag> tags(String... facts) {
+        Set<Tag> tags = new HashSet<>();
+        Arrays.stream(facts).map(Fact::new).forEach(tags::add);
+        return tags;
+    }
+}
@@ -0,0 +1,87 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class MinHashIndexTest {
+    private MinHashIndex minHashIndex;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        minHashIndex = new MinHashIndex();
+    }
+
+    @Test
+    public void mustFindKnowledgeNodeWithSameOutputTags() throws Exception {
+        final Set<Tag> outputTags = new HashSet<>(Arrays.asList(new Fact("b(x)"), new Fact("c(x)")));
+        final KnowledgeNode kn = new KnowledgeNode(new Fact("a(x)"), outputTags, 1);
+
+        // given
+        minHashIndex.add(kn);
+
+        // when
+        final Set<Tag> inputTags = new HashSet<>(Arrays.asList(new Fact("b(x)"), new Fact("c(x)")));
+
+        // then
+        assertTrue(minHashIndex.getCandidates(inputTags, 1).contains(kn));
+        assertEquals(minHashIndex.size(), 1);
+        assertEquals(minHashIndex.getMaxOutputCount(), 2);
+    }
+
+    @Test
+    public void mustRemoveKnowledgeNode() throws Exception {
+        final Set<Tag> outputTags = Collections.singleton(new Fact("b(x)"));
+        final KnowledgeNode kn = new KnowledgeNode(new Fact("a(x)"), outputTags, 1);
+
+        // given
+        minHashIndex.add(kn);
+
+        // when
+        minHashIndex.remove(kn);
+
+        // then
+        assertFalse(minHashIndex.getCandidates(outputTags, MinHashIndex.BANDS).contains(kn));
+        assertEquals(minHashIndex.size(), 0);
+    }
+
+    @Test
+    public void mustTrackMaxOutputCount() throws Exception {
+        final KnowledgeNode small = new KnowledgeNode(new Fact("a(x)"), Collections.singleton(new Fact("b(x)")), 1);
+        final KnowledgeNode large = new KnowledgeNode(new Fact("c(x)"),
+                new HashSet<>(Arrays.asList(new Fact("b(x)"), new Fact("d(x)"), new Fact("e(x)"))), 1);
+
+        // given
+        minHashIndex.add(small);
+        minHashIndex.add(large);
+        assertEquals(minHashIndex.getMaxOutputCount(), 3);
+
+        // when
+        minHashIndex.remove(large);
+
+        // then
+        assertEquals(minHashIndex.getMaxOutputCount(), 1);
+    }
+
+    @Test
+    public void mustProbeMoreBandsForHigherRecall() throws Exception {
+        // when
+        final int lowRecallBands = MinHashIndex.getBandCount(0.5, 0.5);
+        final int highRecallBands = MinHashIndex.getBandCount(0.5, 0.95);
+
+        // then
+        assertEquals(MinHashIndex.getBandCount(1, 0.99), 1);
+        assertTrue(lowRecallBands < highRecallBands);
+        assertEquals(MinHashIndex.getBandCount(0.01, 0.95), -1);
+    }
+}
@@ -0,0 +1,53 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import knn.api.KnowledgeNode;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Tag;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class OutputTagIndexTest {
+    private OutputTagIndex outputTagIndex;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        outputTagIndex = new OutputTagIndex();
+    }
+
+    @Test
+    public void mustIndexOutputTags() throws Exception {
+        final Tag t1 = mock(Tag.class);
+        final Tag t2 = mock(Tag.class);
+        final KnowledgeNode kn1 = new KnowledgeNode(mock(Tag.class), new HashSet<>(Arrays.asList(t1, t2)), 1);
+        final KnowledgeNode kn2 = new KnowledgeNode(mock(Tag.class), Collections.singleton(t2), 1);
+
+        // when
+        outputTagIndex.add(kn1);
+        outputTagIndex.add(kn2);
+
+        // then
+        assertEquals(Collections.singleton(kn1), outputTagIndex.getProducers(t1));
+        assertEquals(new HashSet<>(Arrays.asList(kn1, kn2)), outputTagIndex.getProducers(t2));
+    }
+
+    @Test
+    public void mustRemoveKnowledgeNode() throws Exception {
+        final Tag t1 = mock(Tag.class);
+        final KnowledgeNode kn = new KnowledgeNode(mock(Tag.class), Collections.singleton(t1), 1);
+
+        // given
+        outputTagIndex.add(kn);
+
+        // when
+        outputTagIndex.remove(kn);
+
+        // then
+        assertTrue(outputTagIndex.getProducers(t1).isEmpty());
+    }
+}
@@ -0,0 +1,80 @@
+package knn.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import knn.api.KnowledgeNodeRecencyList;
+import knn.api.SystemKnowledgeNodeClock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Tag;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.AssertJUnit.assertEquals;
+
+public class ParallelForwardSearcherTest {
+    private static final int NUM_INPUT_TAGS = 5000;
+
+    private List<Tag> inputTags;
+    private List<Tag> outputTags;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        inputTags = new ArrayList<>();
+        outputTags = new ArrayList<>();
+        for (int i = 0; i < NUM_INPUT_TAGS; i++) {
+            inputTags.add(mock(Tag.class));
+            outputTags.add(mock(Tag.class));
+        }
+    }
+
+    @Test
+    public void mustMatchSequentialForwardSearch() throws Exception {
+        final Map<Tag, KnowledgeNode> mapKN = new HashMap<>();
+        final Set<Tag> activeTags = new HashSet<>();
+        final Map<Tag, KnowledgeNode> parallelMapKN = new HashMap<>();
+        final Set<Tag> parallelActiveTags = new HashSet<>();
+
+        // given
+        fill(mapKN);
+        fill(parallelMapKN);
+        final ForwardSearcher forwardSearcher = new ForwardSearcher(new DirectSearcher(
+                mapKN, activeTags, new KnowledgeNodeRecencyList(), new OutputTagIndex(),
+                new SystemKnowledgeNodeClock()));
+        final ForwardSearcher parallelForwardSearcher = new ParallelForwardSearcher(new DirectSearcher(
+                parallelMapKN, parallelActiveTags, new KnowledgeNodeRecencyList(), new OutputTagIndex(),
+                new SystemKnowledgeNodeClock()));
+
+        // when
+        final Set<Tag> activatedTags = forwardSearcher.search(new HashSet<>(inputTags), 0);
+        final Set<Tag> parallelActivatedTags = parallelForwardSearcher.search(new HashSet<>(inputTags), 0);
+
+        // then
+        assertEquals(activatedTags, parallelActivatedTags);
+        assertEquals(activeTags, parallelActiveTags);
+        for (final Tag t : mapKN.keySet()) {
+            assertEquals(mapKN.get(t).isFired(), parallelMapKN.get(t).isFired());
+        }
+    }
+
+    /**
+     * Chains every input Tag to an output Tag, and every even output Tag back
+     * to the next input Tag, so that both plies and unfired KNs are covered.
+     */
+    private void fill(final Map<Tag, KnowledgeNode> mapKN) {
+        for (int i = 0; i < NUM_INPUT_TAGS; i++) {
+            final Tag inputTag = inputTags.get(i);
+            final Tag outputTag = outputTags.get(i);
+            mapKN.put(inputTag, new KnowledgeNode(inputTag, Collections.singleton(outputTag), 1 + i % 2));
+            if (i % 2 == 0) {
+                final Tag nextInputTag = inputTags.get((i + 1) % NUM_INPUT_TAGS);
+                mapKN.put(outputTag, new KnowledgeNode(outputTag, Collections.singleton(nextInputTag), 1));
+            }
+        }
+    }
+}
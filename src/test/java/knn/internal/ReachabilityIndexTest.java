@@ -0,0 +1,150 @@
+package knn.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import knn.api.KnowledgeNode;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Tag;
+
+import static org.testng.Assert.assertEquals;
+
+public class ReachabilityIndexTest {
+    private ReachabilityIndex reachabilityIndex;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        reachabilityIndex = new ReachabilityIndex();
+    }
+
+    @Test
+    public void mustFindTagsReachableThroughChain() throws Exception {
+        // given
+        reachabilityIndex.add(createKnowledgeNode("a(x)", "b(x)", 100));
+        reachabilityIndex.add(createKnowledgeNode("b(x)", "c(x)", 100));
+        reachabilityIndex.add(createKnowledgeNode("c(x)", "d(x)", 100));
+
+        // when
+        final Set<Tag> reachableTags = reachabilityIndex.getReachableTags(tags("a(x)"));
+
+        // then
+        assertEquals(reachableTags, tags("b(x)", "c(x)", "d(x)"));
+        assertEquals(reachabilityIndex.getReachableTags(tags("c(x)")), tags("d(x)"));
+        assertEquals(reachabilityIndex.getExactReachableTags(tags("a(x)")), Optional.of(reachableTags));
+    }
+
+    @Test
+    public void mustFindTagsReachableThroughCycle() throws Exception {
+        // given
+        reachabilityIndex.add(createKnowledgeNode("a(x)", "b(x)", 100));
+        reachabilityIndex.add(createKnowledgeNode("c(x)", "d(x)", 100));
+        reachabilityIndex.getReachableTags(tags("a(x)"));
+        reachabilityIndex.add(createKnowledgeNode("b(x)", "c(x)", 100));
+        reachabilityIndex.add(createKnowledgeNode("d(x)", "b(x)", 100));
+
+        // when
+        final Set<Tag> reachableTags = reachabilityIndex.getReachableTags(tags("a(x)"));
+
+        // then
+        assertEquals(reachableTags, tags("b(x)", "c(x)", "d(x)"));
+        assertEquals(reachabilityIndex.getReachableTags(tags("c(x)")), tags("b(x)", "c(x)", "d(x)"));
+    }
+
+    @Test
+    public void mustUpdateReachableTagsOnRemoval() throws Exception {
+        final KnowledgeNode kn = createKnowledgeNode("b(x)", "c(x)", 100);
+
+        // given
+        reachabilityIndex.add(createKnowledgeNode("a(x)", "b(x)", 100));
+        reachabilityIndex.add(kn);
+        reachabilityIndex.getReachableTags(tags("a(x)"));
+
+        // when
+        reachabilityIndex.remove(kn);
+
+        // then
+        assertEquals(reachabilityIndex.getReachableTags(tags("a(x)")), tags("b(x)"));
+    }
+
+    @Test
+    public void mustUpdateReachableTagsOnRemovalOutsideCycles() throws Exception {
+        final KnowledgeNode kn = createKnowledgeNode("c(x)", "d(x)", 100);
+
+        // given
+        reachabilityIndex.add(createKnowledgeNode("a(x)", "b(x)", 100));
+        reachabilityIndex.add(createKnowledgeNode("b(x)", "c(x)", 100));
+        reachabilityIndex.add(kn);
+        reachabilityIndex.add(createKnowledgeNode("e(x)", "c(x)", 100));
+        reachabilityIndex.add(createKnowledgeNode("d(x)", "f(x)", 100));
+
+        // when
+        reachabilityIndex.remove(kn);
+
+        // then
+        assertEquals(reachabilityIndex.getReachableTags(tags("a(x)")), tags("b(x)", "c(x)"));
+        assertEquals(reachabilityIndex.getReachableTags(tags("e(x)")), tags("c(x)"));
+        assertEquals(reachabilityIndex.getReachableTags(tags("d(x)")), tags("f(x)"));
+    }
+
+    @Test
+    public void mustUpdateReachableTagsOnRemovalInCycle() throws Exception {
+        final KnowledgeNode kn = createKnowledgeNode("c(x)", "b(x)", 100);
+
+        // given
+        reachabilityIndex.add(createKnowledgeNode("a(x)", "b(x)", 100));
+        reachabilityIndex.add(createKnowledgeNode("b(x)", "c(x)", 100));
+        reachabilityIndex.add(kn);
+        reachabilityIndex.getReachableTags(tags("a(x)"));
+
+        // when
+        reachabilityIndex.remove(kn);
+
+        // then
+        assertEquals(reachabilityIndex.getReachableTags(tags("a(x)")), tags("b(x)", "c(x)"));
+        assertEquals(reachabilityIndex.getReachableTags(tags("b(x)")), tags("c(x)"));
+    }
+
+    @Test
+    public void mustAddAllKnowledgeNodesAtOnce() throws Exception {
+        // when
+        reachabilityIndex.addAll(Arrays.asList(createKnowledgeNode("a(x)", "b(x)", 100),
+                createKnowledgeNode("b(x)", "c(x)", 100), createKnowledgeNode("c(x)", "a(x)", 100)));
+
+        // then
+        assertEquals(reachabilityIndex.getReachableTags(tags("a(x)")), tags("a(x)", "b(x)", "c(x)"));
+    }
+
+    @Test
+    public void mustOnlyBeExactWithoutReachableSlowKnowledgeNodes() throws Exception {
+        final KnowledgeNode kn = createKnowledgeNode("b(x)", "c(x)", 200);
+
+        // given
+        reachabilityIndex.add(createKnowledgeNode("a(x)", "b(x)", 100));
+        reachabilityIndex.add(createKnowledgeNode("d(x)", "e(x)", 100));
+
+        // when
+        reachabilityIndex.add(kn);
+
+        // then
+        assertEquals(reachabilityIndex.getExactReachableTags(tags("a(x)")), Optional.empty());
+        assertEquals(reachabilityIndex.getExactReachableTags(tags("b(x)")), Optional.of(tags()));
+        assertEquals(reachabilityIndex.getExactReachableTags(tags("d(x)")), Optional.of(tags("e(x)")));
+        reachabilityIndex.remove(kn);
+        assertEquals(reachabilityIndex.getExactReachableTags(tags("a(x)")), Optional.of(tags("b(x)")));
+    }
+
+    private static KnowledgeNode createKnowledgeNode(final String inputTag, final String outputTag,
+                                                     final int threshold) {
+        return new KnowledgeNode(new Fact(inputTag), Collections.singleton(new Fact(outputTag)), threshold);
+    }
+
+    private static Set<Tag> tags(final String... facts) {
+        final Set<Tag> tags = new HashSet<>();
+        Arrays.stream(facts).map(Fact::new).forEach(tags::add);
+        return tags;
+    }
+}
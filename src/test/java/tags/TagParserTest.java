@@ -0,0 +1,134 @@
+package tags;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TagParserTest {
+    @Test
+    public void mustParseArgumentsOfEachType() throws Exception {
+        // given
+        final String fact = "P(5,a=3,b>2,c<-1,d!=4,x,!y,n=v,?,*,&z)";
+
+        // when
+        final Tag tag = TagParser.parseTag(fact, 0, fact.length());
+
+        // then
+        assertTrue(tag instanceof Fact);
+        final Fact parsed = (Fact) tag;
+        assertEquals(parsed.getPredicateName(), "P");
+        assertEquals(parsed.getArguments().toString(),
+                "[5, a = 3, b > 2, c < -1, d !=4, x, !y, n = v, ?, *, &z]");
+        final List<Argument.ArgType> symbols = new ArrayList<>();
+        for (final Argument argument : parsed.getArguments()) {
+            symbols.add(argument.getSymbol());
+        }
+        assertEquals(symbols, Arrays.asList(
+                Argument.ArgType.INT, Argument.ArgType.EQ,
+                Argument.ArgType.GT, Argument.ArgType.LT,
+                Argument.ArgType.EQ, Argument.ArgType.STRING,
+                Argument.ArgType.STRING, Argument.ArgType.STRING,
+                Argument.ArgType.MATCHONE, Argument.ArgType.MATCHALL,
+                Argument.ArgType.VAR));
+    }
+
+    @Test
+    public void mustParseTagsLikeTheirConstructors() throws Exception {
+        // given
+        final String line = "P(A,1); @R(x,!y); Q(B) S(n>2) -> T(C) @U(D)";
+
+        // when
+        final TagParser parser = new TagParser(line);
+
+        // then
+        assertTrue(parser.nextField());
+        assertEquals(parser.getTag(), new Fact("P(A,1)"));
+        assertTrue(parser.nextField());
+        assertEquals(parser.getTag(), new Recommendation("@R(x,!y)"));
+        assertEquals(((Recommendation) parser.getTag()).getPredicateName(),
+                "R");
+        assertTrue(parser.nextField());
+        assertEquals(parser.getTag(), new Rule("Q(B) S(n>2) -> T(C) @U(D)"));
+        assertEquals(parser.getTag(), new Rule(
+                new HashSet<>(Arrays.asList(new Fact("Q(B)"),
+                        new Fact("S(n>2)"))),
+                new HashSet<>(Arrays.asList(new Fact("T(C)"),
+                        new Recommendation("@U(D)")))));
+        assertFalse(parser.nextField());
+    }
+
+    @Test
+    public void mustSplitRulesOnOr() throws Exception {
+        // when
+        final List<Rule> rules =
+                TagParser.parseRules("A(x) B(y) OR C(z) -> D(w) @E(v)");
+
+        // then
+        assertEquals(rules, Arrays.asList(
+                new Rule("A(x) B(y) -> D(w) @E(v)"),
+                new Rule("C(z) -> D(w) @E(v)")));
+        assertEquals(Rule.makeRules("A(x) B(y) OR C(z) -> D(w) @E(v)"), rules);
+        assertTrue(TagParser.parseRules("A(x) B(y)").isEmpty());
+    }
+
+    @Test
+    public void mustIterateOverKnowledgeNodeFields() throws Exception {
+        // given
+        final TagParser parser = new TagParser("P(A); 50;\tQ(B);x(y)  ;  ");
+
+        // when
+        final List<String> fields = new ArrayList<>();
+        while (parser.nextField()) {
+            fields.add(parser.getField());
+        }
+
+        // then
+        assertEquals(fields, Arrays.asList("P(A)", "50", "Q(B);x(y)  "));
+    }
+
+    @Test
+    public void mustParseThresholds() throws Exception {
+        // given
+        final TagParser parser = new TagParser("P(A); 50; Q(B)");
+
+        // when
+        parser.nextField();
+        final boolean isInputNumber = parser.isNumber();
+        parser.nextField();
+
+        // then
+        assertFalse(isInputNumber);
+        assertTrue(parser.isNumber());
+        assertEquals(parser.getNumber(), 50);
+        assertNull(parser.getTag());
+    }
+
+    @Test
+    public void mustNotParseInvalidTags() throws Exception {
+        // then
+        assertNull(TagParser.parseTag("P", 0, 1));
+        assertNull(TagParser.parseTag("P)(", 0, 3));
+        assertNull(TagParser.parseTag("", 0, 0));
+        assertEquals(TagParser.parseTag("xP(A)x", 1, 5), new Fact("P(A)"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mustRejectEmptyArguments() throws Exception {
+        // when
+        new Fact("P(,A)");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mustRejectRulesWithoutArrow() throws Exception {
+        // when
+        new Rule("P(A) Q(B)");
+    }
+}
@@ -0,0 +1,178 @@
+package workload;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import knn.api.KnowledgeNode;
+import org.testng.annotations.Test;
+import tags.Fact;
+import tags.Rule;
+import tags.Tag;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class WorkloadGeneratorTest {
+    private static final Pattern NODE_NAME = Pattern.compile("n(\\d+)");
+
+    @Test
+    public void mustGenerateParsableKnowledgeNodes() throws Exception {
+        // given
+        final WorkloadGenerator generator = new WorkloadGenerator(1)
+                .setCount(200)
+                .setMeanFanOut(3)
+                .setFanOutDistribution(FanOutDistribution.POWER_LAW)
+                .setCycleDensity(0.3)
+                .setArgumentMix(0.3, 0.2)
+                .setSharedTags(0.2, 10);
+
+        // when
+        final List<String> lines = generator.knowledgeNodes()
+                .collect(Collectors.toList());
+
+        // then
+        assertEquals(lines.size(), 200);
+        for (final String line : lines) {
+            final KnowledgeNode kn = new KnowledgeNode(line);
+            assertTrue(kn.getOutputTags().size() >= 1);
+        }
+    }
+
+    @Test
+    public void mustGenerateParsableRules() throws Exception {
+        // given
+        final WorkloadGenerator generator = new WorkloadGenerator(1)
+                .setCount(200)
+                .setFanOutDistribution(FanOutDistribution.UNIFORM)
+                .setCycleDensity(0.3)
+                .setArgumentMix(0.3, 0.2)
+                .setSharedTags(0.2, 10);
+
+        // when
+        final List<String> lines = generator.rules()
+                .collect(Collectors.toList());
+
+        // then
+        assertEquals(lines.size(), 200);
+        for (final String line : lines) {
+            final List<Rule> rules = Rule.makeRules(line);
+            assertEquals(rules.size(), 1);
+            assertTrue(rules.get(0).getInputFacts().size() >= 1);
+            assertTrue(rules.get(0).getOutputPredicates().size() >= 1);
+        }
+    }
+
+    @Test
+    public void mustBeReproducible() throws Exception {
+        // when
+        final List<String> first = new WorkloadGenerator(7).setCount(50)
+                .knowledgeNodes().collect(Collectors.toList());
+        final List<String> second = new WorkloadGenerator(7).setCount(50)
+                .knowledgeNodes().collect(Collectors.toList());
+        final List<String> other = new WorkloadGenerator(8).setCount(50)
+                .knowledgeNodes().collect(Collectors.toList());
+
+        // then
+        assertEquals(first, second);
+        assertTrue(!first.equals(other));
+    }
+
+    @Test
+    public void mustOnlyPointForwardWithoutCycles() throws Exception {
+        // given
+        final WorkloadGenerator generator = new WorkloadGenerator(3)
+                .setCount(100)
+                .setMeanFanOut(4)
+                .setCycleDensity(0);
+
+        // when
+        final List<String> lines = generator.knowledgeNodes()
+                .collect(Collectors.toList());
+
+        // then
+        for (int i = 0; i < lines.size(); i++) {
+            final KnowledgeNode kn = new KnowledgeNode(lines.get(i));
+            assertEquals(getNodeIndex(kn.getInputTag()), i);
+            for (final Tag output : kn.getOutputTags()) {
+                if (getName(output).startsWith("n")) {
+                    assertTrue(getNodeIndex(output) > i);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mustReuseInputTagsOfOtherKnowledgeNodes() throws Exception {
+        // given
+        final WorkloadGenerator generator = new WorkloadGenerator(5)
+                .setCount(100)
+                .setCycleDensity(0.5)
+                .setArgumentMix(0.5, 0.5);
+
+        // when
+        final Set<Tag> inputTags = generator.knowledgeNodes()
+                .map(this::parse)
+                .map(KnowledgeNode::getInputTag)
+                .collect(Collectors.toSet());
+        final Set<Tag> outputTags = generator.knowledgeNodes()
+                .map(this::parse)
+                .flatMap(kn -> kn.getOutputTags().stream())
+                .collect(Collectors.toSet());
+
+        // then
+        outputTags.removeIf(t -> getName(t).startsWith("s"));
+        assertTrue(inputTags.containsAll(outputTags));
+    }
+
+    @Test
+    public void mustWriteOneLinePerKnowledgeNodeAndRule() throws Exception {
+        // given
+        final WorkloadGenerator generator = new WorkloadGenerator(2)
+                .setCount(30);
+        final Path knnFile = Files.createTempFile("knn", ".txt");
+        final Path ruleFile = Files.createTempFile("rules", ".txt");
+
+        try {
+            // when
+            generator.writeKnowledgeNodes(knnFile);
+            generator.writeRules(ruleFile);
+
+            // then
+            assertEquals(Files.readAllLines(knnFile),
+                    generator.knowledgeNodes().collect(Collectors.toList()));
+            assertEquals(Files.readAllLines(ruleFile),
+                    generator.rules().collect(Collectors.toList()));
+        } finally {
+            Files.delete(knnFile);
+            Files.delete(ruleFile);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mustRejectInvalidArgumentMix() throws Exception {
+        // when
+        new WorkloadGenerator(0).setArgumentMix(0.6, 0.6);
+    }
+
+    private KnowledgeNode parse(final String line) {
+        try {
+            return new KnowledgeNode(line);
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String getName(final Tag tag) {
+        return ((Fact) tag).getPredicateName();
+    }
+
+    private int getNodeIndex(final Tag tag) {
+        final Matcher matcher = NODE_NAME.matcher(getName(tag));
+        assertTrue(matcher.matches(), getName(tag));
+        return Integer.parseInt(matcher.group(1));
+    }
+}